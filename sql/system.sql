@@ -59,3 +59,26 @@ create table chat_history
 ) comment '对话历史' collate = utf8mb4_unicode_ci;
 
 
+
+-- 生成任务表
+create table generation_job
+(
+    id                bigint auto_increment comment 'id' primary key,
+    app_id            bigint                             not null comment '应用id',
+    user_id           bigint                             not null comment '创建用户id',
+    message           text                               not null comment '用户消息',
+    code_gen_type     varchar(64)                        not null comment '代码生成类型（枚举）',
+    status            varchar(32)                        not null comment '任务状态：pending/running/succeeded/failed',
+    result_dir        varchar(256)                       null comment '生成结果目录名',
+    error_message     varchar(1024)                      null comment '失败原因',
+    attempts          int      default 0                 not null comment '已执行次数',
+    lease_owner       varchar(64)                        null comment '持有租约的节点',
+    lease_expire_time datetime                           null comment '租约过期时间',
+    finish_time       datetime                           null comment '完成时间',
+    create_time       datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    update_time       datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    is_delete         tinyint  default 0                 not null comment '是否删除',
+    INDEX idx_status_leaseExpireTime (status, lease_expire_time), -- 领取任务的核心索引
+    INDEX idx_appId (app_id),
+    INDEX idx_userId (user_id)
+) comment '生成任务' collate = utf8mb4_unicode_ci;
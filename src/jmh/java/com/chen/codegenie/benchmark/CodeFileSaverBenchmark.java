@@ -0,0 +1,76 @@
+package com.chen.codegenie.benchmark;
+
+import cn.hutool.core.io.FileUtil;
+import com.chen.codegenie.ai.model.HtmlCodeResult;
+import com.chen.codegenie.ai.model.MultiFileCodeResult;
+import com.chen.codegenie.core.parser.HtmlCodeParser;
+import com.chen.codegenie.core.parser.MultiFileCodeParser;
+import com.chen.codegenie.core.saver.CodeFileSaverTemplate;
+import com.chen.codegenie.core.saver.HtmlCodeFileSaverTemplate;
+import com.chen.codegenie.core.saver.MultiFileCodeFileSaverTemplate;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码保存基准测试
+ * 每次调用把解析结果写入固定的应用目录（覆盖写），结束后删除
+ *
+ * @author chen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodeFileSaverBenchmark {
+
+    private static final long APP_ID = 900_000_000_000_000_001L;
+
+    @Param({"5000", "50000", "500000"})
+    private int size;
+
+    private HtmlCodeResult htmlCodeResult;
+
+    private MultiFileCodeResult multiFileCodeResult;
+
+    private final HtmlCodeFileSaverTemplate htmlSaver = new HtmlCodeFileSaverTemplate();
+
+    private final MultiFileCodeFileSaverTemplate multiFileSaver = new MultiFileCodeFileSaverTemplate();
+
+    @Setup
+    public void setup() {
+        htmlCodeResult = new HtmlCodeParser().parseCode(ModelOutputs.html(size, ModelOutputs.Shape.WELL_FORMED));
+        multiFileCodeResult = new MultiFileCodeParser().parseCode(ModelOutputs.multiFile(size, ModelOutputs.Shape.WELL_FORMED));
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.del(CodeFileSaverTemplate.getOutputDirPath(CodeGenTypeEnum.HTML, APP_ID));
+        FileUtil.del(CodeFileSaverTemplate.getOutputDirPath(CodeGenTypeEnum.MULTI_FILE, APP_ID));
+    }
+
+    @Benchmark
+    public File saveHtml() {
+        return htmlSaver.saveCode(htmlCodeResult, APP_ID);
+    }
+
+    @Benchmark
+    public File saveMultiFile() {
+        return multiFileSaver.saveCode(multiFileCodeResult, APP_ID);
+    }
+}
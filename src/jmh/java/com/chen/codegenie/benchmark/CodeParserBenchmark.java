@@ -0,0 +1,105 @@
+package com.chen.codegenie.benchmark;
+
+import com.chen.codegenie.ai.model.HtmlCodeResult;
+import com.chen.codegenie.ai.model.MultiFileCodeResult;
+import com.chen.codegenie.core.parser.HtmlCodeParser;
+import com.chen.codegenie.core.parser.MultiFileCodeParser;
+import com.chen.codegenie.core.parser.StreamingCodeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码解析基准测试
+ * 对比单文件、多文件（三次正则扫描）、已废弃的静态解析器以及流式解析器在不同大小和形态输入下的耗时与分配
+ *
+ * @author chen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings("deprecation")
+public class CodeParserBenchmark {
+
+    @Param({"5000", "50000", "500000"})
+    private int size;
+
+    @Param({"WELL_FORMED", "UNTERMINATED", "MALFORMED"})
+    private ModelOutputs.Shape shape;
+
+    private String htmlOutput;
+
+    private String multiFileOutput;
+
+    private List<String> multiFileChunks;
+
+    private final HtmlCodeParser htmlCodeParser = new HtmlCodeParser();
+
+    private final MultiFileCodeParser multiFileCodeParser = new MultiFileCodeParser();
+
+    @Setup
+    public void setup() {
+        htmlOutput = ModelOutputs.html(size, shape);
+        multiFileOutput = ModelOutputs.multiFile(size, shape);
+        // 流式解析按单个 token 的典型片段大小输入
+        multiFileChunks = ModelOutputs.chunks(multiFileOutput, 16);
+    }
+
+    @Benchmark
+    public HtmlCodeResult htmlParser() {
+        return htmlCodeParser.parseCode(htmlOutput);
+    }
+
+    @Benchmark
+    public MultiFileCodeResult multiFileParser() {
+        return multiFileCodeParser.parseCode(multiFileOutput);
+    }
+
+    @Benchmark
+    public HtmlCodeResult legacyHtmlParser() {
+        return com.chen.codegenie.core.CodeParser.parseHtmlCode(htmlOutput);
+    }
+
+    @Benchmark
+    public MultiFileCodeResult legacyMultiFileParser() {
+        return com.chen.codegenie.core.CodeParser.parseMultiFileCode(multiFileOutput);
+    }
+
+    @Benchmark
+    public void streamingMultiFileParser(Blackhole blackhole) {
+        StreamingCodeParser parser = new StreamingCodeParser(new StreamingCodeParser.Listener() {
+            @Override
+            public void onBlockStart(String info) {
+                blackhole.consume(info);
+            }
+
+            @Override
+            public void onBlockContent(String content) {
+                blackhole.consume(content);
+            }
+
+            @Override
+            public void onBlockEnd() {
+            }
+        });
+        for (String chunk : multiFileChunks) {
+            parser.feed(chunk);
+        }
+        parser.finish();
+    }
+}
@@ -0,0 +1,151 @@
+package com.chen.codegenie.benchmark;
+
+import com.chen.codegenie.ai.mock.CannedOutputs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试输入：按目标大小缩放的模型输出
+ * 以模拟模型的预置回复为模板，保留说明文字，按行重复或截断代码块正文，使 UTF-8 编码后的大小接近目标字节数
+ *
+ * @author chen
+ */
+public class ModelOutputs {
+
+    /**
+     * 输出形态
+     */
+    public enum Shape {
+        /**
+         * 代码块完整闭合
+         */
+        WELL_FORMED,
+        /**
+         * 最后一个代码块没有结束标记（输出被截断）
+         */
+        UNTERMINATED,
+        /**
+         * 代码块语言标记缺失或写错，只有部分代码块能被识别
+         */
+        MALFORMED
+    }
+
+    /**
+     * 构造单文件模式的模型输出
+     *
+     * @param targetBytes 目标字节数（UTF-8）
+     * @param shape       输出形态
+     * @return 模型输出
+     */
+    public static String html(int targetBytes, Shape shape) {
+        return build(CannedOutputs.HTML_OUTPUT, targetBytes, shape);
+    }
+
+    /**
+     * 构造多文件模式的模型输出
+     *
+     * @param targetBytes 目标字节数（UTF-8）
+     * @param shape       输出形态
+     * @return 模型输出
+     */
+    public static String multiFile(int targetBytes, Shape shape) {
+        return build(CannedOutputs.MULTI_FILE_OUTPUT, targetBytes, shape);
+    }
+
+    /**
+     * 按固定长度切分为流式片段
+     *
+     * @param text       完整输出
+     * @param chunkChars 片段字符数
+     * @return 片段列表
+     */
+    public static List<String> chunks(String text, int chunkChars) {
+        List<String> chunks = new ArrayList<>(text.length() / chunkChars + 1);
+        for (int i = 0; i < text.length(); i += chunkChars) {
+            chunks.add(text.substring(i, Math.min(text.length(), i + chunkChars)));
+        }
+        return chunks;
+    }
+
+    private static String build(String template, int targetBytes, Shape shape) {
+        // 拆出每个代码块的正文，前后说明文字和代码块结构保持不变
+        List<String> texts = new ArrayList<>();
+        List<String> bodies = new ArrayList<>();
+        int textStart = 0;
+        int pos = 0;
+        while (true) {
+            int open = template.indexOf("```", pos);
+            if (open < 0) {
+                break;
+            }
+            int bodyStart = template.indexOf('\n', open) + 1;
+            int close = template.indexOf("```", bodyStart);
+            texts.add(template.substring(textStart, bodyStart));
+            bodies.add(template.substring(bodyStart, close));
+            // 结束标记归入下一段说明文字
+            textStart = close;
+            pos = close + 3;
+        }
+        texts.add(template.substring(textStart));
+        long fixedBytes = texts.stream().mapToLong(ModelOutputs::utf8Length).sum();
+        long templateBodyBytes = bodies.stream().mapToLong(ModelOutputs::utf8Length).sum();
+        // 正文预算按模板中各代码块的大小比例分配，最后一个代码块补齐取整误差
+        long bodyBudget = Math.max(0, targetBytes - fixedBytes);
+        StringBuilder sb = new StringBuilder(targetBytes);
+        long allocated = 0;
+        for (int i = 0; i < bodies.size(); i++) {
+            String body = bodies.get(i);
+            long budget = i == bodies.size() - 1
+                    ? bodyBudget - allocated
+                    : bodyBudget * utf8Length(body) / templateBodyBytes;
+            allocated += budget;
+            sb.append(texts.get(i));
+            appendBody(sb, body, budget);
+        }
+        sb.append(texts.get(texts.size() - 1));
+        String output = sb.toString();
+        return switch (shape) {
+            case WELL_FORMED -> output;
+            case UNTERMINATED -> output.substring(0, output.lastIndexOf("```"));
+            case MALFORMED -> output.replace("```html", "```HTML ")
+                    .replace("```css", "```")
+                    .replace("```javascript", "``` javascript");
+        };
+    }
+
+    /**
+     * 按行循环追加正文直到用完字节预算，最后一行放不下时截断并补换行，保证结束标记独占一行
+     */
+    private static void appendBody(StringBuilder sb, String body, long budget) {
+        List<String> lines = body.lines().map(line -> line + "\n").toList();
+        if (lines.isEmpty()) {
+            return;
+        }
+        long used = 0;
+        for (int i = 0; ; i++) {
+            String line = lines.get(i % lines.size());
+            long lineBytes = utf8Length(line);
+            if (used + lineBytes > budget) {
+                int end = 0;
+                while (end < line.length() - 1 && used + utf8Length(line.substring(0, end + 1)) < budget) {
+                    end++;
+                }
+                if (end > 0 && Character.isHighSurrogate(line.charAt(end - 1))) {
+                    end--;
+                }
+                if (budget - used > 0) {
+                    sb.append(line, 0, end).append('\n');
+                }
+                return;
+            }
+            sb.append(line);
+            used += lineBytes;
+        }
+    }
+
+    private static long utf8Length(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
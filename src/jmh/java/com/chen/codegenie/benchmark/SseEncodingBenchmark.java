@@ -0,0 +1,60 @@
+package com.chen.codegenie.benchmark;
+
+import cn.hutool.json.JSONUtil;
+import com.chen.codegenie.core.stream.SseDataEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE 片段编码基准测试
+ * 对一次完整生成（约 50 KB 输出）的全部片段做 {"d":...} 包装，
+ * 对比通用 JSON 序列化（原 chatToGenCode 的写法）与 SseDataEncoder，片段大小分别对应逐 token 下发和合并后下发
+ *
+ * @author chen
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SseEncodingBenchmark {
+
+    @Param({"16", "4096"})
+    private int chunkChars;
+
+    private List<String> chunks;
+
+    @Setup
+    public void setup() {
+        chunks = ModelOutputs.chunks(ModelOutputs.multiFile(50_000, ModelOutputs.Shape.WELL_FORMED), chunkChars);
+    }
+
+    @Benchmark
+    public void hutoolJson(Blackhole blackhole) {
+        for (String chunk : chunks) {
+            blackhole.consume(JSONUtil.toJsonStr(Map.of("d", chunk)));
+        }
+    }
+
+    @Benchmark
+    public void sseDataEncoder(Blackhole blackhole) {
+        for (String chunk : chunks) {
+            blackhole.consume(SseDataEncoder.wrapChunk(chunk));
+        }
+    }
+}
@@ -4,17 +4,21 @@ import com.chen.codegenie.ai.model.HtmlCodeResult;
 import com.chen.codegenie.ai.model.MultiFileCodeResult;
 import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.UserMessage;
-import reactor.core.publisher.Flux;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 
 /**
+ * 所有应用共用一个服务实例，通过 memoryId（应用 ID）区分对话记忆
+ *
  * @author chen
  */
-public interface AiCodeGeneratorService {
+public interface AiCodeGeneratorService extends ChatMemoryAccess {
 
     /**
      * 生成 HTML 代码
      *
+     * @param memoryId    记忆 ID（应用 ID）
      * @param userMessage 用户消息
      * @return 生成的代码结果
      */
@@ -24,30 +28,32 @@ public interface AiCodeGeneratorService {
     /**
      * 生成多文件代码
      *
+     * @param memoryId    记忆 ID（应用 ID）
      * @param userMessage 用户消息
      * @return 生成的代码结果
      */
     @SystemMessage(fromResource = "prompt/multi-file-system-prompt.txt")
-    MultiFileCodeResult generateMultiFileCode(String userMessage);
+    MultiFileCodeResult generateMultiFileCode(@MemoryId long memoryId, @UserMessage String userMessage);
 
 
     /**
      * 生成 HTML 代码（流式）
      *
+     * @param memoryId    记忆 ID（应用 ID）
      * @param userMessage 用户消息
      * @return 生成的代码结果
      */
     @SystemMessage(fromResource = "prompt/html-system-prompt.txt")
-    Flux<String> generateHtmlCodeStream(String userMessage);
+    TokenStream generateHtmlCodeStream(@MemoryId long memoryId, @UserMessage String userMessage);
 
     /**
      * 生成多文件代码（流式）
      *
+     * @param memoryId    记忆 ID（应用 ID）
      * @param userMessage 用户消息
      * @return 生成的代码结果
      */
     @SystemMessage(fromResource = "prompt/multi-file-system-prompt.txt")
-    Flux<String> generateMultiFileCodeStream(String userMessage);
+    TokenStream generateMultiFileCodeStream(@MemoryId long memoryId, @UserMessage String userMessage);
 
 }
-
@@ -1,85 +1,245 @@
 package com.chen.codegenie.ai;
 
-import com.chen.codegenie.model.entity.ChatHistory;
+import com.chen.codegenie.ai.memory.ChatMemorySummarizer;
+import com.chen.codegenie.ai.memory.LocalTokenCountEstimator;
+import com.chen.codegenie.ai.memory.TokenBudgetChatMemory;
+import com.chen.codegenie.config.ChatMemoryConfig;
+import com.chen.codegenie.core.cache.CacheInvalidationBus;
+import com.chen.codegenie.core.metrics.GenerationMetrics;
+import com.chen.codegenie.model.entity.App;
+import com.chen.codegenie.model.enums.CacheInvalidationTypeEnum;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import com.chen.codegenie.service.AppService;
 import com.chen.codegenie.service.ChatHistoryService;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
-import dev.langchain4j.data.message.UserMessage;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import dev.langchain4j.memory.ChatMemory;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.TokenCountEstimator;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
-import jakarta.annotation.Resource;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
-import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * AI 服务工厂
+ * 所有应用共用一个 AI 服务代理，通过 @MemoryId 区分应用，对话记忆按应用懒加载并缓存
+ *
  * @author chen
  */
 @Configuration
 @Slf4j
 public class AiCodeGeneratorServiceFactory {
 
-    @Resource
-    private ChatModel chatModel;
+    private final ChatModel chatModel;
 
-    @Resource
-    private StreamingChatModel streamingChatModel;
+    private final StreamingChatModel streamingChatModel;
 
-    @Resource
-    @Lazy
-    private ChatHistoryService chatHistoryService;
+    private final ChatHistoryService chatHistoryService;
 
-    private final RedisChatMemoryStore redisChatMemoryStore;
+    private final AppService appService;
 
-    public AiCodeGeneratorServiceFactory(RedisChatMemoryStore redisChatMemoryStore) {
-        this.redisChatMemoryStore = redisChatMemoryStore;
+    private final GenerationMetrics generationMetrics;
+
+    private final ChatMemoryConfig chatMemoryConfig;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final ChatMemorySummarizer chatMemorySummarizer;
+
+    private final TokenCountEstimator tokenCountEstimator = new LocalTokenCountEstimator();
+
+    private final ChatMemoryStore chatMemoryStore;
+
+    private AiCodeGeneratorService aiCodeGeneratorService;
+
+    /**
+     * 对话记忆缓存，记忆内容存放在 ChatMemoryStore（Redis）中，这里只缓存很小的记忆对象，
+     * 移除后下次使用时重新从数据库加载
+     */
+    private final Cache<Long, ChatMemory> chatMemoryCache;
+
+    /**
+     * 正在预热的应用
+     */
+    private final Set<Long> warming = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor warmUpExecutor;
+
+    public AiCodeGeneratorServiceFactory(ChatMemoryStore chatMemoryStore, ChatModel chatModel,
+                                         StreamingChatModel streamingChatModel,
+                                         @Lazy ChatHistoryService chatHistoryService, @Lazy AppService appService,
+                                         GenerationMetrics generationMetrics, ChatMemoryConfig chatMemoryConfig,
+                                         CacheInvalidationBus cacheInvalidationBus,
+                                         ChatMemorySummarizer chatMemorySummarizer) {
+        this.chatMemoryStore = chatMemoryStore;
+        this.chatModel = chatModel;
+        this.streamingChatModel = streamingChatModel;
+        this.chatHistoryService = chatHistoryService;
+        this.appService = appService;
+        this.generationMetrics = generationMetrics;
+        this.chatMemoryConfig = chatMemoryConfig;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.chatMemorySummarizer = chatMemorySummarizer;
+        this.chatMemoryCache = Caffeine.newBuilder()
+                .maximumSize(chatMemoryConfig.getMemoryCacheMaxSize())
+                .expireAfterAccess(chatMemoryConfig.getMemoryCacheExpireAfterAccess())
+                // 移除回调只做内存操作，直接在调用线程执行，保证失效后立即生效
+                .executor(Runnable::run)
+                .removalListener((Long appId, ChatMemory chatMemory, RemovalCause cause) -> {
+                    log.debug("对话记忆被移除，appId: {}, 原因: {}", appId, cause);
+                    evictFromService(appId, chatMemory);
+                    // 摘要基于旧的记忆内容，随记忆一起清除
+                    chatMemorySummarizer.evict(appId);
+                })
+                .recordStats()
+                .build();
     }
 
-    private final Cache<Long,AiCodeGeneratorService> serviceCache= Caffeine.newBuilder()
-            .maximumSize(1000)
-            .expireAfterWrite(Duration.ofMinutes(30))
-            .expireAfterAccess(Duration.ofMinutes(10))
-            .removalListener((key, value, cause) -> {
-                log.debug("AI 服务实例被移除，appId: {}, 原因: {}", key, cause);
-            })
-            .build();
+    @PostConstruct
+    public void init() {
+        // AI 服务内部也按 memoryId 持有记忆对象，记忆缓存移除时同步清理
+        aiCodeGeneratorService = AiServices.builder(AiCodeGeneratorService.class)
+                .chatModel(chatModel)
+                .streamingChatModel(streamingChatModel)
+                .chatMemoryProvider(memoryId -> getChatMemory((Long) memoryId, true))
+                .build();
+        generationMetrics.monitorCache(chatMemoryCache, "chatMemory");
+        // 任意节点上应用变更后，各节点的记忆对象都需要从数据库重新加载
+        cacheInvalidationBus.subscribe(CacheInvalidationTypeEnum.APP, chatMemoryCache::invalidate);
+        int threads = chatMemoryConfig.getWarmUpThreads();
+        warmUpExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(chatMemoryConfig.getWarmUpQueueSize()),
+                ThreadFactoryBuilder.create().setNamePrefix("memory-warm-up-").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        warmUpExecutor.shutdownNow();
+    }
 
     /**
      * 默认提供一个 Bean
      */
-    //@Bean
-    //public AiCodeGeneratorService aiCodeGeneratorService() {
-    //    return getAiCodeGeneratorService(0L);
-    //}
+    @Bean
+    public AiCodeGeneratorService aiCodeGeneratorService() {
+        return aiCodeGeneratorService;
+    }
 
+    /**
+     * 获取 AI 服务，并预先加载应用的对话记忆
+     *
+     * @param appId 应用 ID
+     * @return AI 服务
+     */
     public AiCodeGeneratorService getAiCodeGeneratorService(long appId) {
-        return serviceCache.get(appId,this::createAiCodeGeneratorService);
+        getChatMemory(appId, true);
+        return aiCodeGeneratorService;
+    }
+
+    /**
+     * 在后台预热应用的对话记忆，用户打开应用时调用，首条消息无需等待从数据库加载历史。
+     * 已缓存的记忆只刷新访问时间，近期活跃的应用不会过期；预热中收到消息时等待同一次加载完成。
+     * 此时还没有本轮用户消息，加载历史时不排除最新一条，最新的 AI 回复（当前代码）会进入记忆。
+     *
+     * @param appId 应用 ID
+     */
+    public void warmUpAsync(long appId) {
+        if (chatMemoryCache.getIfPresent(appId) != null || !warming.add(appId)) {
+            return;
+        }
+        try {
+            warmUpExecutor.execute(() -> {
+                try {
+                    getChatMemory(appId, false);
+                } catch (Exception e) {
+                    log.warn("预热对话记忆失败，appId: {}, error: {}", appId, e.getMessage());
+                } finally {
+                    warming.remove(appId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            warming.remove(appId);
+            log.warn("预热任务已满，跳过预热，appId: {}", appId);
+        }
     }
 
+    /**
+     * 移除所有节点上应用的对话记忆，下次使用时重新从数据库加载
+     *
+     * @param appId 应用 ID
+     */
+    public void invalidateAiCodeGeneratorService(long appId) {
+        cacheInvalidationBus.publish(CacheInvalidationTypeEnum.APP, appId);
+    }
+
+    /**
+     * 删除应用的对话记忆，并移除所有节点上的缓存，用于应用删除后
+     *
+     * @param appId 应用 ID
+     */
+    public void removeChatMemory(long appId) {
+        chatMemoryStore.deleteMessages(appId);
+        cacheInvalidationBus.publish(CacheInvalidationTypeEnum.APP, appId);
+    }
 
-    //@Bean
-    public AiCodeGeneratorService createAiCodeGeneratorService(long appId) {
+    /**
+     * @param skipNewest 从数据库加载时是否排除最新一条消息，见 {@link ChatHistoryService#loadChatHistoryToMemory}
+     */
+    private ChatMemory getChatMemory(long appId, boolean skipNewest) {
+        long start = System.nanoTime();
+        boolean[] miss = {false};
+        ChatMemory chatMemory = chatMemoryCache.get(appId, id -> {
+            miss[0] = true;
+            return createChatMemory(id, skipNewest);
+        });
+        generationMetrics.recordChatMemoryGet(!miss[0], System.nanoTime() - start);
+        return chatMemory;
+    }
 
-        log.info("为 appId: {} 创建新的 AI 服务实例", appId);
-        ChatMemory chatMemory=MessageWindowChatMemory.builder()
+    private ChatMemory createChatMemory(long appId, boolean skipNewest) {
+        log.info("为 appId: {} 创建对话记忆", appId);
+        // 输入预算和历史代码压缩按应用的代码生成类型区分
+        App app = appService.getById(appId);
+        CodeGenTypeEnum codeGenType = app == null ? null : CodeGenTypeEnum.getEnumByValue(app.getCodeGenType());
+        ChatMemory chatMemory = TokenBudgetChatMemory.builder()
                 .id(appId)
-                .chatMemoryStore(redisChatMemoryStore)
-                .maxMessages(20)
+                .chatMemoryStore(chatMemoryStore)
+                .maxMessages(chatMemoryConfig.getMaxMessages())
+                .maxTokens(chatMemoryConfig.getInputTokenBudget(codeGenType))
+                .summaryReserveTokens(chatMemoryConfig.getSummaryReserveTokens())
+                .tokenCountEstimator(tokenCountEstimator)
+                .summarizer(chatMemorySummarizer)
+                .codeGenType(codeGenType)
                 .build();
         // 从数据库加载历史对话到记忆中
-        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 20);
-        return AiServices.builder(AiCodeGeneratorService.class)
-                .chatModel(chatModel)
-                .streamingChatModel(streamingChatModel)
-                // 根据 id 构建独立的对话记忆
-                .chatMemory(chatMemory)
-                .build();
+        long loadStart = System.nanoTime();
+        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, chatMemoryConfig.getMaxMessages(), skipNewest);
+        generationMetrics.recordMemoryLoad(System.nanoTime() - loadStart);
+        return chatMemory;
+    }
+
+    /**
+     * 只清理仍是同一个记忆对象的条目，避免误删刚重新创建的记忆
+     */
+    private void evictFromService(Long appId, ChatMemory chatMemory) {
+        if (aiCodeGeneratorService != null && appId != null
+                && aiCodeGeneratorService.getChatMemory(appId) == chatMemory) {
+            aiCodeGeneratorService.evictChatMemory(appId);
+        }
     }
 }
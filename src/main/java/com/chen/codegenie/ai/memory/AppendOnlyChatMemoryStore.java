@@ -0,0 +1,37 @@
+package com.chen.codegenie.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 支持增量写入的对话记忆存储
+ * 每轮对话只写入新追加的消息和内容发生变化的旧消息，写入量与历史长度无关。
+ *
+ * @author chen
+ */
+public interface AppendOnlyChatMemoryStore extends ChatMemoryStore {
+
+    /**
+     * 读取消息及其存储版本，两者来自同一时刻的存储状态
+     *
+     * @param memoryId 记忆 ID
+     * @return 消息及版本
+     */
+    VersionedChatMessages getVersionedMessages(Object memoryId);
+
+    /**
+     * 增量写入消息，系统消息（如有）位于列表首位，只能改写不能追加
+     *
+     * @param memoryId        记忆 ID
+     * @param messages        写入后的完整消息列表，旧消息已按条数上限从前面裁剪
+     * @param expectedVersion 写入方读到的存储版本，存储中的版本不一致时应整体重写
+     * @param appendedCount   列表末尾新追加的消息条数
+     * @param replacedIndexes 内容发生变化的旧消息在 messages 中的下标
+     * @return 写入后的存储版本
+     */
+    long appendMessages(Object memoryId, List<ChatMessage> messages, long expectedVersion, int appendedCount,
+                        Collection<Integer> replacedIndexes);
+}
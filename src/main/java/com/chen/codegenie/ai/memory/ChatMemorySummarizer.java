@@ -0,0 +1,178 @@
+package com.chen.codegenie.ai.memory;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.chen.codegenie.config.ChatMemoryConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话记忆摘要器
+ * 超出输入预算的较早对话在后台调用模型压缩成摘要，结果按「记忆 ID + 被压缩内容」缓存；
+ * 摘要未生成完成前返回该记忆上一次的摘要（可能为空），不阻塞当前对话。
+ *
+ * @author chen
+ */
+@Component
+@Slf4j
+public class ChatMemorySummarizer {
+
+    private static final String SYSTEM_PROMPT = ResourceUtil.readUtf8Str("prompt/memory-summary-system-prompt.txt");
+
+    /**
+     * 摘要请求中每条消息保留的最大字符数，代码内容只需保留开头用于识别
+     */
+    private static final int MAX_CHARS_PER_MESSAGE = 2000;
+
+    private final ChatModel chatModel;
+
+    private final ChatMemoryConfig chatMemoryConfig;
+
+    public ChatMemorySummarizer(ChatModel chatModel, ChatMemoryConfig chatMemoryConfig) {
+        this.chatModel = chatModel;
+        this.chatMemoryConfig = chatMemoryConfig;
+    }
+
+    /**
+     * 记忆 ID:被压缩内容摘要 -> 摘要
+     */
+    private final Cache<String, String> summaryCache = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    /**
+     * 记忆 ID -> 最近一次生成的摘要
+     */
+    private final Cache<String, String> latestSummary = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    /**
+     * 记忆 ID -> 最近一次清除摘要的时间，清除前提交的后台摘要完成后不再写入
+     */
+    private final Cache<String, Long> evictedAt = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    private final Set<String> inflight = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int threads = chatMemoryConfig.getSummaryThreads();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(chatMemoryConfig.getSummaryQueueSize()),
+                ThreadFactoryBuilder.create().setNamePrefix("memory-summary-").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 获取较早对话的摘要，缓存未命中时在后台生成
+     *
+     * @param memoryId  记忆 ID
+     * @param condensed 需要压缩的较早对话
+     * @return 摘要，尚未生成过时返回 null
+     */
+    public String getSummary(Object memoryId, List<ChatMessage> condensed) {
+        if (condensed.isEmpty()) {
+            return latestSummary.getIfPresent(String.valueOf(memoryId));
+        }
+        String memoryKey = String.valueOf(memoryId);
+        String key = memoryKey + ":" + digest(condensed);
+        String summary = summaryCache.getIfPresent(key);
+        if (summary != null) {
+            return summary;
+        }
+        String previous = latestSummary.getIfPresent(memoryKey);
+        if (inflight.add(key)) {
+            long submitTime = System.nanoTime();
+            try {
+                executor.execute(() -> summarize(memoryKey, key, previous, condensed, submitTime));
+            } catch (RejectedExecutionException e) {
+                inflight.remove(key);
+                log.warn("摘要任务已满，跳过本次摘要，memoryId: {}", memoryId);
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * 清除记忆的摘要，用于记忆被移除或对话历史被删除后，避免已删除的对话通过摘要重新进入上下文
+     *
+     * @param memoryId 记忆 ID
+     */
+    public void evict(Object memoryId) {
+        String memoryKey = String.valueOf(memoryId);
+        evictedAt.put(memoryKey, System.nanoTime());
+        latestSummary.invalidate(memoryKey);
+        String prefix = memoryKey + ":";
+        summaryCache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private void summarize(String memoryKey, String key, String previous, List<ChatMessage> condensed, long submitTime) {
+        try {
+            StringBuilder content = new StringBuilder();
+            if (StrUtil.isNotBlank(previous)) {
+                content.append("【更早的摘要】\n").append(previous).append("\n\n");
+            }
+            content.append("【对话】\n");
+            for (ChatMessage message : condensed) {
+                String role = message instanceof AiMessage ? "助手" : "用户";
+                content.append(role).append("：")
+                        .append(StrUtil.maxLength(ChatMessageTexts.text(message), MAX_CHARS_PER_MESSAGE))
+                        .append("\n\n");
+            }
+            String summary = chatModel.chat(List.of(SystemMessage.from(SYSTEM_PROMPT), UserMessage.from(content.toString())))
+                    .aiMessage().text();
+            Long evictTime = evictedAt.getIfPresent(memoryKey);
+            if (evictTime != null && evictTime - submitTime >= 0) {
+                log.info("对话摘要生成期间记忆已被清除，丢弃本次摘要，memoryId: {}", memoryKey);
+                return;
+            }
+            if (StrUtil.isNotBlank(summary)) {
+                summaryCache.put(key, summary.trim());
+                latestSummary.put(memoryKey, summary.trim());
+            }
+        } catch (Exception e) {
+            log.error("生成对话摘要失败，memoryId: {}, error: {}", memoryKey, e.getMessage());
+        } finally {
+            inflight.remove(key);
+        }
+    }
+
+    private static String digest(List<ChatMessage> messages) {
+        StringBuilder sb = new StringBuilder();
+        for (ChatMessage message : messages) {
+            sb.append(message.type()).append(':').append(ChatMessageTexts.text(message)).append('\n');
+        }
+        return DigestUtil.sha256Hex(sb.toString());
+    }
+}
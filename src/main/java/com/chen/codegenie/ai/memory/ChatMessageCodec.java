@@ -0,0 +1,247 @@
+package com.chen.codegenie.ai.memory;
+
+import com.github.luben.zstd.Zstd;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 对话消息二进制编解码器
+ * 消息列表格式：魔数(1) + 版本(1) + 消息数(varint) + 每条消息 [类型(1) + 标志(1) + 长度(varint) + 内容]；
+ * 单条消息格式：魔数(1) + 版本(1) + 一条消息，用于按条追加存储。
+ * 纯文本的系统、用户、AI 消息只存文本，其余消息（图片、工具调用等）内容存 JSON；
+ * 内容超过阈值时用 Zstd 压缩，压缩内容前先写原始长度。
+ * 以 '[' 开头的数据按旧的 JSON 格式解析，兼容 RedisChatMemoryStore 写入的数据。
+ *
+ * @author chen
+ */
+public class ChatMessageCodec {
+
+    /**
+     * 魔数，不是合法的 JSON 起始字符，用于区分旧数据
+     */
+    private static final byte MAGIC = (byte) 0xC6;
+
+    /**
+     * 当前格式版本，格式变化时递增，旧版本数据仍需能读取
+     */
+    public static final byte VERSION = 1;
+
+    private static final byte TYPE_JSON = 0;
+
+    private static final byte TYPE_SYSTEM = 1;
+
+    private static final byte TYPE_USER = 2;
+
+    private static final byte TYPE_AI = 3;
+
+    private static final byte FLAG_COMPRESSED = 1;
+
+    /**
+     * 内容达到该字节数才压缩，短消息压缩收益抵不过开销
+     */
+    private static final int COMPRESS_THRESHOLD_BYTES = 512;
+
+    private static final int COMPRESS_LEVEL = 3;
+
+    /**
+     * 编码消息列表
+     *
+     * @param messages 消息列表
+     * @return 二进制数据
+     */
+    public static byte[] encode(List<ChatMessage> messages) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarInt(out, messages.size());
+        for (ChatMessage message : messages) {
+            writeMessage(out, message);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码消息列表，兼容旧的 JSON 格式
+     *
+     * @param data 二进制数据
+     * @return 消息列表
+     * @throws IllegalArgumentException 数据格式无法识别或版本高于当前支持的版本
+     */
+    public static List<ChatMessage> decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new ArrayList<>();
+        }
+        if (data[0] == '[') {
+            return ChatMessageDeserializer.messagesFromJson(new String(data, StandardCharsets.UTF_8));
+        }
+        checkHeader(data);
+        Reader reader = new Reader(data, 2);
+        int count = reader.readVarInt();
+        List<ChatMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(readMessage(reader));
+        }
+        return messages;
+    }
+
+    /**
+     * 编码单条消息
+     *
+     * @param message 消息
+     * @return 二进制数据
+     */
+    public static byte[] encodeMessage(ChatMessage message) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeMessage(out, message);
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码单条消息
+     *
+     * @param data 二进制数据
+     * @return 消息
+     * @throws IllegalArgumentException 数据格式无法识别或版本高于当前支持的版本
+     */
+    public static ChatMessage decodeMessage(byte[] data) {
+        checkHeader(data);
+        return readMessage(new Reader(data, 2));
+    }
+
+    private static void checkHeader(byte[] data) {
+        if (data.length < 2 || data[0] != MAGIC) {
+            throw new IllegalArgumentException("无法识别的对话记忆数据格式");
+        }
+        if (data[1] > VERSION) {
+            throw new IllegalArgumentException("不支持的对话记忆数据版本: " + data[1]);
+        }
+    }
+
+    private static void writeMessage(ByteArrayOutputStream out, ChatMessage message) {
+        byte type;
+        String body;
+        if (message instanceof SystemMessage systemMessage) {
+            type = TYPE_SYSTEM;
+            body = systemMessage.text();
+        } else if (message instanceof UserMessage userMessage && userMessage.name() == null && userMessage.hasSingleText()) {
+            type = TYPE_USER;
+            body = userMessage.singleText();
+        } else if (message instanceof AiMessage aiMessage && !aiMessage.hasToolExecutionRequests() && aiMessage.text() != null) {
+            type = TYPE_AI;
+            body = aiMessage.text();
+        } else {
+            type = TYPE_JSON;
+            body = ChatMessageSerializer.messageToJson(message);
+        }
+        byte[] raw = body.getBytes(StandardCharsets.UTF_8);
+        byte flags = 0;
+        byte[] content = raw;
+        if (raw.length >= COMPRESS_THRESHOLD_BYTES) {
+            byte[] compressed = Zstd.compress(raw, COMPRESS_LEVEL);
+            if (compressed.length < raw.length) {
+                flags = FLAG_COMPRESSED;
+                content = compressed;
+            }
+        }
+        out.write(type);
+        out.write(flags);
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            writeVarInt(out, content.length + varIntSize(raw.length));
+            writeVarInt(out, raw.length);
+        } else {
+            writeVarInt(out, content.length);
+        }
+        out.writeBytes(content);
+    }
+
+    private static ChatMessage readMessage(Reader reader) {
+        byte type = reader.readByte();
+        byte flags = reader.readByte();
+        int length = reader.readVarInt();
+        int end = reader.position + length;
+        byte[] raw;
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            int rawLength = reader.readVarInt();
+            raw = Zstd.decompress(reader.readBytes(end - reader.position), rawLength);
+        } else {
+            raw = reader.readBytes(length);
+        }
+        String body = new String(raw, StandardCharsets.UTF_8);
+        return switch (type) {
+            case TYPE_SYSTEM -> SystemMessage.from(body);
+            case TYPE_USER -> UserMessage.from(body);
+            case TYPE_AI -> AiMessage.from(body);
+            case TYPE_JSON -> ChatMessageDeserializer.messageFromJson(body);
+            default -> throw new IllegalArgumentException("未知的消息类型: " + type);
+        };
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    private static class Reader {
+
+        private final byte[] data;
+
+        private int position;
+
+        Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        byte readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("对话记忆数据不完整");
+            }
+            return data[position++];
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("对话记忆数据长度字段损坏");
+        }
+
+        byte[] readBytes(int length) {
+            if (length < 0 || position + length > data.length) {
+                throw new IllegalArgumentException("对话记忆数据不完整");
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(data, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.chen.codegenie.ai.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+/**
+ * 对话消息文本工具类
+ *
+ * @author chen
+ */
+public class ChatMessageTexts {
+
+    /**
+     * 获取消息的文本内容（图片等非文本内容忽略）
+     *
+     * @param message 消息
+     * @return 文本内容，没有文本时返回空字符串
+     */
+    public static String text(ChatMessage message) {
+        if (message instanceof AiMessage aiMessage) {
+            return aiMessage.text() == null ? "" : aiMessage.text();
+        }
+        if (message instanceof UserMessage userMessage) {
+            if (userMessage.hasSingleText()) {
+                return userMessage.singleText();
+            }
+            StringBuilder sb = new StringBuilder();
+            for (Content content : userMessage.contents()) {
+                if (content instanceof TextContent textContent) {
+                    sb.append(textContent.text());
+                }
+            }
+            return sb.toString();
+        }
+        if (message instanceof SystemMessage systemMessage) {
+            return systemMessage.text();
+        }
+        if (message instanceof ToolExecutionResultMessage toolMessage) {
+            return toolMessage.text() == null ? "" : toolMessage.text();
+        }
+        return "";
+    }
+}
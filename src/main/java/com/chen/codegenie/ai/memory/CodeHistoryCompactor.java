@@ -0,0 +1,187 @@
+package com.chen.codegenie.ai.memory;
+
+import com.chen.codegenie.constant.ChatHistoryConstant;
+import com.chen.codegenie.core.parser.CodeBlockFiles;
+import com.chen.codegenie.core.parser.StreamingCodeParser;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 对话历史代码压缩器
+ * 同一个文件在历史中出现多个版本时，只保留最新版本的代码，较早的代码块替换为简短的占位说明，
+ * 如 [index.html v1, 12 KB, superseded]，最新的文件内容同时保存在代码输出目录中。
+ * 只有实际保存过的代码块才算一个版本（与保存器一致）：中断的消息、未闭合的代码块以及同一消息中同一文件的后续代码块
+ * 都没有保存，不会取代更早的版本，只在之后出现了新版本时才被压缩。
+ *
+ * @author chen
+ */
+public class CodeHistoryCompactor {
+
+    private static final String FENCE = "```";
+
+    /**
+     * 压缩消息列表中被后续版本取代的代码块
+     *
+     * @param messages    按时间正序的消息列表
+     * @param codeGenType 代码生成类型
+     * @return 压缩后的消息列表，没有可压缩内容时返回原列表
+     */
+    public static List<ChatMessage> compact(List<ChatMessage> messages, CodeGenTypeEnum codeGenType) {
+        if (codeGenType == null) {
+            return messages;
+        }
+        // 解析所有包含代码块的 AI 消息
+        Map<Integer, List<Segment>> parsed = new HashMap<>();
+        Map<String, Integer> versionCount = new HashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i) instanceof AiMessage aiMessage && aiMessage.text() != null && aiMessage.text().contains(FENCE)) {
+                List<Segment> segments = parse(aiMessage.text(), codeGenType);
+                boolean incomplete = aiMessage.text().endsWith(ChatHistoryConstant.INCOMPLETE_AI_MESSAGE_MARK);
+                Set<String> savedFiles = new HashSet<>();
+                for (Segment segment : segments) {
+                    if (segment.fileName == null) {
+                        continue;
+                    }
+                    if (!incomplete && segment.terminated && savedFiles.add(segment.fileName)) {
+                        segment.version = versionCount.merge(segment.fileName, 1, Integer::sum);
+                    } else {
+                        // 未保存的代码块不算版本，记录此时已有的版本数
+                        segment.versionsBefore = versionCount.getOrDefault(segment.fileName, 0);
+                    }
+                }
+                parsed.put(i, segments);
+            }
+        }
+        List<ChatMessage> result = new ArrayList<>(messages);
+        boolean[] changedAny = {false};
+        parsed.forEach((index, segments) -> {
+            boolean changed = false;
+            StringBuilder sb = new StringBuilder();
+            for (Segment segment : segments) {
+                if (segment.isSuperseded(versionCount)) {
+                    sb.append(placeholder(segment)).append('\n');
+                    changed = true;
+                } else {
+                    segment.appendTo(sb);
+                }
+            }
+            if (changed) {
+                result.set(index, AiMessage.from(sb.toString()));
+                changedAny[0] = true;
+            }
+        });
+        return changedAny[0] ? result : messages;
+    }
+
+    private static List<Segment> parse(String text, CodeGenTypeEnum codeGenType) {
+        List<Segment> segments = new ArrayList<>();
+        StreamingCodeParser parser = new StreamingCodeParser(new StreamingCodeParser.Listener() {
+
+            private Segment block;
+
+            @Override
+            public void onBlockStart(String info) {
+                block = new Segment();
+                block.info = info;
+                block.fileName = CodeBlockFiles.resolveFileName(codeGenType, info);
+                segments.add(block);
+            }
+
+            @Override
+            public void onBlockContent(String content) {
+                block.content.append(content);
+            }
+
+            @Override
+            public void onBlockEnd() {
+                block.terminated = true;
+                block = null;
+            }
+
+            @Override
+            public void onText(String text) {
+                Segment last = segments.isEmpty() ? null : segments.getLast();
+                if (last == null || last.info != null) {
+                    last = new Segment();
+                    segments.add(last);
+                }
+                last.content.append(text);
+            }
+        });
+        parser.feed(text);
+        // 最后一行不是结束围栏时，未闭合的代码块由 finish 关闭，但内容不完整
+        boolean unterminated = parser.isInBlock()
+                && !text.substring(text.lastIndexOf('\n') + 1).strip().startsWith(FENCE);
+        parser.finish();
+        if (unterminated) {
+            segments.getLast().terminated = false;
+        }
+        return segments;
+    }
+
+    private static String placeholder(Segment segment) {
+        double kb = segment.content.toString().getBytes(StandardCharsets.UTF_8).length / 1024.0;
+        String size = kb >= 10 ? String.valueOf(Math.round(kb)) : String.format(Locale.ROOT, "%.1f", kb);
+        String version = segment.version > 0 ? "v" + segment.version : "incomplete";
+        return "[" + segment.fileName + " " + version + ", " + size + " KB, superseded]";
+    }
+
+    /**
+     * 消息中的一段：代码块（info 不为空）或代码块之外的文本
+     */
+    private static class Segment {
+
+        private String info;
+
+        private String fileName;
+
+        /**
+         * 版本号，未保存的代码块为 0
+         */
+        private int version;
+
+        /**
+         * 未保存的代码块出现时该文件已有的版本数
+         */
+        private int versionsBefore;
+
+        private boolean terminated;
+
+        private final StringBuilder content = new StringBuilder();
+
+        /**
+         * 之后是否出现了该文件的新版本
+         */
+        boolean isSuperseded(Map<String, Integer> versionCount) {
+            if (fileName == null) {
+                return false;
+            }
+            return versionCount.getOrDefault(fileName, 0) > (version > 0 ? version : versionsBefore);
+        }
+
+        void appendTo(StringBuilder sb) {
+            if (info == null) {
+                sb.append(content);
+                return;
+            }
+            sb.append(FENCE).append(info).append('\n').append(content);
+            if (!terminated) {
+                return;
+            }
+            if (!content.isEmpty() && content.charAt(content.length() - 1) != '\n') {
+                sb.append('\n');
+            }
+            sb.append(FENCE).append('\n');
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.chen.codegenie.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+
+/**
+ * 本地 token 数估算器
+ * 不依赖模型的分词器，按字符类别近似估算：ASCII 字符（代码、英文）约 4 个字符 1 个 token，
+ * 中文等非 ASCII 字符按 1 个字符 1 个 token 计，结果略偏大，用于控制输入规模足够
+ *
+ * @author chen
+ */
+public class LocalTokenCountEstimator implements TokenCountEstimator {
+
+    /**
+     * 每条消息的角色、分隔符等固定开销
+     */
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private static final int ASCII_CHARS_PER_TOKEN = 4;
+
+    @Override
+    public int estimateTokenCountInText(String text) {
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 0x80) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return (ascii + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN + other;
+    }
+
+    @Override
+    public int estimateTokenCountInMessage(ChatMessage message) {
+        return MESSAGE_OVERHEAD_TOKENS + estimateTokenCountInText(ChatMessageTexts.text(message));
+    }
+
+    @Override
+    public int estimateTokenCountInMessages(Iterable<ChatMessage> messages) {
+        int tokens = 0;
+        for (ChatMessage message : messages) {
+            tokens += estimateTokenCountInMessage(message);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,332 @@
+package com.chen.codegenie.ai.memory;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
+import com.chen.codegenie.config.RedisChatMemoryStoreConfig;
+import com.chen.codegenie.core.metrics.GenerationMetrics;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Redis 对话记忆存储（二进制格式，按条追加）
+ * 系统消息单独存放，其余消息用 {@link ChatMessageCodec} 逐条编码后存放在 Redis 列表中，
+ * 每轮对话只 RPUSH 新消息、LSET 改写变化的旧消息、LTRIM 裁剪到条数上限，写入量与历史长度无关；
+ * 每次写入递增单独存放的版本号，增量写入由 Lua 脚本先核对版本再原子执行，与写入方读到的版本不一致时整体重写。
+ * 旧格式（整个列表编码为一个值，或 RedisChatMemoryStore 写入的 JSON）在读取不到新键时回退读取，并迁移为新格式。
+ *
+ * @author chen
+ */
+@Component
+@Slf4j
+public class RedisBinaryChatMemoryStore implements AppendOnlyChatMemoryStore {
+
+    /**
+     * 对话记忆键前缀
+     */
+    public static final String KEY_PREFIX = "code-genie:chat-memory:";
+
+    private static final String MESSAGES_KEY_SUFFIX = ":messages";
+
+    private static final String SYSTEM_KEY_SUFFIX = ":system";
+
+    private static final String VERSION_KEY_SUFFIX = ":ver";
+
+    /**
+     * 增量写入脚本：版本与写入方读到的一致（且沿用的系统消息仍存在）时才追加、改写并裁剪，递增并返回新版本，
+     * 否则不做任何修改返回 0。列表裁剪到条数上限后长度不再变化，不能用长度判断期间是否有其他写入。
+     * KEYS：消息列表、系统消息、版本；ARGV：预期版本、是否要求系统消息存在、写入后条数、过期秒数、追加条数、改写条数、
+     * 新的系统消息（空表示不改写），之后依次为追加的消息和改写的（位置, 消息）
+     */
+    static final RedisScript<Long> APPEND_SCRIPT = RedisScript.of("""
+            if tonumber(redis.call('GET', KEYS[3]) or '0') ~= tonumber(ARGV[1]) then return 0 end
+            if ARGV[2] == '1' and redis.call('EXISTS', KEYS[2]) == 0 then return 0 end
+            local i = 8
+            local appended = tonumber(ARGV[5])
+            if appended > 0 then
+                redis.call('RPUSH', KEYS[1], unpack(ARGV, i, i + appended - 1))
+                i = i + appended
+            end
+            for _ = 1, tonumber(ARGV[6]) do
+                redis.call('LSET', KEYS[1], ARGV[i], ARGV[i + 1])
+                i = i + 2
+            end
+            redis.call('LTRIM', KEYS[1], -tonumber(ARGV[3]), -1)
+            if ARGV[7] ~= '' then redis.call('SET', KEYS[2], ARGV[7]) end
+            local version = redis.call('INCR', KEYS[3])
+            local ttl = tonumber(ARGV[4])
+            if ttl > 0 then
+                redis.call('EXPIRE', KEYS[1], ttl)
+                redis.call('EXPIRE', KEYS[2], ttl)
+                redis.call('EXPIRE', KEYS[3], ttl)
+            end
+            return version
+            """, Long.class);
+
+    /**
+     * 增量写入脚本的键个数
+     */
+    private static final int APPEND_KEYS = 3;
+
+    /**
+     * 增量写入脚本 ARGV 中位于消息之前的固定参数个数
+     */
+    private static final int APPEND_FIXED_ARGS = 7;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisChatMemoryStoreConfig redisChatMemoryStoreConfig;
+
+    private final GenerationMetrics generationMetrics;
+
+    public RedisBinaryChatMemoryStore(StringRedisTemplate stringRedisTemplate,
+                                      RedisChatMemoryStoreConfig redisChatMemoryStoreConfig,
+                                      GenerationMetrics generationMetrics) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisChatMemoryStoreConfig = redisChatMemoryStoreConfig;
+        this.generationMetrics = generationMetrics;
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        return getVersionedMessages(memoryId).getMessages();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public VersionedChatMessages getVersionedMessages(Object memoryId) {
+        byte[] systemKey = toKey(memoryId, SYSTEM_KEY_SUFFIX);
+        byte[] messagesKey = toKey(memoryId, MESSAGES_KEY_SUFFIX);
+        byte[] versionKey = toKey(memoryId, VERSION_KEY_SUFFIX);
+        // 在同一事务中读取，版本与消息对应同一时刻的状态
+        List<Object> results = stringRedisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+            connection.multi();
+            connection.stringCommands().get(systemKey);
+            connection.listCommands().lRange(messagesKey, 0, -1);
+            connection.stringCommands().get(versionKey);
+            return connection.exec();
+        });
+        byte[] system = (byte[]) results.get(0);
+        List<byte[]> elements = (List<byte[]>) results.get(1);
+        byte[] versionBytes = (byte[]) results.get(2);
+        long version = versionBytes == null ? 0 : Long.parseLong(new String(versionBytes, StandardCharsets.UTF_8));
+        if (system == null && (elements == null || elements.isEmpty())) {
+            return migrateLegacy(memoryId, version);
+        }
+        try {
+            List<ChatMessage> messages = new ArrayList<>(elements == null ? 1 : elements.size() + 1);
+            if (system != null) {
+                messages.add(ChatMessageCodec.decodeMessage(system));
+            }
+            if (elements != null) {
+                for (byte[] element : elements) {
+                    messages.add(ChatMessageCodec.decodeMessage(element));
+                }
+            }
+            return new VersionedChatMessages(messages, version);
+        } catch (Exception e) {
+            // 数据无法解析（如更高版本节点写入）时按没有记忆处理，创建记忆时会从数据库重新加载
+            log.warn("对话记忆数据解析失败，memoryId: {}, error: {}", memoryId, e.getMessage());
+            return new VersionedChatMessages(new ArrayList<>(), version);
+        }
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        replaceMessages(memoryId, messages);
+    }
+
+    /**
+     * 整体重写消息
+     *
+     * @param memoryId 记忆 ID
+     * @param messages 消息列表
+     * @return 写入后的存储版本
+     */
+    public long replaceMessages(Object memoryId, List<ChatMessage> messages) {
+        byte[] systemKey = toKey(memoryId, SYSTEM_KEY_SUFFIX);
+        byte[] messagesKey = toKey(memoryId, MESSAGES_KEY_SUFFIX);
+        byte[] versionKey = toKey(memoryId, VERSION_KEY_SUFFIX);
+        int base = hasSystemMessage(messages) ? 1 : 0;
+        byte[] system = base == 1 ? ChatMessageCodec.encodeMessage(messages.getFirst()) : null;
+        byte[][] elements = encode(messages, base, messages.size());
+        long ttl = redisChatMemoryStoreConfig.getTtl();
+        List<Object> results = stringRedisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+            connection.multi();
+            connection.keyCommands().del(systemKey, messagesKey);
+            // 版本只递增不删除，避免重写后回到旧版本号让过期的增量写入通过核对
+            connection.stringCommands().incr(versionKey);
+            if (system != null) {
+                connection.stringCommands().set(systemKey, system);
+            }
+            if (elements.length > 0) {
+                connection.listCommands().rPush(messagesKey, elements);
+            }
+            expire(connection, ttl, systemKey, messagesKey, versionKey);
+            return connection.exec();
+        });
+        generationMetrics.recordMemoryStoreBytes(sizeOf(elements) + (system == null ? 0 : system.length));
+        return (Long) results.get(1);
+    }
+
+    @Override
+    public long appendMessages(Object memoryId, List<ChatMessage> messages, long expectedVersion, int appendedCount,
+                               Collection<Integer> replacedIndexes) {
+        int base = hasSystemMessage(messages) ? 1 : 0;
+        int turnCount = messages.size() - base;
+        if (turnCount == 0) {
+            return replaceMessages(memoryId, messages);
+        }
+        byte[][] appended = encode(messages, messages.size() - appendedCount, messages.size());
+        // 改写的消息按距离列表末尾的位置定位，不受之前裁剪条数的影响
+        List<byte[]> replaced = new ArrayList<>(replacedIndexes.size() * 2);
+        byte[] system = null;
+        for (int index : replacedIndexes) {
+            byte[] element = ChatMessageCodec.encodeMessage(messages.get(index));
+            if (index < base) {
+                system = element;
+            } else {
+                replaced.add(toBytes(index - messages.size()));
+                replaced.add(element);
+            }
+        }
+        // 沿用的系统消息必须仍在 Redis 中
+        boolean systemRequired = base == 1 && system == null;
+        byte[][] keysAndArgs = new byte[APPEND_KEYS + APPEND_FIXED_ARGS + appended.length + replaced.size()][];
+        int i = 0;
+        keysAndArgs[i++] = toKey(memoryId, MESSAGES_KEY_SUFFIX);
+        keysAndArgs[i++] = toKey(memoryId, SYSTEM_KEY_SUFFIX);
+        keysAndArgs[i++] = toKey(memoryId, VERSION_KEY_SUFFIX);
+        keysAndArgs[i++] = toBytes(expectedVersion);
+        keysAndArgs[i++] = toBytes(systemRequired ? 1 : 0);
+        keysAndArgs[i++] = toBytes(turnCount);
+        keysAndArgs[i++] = toBytes(redisChatMemoryStoreConfig.getTtl());
+        keysAndArgs[i++] = toBytes(appended.length);
+        keysAndArgs[i++] = toBytes(replaced.size() / 2);
+        keysAndArgs[i++] = system == null ? new byte[0] : system;
+        for (byte[] element : appended) {
+            keysAndArgs[i++] = element;
+        }
+        for (byte[] arg : replaced) {
+            keysAndArgs[i++] = arg;
+        }
+        Long version;
+        try {
+            version = stringRedisTemplate.execute((RedisCallback<Long>) connection -> evalAppend(connection, keysAndArgs));
+        } catch (Exception e) {
+            log.warn("对话记忆增量写入失败，改为整体写入，memoryId: {}, error: {}", memoryId, e.getMessage());
+            version = null;
+        }
+        // Redis 中的版本与写入方读到的不一致（已过期、被删除或被其他节点写入），增量基础不成立，整体重写
+        if (version == null || version == 0) {
+            return replaceMessages(memoryId, messages);
+        }
+        long replacedBytes = 0;
+        for (int j = 1; j < replaced.size(); j += 2) {
+            replacedBytes += replaced.get(j).length;
+        }
+        generationMetrics.recordMemoryStoreBytes(sizeOf(appended) + replacedBytes + (system == null ? 0 : system.length));
+        return version;
+    }
+
+    /**
+     * 执行增量写入脚本，脚本未缓存时改为发送脚本内容
+     */
+    private static Long evalAppend(RedisConnection connection, byte[][] keysAndArgs) {
+        try {
+            return connection.scriptingCommands().evalSha(APPEND_SCRIPT.getSha1(), ReturnType.INTEGER, APPEND_KEYS, keysAndArgs);
+        } catch (Exception e) {
+            if (!StrUtil.contains(ExceptionUtil.getRootCauseMessage(e), "NOSCRIPT")) {
+                throw e;
+            }
+            return connection.scriptingCommands().eval(APPEND_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8),
+                    ReturnType.INTEGER, APPEND_KEYS, keysAndArgs);
+        }
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        byte[][] keys = {toKey(memoryId, SYSTEM_KEY_SUFFIX), toKey(memoryId, MESSAGES_KEY_SUFFIX),
+                toKey(memoryId, VERSION_KEY_SUFFIX), toKey(memoryId, ""), toLegacyKey(memoryId)};
+        stringRedisTemplate.execute((RedisCallback<Long>) connection -> connection.keyCommands().del(keys));
+    }
+
+    /**
+     * 读取旧格式的数据，迁移为新格式后删除旧键
+     *
+     * @param version 新格式键的当前版本
+     */
+    private VersionedChatMessages migrateLegacy(Object memoryId, long version) {
+        byte[][] legacyKeys = {toKey(memoryId, ""), toLegacyKey(memoryId)};
+        for (byte[] legacyKey : legacyKeys) {
+            byte[] data = stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(legacyKey));
+            if (data == null) {
+                continue;
+            }
+            List<ChatMessage> messages;
+            try {
+                messages = ChatMessageCodec.decode(data);
+            } catch (Exception e) {
+                log.warn("旧格式对话记忆解析失败，memoryId: {}, error: {}", memoryId, e.getMessage());
+                messages = new ArrayList<>();
+            }
+            long migratedVersion = messages.isEmpty() ? version : replaceMessages(memoryId, messages);
+            stringRedisTemplate.execute((RedisCallback<Long>) connection -> connection.keyCommands().del(legacyKey));
+            log.info("对话记忆已迁移为按条存储格式，memoryId: {}", memoryId);
+            return new VersionedChatMessages(messages, migratedVersion);
+        }
+        return new VersionedChatMessages(new ArrayList<>(), version);
+    }
+
+    private static boolean hasSystemMessage(List<ChatMessage> messages) {
+        return !messages.isEmpty() && messages.getFirst() instanceof SystemMessage;
+    }
+
+    private static byte[][] encode(List<ChatMessage> messages, int from, int to) {
+        byte[][] elements = new byte[to - from][];
+        for (int i = from; i < to; i++) {
+            elements[i - from] = ChatMessageCodec.encodeMessage(messages.get(i));
+        }
+        return elements;
+    }
+
+    private static long sizeOf(byte[][] elements) {
+        long bytes = 0;
+        for (byte[] element : elements) {
+            bytes += element.length;
+        }
+        return bytes;
+    }
+
+    private static void expire(RedisConnection connection, long ttl, byte[]... keys) {
+        if (ttl <= 0) {
+            return;
+        }
+        for (byte[] key : keys) {
+            connection.keyCommands().expire(key, ttl);
+        }
+    }
+
+    private static byte[] toBytes(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toKey(Object memoryId, String suffix) {
+        return (KEY_PREFIX + memoryId + suffix).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toLegacyKey(Object memoryId) {
+        return String.valueOf(memoryId).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,136 @@
+package com.chen.codegenie.ai.memory;
+
+import com.chen.codegenie.config.ChatMemoryConfig;
+import com.chen.codegenie.core.cache.CacheInvalidationBus;
+import com.chen.codegenie.core.metrics.GenerationMetrics;
+import com.chen.codegenie.model.enums.CacheInvalidationTypeEnum;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.message.ChatMessage;
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 两级对话记忆存储
+ * 本地 Caffeine 缓存（按消息大小计重）在前，Redis 在后：读取优先命中本地，写入同步写 Redis 后更新本地。
+ * 写入后通过缓存失效总线广播记忆 ID（即应用 ID），其他节点收到后移除本地副本，下次读取时从 Redis 重新加载。
+ *
+ * @author chen
+ */
+@Component
+@Primary
+public class TieredChatMemoryStore implements AppendOnlyChatMemoryStore {
+
+    /**
+     * 单条消息的固定开销估算（对象头、类型等）
+     */
+    private static final int MESSAGE_OVERHEAD_BYTES = 64;
+
+    private final RedisBinaryChatMemoryStore redisBinaryChatMemoryStore;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final ChatMemoryConfig chatMemoryConfig;
+
+    private final GenerationMetrics generationMetrics;
+
+    private Cache<String, VersionedChatMessages> localCache;
+
+    public TieredChatMemoryStore(RedisBinaryChatMemoryStore redisBinaryChatMemoryStore,
+                                 CacheInvalidationBus cacheInvalidationBus,
+                                 ChatMemoryConfig chatMemoryConfig,
+                                 GenerationMetrics generationMetrics) {
+        this.redisBinaryChatMemoryStore = redisBinaryChatMemoryStore;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.chatMemoryConfig = chatMemoryConfig;
+        this.generationMetrics = generationMetrics;
+    }
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumWeight(chatMemoryConfig.getLocalMaxBytes())
+                .weigher((String key, VersionedChatMessages cached) ->
+                        (int) Math.min(Integer.MAX_VALUE, estimateBytes(cached.getMessages())))
+                .expireAfterAccess(chatMemoryConfig.getLocalExpireAfterAccess())
+                .recordStats()
+                .build();
+        generationMetrics.monitorCache(localCache, "chatMemoryStore");
+        // 其他节点写入记忆或应用变更时移除本地副本
+        cacheInvalidationBus.subscribe(CacheInvalidationTypeEnum.MEMORY, appId -> localCache.invalidate(toKey(appId)));
+        cacheInvalidationBus.subscribe(CacheInvalidationTypeEnum.APP, appId -> localCache.invalidate(toKey(appId)));
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        return getVersionedMessages(memoryId).getMessages();
+    }
+
+    @Override
+    public VersionedChatMessages getVersionedMessages(Object memoryId) {
+        return localCache.get(toKey(memoryId), key -> {
+            VersionedChatMessages stored = redisBinaryChatMemoryStore.getVersionedMessages(memoryId);
+            return new VersionedChatMessages(List.copyOf(stored.getMessages()), stored.getVersion());
+        });
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        // 同一记忆的写入串行执行，保证本地副本与 Redis 一致
+        localCache.asMap().compute(toKey(memoryId), (key, old) -> {
+            long version = redisBinaryChatMemoryStore.replaceMessages(memoryId, messages);
+            return new VersionedChatMessages(List.copyOf(messages), version);
+        });
+        publishInvalidation(memoryId);
+    }
+
+    @Override
+    public long appendMessages(Object memoryId, List<ChatMessage> messages, long expectedVersion, int appendedCount,
+                               Collection<Integer> replacedIndexes) {
+        VersionedChatMessages written = localCache.asMap().compute(toKey(memoryId), (key, old) -> {
+            long version = redisBinaryChatMemoryStore.appendMessages(memoryId, messages, expectedVersion,
+                    appendedCount, replacedIndexes);
+            return new VersionedChatMessages(List.copyOf(messages), version);
+        });
+        publishInvalidation(memoryId);
+        return written.getVersion();
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        localCache.asMap().compute(toKey(memoryId), (key, old) -> {
+            redisBinaryChatMemoryStore.deleteMessages(memoryId);
+            return null;
+        });
+        publishInvalidation(memoryId);
+    }
+
+    /**
+     * 本节点的副本已是最新内容，只通知其他节点
+     */
+    private void publishInvalidation(Object memoryId) {
+        cacheInvalidationBus.broadcast(CacheInvalidationTypeEnum.MEMORY, (Long) memoryId);
+    }
+
+    private static String toKey(Object memoryId) {
+        return String.valueOf(memoryId);
+    }
+
+    /**
+     * 估算消息列表占用的内存大小
+     *
+     * @param messages 消息列表
+     * @return 字节数
+     */
+    public static long estimateBytes(List<ChatMessage> messages) {
+        long bytes = 0;
+        for (ChatMessage message : messages) {
+            bytes += MESSAGE_OVERHEAD_BYTES + 2L * ChatMessageTexts.text(message).length();
+        }
+        return bytes;
+    }
+}
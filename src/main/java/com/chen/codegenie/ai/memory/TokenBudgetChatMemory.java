@@ -0,0 +1,180 @@
+package com.chen.codegenie.ai.memory;
+
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.Builder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按 token 预算控制输入规模的对话记忆
+ * 存储中最多保留 maxMessages 条消息，历史中被取代的代码块压缩为占位说明；发给模型时从最新的消息往前保留到预算用完，
+ * 更早的对话交给摘要器压缩，摘要合并到系统消息末尾，保证输入大小不随对话轮数增长。
+ *
+ * @author chen
+ */
+@Builder
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    private final Object id;
+
+    private final ChatMemoryStore chatMemoryStore;
+
+    private final int maxMessages;
+
+    private final int maxTokens;
+
+    private final int summaryReserveTokens;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private final ChatMemorySummarizer summarizer;
+
+    /**
+     * 代码生成类型，用于识别历史中被取代的代码文件，为空时不压缩
+     */
+    private final CodeGenTypeEnum codeGenType;
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        add(List.of(message));
+    }
+
+    /**
+     * 批量添加消息，只读写一次存储；存储支持增量写入时只写入新消息和被压缩改写的旧消息
+     */
+    @Override
+    public void add(Iterable<ChatMessage> messages) {
+        // 增量写入以读到的存储版本为前提，期间有其他写入时由存储整体重写
+        List<ChatMessage> stored;
+        long storedVersion = 0;
+        if (chatMemoryStore instanceof AppendOnlyChatMemoryStore appendOnlyChatMemoryStore) {
+            VersionedChatMessages versioned = appendOnlyChatMemoryStore.getVersionedMessages(id);
+            stored = versioned.getMessages();
+            storedVersion = versioned.getVersion();
+        } else {
+            stored = chatMemoryStore.getMessages(id);
+        }
+        int storedSystemIndex = indexOfSystemMessage(stored);
+        SystemMessage systemMessage = storedSystemIndex >= 0 ? (SystemMessage) stored.get(storedSystemIndex) : null;
+        boolean systemChanged = false;
+        List<ChatMessage> storedTurns = new ArrayList<>(stored);
+        if (storedSystemIndex >= 0) {
+            storedTurns.remove(storedSystemIndex);
+        }
+        List<ChatMessage> turns = new ArrayList<>(storedTurns);
+        boolean aiAdded = false;
+        for (ChatMessage message : messages) {
+            if (message instanceof SystemMessage newSystemMessage) {
+                if (!newSystemMessage.equals(systemMessage)) {
+                    systemMessage = newSystemMessage;
+                    systemChanged = true;
+                }
+            } else {
+                turns.add(message);
+                aiAdded |= message instanceof AiMessage;
+            }
+        }
+        int appendedCount = turns.size() - storedTurns.size();
+        if (!systemChanged && appendedCount == 0) {
+            return;
+        }
+        // 新的代码生成后，历史中同一文件的旧版本代码替换为占位说明
+        if (aiAdded) {
+            turns = new ArrayList<>(CodeHistoryCompactor.compact(turns, codeGenType));
+        }
+        // 超过条数上限时移除最早的消息
+        int trimmed = Math.max(0, turns.size() - maxMessages);
+        int systemCount = systemMessage == null ? 0 : 1;
+        List<Integer> replacedIndexes = new ArrayList<>();
+        if (systemChanged) {
+            replacedIndexes.add(0);
+        }
+        for (int i = trimmed; i < storedTurns.size(); i++) {
+            if (turns.get(i) != storedTurns.get(i)) {
+                replacedIndexes.add(systemCount + i - trimmed);
+            }
+        }
+        List<ChatMessage> updated = new ArrayList<>(systemCount + turns.size() - trimmed);
+        if (systemMessage != null) {
+            updated.add(systemMessage);
+        }
+        updated.addAll(turns.subList(trimmed, turns.size()));
+        if (chatMemoryStore instanceof AppendOnlyChatMemoryStore appendOnlyChatMemoryStore) {
+            appendOnlyChatMemoryStore.appendMessages(id, updated, storedVersion, Math.min(appendedCount, turns.size() - trimmed), replacedIndexes);
+        } else {
+            chatMemoryStore.updateMessages(id, updated);
+        }
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        List<ChatMessage> stored = chatMemoryStore.getMessages(id);
+        if (tokenCountEstimator.estimateTokenCountInMessages(stored) <= maxTokens) {
+            return new ArrayList<>(stored);
+        }
+        int systemIndex = indexOfSystemMessage(stored);
+        SystemMessage systemMessage = systemIndex >= 0 ? (SystemMessage) stored.get(systemIndex) : null;
+        List<ChatMessage> turns = new ArrayList<>(stored);
+        if (systemIndex >= 0) {
+            turns.remove(systemIndex);
+        }
+        if (turns.isEmpty()) {
+            return new ArrayList<>(stored);
+        }
+        // 从最新的消息往前保留，直到用完预算（扣除系统消息和摘要预留）
+        int budget = maxTokens - summaryReserveTokens
+                - (systemMessage == null ? 0 : tokenCountEstimator.estimateTokenCountInMessage(systemMessage));
+        int start = turns.size();
+        int used = 0;
+        while (start > 0) {
+            int tokens = tokenCountEstimator.estimateTokenCountInMessage(turns.get(start - 1));
+            if (used + tokens > budget) {
+                break;
+            }
+            used += tokens;
+            start--;
+        }
+        // 至少保留最新的一条消息，且保留部分从用户消息开始
+        start = Math.min(start, turns.size() - 1);
+        while (start < turns.size() - 1 && !(turns.get(start) instanceof UserMessage)) {
+            start++;
+        }
+        String summary = summarizer.getSummary(id, turns.subList(0, start));
+        List<ChatMessage> result = new ArrayList<>(turns.size() - start + 1);
+        if (summary != null) {
+            String systemText = systemMessage == null ? "" : systemMessage.text() + "\n\n";
+            result.add(SystemMessage.from(systemText + "以下是之前对话的摘要：\n" + summary));
+        } else if (systemMessage != null) {
+            result.add(systemMessage);
+        }
+        result.addAll(turns.subList(start, turns.size()));
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        chatMemoryStore.deleteMessages(id);
+    }
+
+    private static int indexOfSystemMessage(List<ChatMessage> messages) {
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i) instanceof SystemMessage) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,28 @@
+package com.chen.codegenie.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 对话记忆及其存储版本
+ * 存储每次写入后版本递增，增量写入以写入方读到的版本为前提
+ *
+ * @author chen
+ */
+@Data
+@AllArgsConstructor
+public class VersionedChatMessages {
+
+    /**
+     * 消息列表，系统消息（如有）位于首位
+     */
+    private List<ChatMessage> messages;
+
+    /**
+     * 存储版本，从未写入或已过期时为 0
+     */
+    private long version;
+}
@@ -0,0 +1,49 @@
+package com.chen.codegenie.ai.mock;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 模拟模型的固定输出
+ * 根据系统提示词区分单文件和多文件模式，返回对应的预置回复
+ *
+ * @author chen
+ */
+public class CannedOutputs {
+
+    public static final String HTML_OUTPUT = ResourceUtil.readStr("mock/html-output.md", StandardCharsets.UTF_8);
+
+    public static final String MULTI_FILE_OUTPUT = ResourceUtil.readStr("mock/multi-file-output.md", StandardCharsets.UTF_8);
+
+    /**
+     * 多文件系统提示词中才会出现的文件名
+     */
+    private static final String MULTI_FILE_MARK = "style.css";
+
+    /**
+     * 判断本次请求是否为多文件模式
+     *
+     * @param messages 请求消息
+     * @return 是否为多文件模式
+     */
+    public static boolean isMultiFile(List<ChatMessage> messages) {
+        return messages.stream()
+                .filter(SystemMessage.class::isInstance)
+                .map(message -> ((SystemMessage) message).text())
+                .anyMatch(text -> text.contains(MULTI_FILE_MARK));
+    }
+
+    /**
+     * 获取请求对应的预置回复
+     *
+     * @param messages 请求消息
+     * @return 预置回复
+     */
+    public static String select(List<ChatMessage> messages) {
+        return isMultiFile(messages) ? MULTI_FILE_OUTPUT : HTML_OUTPUT;
+    }
+}
@@ -0,0 +1,50 @@
+package com.chen.codegenie.ai.mock;
+
+import cn.hutool.json.JSONUtil;
+import com.chen.codegenie.ai.model.HtmlCodeResult;
+import com.chen.codegenie.ai.model.MultiFileCodeResult;
+import com.chen.codegenie.core.parser.HtmlCodeParser;
+import com.chen.codegenie.core.parser.MultiFileCodeParser;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 模拟对话模型（非流式），不访问外部接口
+ * 结构化输出场景下返回预置回复解析后的 JSON，与真实模型的返回格式一致
+ *
+ * @author chen
+ */
+@Component
+@Primary
+@Profile("mock")
+public class FakeChatModel implements ChatModel {
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        List<ChatMessage> messages = chatRequest.messages();
+        String text;
+        if (CannedOutputs.isMultiFile(messages)) {
+            MultiFileCodeResult result = new MultiFileCodeParser().parseCode(CannedOutputs.MULTI_FILE_OUTPUT);
+            result.setDescription(CodeGenTypeEnum.MULTI_FILE.getText());
+            text = JSONUtil.toJsonStr(result);
+        } else {
+            HtmlCodeResult result = new HtmlCodeParser().parseCode(CannedOutputs.HTML_OUTPUT);
+            result.setDescription(CodeGenTypeEnum.HTML.getText());
+            text = JSONUtil.toJsonStr(result);
+        }
+        return ChatResponse.builder()
+                .aiMessage(AiMessage.from(text))
+                .finishReason(FinishReason.STOP)
+                .build();
+    }
+}
@@ -0,0 +1,189 @@
+package com.chen.codegenie.ai.mock;
+
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.chen.codegenie.ai.stream.AbortableInputStream;
+import com.chen.codegenie.config.FakeModelConfig;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.FinishReason;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟流式对话模型，不访问外部接口
+ * 按配置的首字延迟和输出速率逐 token 回放预置回复，并可按概率注入中途报错和卡顿，
+ * 同一随机种子下第 n 次调用的注入位置固定，便于复现问题和对比压测结果。
+ *
+ * @author chen
+ */
+@Component
+@Primary
+@Profile("mock")
+@Slf4j
+public class FakeStreamingChatModel implements StreamingChatModel {
+
+    /**
+     * 输出节拍，每个节拍把到期的 token 一次性推给调用方
+     */
+    private static final long TICK_MILLIS = 20;
+
+    private final FakeModelConfig fakeModelConfig;
+
+    private final AtomicLong requestCounter = new AtomicLong();
+
+    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(2,
+            ThreadFactoryBuilder.create().setNamePrefix("fake-model-").setDaemon(true).build());
+
+    public FakeStreamingChatModel(FakeModelConfig fakeModelConfig) {
+        this.fakeModelConfig = fakeModelConfig;
+    }
+
+    @Override
+    public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        String text = CannedOutputs.select(chatRequest.messages());
+        Random random = new Random(fakeModelConfig.getSeed() + requestCounter.getAndIncrement());
+        Emission emission = new Emission(text, handler, fakeModelConfig, random);
+        timer.schedule(emission, fakeModelConfig.getTimeToFirstToken().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * 单次调用的输出过程
+     * 与真实模型一样通过 {@link AbortableInputStream} 读取"响应"，每个节拍先绑定到当前线程再读取，
+     * 订阅取消时流被中止，下一次读取失败后停止推送并回调 onError，与 HTTP 读取被中断的行为一致
+     */
+    private class Emission implements Runnable {
+
+        private final String text;
+
+        private final StreamingChatResponseHandler handler;
+
+        /**
+         * 模拟的 HTTP 响应体，只用于感知中止
+         */
+        private final AbortableInputStream response = new AbortableInputStream(InputStream.nullInputStream());
+
+        private final int charsPerToken;
+
+        private final double tokensPerMilli;
+
+        private final long stallMillis;
+
+        /**
+         * 在第几个 token 处报错，-1 表示不报错
+         */
+        private final int errorAtToken;
+
+        /**
+         * 在第几个 token 处卡顿，-1 表示不卡顿
+         */
+        private final int stallAtToken;
+
+        private int offset = 0;
+
+        private int emittedTokens = 0;
+
+        private long startNanos = -1;
+
+        private boolean stalled = false;
+
+        Emission(String text, StreamingChatResponseHandler handler, FakeModelConfig config, Random random) {
+            this.text = text;
+            this.handler = handler;
+            this.charsPerToken = Math.max(1, config.getCharsPerToken());
+            this.tokensPerMilli = Math.max(1, config.getTokensPerSecond()) / 1000.0;
+            this.stallMillis = config.getStallDuration().toMillis();
+            int totalTokens = (text.length() + charsPerToken - 1) / charsPerToken;
+            this.errorAtToken = random.nextDouble() < config.getErrorRate() ? random.nextInt(totalTokens) : -1;
+            this.stallAtToken = random.nextDouble() < config.getStallRate() ? random.nextInt(totalTokens) : -1;
+        }
+
+        @Override
+        public void run() {
+            try {
+                emit();
+            } catch (Exception e) {
+                // 调用方处理片段时出错，停止推送
+                IoUtil.close(response);
+                log.debug("模拟模型输出被调用方中断", e);
+            }
+        }
+
+        private void emit() {
+            response.bindToCurrentThread();
+            try {
+                response.read();
+            } catch (IOException e) {
+                IoUtil.close(response);
+                handler.onError(e);
+                return;
+            }
+            long now = System.nanoTime();
+            if (startNanos < 0) {
+                startNanos = now;
+            }
+            // 按已过去的时间计算应输出的 token 数，首个节拍至少输出一个
+            long due = Math.max(1, (long) ((now - startNanos) / 1_000_000 * tokensPerMilli));
+            StringBuilder batch = new StringBuilder();
+            while (emittedTokens < due && offset < text.length()) {
+                if (emittedTokens == errorAtToken) {
+                    flush(batch);
+                    IoUtil.close(response);
+                    handler.onError(new RuntimeException("模拟模型输出中断"));
+                    return;
+                }
+                if (emittedTokens == stallAtToken && !stalled) {
+                    stalled = true;
+                    flush(batch);
+                    // 卡顿时长计入起点，恢复后不补发积压的 token
+                    startNanos += TimeUnit.MILLISECONDS.toNanos(stallMillis);
+                    timer.schedule(this, stallMillis, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                int end = Math.min(text.length(), offset + charsPerToken);
+                if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+                    end++;
+                }
+                batch.append(text, offset, end);
+                offset = end;
+                emittedTokens++;
+            }
+            flush(batch);
+            if (offset >= text.length()) {
+                IoUtil.close(response);
+                handler.onCompleteResponse(ChatResponse.builder()
+                        .aiMessage(AiMessage.from(text))
+                        .finishReason(FinishReason.STOP)
+                        .build());
+                return;
+            }
+            timer.schedule(this, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        private void flush(StringBuilder batch) {
+            if (!batch.isEmpty()) {
+                handler.onPartialResponse(batch.toString());
+                batch.setLength(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.chen.codegenie.ai.model;
+
+import dev.langchain4j.model.output.structured.Description;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author chen
+ */
+@Description("代码文件")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodeFile {
+
+    @Description("文件路径，相对于网站根目录，如 index.html、css/theme.css")
+    private String path;
+
+    @Description("文件内容")
+    private String content;
+}
@@ -3,6 +3,8 @@ package com.chen.codegenie.ai.model;
 import dev.langchain4j.model.output.structured.Description;
 import lombok.Data;
 
+import java.util.List;
+
 /**
  * @author chen
  */
@@ -19,6 +21,13 @@ public class MultiFileCodeResult {
     @Description("JS代码")
     private String jsCode;
 
+    /**
+     * 代码文件列表，解析模型输出时包含所有代码块（含 index.html、style.css、script.js）；
+     * 保存时上面三个字段中未出现在列表里的文件按默认文件名补充保存
+     */
+    @Description("全部代码文件，包括 index.html、style.css、script.js 以及拆分出的其他文件，同一路径以列表中的内容为准")
+    private List<CodeFile> files;
+
     @Description("生成代码的描述")
     private String description;
 }
@@ -0,0 +1,86 @@
+package com.chen.codegenie.ai.stream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 可中止的响应输入流
+ * 中止后任何读取都会抛出 IOException，使 langchain4j 的 SSE 解析循环退出并关闭上游连接。
+ *
+ * @author chen
+ */
+public class AbortableInputStream extends FilterInputStream {
+
+    /**
+     * 当前线程正在读取的流式响应（langchain4j 在同一线程内读取响应并回调 token）
+     */
+    private static final ThreadLocal<AbortableInputStream> CURRENT = new ThreadLocal<>();
+
+    private volatile boolean aborted = false;
+
+    public AbortableInputStream(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * 获取当前线程正在读取的流式响应
+     *
+     * @return 流，不存在时返回 null
+     */
+    public static AbortableInputStream current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 把流绑定到当前线程，之后在该线程回调的 token 都属于这个响应
+     */
+    public void bindToCurrentThread() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * 中止读取并关闭底层连接，可从任意线程调用
+     */
+    public void abort() {
+        if (aborted) {
+            return;
+        }
+        aborted = true;
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // 连接已断开，无需处理
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkAborted();
+        int b = super.read();
+        checkAborted();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkAborted();
+        int n = super.read(b, off, len);
+        checkAborted();
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        super.close();
+    }
+
+    private void checkAborted() throws IOException {
+        if (aborted) {
+            throw new IOException("流式响应已被中止");
+        }
+    }
+}
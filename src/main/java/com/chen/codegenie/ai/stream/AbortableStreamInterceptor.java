@@ -0,0 +1,79 @@
+package com.chen.codegenie.ai.stream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 模型 HTTP 请求拦截器
+ * 把 text/event-stream 响应体包装为 {@link AbortableInputStream} 并绑定到读取线程，
+ * 使生成被取消时可以真正断开与模型服务的连接，而不是读完整个响应。
+ *
+ * @author chen
+ */
+public class AbortableStreamInterceptor implements ClientHttpRequestInterceptor {
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        ClientHttpResponse response = execution.execute(request, body);
+        MediaType contentType = response.getHeaders().getContentType();
+        if (contentType == null || !MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)) {
+            return response;
+        }
+        return new AbortableResponse(response);
+    }
+
+    private static class AbortableResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+
+        private AbortableInputStream body;
+
+        AbortableResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new AbortableInputStream(delegate.getBody());
+                body.bindToCurrentThread();
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    // 关闭失败不影响后续处理
+                }
+            }
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.chen.codegenie.ai.stream;
+
+import dev.langchain4j.service.TokenStream;
+import reactor.core.publisher.Flux;
+
+import java.util.function.Supplier;
+
+/**
+ * TokenStream 转 Flux 适配器
+ * 与 langchain4j-reactor 自带的适配器不同：模型调用在订阅时才发起，取消订阅时会中止模型的 HTTP 流式响应。
+ *
+ * @author chen
+ */
+public class TokenStreamFluxAdapter {
+
+    /**
+     * 把 TokenStream 转换为可取消的 Flux
+     *
+     * @param tokenStreamSupplier TokenStream 提供者，订阅时调用
+     * @return 输出片段流
+     */
+    public static Flux<String> toFlux(Supplier<TokenStream> tokenStreamSupplier) {
+        return Flux.create(sink -> {
+            AbortHandle abortHandle = new AbortHandle();
+            sink.onCancel(abortHandle::abort);
+            tokenStreamSupplier.get()
+                    .onPartialResponse(token -> {
+                        // 回调与响应读取在同一线程，首次回调时记录对应的响应流
+                        abortHandle.bindCurrentStream();
+                        if (abortHandle.isAborted()) {
+                            abortHandle.abort();
+                            return;
+                        }
+                        sink.next(token);
+                    })
+                    .onCompleteResponse(response -> sink.complete())
+                    .onError(error -> {
+                        // 中止后读取失败是预期结果，订阅已取消，不再向下游传递
+                        if (!abortHandle.isAborted()) {
+                            sink.error(error);
+                        }
+                    })
+                    .start();
+        });
+    }
+
+    private static class AbortHandle {
+
+        private volatile boolean aborted = false;
+
+        private volatile AbortableInputStream stream;
+
+        void bindCurrentStream() {
+            if (stream == null) {
+                stream = AbortableInputStream.current();
+            }
+        }
+
+        boolean isAborted() {
+            return aborted;
+        }
+
+        void abort() {
+            aborted = true;
+            AbortableInputStream current = stream;
+            if (current != null) {
+                current.abort();
+            }
+        }
+    }
+}
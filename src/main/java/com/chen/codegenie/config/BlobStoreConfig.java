@@ -0,0 +1,38 @@
+package com.chen.codegenie.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 代码文件内容寻址存储配置
+ *
+ * @author chen
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-genie.blob-store")
+@Data
+public class BlobStoreConfig {
+
+    /**
+     * 是否把保存、部署的文件去重为指向同一内容文件的硬链接
+     */
+    private boolean enabled = true;
+
+    /**
+     * 存储目录，需要与代码输出目录、部署目录位于同一文件系统
+     */
+    private String rootDir = System.getProperty("user.dir") + "/tmp/code_blob";
+
+    /**
+     * 清理无引用内容文件的间隔
+     */
+    private Duration gcInterval = Duration.ofHours(1);
+
+    /**
+     * 内容文件失去引用后至少保留的时长，避免清理正在被链接的文件
+     */
+    private Duration gcGracePeriod = Duration.ofMinutes(10);
+}
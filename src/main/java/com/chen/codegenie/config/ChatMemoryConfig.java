@@ -0,0 +1,94 @@
+package com.chen.codegenie.config;
+
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 对话记忆配置
+ *
+ * @author chen
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-genie.chat-memory")
+@Data
+public class ChatMemoryConfig {
+
+    /**
+     * 本地缓存的对话记忆总大小上限（按消息文本估算的字节数）
+     */
+    private long localMaxBytes = 128L * 1024 * 1024;
+
+    /**
+     * 本地缓存的对话记忆多久未访问后移除
+     */
+    private Duration localExpireAfterAccess = Duration.ofMinutes(30);
+
+    /**
+     * 缓存的对话记忆对象（每个应用一个）数量上限，记忆内容在存储中，对象本身很小
+     */
+    private long memoryCacheMaxSize = 100_000;
+
+    /**
+     * 对话记忆对象多久未访问后移除，近期活跃的应用不会过期
+     */
+    private Duration memoryCacheExpireAfterAccess = Duration.ofMinutes(30);
+
+    /**
+     * 每个应用保留的最大消息条数
+     */
+    private int maxMessages = 20;
+
+    /**
+     * 各代码生成类型的输入 token 预算（键为 CodeGenTypeEnum 的 value），超出后较早的对话压缩为摘要
+     */
+    private Map<String, Integer> inputTokenBudget = new HashMap<>();
+
+    /**
+     * 未单独配置的生成类型使用的输入 token 预算
+     */
+    private int defaultInputTokenBudget = 16000;
+
+    /**
+     * 为摘要预留的 token 数
+     */
+    private int summaryReserveTokens = 1000;
+
+    /**
+     * 后台生成摘要的线程数
+     */
+    private int summaryThreads = 2;
+
+    /**
+     * 等待生成摘要的任务数上限，超出时跳过
+     */
+    private int summaryQueueSize = 100;
+
+    /**
+     * 后台预热对话记忆的线程数
+     */
+    private int warmUpThreads = 2;
+
+    /**
+     * 等待预热的应用数上限，超出时跳过，首条消息时再加载
+     */
+    private int warmUpQueueSize = 200;
+
+    /**
+     * 获取生成类型的输入 token 预算
+     *
+     * @param codeGenType 代码生成类型，可为空
+     * @return token 预算
+     */
+    public int getInputTokenBudget(CodeGenTypeEnum codeGenType) {
+        if (codeGenType == null) {
+            return defaultInputTokenBudget;
+        }
+        return inputTokenBudget.getOrDefault(codeGenType.getValue(), defaultInputTokenBudget);
+    }
+}
@@ -0,0 +1,31 @@
+package com.chen.codegenie.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 应用部署配置
+ *
+ * @author chen
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-genie.deploy")
+@Data
+public class DeployConfig {
+
+    /**
+     * 是否压缩 HTML、CSS、JS
+     */
+    private boolean minify = true;
+
+    /**
+     * 是否把页面引用的 CSS、JS 重命名为带内容哈希的文件名，重命名后的文件可以永久缓存
+     */
+    private boolean fingerprint = true;
+
+    /**
+     * 不超过该字节数（压缩后）的样式表直接内联到页面中，为 0 时不内联
+     */
+    private int inlineCssMaxBytes = 2048;
+}
@@ -0,0 +1,53 @@
+package com.chen.codegenie.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 本地模拟模型配置，仅在 mock 环境下生效，用于离线联调和压测
+ *
+ * @author chen
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-genie.fake-model")
+@Data
+public class FakeModelConfig {
+
+    /**
+     * 首个 token 的返回延迟
+     */
+    private Duration timeToFirstToken = Duration.ofMillis(800);
+
+    /**
+     * 每秒输出的 token 数
+     */
+    private int tokensPerSecond = 60;
+
+    /**
+     * 每个 token 的字符数
+     */
+    private int charsPerToken = 4;
+
+    /**
+     * 输出中途报错的概率（0~1）
+     */
+    private double errorRate = 0;
+
+    /**
+     * 输出中途卡顿的概率（0~1）
+     */
+    private double stallRate = 0;
+
+    /**
+     * 单次卡顿时长
+     */
+    private Duration stallDuration = Duration.ofSeconds(5);
+
+    /**
+     * 随机种子，相同种子下错误与卡顿的注入位置可复现
+     */
+    private long seed = 42;
+}
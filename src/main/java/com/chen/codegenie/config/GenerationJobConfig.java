@@ -0,0 +1,38 @@
+package com.chen.codegenie.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 异步生成任务配置
+ *
+ * @author chen
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-genie.job")
+@Data
+public class GenerationJobConfig {
+
+    /**
+     * 执行任务的线程数
+     */
+    private int workerThreads = 4;
+
+    /**
+     * 领取任务的轮询间隔
+     */
+    private Duration pollInterval = Duration.ofSeconds(2);
+
+    /**
+     * 任务租约时长，节点宕机后租约过期的任务会被重新领取
+     */
+    private Duration leaseDuration = Duration.ofMinutes(2);
+
+    /**
+     * 单个任务的最大执行次数
+     */
+    private int maxAttempts = 3;
+}
@@ -0,0 +1,41 @@
+package com.chen.codegenie.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 生成调度（准入控制）配置
+ *
+ * @author chen
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-genie.scheduler")
+@Data
+public class GenerationSchedulerConfig {
+
+    /**
+     * 全局同时进行的模型调用数上限
+     */
+    private int maxConcurrent = 8;
+
+    /**
+     * 单个用户同时进行的模型调用数上限
+     */
+    private int maxConcurrentPerUser = 2;
+
+    /**
+     * 等待队列长度上限，超出后直接拒绝
+     */
+    private int maxQueueSize = 100;
+
+    /**
+     * 批量生成时同时进行的生成数
+     */
+    private int batchConcurrency = 4;
+
+    /**
+     * 单次批量生成的最大应用数
+     */
+    private int batchMaxSize = 100;
+}
@@ -0,0 +1,41 @@
+package com.chen.codegenie.config;
+
+import com.chen.codegenie.ai.stream.AbortableStreamInterceptor;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.spring.restclient.SpringRestClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.client.RestClient;
+
+/**
+ * 模型 HTTP 客户端配置（langchain4j 使用 Spring 的 RestClient.Builder 调用模型）
+ * 按 langchain4j starter 约定的 Bean 名称提供流式对话模型的 HTTP 客户端，starter 检测到同名 Bean 后不再创建默认客户端。
+ * 拦截器只加在这一个客户端上，应用内其他 RestClient 不受影响。
+ *
+ * @author chen
+ */
+@Configuration
+public class LlmHttpClientConfig {
+
+    /**
+     * 流式对话模型的 HTTP 客户端，支持中止流式响应，客户端断开或停止生成时释放模型连接
+     *
+     * @param restClientBuilder Spring Boot 提供的 RestClient.Builder（原型作用域，每次注入都是新实例）
+     * @param executor          starter 创建的流式响应读取线程池
+     */
+    @Bean("openAiStreamingChatModelHttpClientBuilder")
+    @ConditionalOnProperty("langchain4j.open-ai.streaming-chat-model.api-key")
+    public HttpClientBuilder openAiStreamingChatModelHttpClientBuilder(
+            ObjectProvider<RestClient.Builder> restClientBuilder,
+            @Qualifier("openAiStreamingChatModelTaskExecutor") AsyncTaskExecutor executor) {
+        RestClient.Builder builder = restClientBuilder.getIfAvailable(RestClient::builder)
+                .requestInterceptor(new AbortableStreamInterceptor());
+        return SpringRestClient.builder()
+                .restClientBuilder(builder)
+                .streamingRequestExecutor(executor);
+    }
+}
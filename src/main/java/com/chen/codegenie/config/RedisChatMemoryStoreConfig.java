@@ -1,12 +1,12 @@
 package com.chen.codegenie.config;
 
-import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
+ * Redis 对话记忆存储配置，对话记忆以二进制格式存放，见 RedisBinaryChatMemoryStore
+ *
  * @author chen
  */
 @Configuration
@@ -20,15 +20,8 @@ public class RedisChatMemoryStoreConfig {
 
     private String password;
 
+    /**
+     * 对话记忆过期时间（秒），不大于 0 表示不过期
+     */
     private long ttl;
-
-    @Bean
-    public RedisChatMemoryStore redisChatMemoryStore() {
-        return RedisChatMemoryStore.builder()
-                .host(host)
-                .port(port)
-                .password(password)
-                .ttl(ttl)
-                .build();
-    }
 }
@@ -0,0 +1,48 @@
+package com.chen.codegenie.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 生成结果缓存配置
+ *
+ * @author chen
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-genie.result-cache")
+@Data
+public class ResultCacheConfig {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地缓存最大字符数
+     */
+    private long localMaxChars = 32L * 1024 * 1024;
+
+    /**
+     * 磁盘缓存目录
+     */
+    private String diskDir = System.getProperty("user.dir") + "/tmp/result_cache";
+
+    /**
+     * 磁盘缓存最大字节数，超出后淘汰最久未命中的结果
+     */
+    private long diskMaxBytes = 512L * 1024 * 1024;
+
+    /**
+     * 命中后回放的片段大小（字符数）
+     */
+    private int replayChunkChars = 64;
+
+    /**
+     * 命中后回放的片段间隔，0 表示一次性输出
+     */
+    private Duration replayInterval = Duration.ofMillis(20);
+}
@@ -0,0 +1,48 @@
+package com.chen.codegenie.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 流式输出（SSE）配置
+ *
+ * @author chen
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-genie.sse")
+@Data
+public class SseStreamConfig {
+
+    /**
+     * 片段合并时间窗口，0 表示不合并
+     */
+    private Duration flushInterval = Duration.ofMillis(30);
+
+    /**
+     * 单个事件的字符数阈值，达到后立即下发
+     */
+    private int maxBatchChars = 4096;
+
+    /**
+     * 单个客户端接收过慢时允许积压的最大字符数，超过后断开该客户端，不影响生成和其他客户端
+     */
+    private int maxPendingChars = 1024 * 1024;
+
+    /**
+     * 每次生成保留的事件数，断线重连时从中补发
+     */
+    private int replayCapacity = 2048;
+
+    /**
+     * 所有客户端断开后，等待重连的时间，超时后取消生成
+     */
+    private Duration detachGracePeriod = Duration.ofSeconds(15);
+
+    /**
+     * 生成结束后仍可重连补发的时间
+     */
+    private Duration finishedRetention = Duration.ofMinutes(1);
+}
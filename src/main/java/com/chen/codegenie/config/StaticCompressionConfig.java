@@ -0,0 +1,36 @@
+package com.chen.codegenie.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 静态文件预压缩配置
+ *
+ * @author chen
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-genie.static-compression")
+@Data
+public class StaticCompressionConfig {
+
+    /**
+     * 是否在保存、部署时生成 .gz、.br 压缩文件
+     */
+    private boolean enabled = true;
+
+    /**
+     * 小于该字节数的文件不压缩
+     */
+    private int minBytes = 256;
+
+    /**
+     * gzip 压缩级别（1-9）
+     */
+    private int gzipLevel = 9;
+
+    /**
+     * Brotli 压缩质量（0-11），只在保存、部署时压缩一次，使用最高质量
+     */
+    private int brotliQuality = 11;
+}
@@ -15,11 +15,26 @@ public interface AppConstant {
      */
     Integer DEFAULT_APP_PRIORITY = 0;
 
+    /**
+     * 管理员发起生成时的排队优先级加权
+     */
+    int ADMIN_GENERATION_PRIORITY_BONUS = 1000;
+
+    /**
+     * 批量生成的排队优先级，低于所有交互式生成
+     */
+    int BATCH_GENERATION_PRIORITY = -1;
+
     /**
      * 应用生成目录
      */
     String CODE_OUTPUT_ROOT_DIR = System.getProperty("user.dir") + "/tmp/code_output";
 
+    /**
+     * 每个应用保留的代码版本数
+     */
+    int CODE_OUTPUT_MAX_VERSIONS = 10;
+
     /**
      * 应用部署目录
      */
@@ -0,0 +1,19 @@
+package com.chen.codegenie.constant;
+
+/**
+ * 对话历史常量
+ *
+ * @author chen
+ */
+public interface ChatHistoryConstant {
+
+    /**
+     * 未完成的 AI 消息标记（生成被停止或客户端断开）
+     */
+    String INCOMPLETE_AI_MESSAGE_MARK = "\n\n[生成已中断，以上为部分内容]";
+
+    /**
+     * 回滚代码版本后记录的说明，参数：版本号、版本生成时间
+     */
+    String CODE_ROLLBACK_MESSAGE = "[已回滚到版本 %s（生成于 %s），之后的代码修改已撤销，后续修改以该版本的代码为准]";
+}
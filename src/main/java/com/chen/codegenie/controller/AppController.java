@@ -3,12 +3,16 @@ package com.chen.codegenie.controller;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
+import com.chen.codegenie.ai.AiCodeGeneratorServiceFactory;
 import com.chen.codegenie.annotation.AuthCheck;
 import com.chen.codegenie.common.BaseResponse;
 import com.chen.codegenie.common.DeleteRequest;
 import com.chen.codegenie.common.ResultUtils;
 import com.chen.codegenie.constant.AppConstant;
 import com.chen.codegenie.constant.UserConstant;
+import com.chen.codegenie.core.stream.GenerationEvent;
+import com.chen.codegenie.core.stream.GenerationRegistry;
+import com.chen.codegenie.core.stream.GenerationSession;
 import com.chen.codegenie.exception.BusinessException;
 import com.chen.codegenie.exception.ErrorCode;
 import com.chen.codegenie.exception.ThrowUtils;
@@ -16,6 +20,7 @@ import com.chen.codegenie.model.dto.app.*;
 import com.chen.codegenie.model.entity.App;
 import com.chen.codegenie.model.entity.User;
 import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import com.chen.codegenie.model.vo.AppCodeVersionVO;
 import com.chen.codegenie.model.vo.AppVO;
 import com.chen.codegenie.service.AppService;
 import com.chen.codegenie.service.ChatHistoryService;
@@ -23,6 +28,7 @@ import com.chen.codegenie.service.UserService;
 import com.mybatisflex.core.paginate.Page;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,7 +37,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 应用 控制层。
@@ -42,6 +48,11 @@ import java.util.Map;
 @RequestMapping("/app")
 public class AppController {
 
+    /**
+     * 跟随事件名称：本次消息未发送，改为接入应用进行中的生成
+     */
+    private static final String FOLLOWING_EVENT = "following";
+
     @Resource
     private AppService appService;
 
@@ -51,6 +62,12 @@ public class AppController {
     @Resource
     private ChatHistoryService chatHistoryService;
 
+    @Resource
+    private GenerationRegistry generationRegistry;
+
+    @Resource
+    private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
+
     /**
      * 创建应用
      *
@@ -99,6 +116,8 @@ public class AppController {
         chatHistoryService.removeByAppId(id);
         // 再删除应用本身
         boolean b = appService.removeById(id);
+        // 清理对话记忆并通知所有节点移除缓存
+        aiCodeGeneratorServiceFactory.removeChatMemory(id);
         return ResultUtils.success(b);
     }
 
@@ -128,6 +147,9 @@ public class AppController {
         app.setUpdateTime(LocalDateTime.now());
         boolean result = appService.updateById(app);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        if (affectsAiService(oldApp, app)) {
+            aiCodeGeneratorServiceFactory.invalidateAiCodeGeneratorService(id);
+        }
         return ResultUtils.success(true);
     }
 
@@ -143,6 +165,12 @@ public class AppController {
         ThrowUtils.throwIf(id <= 0, ErrorCode.PARAMS_ERROR);
         App app = appService.getById(id);
         ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR);
+        // 创建者打开应用时预热对话记忆，只从会话中取用户，不额外查询数据库
+        HttpSession session = request.getSession(false);
+        Object loginUser = session == null ? null : session.getAttribute(UserConstant.USER_LOGIN_STATE);
+        if (loginUser instanceof User user && app.getUserId().equals(user.getId())) {
+            aiCodeGeneratorServiceFactory.warmUpAsync(id);
+        }
         return ResultUtils.success(appService.getAppVO(app, request));
     }
 
@@ -235,9 +263,39 @@ public class AppController {
         app.setUpdateTime(LocalDateTime.now());
         boolean result = appService.updateById(app);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        if (affectsAiService(oldApp, app)) {
+            aiCodeGeneratorServiceFactory.invalidateAiCodeGeneratorService(id);
+        }
         return ResultUtils.success(true);
     }
 
+    /**
+     * 批量创建应用并并行生成代码（仅管理员）
+     * 每个应用生成结束时推送一个 item 事件，全部结束后推送 done 事件
+     *
+     * @param appBatchGenRequest 批量生成请求
+     * @param request            请求对象
+     * @return 生成进度流
+     */
+    @PostMapping(value = "/admin/batch/gen", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public Flux<ServerSentEvent<String>> batchGenerateApps(@RequestBody AppBatchGenRequest appBatchGenRequest,
+                                                           HttpServletRequest request) {
+        ThrowUtils.throwIf(appBatchGenRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        return appService.batchGenerate(appBatchGenRequest.getItems(), loginUser)
+                .map(result -> ServerSentEvent.<String>builder()
+                        .event("item")
+                        .data(JSONUtil.toJsonStr(result))
+                        .build())
+                .concatWith(Mono.just(
+                        ServerSentEvent.<String>builder()
+                                .event("done")
+                                .data("")
+                                .build()
+                ));
+    }
+
     /**
      * 分页获取应用列表（仅管理员）
      *
@@ -265,32 +323,92 @@ public class AppController {
     /**
      * 应用聊天生成代码（流式 SSE）
      *
-     * @param appId   应用 ID
-     * @param message 用户消息
-     * @param request 请求对象
+     * @param appId             应用 ID
+     * @param message           用户消息，断线重连时可不传
+     * @param lastEventId       断点事件 ID（参数形式）
+     * @param lastEventIdHeader 断点事件 ID（EventSource 重连时自动携带）
+     * @param request           请求对象
      * @return 生成结果流
      */
     @GetMapping(value = "/chat/gen/code", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam Long appId,
-                                                       @RequestParam String message,
+                                                       @RequestParam(required = false) String message,
+                                                       @RequestParam(required = false) String lastEventId,
+                                                       @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
                                                        HttpServletRequest request) {
         // 参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
-        ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
         // 获取当前登录用户
         User loginUser = userService.getLoginUser(request);
-        // 调用服务生成代码（流式）
-        Flux<String> contentFlux = appService.chatToGen(appId, message, loginUser);
-        // 转换为 ServerSentEvent 格式
-        return contentFlux
-                .map(chunk -> {
-                    // 将内容包装成JSON对象
-                    Map<String, String> wrapper = Map.of("d", chunk);
-                    String jsonData = JSONUtil.toJsonStr(wrapper);
-                    return ServerSentEvent.<String>builder()
-                            .data(jsonData)
-                            .build();
-                })
+        // 断线重连：重新接入仍在进行的生成，只补发缺失的事件（EventSource 自动重连带请求头，页面重新打开时可通过参数传入）
+        String resumeFrom = StrUtil.blankToDefault(lastEventIdHeader, lastEventId);
+        if (StrUtil.isNotBlank(resumeFrom)) {
+            GenerationSession session = generationRegistry.getByEventId(resumeFrom);
+            ThrowUtils.throwIf(!session.getAppId().equals(appId), ErrorCode.PARAMS_ERROR, "事件 ID 与应用不匹配");
+            checkViewAuth(session, loginUser, request);
+            return toServerSentEvents(session, session.attach(GenerationRegistry.parseSeq(resumeFrom)));
+        }
+        ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
+        // 调用服务生成代码（流式），生成与本次连接解耦，断线后可重连续传
+        // 应用已有进行中的生成（如在其他页面发起）时不发送本次消息，改为跟随进行中的生成，并先告知客户端
+        AtomicBoolean following = new AtomicBoolean(false);
+        GenerationSession session = generationRegistry.startOrFollow(appId, loginUser.getId(),
+                () -> appService.chatToGen(appId, message, loginUser),
+                active -> {
+                    checkViewAuth(active, loginUser, request);
+                    following.set(true);
+                });
+        Flux<ServerSentEvent<String>> events = toServerSentEvents(session, session.follow());
+        if (following.get()) {
+            return Flux.just(ServerSentEvent.<String>builder().event(FOLLOWING_EVENT).data("").build())
+                    .concatWith(events);
+        }
+        return events;
+    }
+
+    /**
+     * 跟随应用进行中的生成（只读，不会发起新的生成）
+     *
+     * @param appId   应用 ID
+     * @param request 请求对象
+     * @return 生成结果流，没有进行中的生成时直接结束
+     */
+    @GetMapping(value = "/chat/gen/follow", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> followChatToGenCode(@RequestParam Long appId, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        User loginUser = userService.getLoginUser(request);
+        GenerationSession session = generationRegistry.getActive(appId);
+        if (session == null) {
+            return Flux.just(ServerSentEvent.<String>builder().event("done").data("").build());
+        }
+        checkViewAuth(session, loginUser, request);
+        return toServerSentEvents(session, session.follow());
+    }
+
+    /**
+     * 仅发起生成的用户或管理员可查看生成过程
+     */
+    private void checkViewAuth(GenerationSession session, User loginUser, HttpServletRequest request) {
+        ThrowUtils.throwIf(!session.getUserId().equals(loginUser.getId()) && !userService.isAdmin(request),
+                ErrorCode.NO_AUTH_ERROR);
+    }
+
+    /**
+     * 仅代码生成类型决定提示词和记忆配置，名称、封面、优先级变化无需重建 AI 服务
+     */
+    private static boolean affectsAiService(App oldApp, App app) {
+        return app.getCodeGenType() != null && !app.getCodeGenType().equals(oldApp.getCodeGenType());
+    }
+
+    /**
+     * 转换为 ServerSentEvent 格式，事件 ID 为 生成ID:事件序号
+     */
+    private Flux<ServerSentEvent<String>> toServerSentEvents(GenerationSession session, Flux<GenerationEvent> events) {
+        return events.map(event -> ServerSentEvent.<String>builder()
+                        .id(GenerationRegistry.toEventId(session, event))
+                        .event(event.getEvent())
+                        .data(event.getData())
+                        .build())
                 .concatWith(Mono.just(
                         // 发送结束事件
                         ServerSentEvent.<String>builder()
@@ -301,6 +419,21 @@ public class AppController {
     }
 
 
+    /**
+     * 停止应用正在进行的生成
+     *
+     * @param appChatStopRequest 停止请求
+     * @param request            请求对象
+     * @return 是否存在进行中的生成
+     */
+    @PostMapping("/chat/stop")
+    public BaseResponse<Boolean> stopChatToGenCode(@RequestBody AppChatStopRequest appChatStopRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(appChatStopRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        boolean stopped = appService.stopChatToGen(appChatStopRequest.getAppId(), loginUser);
+        return ResultUtils.success(stopped);
+    }
+
     /**
      * 应用部署
      *
@@ -320,6 +453,35 @@ public class AppController {
         return ResultUtils.success(deployUrl);
     }
 
+    /**
+     * 获取应用的代码版本列表
+     *
+     * @param appId   应用 id
+     * @param request 请求
+     * @return 版本列表，最新的在前
+     */
+    @GetMapping("/code/versions")
+    public BaseResponse<List<AppCodeVersionVO>> listCodeVersions(long appId, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(appService.listCodeVersions(appId, loginUser));
+    }
+
+    /**
+     * 把应用的预览代码切换到指定版本
+     *
+     * @param appCodeRollbackRequest 切换请求
+     * @param request                请求
+     * @return 是否成功
+     */
+    @PostMapping("/code/rollback")
+    public BaseResponse<Boolean> rollbackCode(@RequestBody AppCodeRollbackRequest appCodeRollbackRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(appCodeRollbackRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        boolean result = appService.rollbackCode(appCodeRollbackRequest.getAppId(), appCodeRollbackRequest.getVersion(), loginUser);
+        return ResultUtils.success(result);
+    }
+
 
 
 }
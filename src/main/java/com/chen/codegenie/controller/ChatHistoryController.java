@@ -1,5 +1,6 @@
 package com.chen.codegenie.controller;
 
+import com.chen.codegenie.ai.AiCodeGeneratorServiceFactory;
 import com.chen.codegenie.annotation.AuthCheck;
 import com.chen.codegenie.common.BaseResponse;
 import com.chen.codegenie.common.DeleteRequest;
@@ -40,6 +41,9 @@ public class ChatHistoryController {
     @Resource
     private AppService appService;
 
+    @Resource
+    private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
+
 
     /**
      * 删除对话历史
@@ -68,6 +72,8 @@ public class ChatHistoryController {
         }
         
         boolean b = chatHistoryService.removeById(id);
+        // 对话记忆和摘要中可能仍包含被删除的消息，重新从数据库加载
+        aiCodeGeneratorServiceFactory.invalidateAiCodeGeneratorService(oldChatHistory.getAppId());
         return ResultUtils.success(b);
     }
 
@@ -132,6 +138,10 @@ public class ChatHistoryController {
                                                               HttpServletRequest request) {
         User loginUser = userService.getLoginUser(request);
         Page<ChatHistory> result = chatHistoryService.listAppChatHistoryByPage(appId, pageSize, lastCreateTime, loginUser);
+        // 首屏加载历史时预热对话记忆，翻页时不再预热
+        if (lastCreateTime == null) {
+            aiCodeGeneratorServiceFactory.warmUpAsync(appId);
+        }
         return ResultUtils.success(result);
     }
 
@@ -0,0 +1,81 @@
+package com.chen.codegenie.controller;
+
+import com.chen.codegenie.common.BaseResponse;
+import com.chen.codegenie.common.ResultUtils;
+import com.chen.codegenie.exception.ErrorCode;
+import com.chen.codegenie.exception.ThrowUtils;
+import com.chen.codegenie.model.dto.job.GenerationJobSubmitRequest;
+import com.chen.codegenie.model.entity.GenerationJob;
+import com.chen.codegenie.model.entity.User;
+import com.chen.codegenie.model.enums.GenerationJobStatusEnum;
+import com.chen.codegenie.model.vo.GenerationJobVO;
+import com.chen.codegenie.service.GenerationJobService;
+import com.chen.codegenie.service.UserService;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 生成任务 控制层。
+ *
+ * @author chen
+ */
+@RestController
+@RequestMapping("/job")
+public class GenerationJobController {
+
+    @Resource
+    private GenerationJobService generationJobService;
+
+    @Resource
+    private UserService userService;
+
+    /**
+     * 提交生成任务（异步执行，通过任务 id 查询状态和结果）
+     *
+     * @param generationJobSubmitRequest 提交请求
+     * @param request                    请求对象
+     * @return 任务 id
+     */
+    @PostMapping("/submit")
+    public BaseResponse<Long> submitJob(@RequestBody GenerationJobSubmitRequest generationJobSubmitRequest,
+                                        HttpServletRequest request) {
+        ThrowUtils.throwIf(generationJobSubmitRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        Long jobId = generationJobService.submitJob(generationJobSubmitRequest.getAppId(),
+                generationJobSubmitRequest.getMessage(), loginUser);
+        return ResultUtils.success(jobId);
+    }
+
+    /**
+     * 查询任务状态
+     *
+     * @param id      任务 id
+     * @param request 请求对象
+     * @return 任务信息
+     */
+    @GetMapping("/get")
+    public BaseResponse<GenerationJobVO> getJob(@RequestParam Long id, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        GenerationJob generationJob = generationJobService.getJob(id, loginUser);
+        return ResultUtils.success(generationJobService.getGenerationJobVO(generationJob));
+    }
+
+    /**
+     * 获取任务结果
+     *
+     * @param id      任务 id
+     * @param request 请求对象
+     * @return 生成结果的预览地址
+     */
+    @GetMapping("/result")
+    public BaseResponse<String> getJobResult(@RequestParam Long id, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        GenerationJob generationJob = generationJobService.getJob(id, loginUser);
+        ThrowUtils.throwIf(GenerationJobStatusEnum.FAILED.getValue().equals(generationJob.getStatus()),
+                ErrorCode.OPERATION_ERROR, "任务执行失败：" + generationJob.getErrorMessage());
+        ThrowUtils.throwIf(!GenerationJobStatusEnum.SUCCEEDED.getValue().equals(generationJob.getStatus()),
+                ErrorCode.OPERATION_ERROR, "任务尚未完成");
+        return ResultUtils.success("/static/" + generationJob.getResultDir() + "/");
+    }
+}
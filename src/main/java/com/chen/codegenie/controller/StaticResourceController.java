@@ -1,6 +1,9 @@
 package com.chen.codegenie.controller;
 
 import com.chen.codegenie.constant.AppConstant;
+import com.chen.codegenie.core.compress.StaticFileCompressor;
+import com.chen.codegenie.core.saver.CodeOutputSnapshots;
+import com.chen.codegenie.model.enums.ContentEncodingEnum;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
@@ -27,6 +30,7 @@ public class StaticResourceController {
     /**
      * 提供静态资源访问，支持目录重定向
      * 访问格式：http://localhost:8080/static/{deployKey}[/{fileName}]
+     * 文本文件按 Accept-Encoding 返回保存时生成的 .br、.gz 压缩文件
      */
     @GetMapping("/{deployKey}/**")
     public ResponseEntity<Resource> serveStaticResource(
@@ -48,18 +52,26 @@ public class StaticResourceController {
             if ("/".equals(resourcePath)) {
                 resourcePath = "/index.html";
             }
-            // 构建文件路径
-            String filePath = PREVIEW_ROOT_DIR + "/" + deployKey + resourcePath;
+            // 构建文件路径：读取应用当前版本目录下的文件
+            File currentDir = CodeOutputSnapshots.resolveCurrentDir(PREVIEW_ROOT_DIR + "/" + deployKey);
+            String filePath = currentDir.getPath() + resourcePath;
             File file = new File(filePath);
             // 检查文件是否存在
             if (!file.exists()) {
                 return ResponseEntity.notFound().build();
             }
-            // 返回文件资源
-            Resource resource = new FileSystemResource(file);
-            return ResponseEntity.ok()
-                    .header("Content-Type", getContentTypeWithCharset(filePath))
-                    .body(resource);
+            // 返回文件资源，有可用的预压缩文件时直接返回压缩内容
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .header("Content-Type", getContentTypeWithCharset(filePath));
+            if (StaticFileCompressor.isCompressible(file.getName())) {
+                response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                ContentEncodingEnum encoding = StaticFileCompressor.negotiate(file, request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+                if (encoding != null) {
+                    file = encoding.variantOf(file);
+                    response.header(HttpHeaders.CONTENT_ENCODING, encoding.getValue());
+                }
+            }
+            return response.body(new FileSystemResource(file));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -1,19 +1,31 @@
 package com.chen.codegenie.core;
 
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
 import com.chen.codegenie.ai.AiCodeGeneratorService;
 import com.chen.codegenie.ai.AiCodeGeneratorServiceFactory;
 import com.chen.codegenie.ai.model.HtmlCodeResult;
 import com.chen.codegenie.ai.model.MultiFileCodeResult;
+import com.chen.codegenie.ai.stream.TokenStreamFluxAdapter;
+import com.chen.codegenie.config.ResultCacheConfig;
+import com.chen.codegenie.core.blob.CodeBlobStore;
+import com.chen.codegenie.core.cache.GenerationResultCache;
+import com.chen.codegenie.core.compress.StaticFileCompressor;
+import com.chen.codegenie.core.metrics.GenerationMetrics;
+import com.chen.codegenie.core.parser.CodeBlockFiles;
 import com.chen.codegenie.core.parser.CodeParserExecutor;
 import com.chen.codegenie.core.saver.CodeFileSaverExecutor;
+import com.chen.codegenie.core.saver.CodeOutputSnapshots;
+import com.chen.codegenie.core.saver.StreamingCodeFileSaver;
 import com.chen.codegenie.exception.BusinessException;
 import com.chen.codegenie.exception.ErrorCode;
 import com.chen.codegenie.model.enums.CodeGenTypeEnum;
-import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import java.io.File;
+import java.time.Duration;
+import java.util.List;
 
 /**
  * AI 代码生成外观类，组合生成和保存功能
@@ -23,10 +35,29 @@ import java.io.File;
 @Slf4j
 public class AiCodeGeneratorFacade {
 
-    @Resource
-    private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
+    private final AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
 
+    private final GenerationResultCache generationResultCache;
 
+    private final ResultCacheConfig resultCacheConfig;
+
+    private final GenerationMetrics generationMetrics;
+
+    private final StaticFileCompressor staticFileCompressor;
+
+    private final CodeBlobStore codeBlobStore;
+
+    public AiCodeGeneratorFacade(AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory,
+                                 GenerationResultCache generationResultCache, ResultCacheConfig resultCacheConfig,
+                                 GenerationMetrics generationMetrics, StaticFileCompressor staticFileCompressor,
+                                 CodeBlobStore codeBlobStore) {
+        this.aiCodeGeneratorServiceFactory = aiCodeGeneratorServiceFactory;
+        this.generationResultCache = generationResultCache;
+        this.resultCacheConfig = resultCacheConfig;
+        this.generationMetrics = generationMetrics;
+        this.staticFileCompressor = staticFileCompressor;
+        this.codeBlobStore = codeBlobStore;
+    }
 
     /**
      * 统一入口：根据类型生成并保存代码
@@ -36,18 +67,18 @@ public class AiCodeGeneratorFacade {
      * @return 保存的目录
      */
     public File generateAndSaveCode(String userMessage, CodeGenTypeEnum codeGenTypeEnum,Long appId) {
-        // 根据 appId 获取对应的 AI 服务实例
+        // 获取 AI 服务并加载应用的对话记忆
         AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId);
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成类型为空");
         }
-        return switch (codeGenTypeEnum) {
+        File savedDir = switch (codeGenTypeEnum) {
             case HTML -> {
                 HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode(appId,userMessage);
                 yield CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.HTML,appId);
             }
             case MULTI_FILE -> {
-                MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(userMessage);
+                MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(appId, userMessage);
                 yield CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.MULTI_FILE,appId);
             }
             default -> {
@@ -55,6 +86,18 @@ public class AiCodeGeneratorFacade {
                 throw new BusinessException(ErrorCode.SYSTEM_ERROR, errorMessage);
             }
         };
+        postProcessSavedDir(savedDir);
+        return savedDir;
+    }
+
+    /**
+     * 保存后处理：生成预压缩文件，再把版本中的文件去重为内容文件的硬链接并写入清单
+     *
+     * @param savedDir 保存的版本目录
+     */
+    private void postProcessSavedDir(File savedDir) {
+        staticFileCompressor.compressDir(savedDir);
+        codeBlobStore.internDir(savedDir, CodeOutputSnapshots.getManifestFile(savedDir));
     }
 
     /**
@@ -64,7 +107,14 @@ public class AiCodeGeneratorFacade {
      * @param codeGenTypeEnum 生成类型
      */
     public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum,Long appId) {
-        // 根据 appId 获取对应的 AI 服务实例
+        return generateAndSaveCodeStream(userMessage, codeGenTypeEnum, appId, null);
+    }
+
+    /**
+     * @param cacheKey 生成结果缓存键，为 null 时不写入缓存
+     */
+    private Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId, String cacheKey) {
+        // 获取 AI 服务并加载应用的对话记忆
         AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId);
 
         if (codeGenTypeEnum == null) {
@@ -72,12 +122,12 @@ public class AiCodeGeneratorFacade {
         }
         return switch (codeGenTypeEnum) {
             case HTML -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML,appId);
+                Flux<String> codeStream = TokenStreamFluxAdapter.toFlux(() -> aiCodeGeneratorService.generateHtmlCodeStream(appId, userMessage));
+                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId, cacheKey);
             }
             case MULTI_FILE -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE,appId);
+                Flux<String> codeStream = TokenStreamFluxAdapter.toFlux(() -> aiCodeGeneratorService.generateMultiFileCodeStream(appId, userMessage));
+                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId, cacheKey);
             }
             default -> {
                 String errorMessage = "不支持的生成类型：" + codeGenTypeEnum.getValue();
@@ -88,29 +138,123 @@ public class AiCodeGeneratorFacade {
 
 
     /**
-     * 通用流式代码处理方法
+     * 根据类型生成并保存代码（流式），完整结束并保存成功的结果写入生成结果缓存
+     * 只有首轮对话（没有历史记忆）的结果与提示词一一对应，才允许写入缓存；读取缓存见 {@link #getCachedResult}
+     * 缓存内容由保存后的文件重新生成为代码块，不在内存中累积完整输出
      *
-     * @param codeStream  代码流
-     * @param codeGenType 代码生成类型
+     * @param userMessage     用户提示词
+     * @param codeGenTypeEnum 生成类型
+     * @param appId           应用 ID
+     * @param cacheable       是否写入缓存
+     */
+    public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId, boolean cacheable) {
+        String cacheKey = cacheable && resultCacheConfig.isEnabled() && codeGenTypeEnum != null
+                ? generationResultCache.buildKey(userMessage, codeGenTypeEnum)
+                : null;
+        return generateAndSaveCodeStream(userMessage, codeGenTypeEnum, appId, cacheKey);
+    }
+
+    /**
+     * 查询可用的缓存结果，命中时通过 {@link #replayCachedResult} 回放，无需调用模型
+     * 调用方只查询一次并把结果传给回放，避免两次查询之间缓存过期导致绕过准入控制直接调用模型
+     *
+     * @param userMessage     用户提示词
+     * @param codeGenTypeEnum 生成类型
+     * @return 缓存的生成结果，未命中返回 null
+     */
+    public String getCachedResult(String userMessage, CodeGenTypeEnum codeGenTypeEnum) {
+        if (!resultCacheConfig.isEnabled() || codeGenTypeEnum == null) {
+            return null;
+        }
+        return generationResultCache.get(generationResultCache.buildKey(userMessage, codeGenTypeEnum));
+    }
+
+    /**
+     * 回放缓存的生成结果，并按正常流程保存代码文件
+     *
+     * @param cachedResult 缓存的生成结果
+     * @param codeGenType  代码生成类型
+     * @param appId        应用 ID
      * @return 流式响应
      */
-    private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType,Long appId) {
-        StringBuilder codeBuilder = new StringBuilder();
-        // 实时收集代码片段
-        return codeStream.doOnNext(codeBuilder::append).doOnComplete(() -> {
-            // 流式返回完成后保存代码
+    public Flux<String> replayCachedResult(String cachedResult, CodeGenTypeEnum codeGenType, Long appId) {
+        log.info("命中生成结果缓存，appId: {}", appId);
+        Flux<String> replay = Flux.fromArray(StrUtil.split(cachedResult, resultCacheConfig.getReplayChunkChars()));
+        Duration replayInterval = resultCacheConfig.getReplayInterval();
+        if (!replayInterval.isZero()) {
+            replay = replay.delayElements(replayInterval);
+        }
+        return replay.doOnComplete(() -> {
             try {
-                String completeCode = codeBuilder.toString();
-                // 使用执行器解析代码
-                Object parsedResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
-                // 使用执行器保存代码
-                File savedDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType,appId);
+                Object codeResult = CodeParserExecutor.executeParser(cachedResult, codeGenType);
+                File savedDir = CodeFileSaverExecutor.executeSaver(codeResult, codeGenType, appId);
+                postProcessSavedDir(savedDir);
                 log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
             } catch (Exception e) {
                 log.error("保存失败: {}", e.getMessage());
             }
+            // 本轮对话没有经过模型，应用的对话记忆需要从数据库重新加载
+            aiCodeGeneratorServiceFactory.invalidateAiCodeGeneratorService(appId);
         });
     }
 
+    /**
+     * 通用流式代码处理方法
+     * 代码块在输出过程中即被解析并写入临时文件，流结束时替换为正式文件，无需缓存完整输出
+     *
+     * @param codeStream  代码流
+     * @param codeGenType 代码生成类型
+     * @param cacheKey    生成结果缓存键，为 null 时不写入缓存
+     * @return 流式响应
+     */
+    private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId, String cacheKey) {
+        Flux<String> instrumentedStream = generationMetrics.instrumentModelStream(codeStream, codeGenType);
+        return Flux.defer(() -> {
+            StreamingCodeFileSaver codeFileSaver = new StreamingCodeFileSaver(codeGenType, appId);
+            long[] parseNanos = {0};
+            // 实时解析并写入代码片段
+            return instrumentedStream.doOnNext(chunk -> {
+                long start = System.nanoTime();
+                codeFileSaver.append(chunk);
+                parseNanos[0] += System.nanoTime() - start;
+            }).doOnComplete(() -> {
+                generationMetrics.recordParse(codeGenType, parseNanos[0]);
+                // 流式返回完成后提交代码文件
+                long start = System.nanoTime();
+                try {
+                    File savedDir = codeFileSaver.complete();
+                    postProcessSavedDir(savedDir);
+                    log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
+                    if (cacheKey != null) {
+                        generationResultCache.put(cacheKey, toCodeBlocks(savedDir, codeFileSaver.getSavedFiles()));
+                    }
+                } catch (Exception e) {
+                    log.error("保存失败: {}", e.getMessage());
+                }
+                generationMetrics.recordSave(codeGenType, System.nanoTime() - start);
+            }).doOnError(e -> codeFileSaver.abort()).doOnCancel(codeFileSaver::abort);
+        });
+    }
+
+    /**
+     * 把保存的文件重新生成为代码块，回放后可由解析器还原出相同的文件
+     *
+     * @param savedDir 保存的版本目录
+     * @param files    相对于版本目录的文件路径
+     * @return 代码块文本
+     */
+    private static String toCodeBlocks(File savedDir, List<String> files) {
+        StringBuilder codeBlocks = new StringBuilder();
+        for (String file : files) {
+            String info = CodeBlockFiles.toInfo(file);
+            if (info != null) {
+                codeBlocks.append("```").append(info).append('\n')
+                        .append(FileUtil.readUtf8String(new File(savedDir, file)))
+                        .append("\n```\n");
+            }
+        }
+        return codeBlocks.toString();
+    }
+
 
 }
@@ -0,0 +1,163 @@
+package com.chen.codegenie.core.blob;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import com.chen.codegenie.config.BlobStoreConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 代码文件内容寻址存储
+ * 每种内容只存一份：objects/{SHA-256 前两位}/{SHA-256}。代码输出目录、部署目录中的文件替换为指向内容文件的硬链接，
+ * 不同应用、不同版本、输出与部署之间相同的 CSS、JS、页面共用同一份数据和同一个 inode。
+ * 引用计数即文件系统的硬链接数：只剩存储目录自身一个链接的内容文件没有被任何目录引用，定时清理。
+ * 被链接的文件只能整体替换，不能原地改写（与 {@link com.chen.codegenie.core.saver.CodeOutputSnapshots} 的约定一致）。
+ * 文件系统不支持硬链接或不在同一文件系统时保留原文件，只是不去重。
+ *
+ * @author chen
+ */
+@Component
+@Slf4j
+public class CodeBlobStore {
+
+    private static final String OBJECTS_DIR = "objects";
+
+    private final BlobStoreConfig blobStoreConfig;
+
+    public CodeBlobStore(BlobStoreConfig blobStoreConfig) {
+        this.blobStoreConfig = blobStoreConfig;
+    }
+
+    /**
+     * 把目录下的文件去重为内容文件的硬链接，并可写入路径到内容哈希的清单
+     *
+     * @param dir          目录
+     * @param manifestFile 清单文件，为 null 时不写入
+     * @return 相对路径（以 / 分隔）到 SHA-256 的映射
+     */
+    public Map<String, String> internDir(File dir, File manifestFile) {
+        Map<String, String> manifest = new TreeMap<>();
+        if (!blobStoreConfig.isEnabled() || dir == null || !dir.isDirectory()) {
+            return manifest;
+        }
+        Path root = dir.toPath();
+        for (File file : FileUtil.loopFiles(dir, file -> !file.getName().endsWith(".tmp"))) {
+            try {
+                String hash = intern(file.toPath());
+                manifest.put(root.relativize(file.toPath()).toString().replace(File.separatorChar, '/'), hash);
+            } catch (IOException e) {
+                log.warn("文件去重失败，文件：{}，错误：{}", file, e.getMessage());
+            }
+        }
+        if (manifestFile != null) {
+            File tmp = new File(manifestFile.getPath() + "." + IdUtil.getSnowflakeNextIdStr() + ".tmp");
+            FileUtil.writeString(JSONUtil.toJsonStr(manifest), tmp, StandardCharsets.UTF_8);
+            FileUtil.rename(tmp, manifestFile.getName(), true);
+        }
+        return manifest;
+    }
+
+    /**
+     * 把文件替换为内容文件的硬链接，内容第一次出现时文件本身成为内容文件
+     *
+     * @return 内容的 SHA-256
+     */
+    String intern(Path file) throws IOException {
+        String hash = DigestUtil.sha256Hex(file.toFile());
+        Path blob = blobPath(hash);
+        if (!Files.exists(blob)) {
+            Files.createDirectories(blob.getParent());
+            try {
+                Files.createLink(blob, file);
+                return hash;
+            } catch (FileAlreadyExistsException e) {
+                // 其他线程刚存入相同内容，改为链接到已有内容文件
+            } catch (IOException | UnsupportedOperationException e) {
+                // 不支持硬链接或跨文件系统，保留原文件
+                return hash;
+            }
+        }
+        if (Files.isSameFile(blob, file)) {
+            return hash;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + "." + IdUtil.getSnowflakeNextIdStr() + ".tmp");
+        try {
+            Files.createLink(tmp, blob);
+        } catch (NoSuchFileException e) {
+            // 内容文件恰好被清理，由当前文件重新存入
+            Files.createLink(blob, file);
+            return hash;
+        } catch (UnsupportedOperationException e) {
+            return hash;
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return hash;
+    }
+
+    /**
+     * 删除没有任何目录引用（硬链接数为 1）且超过保留时长的内容文件
+     *
+     * @return 删除的文件数
+     */
+    @Scheduled(fixedDelayString = "${code-genie.blob-store.gc-interval:1h}", initialDelayString = "${code-genie.blob-store.gc-interval:1h}")
+    public int collectGarbage() {
+        File objectsDir = new File(blobStoreConfig.getRootDir(), OBJECTS_DIR);
+        if (!blobStoreConfig.isEnabled() || !objectsDir.isDirectory()) {
+            return 0;
+        }
+        long deadline = System.currentTimeMillis() - blobStoreConfig.getGcGracePeriod().toMillis();
+        int deleted = 0;
+        long freedBytes = 0;
+        List<File> blobs = FileUtil.loopFiles(objectsDir);
+        for (File blob : blobs) {
+            try {
+                Path path = blob.toPath();
+                int links = (Integer) Files.getAttribute(path, "unix:nlink");
+                // 链接数变化会更新 ctime，刚失去或刚获得引用的文件暂不清理
+                FileTime changed = (FileTime) Files.getAttribute(path, "unix:ctime");
+                if (links <= 1 && changed.toMillis() < deadline) {
+                    long size = Files.size(path);
+                    Files.delete(path);
+                    deleted++;
+                    freedBytes += size;
+                }
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                log.warn("文件系统不支持读取硬链接数，跳过内容文件清理");
+                return deleted;
+            } catch (IOException e) {
+                log.warn("清理内容文件失败，文件：{}，错误：{}", blob, e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            log.info("已清理无引用的内容文件 {} 个，共 {} 字节，剩余 {} 个", deleted, freedBytes, blobs.size() - deleted);
+        }
+        return deleted;
+    }
+
+    private Path blobPath(String hash) {
+        return Path.of(blobStoreConfig.getRootDir(), OBJECTS_DIR, hash.substring(0, 2), hash);
+    }
+}
@@ -0,0 +1,124 @@
+package com.chen.codegenie.core.cache;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.chen.codegenie.model.enums.CacheInvalidationTypeEnum;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 缓存失效总线
+ * 各节点在本地缓存应用相关的数据，数据变化时通过 Redis 消息按应用 ID 广播失效，
+ * 其他节点收到后移除本地副本，下次使用时重新加载，本地缓存无需依赖很短的过期时间保证一致。
+ *
+ * @author chen
+ */
+@Component
+@Slf4j
+public class CacheInvalidationBus implements MessageListener {
+
+    /**
+     * 缓存失效广播频道
+     */
+    public static final String CHANNEL = "code-genie:cache:invalidate";
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 本节点标识，忽略自己发出的广播
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final Map<CacheInvalidationTypeEnum, List<Consumer<Long>>> listeners = new ConcurrentHashMap<>();
+
+    public CacheInvalidationBus(StringRedisTemplate stringRedisTemplate,
+                                RedisMessageListenerContainer redisMessageListenerContainer) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 订阅缓存失效
+     *
+     * @param type     失效类型
+     * @param listener 失效处理，参数为应用 ID
+     */
+    public void subscribe(CacheInvalidationTypeEnum type, Consumer<Long> listener) {
+        listeners.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * 在本节点和其他节点上失效应用的缓存
+     *
+     * @param type  失效类型
+     * @param appId 应用 ID
+     */
+    public void publish(CacheInvalidationTypeEnum type, long appId) {
+        notifyListeners(type, appId);
+        broadcast(type, appId);
+    }
+
+    /**
+     * 只通知其他节点失效应用的缓存，用于本节点的缓存已是最新内容的情况（如写入后）
+     *
+     * @param type  失效类型
+     * @param appId 应用 ID
+     */
+    public void broadcast(CacheInvalidationTypeEnum type, long appId) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + SEPARATOR + type.getValue() + SEPARATOR + appId);
+        } catch (Exception e) {
+            // 广播失败时其他节点的本地副本最多在过期后才会刷新
+            log.warn("缓存失效广播失败，type: {}, appId: {}, error: {}", type.getValue(), appId, e.getMessage());
+        }
+    }
+
+    /**
+     * 收到其他节点的失效广播
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        List<String> parts = StrUtil.split(new String(message.getBody(), StandardCharsets.UTF_8), SEPARATOR);
+        if (parts.size() != 3 || parts.get(0).equals(nodeId)) {
+            return;
+        }
+        CacheInvalidationTypeEnum type = CacheInvalidationTypeEnum.getEnumByValue(parts.get(1));
+        if (type == null || !StrUtil.isNumeric(parts.get(2))) {
+            log.warn("无法识别的缓存失效广播: {}", parts);
+            return;
+        }
+        notifyListeners(type, Long.parseLong(parts.get(2)));
+    }
+
+    private void notifyListeners(CacheInvalidationTypeEnum type, long appId) {
+        for (Consumer<Long> listener : listeners.getOrDefault(type, List.of())) {
+            try {
+                listener.accept(appId);
+            } catch (Exception e) {
+                log.error("处理缓存失效失败，type: {}, appId: {}, error: {}", type.getValue(), appId, e.getMessage(), e);
+            }
+        }
+    }
+}
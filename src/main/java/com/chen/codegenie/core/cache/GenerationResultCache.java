@@ -0,0 +1,186 @@
+package com.chen.codegenie.core.cache;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.chen.codegenie.config.ResultCacheConfig;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 生成结果缓存（精确匹配）
+ * 键由规范化后的用户提示词、生成类型和系统提示词内容共同决定，系统提示词修改后旧结果自然失效。
+ * 本地 Caffeine 缓存 + 磁盘缓存两级存储，均按大小淘汰。
+ *
+ * @author chen
+ */
+@Component
+@Slf4j
+public class GenerationResultCache {
+
+    private static final String FILE_SUFFIX = ".txt";
+
+    private final ResultCacheConfig resultCacheConfig;
+
+    private Cache<String, String> localCache;
+
+    /**
+     * 各生成类型对应的系统提示词摘要
+     */
+    private final Map<CodeGenTypeEnum, String> promptVersions = new EnumMap<>(CodeGenTypeEnum.class);
+
+    /**
+     * 磁盘缓存当前占用的字节数
+     */
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    public GenerationResultCache(ResultCacheConfig resultCacheConfig) {
+        this.resultCacheConfig = resultCacheConfig;
+    }
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumWeight(resultCacheConfig.getLocalMaxChars())
+                .weigher((String key, String value) -> value.length())
+                .build();
+        for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+            String systemPrompt = ResourceUtil.readUtf8Str(getSystemPromptResource(codeGenType));
+            promptVersions.put(codeGenType, DigestUtil.sha256Hex(systemPrompt).substring(0, 16));
+        }
+        File dir = FileUtil.mkdir(resultCacheConfig.getDiskDir());
+        File[] files = dir.listFiles((d, name) -> name.endsWith(FILE_SUFFIX));
+        if (files != null) {
+            diskBytes.set(Arrays.stream(files).mapToLong(File::length).sum());
+        }
+    }
+
+    /**
+     * 构造缓存键
+     *
+     * @param userPrompt  用户提示词
+     * @param codeGenType 生成类型
+     * @return 缓存键
+     */
+    public String buildKey(String userPrompt, CodeGenTypeEnum codeGenType) {
+        return codeGenType.getValue() + "_" + promptVersions.get(codeGenType) + "_" + DigestUtil.sha256Hex(normalize(userPrompt));
+    }
+
+    /**
+     * 查询缓存
+     *
+     * @param key 缓存键
+     * @return 生成结果，未命中返回 null
+     */
+    public String get(String key) {
+        String content = localCache.getIfPresent(key);
+        if (content != null) {
+            return content;
+        }
+        Path path = getDiskPath(key);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            content = Files.readString(path, StandardCharsets.UTF_8);
+            // 记录命中时间，淘汰时优先删除最久未命中的
+            path.toFile().setLastModified(System.currentTimeMillis());
+        } catch (IOException e) {
+            log.warn("读取生成结果缓存失败，key: {}, error: {}", key, e.getMessage());
+            return null;
+        }
+        localCache.put(key, content);
+        return content;
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key     缓存键
+     * @param content 生成结果
+     */
+    public void put(String key, String content) {
+        if (StrUtil.isBlank(content)) {
+            return;
+        }
+        localCache.put(key, content);
+        Path path = getDiskPath(key);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            long oldSize = Files.exists(path) ? Files.size(path) : 0;
+            Files.writeString(tmp, content, StandardCharsets.UTF_8);
+            long newSize = Files.size(tmp);
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (diskBytes.addAndGet(newSize - oldSize) > resultCacheConfig.getDiskMaxBytes()) {
+                evictDisk();
+            }
+        } catch (IOException e) {
+            FileUtil.del(tmp);
+            log.warn("写入生成结果缓存失败，key: {}, error: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 淘汰最久未命中的磁盘缓存，直到占用降到上限的 90%
+     */
+    private synchronized void evictDisk() {
+        long target = resultCacheConfig.getDiskMaxBytes() / 10 * 9;
+        if (diskBytes.get() <= target) {
+            return;
+        }
+        File[] files = new File(resultCacheConfig.getDiskDir()).listFiles((d, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (diskBytes.get() <= target) {
+                break;
+            }
+            long size = file.length();
+            if (file.delete()) {
+                diskBytes.addAndGet(-size);
+            }
+        }
+    }
+
+    private Path getDiskPath(String key) {
+        return Path.of(resultCacheConfig.getDiskDir(), key + FILE_SUFFIX);
+    }
+
+    /**
+     * 规范化提示词：去除首尾空白，连续空白合并为一个空格，英文统一小写
+     */
+    private static String normalize(String userPrompt) {
+        return StrUtil.trim(userPrompt).replaceAll("\\s+", " ").toLowerCase();
+    }
+
+    private static String getSystemPromptResource(CodeGenTypeEnum codeGenType) {
+        return switch (codeGenType) {
+            case HTML -> "prompt/html-system-prompt.txt";
+            case MULTI_FILE -> "prompt/multi-file-system-prompt.txt";
+        };
+    }
+}
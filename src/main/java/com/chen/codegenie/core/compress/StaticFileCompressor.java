@@ -0,0 +1,204 @@
+package com.chen.codegenie.core.compress;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.chen.codegenie.config.StaticCompressionConfig;
+import com.chen.codegenie.model.enums.ContentEncodingEnum;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 静态文件预压缩
+ * 保存、部署代码时为文本文件生成同名的 .gz、.br 压缩文件，访问时按 Accept-Encoding 直接返回压缩好的内容，
+ * 每个请求不再消耗压缩 CPU。压缩后不比原文件小的文件不生成压缩文件。
+ *
+ * @author chen
+ */
+@Component
+@Slf4j
+public class StaticFileCompressor {
+
+    /**
+     * 需要压缩的文件扩展名
+     */
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of("html", "css", "js", "json", "svg", "txt", "xml");
+
+    private final StaticCompressionConfig staticCompressionConfig;
+
+    public StaticFileCompressor(StaticCompressionConfig staticCompressionConfig) {
+        this.staticCompressionConfig = staticCompressionConfig;
+    }
+
+    /**
+     * 当前环境是否能加载 Brotli 本地库
+     */
+    private boolean brotliAvailable;
+
+    @PostConstruct
+    public void init() {
+        try {
+            brotliAvailable = Brotli4jLoader.isAvailable();
+        } catch (Throwable e) {
+            brotliAvailable = false;
+        }
+        if (!brotliAvailable) {
+            log.warn("Brotli 本地库不可用，只生成 gzip 压缩文件");
+        }
+    }
+
+    /**
+     * 为目录下的文本文件生成压缩文件：已有且不旧于原文件的压缩文件跳过，原文件已删除的压缩文件一并删除
+     *
+     * @param dir 目录
+     */
+    public void compressDir(File dir) {
+        if (!staticCompressionConfig.isEnabled() || dir == null || !dir.isDirectory()) {
+            return;
+        }
+        for (File file : FileUtil.loopFiles(dir)) {
+            String name = file.getName();
+            if (name.endsWith(".tmp")) {
+                continue;
+            }
+            ContentEncodingEnum encoding = ContentEncodingEnum.getEnumByFileName(name);
+            if (encoding != null) {
+                // 原文件已不存在的压缩文件
+                File source = new File(file.getParentFile(), StrUtil.removeSuffix(name, encoding.getSuffix()));
+                if (!source.exists()) {
+                    FileUtil.del(file);
+                }
+                continue;
+            }
+            compressFile(file);
+        }
+    }
+
+    /**
+     * 为单个文件生成压缩文件
+     *
+     * @param file 原文件
+     */
+    public void compressFile(File file) {
+        if (!staticCompressionConfig.isEnabled() || !isCompressible(file.getName())) {
+            return;
+        }
+        byte[] raw = null;
+        for (ContentEncodingEnum encoding : ContentEncodingEnum.values()) {
+            File target = encoding.variantOf(file);
+            if (target.exists() && target.lastModified() >= file.lastModified()) {
+                continue;
+            }
+            if (encoding == ContentEncodingEnum.BROTLI && !brotliAvailable) {
+                continue;
+            }
+            try {
+                if (raw == null) {
+                    raw = FileUtil.readBytes(file);
+                }
+                byte[] compressed = raw.length < staticCompressionConfig.getMinBytes() ? null : compress(raw, encoding);
+                if (compressed == null || compressed.length >= raw.length) {
+                    FileUtil.del(target);
+                    continue;
+                }
+                // 先写临时文件再改名，读取方不会读到写了一半的压缩文件
+                File tmp = new File(target.getPath() + ".tmp");
+                FileUtil.writeBytes(compressed, tmp);
+                FileUtil.rename(tmp, target.getName(), true);
+            } catch (Exception e) {
+                log.warn("生成压缩文件失败，文件：{}，编码：{}，错误：{}", file, encoding.getValue(), e.getMessage());
+                FileUtil.del(target);
+            }
+        }
+    }
+
+    private byte[] compress(byte[] raw, ContentEncodingEnum encoding) throws IOException {
+        if (encoding == ContentEncodingEnum.BROTLI) {
+            return Encoder.compress(raw, new Encoder.Parameters().setQuality(staticCompressionConfig.getBrotliQuality()));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 3);
+        int level = staticCompressionConfig.getGzipLevel();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(raw);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 是否为需要压缩的文本文件
+     *
+     * @param fileName 文件名
+     * @return 是否需要压缩
+     */
+    public static boolean isCompressible(String fileName) {
+        return COMPRESSIBLE_EXTENSIONS.contains(FileUtil.extName(fileName).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 根据 Accept-Encoding 选择要返回的文件：优先 br，其次 gzip，对应的压缩文件不存在或比原文件旧时返回原文件
+     *
+     * @param file           原文件
+     * @param acceptEncoding 请求头 Accept-Encoding，可为空
+     * @return 选中的编码，返回原文件时为 null
+     */
+    public static ContentEncodingEnum negotiate(File file, String acceptEncoding) {
+        if (StrUtil.isBlank(acceptEncoding) || !isCompressible(file.getName())) {
+            return null;
+        }
+        for (ContentEncodingEnum encoding : ContentEncodingEnum.values()) {
+            if (!accepts(acceptEncoding, encoding.getValue())) {
+                continue;
+            }
+            File variant = encoding.variantOf(file);
+            if (variant.isFile() && variant.lastModified() >= file.lastModified()) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Accept-Encoding 是否接受指定编码：明确列出的编码优先于 *，q=0 表示拒绝
+     */
+    private static boolean accepts(String acceptEncoding, String coding) {
+        Double wildcard = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String name = params[0].strip();
+            if (name.equalsIgnoreCase(coding)) {
+                return quality(params) > 0;
+            }
+            if ("*".equals(name)) {
+                wildcard = quality(params);
+            }
+        }
+        return wildcard != null && wildcard > 0;
+    }
+
+    private static double quality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].strip();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,465 @@
+package com.chen.codegenie.core.deploy;
+
+import java.util.Set;
+
+/**
+ * 静态资源压缩（去注释、折叠空白）
+ * 只做不改变语义的保守处理：不重命名变量、不改写表达式。
+ * 逐字符扫描，识别字符串、模板字符串、正则字面量、注释和原样保留的标签，扫描耗时与内容长度成线性关系。
+ *
+ * @author chen
+ */
+public class AssetMinifier {
+
+    /**
+     * 文档结构标签，两侧的空白不会渲染
+     */
+    private static final Set<String> DOCUMENT_TAGS = Set.of("!doctype", "html", "head", "body");
+
+    /**
+     * 正则字面量可以出现在这些字符之后，其余位置的 / 是除号
+     */
+    private static final String REGEX_PRECEDING_CHARS = "(,=:[!&|?{};+-*%<>~^";
+
+    /**
+     * 正则字面量可以出现在这些关键字之后
+     */
+    private static final Set<String> REGEX_PRECEDING_KEYWORDS = Set.of(
+            "return", "typeof", "instanceof", "case", "do", "else", "in", "of", "new", "delete", "void",
+            "throw", "yield", "await");
+
+    /**
+     * 压缩 HTML：去掉注释（保留条件注释），连续空白折叠为一个空格，内联的 style、script 分别按 CSS、JS 压缩，
+     * pre、textarea 内容原样保留。
+     * 标签之间的空白在行内元素、inline-block 元素之间会渲染为间距，只有 head 内和文档结构标签两侧的才去掉
+     *
+     * @param html HTML 内容
+     * @return 压缩后的内容
+     */
+    public static String minifyHtml(String html) {
+        StringBuilder out = new StringBuilder(html.length());
+        String lastTag = null;
+        boolean inHead = false;
+        int i = 0;
+        int length = html.length();
+        while (i < length) {
+            char c = html.charAt(i);
+            if (html.startsWith("<!--", i) && !html.startsWith("<!--[if", i)) {
+                int end = html.indexOf("-->", i + 4);
+                i = end < 0 ? length : end + 3;
+                continue;
+            }
+            if (c == '<' && i + 1 < length && isTagStart(html.charAt(i + 1))) {
+                int end = copyTag(html, i, out);
+                String tag = tagName(html, i);
+                i = end;
+                lastTag = tag;
+                if ("head".equals(tag) || "/head".equals(tag)) {
+                    inHead = "head".equals(tag);
+                }
+                String rawTag = tag.startsWith("/") ? null : tag;
+                if ("pre".equals(rawTag) || "textarea".equals(rawTag)
+                        || "script".equals(rawTag) || "style".equals(rawTag)) {
+                    String closing = "</" + rawTag;
+                    int close = indexOfIgnoreCase(html, closing, i);
+                    if (close < 0) {
+                        close = length;
+                    }
+                    String content = html.substring(i, close);
+                    if ("style".equals(rawTag)) {
+                        content = minifyCss(content);
+                    } else if ("script".equals(rawTag) && isJavaScript(out)) {
+                        content = minifyJs(content);
+                    }
+                    out.append(content);
+                    i = close;
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                int start = i;
+                while (i < length && Character.isWhitespace(html.charAt(i))) {
+                    i++;
+                }
+                boolean betweenTags = (start == 0 || html.charAt(start - 1) == '>') && (i == length || html.charAt(i) == '<');
+                if (out.isEmpty() || i == length) {
+                    continue;
+                }
+                if (betweenTags && (inHead || isDocumentTag(lastTag) || isDocumentTag(tagName(html, i)))) {
+                    continue;
+                }
+                out.append(' ');
+                continue;
+            }
+            out.append(c);
+            i++;
+        }
+        return out.toString();
+    }
+
+    /**
+     * 压缩 CSS：去掉注释，折叠空白，去掉 { } ; , 两侧和 : 之后的空白以及 } 前多余的分号
+     *
+     * @param css CSS 内容
+     * @return 压缩后的内容
+     */
+    public static String minifyCss(String css) {
+        StringBuilder out = new StringBuilder(css.length());
+        int i = 0;
+        int length = css.length();
+        boolean pendingSpace = false;
+        while (i < length) {
+            char c = css.charAt(i);
+            if (c == '/' && i + 1 < length && css.charAt(i + 1) == '*') {
+                int end = css.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                pendingSpace = true;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if (c == '"' || c == '\'') {
+                if (pendingSpace && needsCssSpace(out)) {
+                    out.append(' ');
+                }
+                pendingSpace = false;
+                i = copyQuoted(css, i, c, out);
+                continue;
+            }
+            if (c == '{' || c == '}' || c == ';' || c == ',') {
+                if (c == '}' && !out.isEmpty() && out.charAt(out.length() - 1) == ';') {
+                    out.setLength(out.length() - 1);
+                }
+                out.append(c);
+                pendingSpace = false;
+                i++;
+                continue;
+            }
+            if (pendingSpace && needsCssSpace(out)) {
+                out.append(' ');
+            }
+            pendingSpace = false;
+            out.append(c);
+            i++;
+        }
+        return out.toString();
+    }
+
+    /**
+     * 压缩 JavaScript：去掉注释和缩进，折叠空白；保留换行以免改变自动分号插入的结果，
+     * 只在换行前是 { ; , ( [ 或换行后是 } ) ] 时去掉换行
+     *
+     * @param js JavaScript 内容
+     * @return 压缩后的内容
+     */
+    public static String minifyJs(String js) {
+        JsMinifier minifier = new JsMinifier(js);
+        minifier.minifyCode(false);
+        return minifier.out.toString().strip();
+    }
+
+    private static boolean needsCssSpace(StringBuilder out) {
+        if (out.isEmpty()) {
+            return false;
+        }
+        char last = out.charAt(out.length() - 1);
+        return last != '{' && last != '}' && last != ';' && last != ',' && last != ':';
+    }
+
+    private static boolean isTagStart(char c) {
+        return Character.isLetter(c) || c == '/' || c == '!';
+    }
+
+    /**
+     * 复制一个标签，引号内原样保留，其余空白折叠为一个空格，> 前的空白去掉
+     *
+     * @return 标签结束后的位置
+     */
+    private static int copyTag(String html, int start, StringBuilder out) {
+        int i = start;
+        int length = html.length();
+        boolean pendingSpace = false;
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c == '"' || c == '\'') {
+                if (pendingSpace) {
+                    out.append(' ');
+                    pendingSpace = false;
+                }
+                i = copyQuoted(html, i, c, out);
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if (c == '>') {
+                out.append('>');
+                return i + 1;
+            }
+            if (pendingSpace) {
+                out.append(' ');
+                pendingSpace = false;
+            }
+            out.append(c);
+            i++;
+        }
+        return length;
+    }
+
+    /**
+     * 读取标签名（小写），结束标签带 / 前缀
+     */
+    private static String tagName(String html, int start) {
+        int i = start + 1;
+        int nameStart = i;
+        if (i < html.length() && html.charAt(i) == '/') {
+            i++;
+        }
+        while (i < html.length()) {
+            char c = html.charAt(i);
+            if (Character.isWhitespace(c) || c == '>' || (c == '/' && i > nameStart + 1)) {
+                break;
+            }
+            i++;
+        }
+        return html.substring(nameStart, i).toLowerCase();
+    }
+
+    private static boolean isDocumentTag(String tag) {
+        if (tag == null) {
+            return false;
+        }
+        return DOCUMENT_TAGS.contains(tag.startsWith("/") ? tag.substring(1) : tag);
+    }
+
+    /**
+     * 根据刚复制的 script 开始标签判断内容是否为 JavaScript（未声明 type 或 type 为 JavaScript、module）
+     */
+    private static boolean isJavaScript(StringBuilder out) {
+        int tagStart = out.lastIndexOf("<");
+        String tag = out.substring(tagStart).toLowerCase();
+        int typeIndex = tag.indexOf(" type=");
+        if (typeIndex < 0) {
+            return true;
+        }
+        String type = tag.substring(typeIndex + 6).replace("\"", "").replace("'", "");
+        return type.startsWith("text/javascript") || type.startsWith("module") || type.startsWith("application/javascript");
+    }
+
+    private static int indexOfIgnoreCase(String text, String target, int from) {
+        int limit = text.length() - target.length();
+        for (int i = from; i <= limit; i++) {
+            if (text.regionMatches(true, i, target, 0, target.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 原样复制引号内的内容（含引号），支持反斜杠转义
+     *
+     * @return 结束引号之后的位置
+     */
+    private static int copyQuoted(String text, int start, char quote, StringBuilder out) {
+        int i = start + 1;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                i += 2;
+                continue;
+            }
+            i++;
+            if (c == quote) {
+                break;
+            }
+        }
+        out.append(text, start, i);
+        return i;
+    }
+
+    /**
+     * JavaScript 扫描器，模板字符串中的 ${} 表达式递归按代码处理
+     */
+    private static class JsMinifier {
+
+        private final String js;
+
+        private final StringBuilder out;
+
+        private int position;
+
+        JsMinifier(String js) {
+            this.js = js;
+            this.out = new StringBuilder(js.length());
+        }
+
+        /**
+         * 处理代码直到结尾，或 inExpression 为 true 时处理到与模板表达式匹配的 }
+         */
+        void minifyCode(boolean inExpression) {
+            int depth = 0;
+            int length = js.length();
+            while (position < length) {
+                char c = js.charAt(position);
+                if (c == '/' && position + 1 < length && js.charAt(position + 1) == '/') {
+                    int end = js.indexOf('\n', position);
+                    position = end < 0 ? length : end;
+                    continue;
+                }
+                if (c == '/' && position + 1 < length && js.charAt(position + 1) == '*') {
+                    int end = js.indexOf("*/", position + 2);
+                    int stop = end < 0 ? length : end + 2;
+                    boolean hasNewline = js.substring(position, stop).indexOf('\n') >= 0;
+                    position = stop;
+                    whitespace(hasNewline);
+                    continue;
+                }
+                if (Character.isWhitespace(c)) {
+                    boolean hasNewline = false;
+                    while (position < length && Character.isWhitespace(js.charAt(position))) {
+                        hasNewline |= js.charAt(position) == '\n';
+                        position++;
+                    }
+                    whitespace(hasNewline);
+                    continue;
+                }
+                if (c == '"' || c == '\'') {
+                    position = copyQuoted(js, position, c, out);
+                    continue;
+                }
+                if (c == '`') {
+                    template();
+                    continue;
+                }
+                if (c == '/' && regexAllowed()) {
+                    regex();
+                    continue;
+                }
+                if (inExpression) {
+                    if (c == '{') {
+                        depth++;
+                    } else if (c == '}') {
+                        if (depth == 0) {
+                            out.append(c);
+                            position++;
+                            return;
+                        }
+                        depth--;
+                    }
+                }
+                out.append(c);
+                position++;
+            }
+        }
+
+        /**
+         * 处理空白：能省略时省略，必须保留时输出一个空格或换行
+         */
+        private void whitespace(boolean hasNewline) {
+            if (out.isEmpty() || position >= js.length()) {
+                return;
+            }
+            char last = out.charAt(out.length() - 1);
+            char next = js.charAt(position);
+            if (last == '\n') {
+                return;
+            }
+            if (hasNewline) {
+                if ("{;,([".indexOf(last) >= 0 || "})]".indexOf(next) >= 0) {
+                    return;
+                }
+                out.append('\n');
+                return;
+            }
+            boolean wordPair = isWordChar(last) && isWordChar(next);
+            boolean operatorPair = (last == next && "+-/".indexOf(last) >= 0) || (Character.isDigit(last) && next == '.');
+            if (wordPair || operatorPair) {
+                out.append(' ');
+            }
+        }
+
+        private void template() {
+            int length = js.length();
+            out.append('`');
+            position++;
+            while (position < length) {
+                char c = js.charAt(position);
+                if (c == '\\' && position + 1 < length) {
+                    out.append(js, position, position + 2);
+                    position += 2;
+                    continue;
+                }
+                if (c == '$' && position + 1 < length && js.charAt(position + 1) == '{') {
+                    out.append("${");
+                    position += 2;
+                    minifyCode(true);
+                    continue;
+                }
+                out.append(c);
+                position++;
+                if (c == '`') {
+                    return;
+                }
+            }
+        }
+
+        private void regex() {
+            int length = js.length();
+            int start = position;
+            position++;
+            boolean inClass = false;
+            while (position < length) {
+                char c = js.charAt(position);
+                if (c == '\\' && position + 1 < length) {
+                    position += 2;
+                    continue;
+                }
+                if (c == '\n') {
+                    break;
+                }
+                position++;
+                if (c == '[') {
+                    inClass = true;
+                } else if (c == ']') {
+                    inClass = false;
+                } else if (c == '/' && !inClass) {
+                    break;
+                }
+            }
+            while (position < length && Character.isLetter(js.charAt(position))) {
+                position++;
+            }
+            out.append(js, start, position);
+        }
+
+        private boolean regexAllowed() {
+            int end = out.length();
+            while (end > 0 && Character.isWhitespace(out.charAt(end - 1))) {
+                end--;
+            }
+            if (end == 0) {
+                return true;
+            }
+            char last = out.charAt(end - 1);
+            if (REGEX_PRECEDING_CHARS.indexOf(last) >= 0) {
+                return true;
+            }
+            int start = end;
+            while (start > 0 && isWordChar(out.charAt(start - 1))) {
+                start--;
+            }
+            return start < end && REGEX_PRECEDING_KEYWORDS.contains(out.substring(start, end));
+        }
+
+        private static boolean isWordChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c > 127;
+        }
+    }
+}
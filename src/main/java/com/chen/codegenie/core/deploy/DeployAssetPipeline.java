@@ -0,0 +1,369 @@
+package com.chen.codegenie.core.deploy;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.chen.codegenie.config.DeployConfig;
+import com.chen.codegenie.core.blob.CodeBlobStore;
+import com.chen.codegenie.core.compress.StaticFileCompressor;
+import com.chen.codegenie.model.enums.ContentEncodingEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 部署资源处理流水线
+ * 把生成目录中的文件处理后发布到部署目录：
+ * 1. 压缩 HTML、CSS、JS；
+ * 2. 较小且不引用其他资源的样式表内联到页面中；
+ * 3. 页面引用的 CSS、JS 重命名为 name.{内容哈希}.ext 并改写页面中的引用，文件内容不变则文件名不变，可以永久缓存。
+ * 被其他 CSS、JS 按文件名引用的资源保留原名，避免改写不到的引用失效。
+ * 处理结果写入新的发布版本目录，生成预压缩文件并去重为内容文件的硬链接，完成后原子切换部署目录的符号链接，
+ * 访问者不会看到处理到一半的文件，也不会在切换过程中访问不到页面。
+ *
+ * @author chen
+ */
+@Component
+@Slf4j
+public class DeployAssetPipeline {
+
+    /**
+     * 发布版本目录后缀：{部署目录}.releases/{版本号}/，部署目录是指向当前版本的符号链接
+     */
+    private static final String RELEASES_SUFFIX = ".releases";
+
+    /**
+     * 文件名中内容哈希的长度
+     */
+    private static final int FINGERPRINT_LENGTH = 8;
+
+    /**
+     * 标签中的 href、src 属性，分组：属性名及等号、引号、属性值
+     */
+    private static final Pattern REFERENCE_PATTERN =
+            Pattern.compile("(\\s(?:href|src)\\s*=\\s*)([\"'])([^\"'<>]*)\\2", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * link 标签
+     */
+    private static final Pattern LINK_TAG_PATTERN = Pattern.compile("<link\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 标签属性，分组：属性名、属性值
+     */
+    private static final Pattern ATTRIBUTE_PATTERN =
+            Pattern.compile("\\s([a-zA-Z-]+)\\s*=\\s*[\"']([^\"'<>]*)[\"']");
+
+    private final DeployConfig deployConfig;
+
+    private final StaticFileCompressor staticFileCompressor;
+
+    private final CodeBlobStore codeBlobStore;
+
+    public DeployAssetPipeline(DeployConfig deployConfig, StaticFileCompressor staticFileCompressor,
+                               CodeBlobStore codeBlobStore) {
+        this.deployConfig = deployConfig;
+        this.staticFileCompressor = staticFileCompressor;
+        this.codeBlobStore = codeBlobStore;
+    }
+
+    /**
+     * 处理生成目录中的文件并发布到部署目录
+     *
+     * @param sourceDir 生成目录
+     * @param deployDir 部署目录（指向当前发布版本的符号链接），已存在时原子切换
+     */
+    public void publish(File sourceDir, File deployDir) {
+        Map<String, byte[]> files = process(readFiles(sourceDir));
+        File releasesDir = new File(deployDir.getPath() + RELEASES_SUFFIX);
+        String release = IdUtil.getSnowflakeNextIdStr();
+        File releaseDir = new File(releasesDir, release);
+        try {
+            files.forEach((path, content) -> FileUtil.writeBytes(content, new File(releaseDir, path)));
+            staticFileCompressor.compressDir(releaseDir);
+            codeBlobStore.internDir(releaseDir, null);
+            switchRelease(deployDir, release);
+        } catch (IOException | RuntimeException e) {
+            FileUtil.del(releaseDir);
+            throw new IllegalStateException("无法替换部署目录: " + deployDir + "，" + e.getMessage(), e);
+        }
+        pruneReleases(releasesDir, release);
+        log.info("部署目录已更新: {} -> {}", deployDir, release);
+    }
+
+    /**
+     * 处理文件，返回发布路径到内容的映射
+     *
+     * @param files 相对路径（以 / 分隔）到内容的映射
+     * @return 处理后的相对路径到内容的映射
+     */
+    Map<String, byte[]> process(Map<String, byte[]> files) {
+        Map<String, String> texts = new LinkedHashMap<>();
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        files.forEach((path, content) -> {
+            if (isText(path)) {
+                texts.put(path, new String(content, StandardCharsets.UTF_8));
+            } else {
+                result.put(path, content);
+            }
+        });
+        if (deployConfig.isMinify()) {
+            texts.replaceAll((path, text) -> {
+                if (path.endsWith(".css")) {
+                    return AssetMinifier.minifyCss(text);
+                }
+                if (path.endsWith(".js")) {
+                    return AssetMinifier.minifyJs(text);
+                }
+                return text;
+            });
+        }
+        if (deployConfig.getInlineCssMaxBytes() > 0) {
+            texts.replaceAll((path, text) -> path.endsWith(".html") ? inlineStyleSheets(path, text, texts) : text);
+        }
+        Map<String, String> renamed = deployConfig.isFingerprint() ? fingerprint(texts) : Map.of();
+        texts.forEach((path, text) -> {
+            if (path.endsWith(".html")) {
+                text = rewriteReferences(path, text, renamed);
+                if (deployConfig.isMinify()) {
+                    text = AssetMinifier.minifyHtml(text);
+                }
+            }
+            result.put(renamed.getOrDefault(path, path), text.getBytes(StandardCharsets.UTF_8));
+        });
+        return result;
+    }
+
+    /**
+     * 确定要重命名的资源：被页面引用、且未被其他 CSS、JS 按文件名引用的 CSS、JS
+     *
+     * @return 原路径到新路径的映射
+     */
+    private Map<String, String> fingerprint(Map<String, String> texts) {
+        Set<String> referenced = new HashSet<>();
+        texts.forEach((path, text) -> {
+            if (path.endsWith(".html")) {
+                Matcher matcher = REFERENCE_PATTERN.matcher(text);
+                while (matcher.find()) {
+                    String target = resolve(path, matcher.group(3));
+                    if (target != null) {
+                        referenced.add(target);
+                    }
+                }
+            }
+        });
+        Map<String, String> renamed = new HashMap<>();
+        for (String path : referenced) {
+            String text = texts.get(path);
+            if (text == null || !(path.endsWith(".css") || path.endsWith(".js")) || isReferencedByAsset(path, texts)) {
+                continue;
+            }
+            String hash = DigestUtil.sha256Hex(text).substring(0, FINGERPRINT_LENGTH);
+            int dot = path.lastIndexOf('.');
+            renamed.put(path, path.substring(0, dot) + "." + hash + path.substring(dot));
+        }
+        return renamed;
+    }
+
+    private static boolean isReferencedByAsset(String path, Map<String, String> texts) {
+        String name = FileUtil.getName(path);
+        for (Map.Entry<String, String> entry : texts.entrySet()) {
+            String other = entry.getKey();
+            if (!other.equals(path) && !other.endsWith(".html") && entry.getValue().contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把较小的外链样式表替换为 style 标签；带 media 等属性或引用了其他资源的样式表不内联
+     */
+    private String inlineStyleSheets(String htmlPath, String html, Map<String, String> texts) {
+        Matcher matcher = LINK_TAG_PATTERN.matcher(html);
+        StringBuilder out = new StringBuilder(html.length());
+        while (matcher.find()) {
+            String replacement = matcher.group();
+            Map<String, String> attributes = parseAttributes(matcher.group());
+            String target = resolve(htmlPath, attributes.getOrDefault("href", ""));
+            String css = target == null ? null : texts.get(target);
+            if (css != null && target.endsWith(".css")
+                    && "stylesheet".equalsIgnoreCase(attributes.get("rel"))
+                    && StrUtil.equalsAny(attributes.getOrDefault("media", "all"), "all", "screen")
+                    && !attributes.containsKey("integrity")
+                    && !css.contains("url(") && !css.contains("@import")
+                    && css.getBytes(StandardCharsets.UTF_8).length <= deployConfig.getInlineCssMaxBytes()
+                    && !css.contains("</style")) {
+                replacement = "<style>" + css + "</style>";
+            }
+            matcher.appendReplacement(out, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    /**
+     * 把页面中对已重命名资源的引用改为新文件名，查询串和锚点保持不变
+     */
+    private static String rewriteReferences(String htmlPath, String html, Map<String, String> renamed) {
+        if (renamed.isEmpty()) {
+            return html;
+        }
+        Matcher matcher = REFERENCE_PATTERN.matcher(html);
+        StringBuilder out = new StringBuilder(html.length());
+        while (matcher.find()) {
+            String value = matcher.group(3);
+            String target = resolve(htmlPath, value);
+            String replacement = matcher.group();
+            if (target != null && renamed.containsKey(target)) {
+                int end = queryStart(value);
+                String reference = end < 0 ? value : value.substring(0, end);
+                String suffix = end < 0 ? "" : value.substring(end);
+                String newValue = reference.substring(0, reference.lastIndexOf('/') + 1)
+                        + FileUtil.getName(renamed.get(target)) + suffix;
+                replacement = matcher.group(1) + matcher.group(2) + newValue + matcher.group(2);
+            }
+            matcher.appendReplacement(out, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    /**
+     * 把页面中的相对引用解析为相对于根目录的路径，绝对地址、根路径和越出根目录的引用返回 null
+     */
+    private static String resolve(String htmlPath, String reference) {
+        int end = queryStart(reference);
+        String value = (end < 0 ? reference : reference.substring(0, end)).strip();
+        if (value.isEmpty() || value.startsWith("/") || value.contains(":")) {
+            return null;
+        }
+        int slash = htmlPath.lastIndexOf('/');
+        String joined = (slash < 0 ? "" : htmlPath.substring(0, slash + 1)) + value;
+        List<String> segments = new ArrayList<>();
+        for (String segment : joined.split("/")) {
+            if (segment.isEmpty() || ".".equals(segment)) {
+                continue;
+            }
+            if ("..".equals(segment)) {
+                if (segments.isEmpty()) {
+                    return null;
+                }
+                segments.removeLast();
+                continue;
+            }
+            segments.add(segment);
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * 查询串或锚点的起始位置，没有时返回 -1
+     */
+    private static int queryStart(String reference) {
+        for (int i = 0; i < reference.length(); i++) {
+            char c = reference.charAt(i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Map<String, String> parseAttributes(String tag) {
+        Map<String, String> attributes = new HashMap<>();
+        Matcher matcher = ATTRIBUTE_PATTERN.matcher(tag);
+        while (matcher.find()) {
+            attributes.put(matcher.group(1).toLowerCase(), matcher.group(2).strip());
+        }
+        return attributes;
+    }
+
+    private static boolean isText(String path) {
+        return path.endsWith(".html") || path.endsWith(".css") || path.endsWith(".js");
+    }
+
+    /**
+     * 读取目录下的文件，跳过生成过程中的临时文件和预压缩文件（按处理后的内容重新生成）
+     */
+    private static Map<String, byte[]> readFiles(File sourceDir) {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        String root = sourceDir.toPath().toAbsolutePath().normalize().toString();
+        for (File file : FileUtil.loopFiles(sourceDir, file -> !file.getName().endsWith(".tmp")
+                && ContentEncodingEnum.getEnumByFileName(file.getName()) == null)) {
+            String path = file.toPath().toAbsolutePath().normalize().toString().substring(root.length() + 1)
+                    .replace(File.separatorChar, '/');
+            files.put(path, FileUtil.readBytes(file));
+        }
+        return files;
+    }
+
+    /**
+     * 在部署目录旁创建指向新版本的临时符号链接，再改名覆盖部署目录，访问者只会看到旧版本或新版本
+     * 旧的部署目录是普通目录时，先改名再切换，仅迁移时有一瞬间不可访问
+     */
+    private static void switchRelease(File deployDir, String release) throws IOException {
+        Path link = deployDir.toPath();
+        Path tmp = Path.of(deployDir.getPath() + "." + release + ".tmp");
+        Files.createSymbolicLink(tmp, Path.of(deployDir.getName() + RELEASES_SUFFIX, release));
+        File legacyDir = null;
+        try {
+            if (Files.isDirectory(link, LinkOption.NOFOLLOW_LINKS)) {
+                legacyDir = new File(deployDir.getPath() + "." + release + ".old");
+                Files.move(link, legacyDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.move(tmp, link, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (legacyDir != null && legacyDir.exists()) {
+                Files.move(legacyDir.toPath(), link, StandardCopyOption.ATOMIC_MOVE);
+            }
+            throw e;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        if (legacyDir != null) {
+            FileUtil.del(legacyDir);
+            log.info("部署目录已迁移为符号链接: {}", deployDir);
+        }
+    }
+
+    /**
+     * 删除当前版本和上一个版本之外的发布版本，切换前已开始的访问仍可读取上一个版本
+     */
+    private static void pruneReleases(File releasesDir, String currentRelease) {
+        File[] releases = releasesDir.listFiles();
+        if (releases == null) {
+            return;
+        }
+        // 比当前版本新的目录可能是正在进行的发布，不删除
+        long current = Long.parseLong(currentRelease);
+        List<Long> older = new ArrayList<>();
+        for (File release : releases) {
+            if (StrUtil.isNumeric(release.getName()) && Long.parseLong(release.getName()) < current) {
+                older.add(Long.parseLong(release.getName()));
+            }
+        }
+        older.sort(Comparator.reverseOrder());
+        for (int i = 1; i < older.size(); i++) {
+            FileUtil.del(new File(releasesDir, String.valueOf(older.get(i))));
+        }
+    }
+}
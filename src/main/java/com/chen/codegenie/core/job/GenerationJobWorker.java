@@ -0,0 +1,194 @@
+package com.chen.codegenie.core.job;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.system.SystemUtil;
+import com.chen.codegenie.ai.AiCodeGeneratorServiceFactory;
+import com.chen.codegenie.config.GenerationJobConfig;
+import com.chen.codegenie.constant.AppConstant;
+import com.chen.codegenie.core.AiCodeGeneratorFacade;
+import com.chen.codegenie.core.scheduler.GenerationScheduler;
+import com.chen.codegenie.core.stream.GenerationRegistry;
+import com.chen.codegenie.core.stream.GenerationSession;
+import com.chen.codegenie.model.entity.App;
+import com.chen.codegenie.model.entity.GenerationJob;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import com.chen.codegenie.service.AppService;
+import com.chen.codegenie.service.GenerationJobService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 生成任务执行器
+ * 按空闲线程数从数据库领取任务，执行期间定期续约；进程重启或宕机后，租约过期的任务由任意节点重新领取。
+ * 模型调用同样经过 {@link GenerationScheduler} 的准入控制，与流式生成共享并发上限；
+ * 执行时在 {@link GenerationRegistry} 中占用应用，同一应用的任务与交互式生成不会同时写入对话记忆和代码版本。
+ *
+ * @author chen
+ */
+@Component
+@Slf4j
+public class GenerationJobWorker {
+
+    private final GenerationJobService generationJobService;
+
+    private final AppService appService;
+
+    private final AiCodeGeneratorFacade aiCodeGeneratorFacade;
+
+    private final GenerationScheduler generationScheduler;
+
+    private final GenerationRegistry generationRegistry;
+
+    private final AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
+
+    private final GenerationJobConfig generationJobConfig;
+
+    /**
+     * 节点标识，用作租约持有者
+     */
+    private final String leaseOwner = SystemUtil.getHostInfo().getName() + "-" + IdUtil.fastSimpleUUID().substring(0, 8);
+
+    /**
+     * 本节点正在执行的任务
+     */
+    private final Set<Long> runningJobIds = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService executor;
+
+    public GenerationJobWorker(GenerationJobService generationJobService, AppService appService,
+                               AiCodeGeneratorFacade aiCodeGeneratorFacade, GenerationScheduler generationScheduler,
+                               GenerationRegistry generationRegistry,
+                               AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory,
+                               GenerationJobConfig generationJobConfig) {
+        this.generationJobService = generationJobService;
+        this.appService = appService;
+        this.aiCodeGeneratorFacade = aiCodeGeneratorFacade;
+        this.generationScheduler = generationScheduler;
+        this.generationRegistry = generationRegistry;
+        this.aiCodeGeneratorServiceFactory = aiCodeGeneratorServiceFactory;
+        this.generationJobConfig = generationJobConfig;
+    }
+
+    @PostConstruct
+    public void init() {
+        int threads = generationJobConfig.getWorkerThreads();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                ThreadFactoryBuilder.create().setNamePrefix("generation-job-").build());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // 未完成的任务不必等待，租约过期后会被重新领取
+        executor.shutdownNow();
+    }
+
+    /**
+     * 领取并执行任务
+     */
+    @Scheduled(fixedDelayString = "${code-genie.job.poll-interval:2s}")
+    public void poll() {
+        int idle = generationJobConfig.getWorkerThreads() - runningJobIds.size();
+        if (idle <= 0 || executor.isShutdown()) {
+            return;
+        }
+        List<GenerationJob> jobs;
+        try {
+            jobs = generationJobService.claimJobs(leaseOwner, idle);
+        } catch (Exception e) {
+            log.error("领取生成任务失败: {}", e.getMessage());
+            return;
+        }
+        for (GenerationJob job : jobs) {
+            runningJobIds.add(job.getId());
+            executor.execute(() -> {
+                try {
+                    execute(job);
+                } finally {
+                    runningJobIds.remove(job.getId());
+                }
+            });
+        }
+    }
+
+    /**
+     * 续约本节点正在执行的任务，间隔为租约时长的三分之一
+     */
+    @Scheduled(fixedDelayString = "#{@generationJobConfig.leaseDuration.dividedBy(3)}")
+    public void renewLeases() {
+        if (runningJobIds.isEmpty()) {
+            return;
+        }
+        try {
+            generationJobService.renewLeases(new ArrayList<>(runningJobIds), leaseOwner);
+        } catch (Exception e) {
+            log.error("生成任务续约失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 执行任务：在生成登记表中占用应用的生成名额，与交互式生成互斥，应用正在生成时归还任务稍后再领取
+     */
+    void execute(GenerationJob job) {
+        log.info("开始执行生成任务 {}，appId: {}，第 {} 次", job.getId(), job.getAppId(), job.getAttempts());
+        AtomicReference<String> resultDir = new AtomicReference<>();
+        String errorMessage = null;
+        try {
+            CodeGenTypeEnum codeGenType = CodeGenTypeEnum.getEnumByValue(job.getCodeGenType());
+            App app = appService.getById(job.getAppId());
+            int priority = app == null ? AppConstant.DEFAULT_APP_PRIORITY
+                    : ObjUtil.defaultIfNull(app.getPriority(), AppConstant.DEFAULT_APP_PRIORITY);
+            // 获得执行名额后在弹性线程上调用模型，排队位置可通过 /chat/gen/follow 查看
+            GenerationSession session = generationRegistry.startBackground(job.getAppId(), job.getUserId(),
+                    () -> generationScheduler.schedule(job.getUserId(), priority, () -> Mono.fromCallable(
+                                            () -> generate(job, codeGenType))
+                                    .subscribeOn(Schedulers.boundedElastic())
+                                    .flux())
+                            .doOnNext(resultDir::set)
+                            .ignoreElements()
+                            .flux());
+            if (session == null) {
+                log.info("应用 {} 正在生成，归还生成任务 {}", job.getAppId(), job.getId());
+                generationJobService.releaseJob(job, leaseOwner);
+                return;
+            }
+            // 本线程只等待生成结束
+            session.follow().blockLast();
+            if (resultDir.get() == null) {
+                errorMessage = "生成已停止";
+            }
+        } catch (Exception e) {
+            log.error("生成任务 {} 执行失败: {}", job.getId(), e.getMessage());
+            errorMessage = ObjUtil.defaultIfNull(e.getMessage(), e.getClass().getSimpleName());
+        }
+        if (executor.isShutdown()) {
+            // 进程关闭中，保留租约由其他节点或重启后恢复
+            return;
+        }
+        generationJobService.finishJob(job, leaseOwner, errorMessage == null ? resultDir.get() : null, errorMessage);
+    }
+
+    private String generate(GenerationJob job, CodeGenTypeEnum codeGenType) {
+        if (job.getAttempts() != null && job.getAttempts() > 1) {
+            // 重试：上次执行可能已把用户消息写入对话记忆，从数据库重新加载，避免重复写入
+            aiCodeGeneratorServiceFactory.invalidateAiCodeGeneratorService(job.getAppId());
+        }
+        return aiCodeGeneratorFacade.generateAndSaveCode(job.getMessage(), codeGenType, job.getAppId()).getName();
+    }
+}
@@ -0,0 +1,233 @@
+package com.chen.codegenie.core.metrics;
+
+import com.chen.codegenie.core.scheduler.GenerationScheduler;
+import com.chen.codegenie.core.stream.GenerationRegistry;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 代码生成链路指标
+ * 统一定义指标名称和标签，通过 /actuator/prometheus 导出
+ *
+ * @author chen
+ */
+@Component
+public class GenerationMetrics {
+
+    private static final String AI_MEMORY_GET = "codegenie.ai.memory.get";
+
+    private static final String AI_MEMORY_LOAD = "codegenie.ai.memory.load";
+
+    private static final String AI_MEMORY_STORE_BYTES = "codegenie.ai.memory.store.bytes";
+
+    private static final String GENERATION_TTFT = "codegenie.generation.ttft";
+
+    private static final String GENERATION_DURATION = "codegenie.generation.duration";
+
+    private static final String GENERATION_TOKEN_RATE = "codegenie.generation.token.rate";
+
+    private static final String GENERATION_PARSE = "codegenie.generation.parse";
+
+    private static final String GENERATION_SAVE = "codegenie.generation.save";
+
+    private static final String GENERATION_INFLIGHT = "codegenie.generation.inflight";
+
+    private static final String CHAT_HISTORY_SAVE = "codegenie.chat.history.save";
+
+    private final MeterRegistry meterRegistry;
+
+    private final GenerationRegistry generationRegistry;
+
+    private final GenerationScheduler generationScheduler;
+
+    /**
+     * 正在调用模型的生成数
+     */
+    private final AtomicInteger inflightModelStreams = new AtomicInteger();
+
+    public GenerationMetrics(MeterRegistry meterRegistry, @Lazy GenerationRegistry generationRegistry,
+                             @Lazy GenerationScheduler generationScheduler) {
+        this.meterRegistry = meterRegistry;
+        this.generationRegistry = generationRegistry;
+        this.generationScheduler = generationScheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder(GENERATION_INFLIGHT, inflightModelStreams, AtomicInteger::get)
+                .description("正在调用模型输出的生成数")
+                .register(meterRegistry);
+        Gauge.builder("codegenie.generation.sessions.active", () -> generationRegistry.getActiveCount())
+                .description("进行中的生成会话数（含排队）")
+                .register(meterRegistry);
+        Gauge.builder("codegenie.scheduler.running", () -> generationScheduler.getRunningCount())
+                .description("已获准调用模型的生成数")
+                .register(meterRegistry);
+        Gauge.builder("codegenie.scheduler.queued", () -> generationScheduler.getQueueSize())
+                .description("排队等待调用模型的生成数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 监控 Caffeine 缓存（缓存需开启 recordStats）
+     *
+     * @param cache     缓存
+     * @param cacheName 缓存名称
+     */
+    public void monitorCache(Cache<?, ?> cache, String cacheName) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName);
+    }
+
+    /**
+     * 记录获取应用对话记忆的耗时
+     *
+     * @param hit          是否命中缓存
+     * @param elapsedNanos 耗时（纳秒）
+     */
+    public void recordChatMemoryGet(boolean hit, long elapsedNanos) {
+        Timer.builder(AI_MEMORY_GET)
+                .description("获取应用对话记忆耗时")
+                .tag("result", hit ? "hit" : "miss")
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录从数据库加载对话记忆的耗时
+     *
+     * @param elapsedNanos 耗时（纳秒）
+     */
+    public void recordMemoryLoad(long elapsedNanos) {
+        Timer.builder(AI_MEMORY_LOAD)
+                .description("从数据库加载对话记忆耗时")
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录写入 Redis 的对话记忆大小
+     *
+     * @param bytes 编码后的字节数
+     */
+    public void recordMemoryStoreBytes(long bytes) {
+        DistributionSummary.builder(AI_MEMORY_STORE_BYTES)
+                .description("写入 Redis 的对话记忆大小")
+                .baseUnit("bytes")
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    /**
+     * 记录对话历史的保存耗时
+     *
+     * @param messageType 消息类型
+     * @param action      保存动作
+     * @return 保存结果
+     */
+    public <T> T recordChatHistorySave(String messageType, Supplier<T> action) {
+        return Timer.builder(CHAT_HISTORY_SAVE)
+                .description("对话历史保存耗时")
+                .tag("messageType", messageType)
+                .register(meterRegistry)
+                .record(action);
+    }
+
+    /**
+     * 记录代码块解析并写入临时文件的耗时（一次生成内累计）
+     *
+     * @param codeGenType  代码生成类型
+     * @param elapsedNanos 耗时（纳秒）
+     */
+    public void recordParse(CodeGenTypeEnum codeGenType, long elapsedNanos) {
+        Timer.builder(GENERATION_PARSE)
+                .description("一次生成中解析并写入代码片段的累计耗时")
+                .tag("type", codeGenType.getValue())
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录生成结束时提交代码文件的耗时
+     *
+     * @param codeGenType  代码生成类型
+     * @param elapsedNanos 耗时（纳秒）
+     */
+    public void recordSave(CodeGenTypeEnum codeGenType, long elapsedNanos) {
+        Timer.builder(GENERATION_SAVE)
+                .description("生成结束时提交代码文件的耗时")
+                .tag("type", codeGenType.getValue())
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 为模型输出流记录首字延迟、输出速率、总耗时和进行中数量
+     * 每个输出片段对应模型的一次 token 回调
+     *
+     * @param codeStream  模型输出流
+     * @param codeGenType 代码生成类型
+     * @return 带指标的输出流
+     */
+    public Flux<String> instrumentModelStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType) {
+        String type = codeGenType.getValue();
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicLong firstTokenNanos = new AtomicLong(-1);
+            AtomicLong tokens = new AtomicLong();
+            inflightModelStreams.incrementAndGet();
+            return codeStream.doOnNext(chunk -> {
+                if (tokens.getAndIncrement() == 0) {
+                    long ttft = System.nanoTime() - start;
+                    firstTokenNanos.set(ttft);
+                    Timer.builder(GENERATION_TTFT)
+                            .description("模型首字延迟")
+                            .tag("type", type)
+                            .register(meterRegistry)
+                            .record(ttft, TimeUnit.NANOSECONDS);
+                }
+            }).doFinally(signal -> {
+                inflightModelStreams.decrementAndGet();
+                long elapsed = System.nanoTime() - start;
+                Timer.builder(GENERATION_DURATION)
+                        .description("模型输出总耗时")
+                        .tag("type", type)
+                        .tag("outcome", toOutcome(signal))
+                        .register(meterRegistry)
+                        .record(elapsed, TimeUnit.NANOSECONDS);
+                // 输出速率按首字之后的时间计算，排除排队和首字等待
+                long streamingNanos = elapsed - firstTokenNanos.get();
+                if (signal == SignalType.ON_COMPLETE && firstTokenNanos.get() >= 0 && streamingNanos > 0) {
+                    DistributionSummary.builder(GENERATION_TOKEN_RATE)
+                            .description("模型输出速率（token/秒）")
+                            .baseUnit("tokens/s")
+                            .tag("type", type)
+                            .register(meterRegistry)
+                            .record(tokens.get() * 1e9 / streamingNanos);
+                }
+            });
+        });
+    }
+
+    private static String toOutcome(SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> "complete";
+            case ON_ERROR -> "error";
+            default -> "cancel";
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package com.chen.codegenie.core.parser;
+
+import cn.hutool.core.util.StrUtil;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+
+/**
+ * 代码块文件名解析
+ * 代码块信息串为 语言[:相对路径]，如 html、css:css/theme.css、javascript:js/app.js。
+ * 未标注路径时使用默认文件名（index.html、style.css、script.js）。
+ *
+ * @author chen
+ */
+public class CodeBlockFiles {
+
+    /**
+     * 路径最大长度
+     */
+    private static final int MAX_PATH_LENGTH = 128;
+
+    /**
+     * 路径最大层级
+     */
+    private static final int MAX_PATH_DEPTH = 4;
+
+    /**
+     * 根据代码块信息串确定文件路径，不需要保存或路径不合法的代码块返回 null
+     *
+     * @param codeGenType 代码生成类型
+     * @param info        代码块信息串
+     * @return 相对于输出目录的文件路径
+     */
+    public static String resolveFileName(CodeGenTypeEnum codeGenType, String info) {
+        String language = StrUtil.subBefore(info, ':', false).strip().toLowerCase();
+        String extension = switch (language) {
+            case "html" -> ".html";
+            case "css" -> ".css";
+            case "js", "javascript" -> ".js";
+            default -> null;
+        };
+        if (extension == null) {
+            return null;
+        }
+        return switch (codeGenType) {
+            case HTML -> ".html".equals(extension) ? "index.html" : null;
+            case MULTI_FILE -> {
+                String path = info.indexOf(':') >= 0 ? StrUtil.subAfter(info, ':', false).strip() : "";
+                if (path.isEmpty()) {
+                    yield switch (extension) {
+                        case ".html" -> "index.html";
+                        case ".css" -> "style.css";
+                        default -> "script.js";
+                    };
+                }
+                yield isValidPath(path, extension) ? path : null;
+            }
+        };
+    }
+
+    /**
+     * 根据文件路径生成代码块信息串，是 {@link #resolveFileName} 的逆过程，默认文件名只写语言
+     *
+     * @param fileName 相对于输出目录的文件路径
+     * @return 代码块信息串，不支持的文件类型返回 null
+     */
+    public static String toInfo(String fileName) {
+        String language;
+        String defaultName;
+        if (fileName.endsWith(".html")) {
+            language = "html";
+            defaultName = "index.html";
+        } else if (fileName.endsWith(".css")) {
+            language = "css";
+            defaultName = "style.css";
+        } else if (fileName.endsWith(".js")) {
+            language = "javascript";
+            defaultName = "script.js";
+        } else {
+            return null;
+        }
+        return defaultName.equals(fileName) ? language : language + ":" + fileName;
+    }
+
+    /**
+     * 路径只能是输出目录内的相对路径，且扩展名与代码语言一致
+     */
+    private static boolean isValidPath(String path, String extension) {
+        if (path.length() > MAX_PATH_LENGTH || !path.endsWith(extension)) {
+            return false;
+        }
+        int depth = 1;
+        int segmentStart = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            char c = i < path.length() ? path.charAt(i) : '/';
+            if (c == '/') {
+                String segment = path.substring(segmentStart, i);
+                // 不允许绝对路径、空层级和 . / .. 层级
+                if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                    return false;
+                }
+                if (i < path.length() && ++depth > MAX_PATH_DEPTH) {
+                    return false;
+                }
+                segmentStart = i + 1;
+            } else if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '.' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,55 +1,72 @@
 package com.chen.codegenie.core.parser;
 
+import com.chen.codegenie.ai.model.CodeFile;
 import com.chen.codegenie.ai.model.MultiFileCodeResult;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 多文件代码解析器（HTML + CSS + JS）
+ * 一次扫描输出中的所有代码块，按 语言[:路径] 确定文件，支持任意数量的文件，同一文件只取第一个代码块。
  *
  * @author chen
  */
 public class MultiFileCodeParser implements CodeParser<MultiFileCodeResult> {
 
-    private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-    private static final Pattern CSS_CODE_PATTERN = Pattern.compile("```css\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-    private static final Pattern JS_CODE_PATTERN = Pattern.compile("```(?:js|javascript)\\s*\\n([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE);
-
     @Override
     public MultiFileCodeResult parseCode(String codeContent) {
+        Map<String, StringBuilder> blocks = new LinkedHashMap<>();
+        StreamingCodeParser parser = new StreamingCodeParser(new StreamingCodeParser.Listener() {
+
+            private StringBuilder current;
+
+            @Override
+            public void onBlockStart(String info) {
+                String path = CodeBlockFiles.resolveFileName(CodeGenTypeEnum.MULTI_FILE, info);
+                current = path == null || blocks.containsKey(path) ? null : new StringBuilder();
+                if (current != null) {
+                    blocks.put(path, current);
+                }
+            }
+
+            @Override
+            public void onBlockContent(String content) {
+                if (current != null) {
+                    current.append(content);
+                }
+            }
+
+            @Override
+            public void onBlockEnd() {
+                current = null;
+            }
+        });
+        parser.feed(codeContent);
+        parser.finish();
+
         MultiFileCodeResult result = new MultiFileCodeResult();
-        // 提取各类代码
-        String htmlCode = extractCodeByPattern(codeContent, HTML_CODE_PATTERN);
-        String cssCode = extractCodeByPattern(codeContent, CSS_CODE_PATTERN);
-        String jsCode = extractCodeByPattern(codeContent, JS_CODE_PATTERN);
-        // 设置HTML代码
-        if (htmlCode != null && !htmlCode.trim().isEmpty()) {
-            result.setHtmlCode(htmlCode.trim());
-        }
-        // 设置CSS代码
-        if (cssCode != null && !cssCode.trim().isEmpty()) {
-            result.setCssCode(cssCode.trim());
+        List<CodeFile> files = new ArrayList<>(blocks.size());
+        for (Map.Entry<String, StringBuilder> entry : blocks.entrySet()) {
+            String content = entry.getValue().toString().trim();
+            if (!content.isEmpty()) {
+                files.add(new CodeFile(entry.getKey(), content));
+            }
         }
-        // 设置JS代码
-        if (jsCode != null && !jsCode.trim().isEmpty()) {
-            result.setJsCode(jsCode.trim());
+        result.setFiles(files);
+        // 默认文件同时填充到对应字段
+        for (CodeFile file : files) {
+            switch (file.getPath()) {
+                case "index.html" -> result.setHtmlCode(file.getContent());
+                case "style.css" -> result.setCssCode(file.getContent());
+                case "script.js" -> result.setJsCode(file.getContent());
+                default -> {
+                }
+            }
         }
         return result;
     }
-
-    /**
-     * 根据正则模式提取代码
-     *
-     * @param content 原始内容
-     * @param pattern 正则模式
-     * @return 提取的代码
-     */
-    private String extractCodeByPattern(String content, Pattern pattern) {
-        Matcher matcher = pattern.matcher(content);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
-    }
 }
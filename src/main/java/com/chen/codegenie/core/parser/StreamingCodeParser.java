@@ -0,0 +1,174 @@
+package com.chen.codegenie.core.parser;
+
+/**
+ * 流式代码块解析器（状态机）
+ * 逐个喂入模型输出片段，识别 ```lang 开始和 ``` 结束的代码块，并实时回调代码块内容。
+ * 只缓存当前未结束的一行，不保留完整输出。
+ *
+ * @author chen
+ */
+public class StreamingCodeParser {
+
+    private static final String FENCE = "```";
+
+    /**
+     * 代码块事件监听器
+     */
+    public interface Listener {
+
+        /**
+         * 代码块开始
+         *
+         * @param info 代码块信息串（``` 之后的内容，如 html、css:css/theme.css），已去除首尾空白
+         */
+        void onBlockStart(String info);
+
+        /**
+         * 代码块内容（可能被拆成任意多段）
+         *
+         * @param content 内容片段
+         */
+        void onBlockContent(String content);
+
+        /**
+         * 代码块结束
+         */
+        void onBlockEnd();
+
+        /**
+         * 代码块之外的文本（说明文字等）
+         *
+         * @param text 文本片段
+         */
+        default void onText(String text) {
+        }
+    }
+
+    private final Listener listener;
+
+    /**
+     * 当前未结束的一行
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * 当前行已确定不是围栏，其内容已直接输出
+     */
+    private boolean lineFlushed = false;
+
+    /**
+     * 是否处于代码块内部
+     */
+    private boolean inBlock = false;
+
+    public StreamingCodeParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 喂入一段模型输出
+     *
+     * @param chunk 输出片段
+     */
+    public void feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        int start = 0;
+        int newline;
+        while ((newline = chunk.indexOf('\n', start)) >= 0) {
+            appendToLine(chunk, start, newline + 1);
+            endLine();
+            start = newline + 1;
+        }
+        if (start < chunk.length()) {
+            appendToLine(chunk, start, chunk.length());
+        }
+    }
+
+    /**
+     * 输出结束，处理最后一行（未闭合的代码块视为在结尾处闭合）
+     */
+    public void finish() {
+        if (!line.isEmpty() || lineFlushed) {
+            endLine();
+        }
+        if (inBlock) {
+            inBlock = false;
+            listener.onBlockEnd();
+        }
+    }
+
+    /**
+     * 是否处于代码块内部
+     */
+    public boolean isInBlock() {
+        return inBlock;
+    }
+
+    private void appendToLine(String chunk, int from, int to) {
+        if (lineFlushed) {
+            emit(chunk.substring(from, to));
+            return;
+        }
+        line.append(chunk, from, to);
+        // 行首不可能是围栏时直接输出，避免长行（如压缩后的代码）堆积在缓冲中
+        if (!mayBeFence()) {
+            lineFlushed = true;
+            emit(line.toString());
+            line.setLength(0);
+        }
+    }
+
+    private void endLine() {
+        if (lineFlushed) {
+            lineFlushed = false;
+            return;
+        }
+        String current = line.toString();
+        line.setLength(0);
+        String trimmed = current.strip();
+        if (trimmed.startsWith(FENCE)) {
+            if (inBlock) {
+                inBlock = false;
+                listener.onBlockEnd();
+            } else {
+                inBlock = true;
+                listener.onBlockStart(trimmed.substring(FENCE.length()).strip());
+            }
+            return;
+        }
+        emit(current);
+    }
+
+    /**
+     * 当前缓存的行在忽略前导空白后，是否仍可能以 ``` 开头
+     */
+    private boolean mayBeFence() {
+        int i = 0;
+        int length = line.length();
+        while (i < length && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+            i++;
+        }
+        for (int j = 0; i < length; i++, j++) {
+            if (j == FENCE.length()) {
+                return true;
+            }
+            if (line.charAt(i) != FENCE.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void emit(String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        if (inBlock) {
+            listener.onBlockContent(text);
+        } else {
+            listener.onText(text);
+        }
+    }
+}
@@ -25,17 +25,23 @@ public abstract class CodeFileSaverTemplate<T> {
      * 模板方法：保存代码的标准流程
      *
      * @param result 代码结果对象
-     * @return 保存的目录
+     * @return 保存的版本目录
      */
     public final File saveCode(T result,Long appId) {
         // 1. 验证输入
         validateInput(result);
         // 2. 构建唯一目录
-        String baseDirPath = buildUniqueDir(appId);
-        // 3. 保存文件（具体实现由子类提供）
-        saveFiles(result, baseDirPath);
-        // 4. 返回目录文件对象
-        return new File(baseDirPath);
+        String appDirPath = buildUniqueDir(appId);
+        // 3. 在新版本目录中保存文件（具体实现由子类提供）
+        File versionDir = CodeOutputSnapshots.createVersion(appDirPath);
+        try {
+            saveFiles(result, versionDir.getPath());
+        } catch (RuntimeException e) {
+            CodeOutputSnapshots.discard(versionDir);
+            throw e;
+        }
+        // 4. 发布新版本并返回版本目录
+        return CodeOutputSnapshots.publish(appDirPath, versionDir);
     }
 
     /**
@@ -55,15 +61,27 @@ public abstract class CodeFileSaverTemplate<T> {
      * @return 目录路径
      */
     protected final String buildUniqueDir(Long appId) {
-        String codeType = getCodeType().getValue();
-        String uniqueDirName = StrUtil.format("{}_{}", codeType, appId);
-        String dirPath = FILE_SAVE_ROOT_DIR + File.separator + uniqueDirName;
+        String dirPath = getOutputDirPath(getCodeType(), appId);
         FileUtil.mkdir(dirPath);
         return dirPath;
     }
 
+    /**
+     * 获取应用的代码输出目录路径：tmp/code_output/{codeType}_{appId}
+     * 目录中按版本保存代码，当前版本目录通过 {@link CodeOutputSnapshots#resolveCurrentDir} 获取
+     *
+     * @param codeGenType 代码生成类型
+     * @param appId       应用 ID
+     * @return 目录路径
+     */
+    public static String getOutputDirPath(CodeGenTypeEnum codeGenType, Long appId) {
+        String uniqueDirName = StrUtil.format("{}_{}", codeGenType.getValue(), appId);
+        return FILE_SAVE_ROOT_DIR + File.separator + uniqueDirName;
+    }
+
     /**
      * 写入单个文件的工具方法
+     * 版本目录中的文件可能与其他版本共享（硬链接），先删除再写入，不能原地改写
      *
      * @param dirPath  目录路径
      * @param filename 文件名
@@ -72,6 +90,7 @@ public abstract class CodeFileSaverTemplate<T> {
     protected final void writeToFile(String dirPath, String filename, String content) {
         if (StrUtil.isNotBlank(content)) {
             String filePath = dirPath + File.separator + filename;
+            FileUtil.del(filePath);
             FileUtil.writeString(content, filePath, StandardCharsets.UTF_8);
         }
     }
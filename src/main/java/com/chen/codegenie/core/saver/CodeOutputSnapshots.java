@@ -0,0 +1,287 @@
+package com.chen.codegenie.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.chen.codegenie.constant.AppConstant;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 应用代码输出目录的版本快照
+ * 目录结构：{type}_{appId}/versions/{版本号}/ 存放每次保存的完整文件，{type}_{appId}/CURRENT 记录当前版本号。
+ * 保存时先在 versions/{版本号}.staging 中写入，写完后把目录改名为正式版本，
+ * 再通过改名原子替换 CURRENT。读取方只读取 CURRENT 指向的目录，不加锁，也不会读到写了一半的文件；
+ * 回滚只需要改写 CURRENT。
+ * 完整重新生成从空目录开始，新版本只包含本次输出的文件；只有明确的局部修改才从当前版本硬链接未改动的文件。
+ * 硬链接的文件被多个版本共享，只能整体替换（先删除或改名覆盖），不能原地改写。
+ * 没有 CURRENT 的旧目录（文件直接放在应用目录下）按当前版本读取，首次保存新版本后清理。
+ *
+ * @author chen
+ */
+@Slf4j
+public class CodeOutputSnapshots {
+
+    /**
+     * 版本目录所在的子目录
+     */
+    private static final String VERSIONS_DIR = "versions";
+
+    /**
+     * 当前版本指针文件
+     */
+    private static final String CURRENT_FILE = "CURRENT";
+
+    /**
+     * 版本文件清单的后缀，清单与版本目录同级：versions/{版本号}.manifest.json
+     */
+    private static final String MANIFEST_SUFFIX = ".manifest.json";
+
+    /**
+     * 未发布版本目录的后缀
+     */
+    private static final String STAGING_SUFFIX = ".staging";
+
+    /**
+     * 超过该时长仍未发布的版本目录视为残留（进程中断），清理旧版本时一并删除
+     */
+    private static final long STALE_STAGING_MILLIS = 60 * 60 * 1000L;
+
+    /**
+     * 获取应用当前版本的目录，没有版本时返回应用目录本身（兼容旧目录结构）
+     *
+     * @param appDirPath 应用目录
+     * @return 当前版本目录
+     */
+    public static File resolveCurrentDir(String appDirPath) {
+        String version = getCurrentVersion(appDirPath);
+        return version == null ? new File(appDirPath) : versionDir(appDirPath, version);
+    }
+
+    /**
+     * 获取应用的当前版本号
+     *
+     * @param appDirPath 应用目录
+     * @return 版本号，没有版本时返回 null
+     */
+    public static String getCurrentVersion(String appDirPath) {
+        Path current = Path.of(appDirPath, CURRENT_FILE);
+        try {
+            String version = Files.readString(current, StandardCharsets.UTF_8).strip();
+            return StrUtil.isNotBlank(version) && versionDir(appDirPath, version).isDirectory() ? version : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 列出应用已发布的版本号，最新的在前
+     *
+     * @param appDirPath 应用目录
+     * @return 版本号列表
+     */
+    public static List<String> listVersions(String appDirPath) {
+        File[] dirs = new File(appDirPath, VERSIONS_DIR).listFiles(file -> file.isDirectory() && isVersion(file.getName()));
+        if (dirs == null) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(dirs).map(File::getName).sorted(Comparator.reverseOrder()).toList();
+    }
+
+    /**
+     * 创建空的待发布版本目录，用于完整重新生成，上一版本的文件不会带入新版本
+     *
+     * @param appDirPath 应用目录
+     * @return 待发布的版本目录
+     */
+    public static File createVersion(String appDirPath) {
+        File stagingDir = new File(new File(appDirPath, VERSIONS_DIR), IdUtil.getSnowflakeNextIdStr() + STAGING_SUFFIX);
+        FileUtil.mkdir(stagingDir);
+        return stagingDir;
+    }
+
+    /**
+     * 创建以当前版本为基础的待发布版本目录，内容为当前版本文件的硬链接，用于只改动部分文件的局部修改
+     *
+     * @param appDirPath 应用目录
+     * @return 待发布的版本目录
+     */
+    public static File createVersionFromCurrent(String appDirPath) {
+        File stagingDir = createVersion(appDirPath);
+        File currentDir = resolveCurrentDir(appDirPath);
+        boolean legacy = getCurrentVersion(appDirPath) == null;
+        try {
+            linkTree(currentDir.toPath(), stagingDir.toPath(), legacy);
+        } catch (IOException e) {
+            FileUtil.del(stagingDir);
+            throw new IllegalStateException("创建代码版本失败: " + e.getMessage(), e);
+        }
+        return stagingDir;
+    }
+
+    /**
+     * 发布版本：版本目录改为正式名称，再原子切换 CURRENT，最后清理多余的旧版本
+     *
+     * @param appDirPath 应用目录
+     * @param stagingDir {@link #createVersion} 或 {@link #createVersionFromCurrent} 创建的版本目录
+     * @return 发布后的版本目录
+     */
+    public static synchronized File publish(String appDirPath, File stagingDir) {
+        String version = StrUtil.removeSuffix(stagingDir.getName(), STAGING_SUFFIX);
+        File versionDir = versionDir(appDirPath, version);
+        boolean legacy = getCurrentVersion(appDirPath) == null;
+        try {
+            Files.move(stagingDir.toPath(), versionDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            switchCurrent(appDirPath, version);
+        } catch (IOException e) {
+            FileUtil.del(stagingDir);
+            throw new IllegalStateException("发布代码版本失败: " + e.getMessage(), e);
+        }
+        if (legacy) {
+            removeLegacyFiles(appDirPath);
+        }
+        pruneVersions(appDirPath, version);
+        return versionDir;
+    }
+
+    /**
+     * 放弃未发布的版本
+     *
+     * @param stagingDir {@link #createVersion} 创建的版本目录
+     */
+    public static void discard(File stagingDir) {
+        if (stagingDir != null && stagingDir.getName().endsWith(STAGING_SUFFIX)) {
+            FileUtil.del(stagingDir);
+        }
+    }
+
+    /**
+     * 获取版本目录对应的文件清单（路径到内容哈希）
+     *
+     * @param versionDir 版本目录
+     * @return 清单文件
+     */
+    public static File getManifestFile(File versionDir) {
+        return new File(versionDir.getParentFile(), versionDir.getName() + MANIFEST_SUFFIX);
+    }
+
+    /**
+     * 把当前版本切换到指定的已发布版本
+     *
+     * @param appDirPath 应用目录
+     * @param version    版本号
+     * @return 版本是否存在
+     */
+    public static synchronized boolean rollback(String appDirPath, String version) {
+        if (!isVersion(version) || !versionDir(appDirPath, version).isDirectory()) {
+            return false;
+        }
+        try {
+            switchCurrent(appDirPath, version);
+        } catch (IOException e) {
+            throw new IllegalStateException("切换代码版本失败: " + e.getMessage(), e);
+        }
+        return true;
+    }
+
+    /**
+     * 写入临时指针文件后改名覆盖 CURRENT
+     */
+    private static void switchCurrent(String appDirPath, String version) throws IOException {
+        Path current = Path.of(appDirPath, CURRENT_FILE);
+        Path tmp = Path.of(appDirPath, CURRENT_FILE + "." + IdUtil.getSnowflakeNextIdStr() + ".tmp");
+        Files.writeString(tmp, version, StandardCharsets.UTF_8);
+        try {
+            Files.move(tmp, current, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, current, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 保留最近的版本和当前版本，删除其余版本以及残留的未发布目录
+     */
+    private static void pruneVersions(String appDirPath, String currentVersion) {
+        List<String> versions = listVersions(appDirPath);
+        for (int i = AppConstant.CODE_OUTPUT_MAX_VERSIONS; i < versions.size(); i++) {
+            if (!versions.get(i).equals(currentVersion)) {
+                File versionDir = versionDir(appDirPath, versions.get(i));
+                FileUtil.del(versionDir);
+                FileUtil.del(getManifestFile(versionDir));
+            }
+        }
+        File[] staging = new File(appDirPath, VERSIONS_DIR).listFiles(file -> file.getName().endsWith(STAGING_SUFFIX)
+                && System.currentTimeMillis() - file.lastModified() > STALE_STAGING_MILLIS);
+        if (staging != null) {
+            for (File dir : staging) {
+                FileUtil.del(dir);
+            }
+        }
+    }
+
+    /**
+     * 删除旧目录结构中直接放在应用目录下的文件
+     */
+    private static void removeLegacyFiles(String appDirPath) {
+        File[] files = new File(appDirPath).listFiles(file -> !isSnapshotEntry(file.getName()));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            FileUtil.del(file);
+        }
+        log.info("代码输出目录已迁移为版本快照结构: {}", appDirPath);
+    }
+
+    /**
+     * 以硬链接复制目录树，文件系统不支持硬链接时复制文件；跳过临时文件，旧目录结构下跳过版本相关文件
+     */
+    private static void linkTree(Path source, Path target, boolean legacy) throws IOException {
+        if (!Files.isDirectory(source)) {
+            return;
+        }
+        List<Path> files;
+        try (var stream = Files.walk(source)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+        for (Path file : files) {
+            Path relative = source.relativize(file);
+            if (file.getFileName().toString().endsWith(".tmp")
+                    || (legacy && isSnapshotEntry(relative.getName(0).toString()))) {
+                continue;
+            }
+            Path link = target.resolve(relative);
+            Files.createDirectories(link.getParent());
+            try {
+                Files.createLink(link, file);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(file, link, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+    }
+
+    private static boolean isSnapshotEntry(String name) {
+        return VERSIONS_DIR.equals(name) || name.startsWith(CURRENT_FILE);
+    }
+
+    private static boolean isVersion(String name) {
+        return name != null && !name.isEmpty() && name.chars().allMatch(Character::isDigit);
+    }
+
+    private static File versionDir(String appDirPath, String version) {
+        return new File(new File(appDirPath, VERSIONS_DIR), version);
+    }
+}
@@ -1,11 +1,16 @@
 package com.chen.codegenie.core.saver;
 
 import cn.hutool.core.util.StrUtil;
+import com.chen.codegenie.ai.model.CodeFile;
 import com.chen.codegenie.ai.model.MultiFileCodeResult;
+import com.chen.codegenie.core.parser.CodeBlockFiles;
 import com.chen.codegenie.exception.BusinessException;
 import com.chen.codegenie.exception.ErrorCode;
 import com.chen.codegenie.model.enums.CodeGenTypeEnum;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * 多文件代码保存器
  *
@@ -20,20 +25,48 @@ public class MultiFileCodeFileSaverTemplate extends CodeFileSaverTemplate<MultiF
 
     @Override
     protected void saveFiles(MultiFileCodeResult result, String baseDirPath) {
-        // 保存 HTML 文件
-        writeToFile(baseDirPath, "index.html", result.getHtmlCode());
-        // 保存 CSS 文件
-        writeToFile(baseDirPath, "style.css", result.getCssCode());
-        // 保存 JavaScript 文件
-        writeToFile(baseDirPath, "script.js", result.getJsCode());
+        for (Map.Entry<String, String> entry : collectFiles(result).entrySet()) {
+            writeToFile(baseDirPath, entry.getKey(), entry.getValue());
+        }
     }
 
     @Override
     protected void validateInput(MultiFileCodeResult result) {
         super.validateInput(result);
         // 至少要有 HTML 代码，CSS 和 JS 可以为空
-        if (StrUtil.isBlank(result.getHtmlCode())) {
+        if (StrUtil.isBlank(collectFiles(result).get("index.html"))) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "HTML代码内容不能为空");
         }
     }
+
+    /**
+     * 汇总要保存的文件：文件列表中的文件，加上 HTML、CSS、JS 字段中未出现在列表里的默认文件。
+     * 路径不合法的文件忽略。
+     */
+    private static Map<String, String> collectFiles(MultiFileCodeResult result) {
+        Map<String, String> files = new LinkedHashMap<>();
+        if (result.getFiles() != null) {
+            for (CodeFile file : result.getFiles()) {
+                String path = file.getPath() == null ? null
+                        : CodeBlockFiles.resolveFileName(CodeGenTypeEnum.MULTI_FILE, languageOf(file.getPath()) + ":" + file.getPath());
+                if (path != null && StrUtil.isNotBlank(file.getContent())) {
+                    files.putIfAbsent(path, file.getContent());
+                }
+            }
+        }
+        putIfNotBlank(files, "index.html", result.getHtmlCode());
+        putIfNotBlank(files, "style.css", result.getCssCode());
+        putIfNotBlank(files, "script.js", result.getJsCode());
+        return files;
+    }
+
+    private static String languageOf(String path) {
+        return StrUtil.subAfter(path, '.', true);
+    }
+
+    private static void putIfNotBlank(Map<String, String> files, String path, String content) {
+        if (StrUtil.isNotBlank(content)) {
+            files.putIfAbsent(path, content);
+        }
+    }
 }
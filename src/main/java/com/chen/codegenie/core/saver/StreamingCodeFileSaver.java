@@ -0,0 +1,322 @@
+package com.chen.codegenie.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.chen.codegenie.core.parser.CodeBlockFiles;
+import com.chen.codegenie.core.parser.StreamingCodeParser;
+import com.chen.codegenie.exception.BusinessException;
+import com.chen.codegenie.exception.ErrorCode;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 流式代码文件保存器
+ * 边接收模型输出边解析代码块，并把代码块内容直接追加写入新版本目录中的临时文件，
+ * 流结束时替换为正式文件并发布版本（见 {@link CodeOutputSnapshots}），预览读取的当前版本在此之前不受影响。
+ * 每个实例只服务于一次生成，非线程安全的调用由内部同步保护（取消可能来自其他线程）。
+ *
+ * @author chen
+ */
+@Slf4j
+public class StreamingCodeFileSaver implements StreamingCodeParser.Listener {
+
+    private final CodeGenTypeEnum codeGenType;
+
+    private final String appDirPath;
+
+    /**
+     * 本次生成的待发布版本目录，首次写入文件时创建
+     */
+    private File versionDir;
+
+    private final StreamingCodeParser parser = new StreamingCodeParser(this);
+
+    /**
+     * 临时文件后缀，保证同一应用的并发生成互不干扰
+     */
+    private final String tmpSuffix = "." + IdUtil.getSnowflakeNextIdStr() + ".tmp";
+
+    /**
+     * 本次生成已写入的文件：相对路径 -> 临时文件
+     */
+    private final Map<String, Path> writtenFiles = new LinkedHashMap<>();
+
+    /**
+     * 已出现过代码块的文件，代码块开始时登记，空代码块也算（与解析器一致，同一文件只取第一个代码块）
+     */
+    private final Set<String> openedFiles = new HashSet<>();
+
+    /**
+     * 已发布版本中本次写入的文件（相对路径，按首次写入顺序），发布后可用
+     */
+    private List<String> savedFiles = List.of();
+
+    /**
+     * 单文件模式下，代码块之外的文本（模型未输出代码块时作为兜底内容）
+     */
+    private StringBuilder fallbackText;
+
+    /**
+     * 当前正在写入的代码块，null 表示忽略当前代码块
+     */
+    private BlockWriter currentBlock;
+
+    private boolean blockSeen = false;
+
+    private boolean finished = false;
+
+    private IOException failure;
+
+    public StreamingCodeFileSaver(CodeGenTypeEnum codeGenType, Long appId) {
+        this.codeGenType = codeGenType;
+        this.appDirPath = CodeFileSaverTemplate.getOutputDirPath(codeGenType, appId);
+        if (codeGenType == CodeGenTypeEnum.HTML) {
+            this.fallbackText = new StringBuilder();
+        }
+    }
+
+    /**
+     * 追加一段模型输出
+     *
+     * @param chunk 输出片段
+     */
+    public synchronized void append(String chunk) {
+        if (finished || failure != null) {
+            return;
+        }
+        parser.feed(chunk);
+    }
+
+    /**
+     * 输出结束：关闭代码块，把临时文件替换为正式文件并发布版本
+     *
+     * @return 保存的版本目录
+     */
+    public synchronized File complete() {
+        if (finished) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "代码已保存或已取消");
+        }
+        try {
+            if (failure == null) {
+                parser.finish();
+            }
+            if (failure != null) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "写入代码文件失败：" + failure.getMessage());
+            }
+            // 模型没有输出代码块时，沿用整段内容作为 HTML
+            if (!writtenFiles.containsKey("index.html") && fallbackText != null && StrUtil.isNotBlank(fallbackText)) {
+                String fallback = fallbackText.toString();
+                onBlockStart("html");
+                onBlockContent(fallback);
+                onBlockEnd();
+                if (failure != null) {
+                    throw new BusinessException(ErrorCode.SYSTEM_ERROR, "写入代码文件失败：" + failure.getMessage());
+                }
+            }
+            if (!writtenFiles.containsKey("index.html")) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "HTML代码内容不能为空");
+            }
+            for (Map.Entry<String, Path> entry : writtenFiles.entrySet()) {
+                moveIntoPlace(entry.getValue(), Path.of(versionDir.getPath(), entry.getKey()));
+            }
+            savedFiles = List.copyOf(writtenFiles.keySet());
+            writtenFiles.clear();
+            File published = CodeOutputSnapshots.publish(appDirPath, versionDir);
+            versionDir = null;
+            return published;
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "保存代码文件失败：" + e.getMessage());
+        } finally {
+            finished = true;
+            discardTempFiles();
+        }
+    }
+
+    /**
+     * 获取本次生成写入的文件，{@link #complete} 成功后可用
+     *
+     * @return 相对于版本目录的文件路径，按首次写入顺序
+     */
+    public synchronized List<String> getSavedFiles() {
+        return savedFiles;
+    }
+
+    /**
+     * 放弃本次生成（出错或取消），删除未发布的版本目录，不影响已有的版本
+     */
+    public synchronized void abort() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        discardTempFiles();
+    }
+
+    @Override
+    public void onBlockStart(String info) {
+        blockSeen = true;
+        fallbackText = null;
+        String fileName = CodeBlockFiles.resolveFileName(codeGenType, info);
+        // 同一文件只取第一个代码块，与解析器保持一致
+        if (fileName == null || !openedFiles.add(fileName)) {
+            currentBlock = null;
+            return;
+        }
+        currentBlock = new BlockWriter(fileName);
+    }
+
+    @Override
+    public void onBlockContent(String content) {
+        if (currentBlock == null || failure != null) {
+            return;
+        }
+        try {
+            currentBlock.write(content);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void onBlockEnd() {
+        if (currentBlock == null) {
+            return;
+        }
+        try {
+            currentBlock.close();
+        } catch (IOException e) {
+            fail(e);
+        }
+        currentBlock = null;
+    }
+
+    @Override
+    public void onText(String text) {
+        if (!blockSeen && fallbackText != null) {
+            fallbackText.append(text);
+        }
+    }
+
+    private void fail(IOException e) {
+        log.error("流式写入代码文件失败，目录：{}，错误：{}", appDirPath, e.getMessage());
+        failure = e;
+        if (currentBlock != null) {
+            currentBlock.closeQuietly();
+            currentBlock = null;
+        }
+    }
+
+    private void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void discardTempFiles() {
+        if (currentBlock != null) {
+            currentBlock.closeQuietly();
+            currentBlock = null;
+        }
+        for (Path tmp : writtenFiles.values()) {
+            FileUtil.del(tmp);
+        }
+        writtenFiles.clear();
+        CodeOutputSnapshots.discard(versionDir);
+        versionDir = null;
+    }
+
+    /**
+     * 获取待发布的版本目录，首次调用时创建（完整重新生成，不沿用当前版本的文件）
+     */
+    private File ensureVersionDir() throws IOException {
+        if (versionDir == null) {
+            try {
+                FileUtil.mkdir(appDirPath);
+                versionDir = CodeOutputSnapshots.createVersion(appDirPath);
+            } catch (RuntimeException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        return versionDir;
+    }
+
+    /**
+     * 单个代码块的写入器：延迟创建文件，并去除内容首尾空白（与解析器的 trim 行为一致）
+     */
+    private class BlockWriter {
+
+        private final String fileName;
+
+        private Writer writer;
+
+        /**
+         * 尚未确定是否位于结尾的空白
+         */
+        private final StringBuilder pendingWhitespace = new StringBuilder();
+
+        BlockWriter(String fileName) {
+            this.fileName = fileName;
+        }
+
+        void write(String content) throws IOException {
+            int last = content.length() - 1;
+            while (last >= 0 && Character.isWhitespace(content.charAt(last))) {
+                last--;
+            }
+            if (last < 0) {
+                // 开头的空白直接丢弃
+                if (writer != null) {
+                    pendingWhitespace.append(content);
+                }
+                return;
+            }
+            int first = 0;
+            if (writer == null) {
+                while (Character.isWhitespace(content.charAt(first))) {
+                    first++;
+                }
+                Path tmp = Path.of(ensureVersionDir().getPath(), fileName + tmpSuffix);
+                FileUtil.mkdir(tmp.getParent().toFile());
+                writtenFiles.put(fileName, tmp);
+                writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8);
+            }
+            if (!pendingWhitespace.isEmpty()) {
+                writer.append(pendingWhitespace);
+                pendingWhitespace.setLength(0);
+            }
+            writer.append(content, first, last + 1);
+            pendingWhitespace.append(content, last + 1, content.length());
+        }
+
+        void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                close();
+            } catch (IOException ignored) {
+                // 临时文件会被删除，关闭失败无需处理
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.chen.codegenie.core.scheduler;
+
+import com.chen.codegenie.config.GenerationSchedulerConfig;
+import com.chen.codegenie.exception.BusinessException;
+import com.chen.codegenie.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 生成调度器（准入控制）
+ * 限制全局和单个用户同时进行的模型调用数，超出的请求按优先级排队，队列满时直接拒绝。
+ * 同优先级按到达顺序；用户已达上限时，其请求让位给队列中后面的其他用户。
+ *
+ * @author chen
+ */
+@Component
+@Slf4j
+public class GenerationScheduler {
+
+    private final GenerationSchedulerConfig generationSchedulerConfig;
+
+    public GenerationScheduler(GenerationSchedulerConfig generationSchedulerConfig) {
+        this.generationSchedulerConfig = generationSchedulerConfig;
+    }
+
+    private final AtomicLong ticketSequence = new AtomicLong();
+
+    private final TreeSet<Ticket> waiting = new TreeSet<>(Comparator
+            .comparingInt((Ticket ticket) -> ticket.priority).reversed()
+            .thenComparingLong(ticket -> ticket.seq));
+
+    private final Map<Long, Integer> runningPerUser = new HashMap<>();
+
+    private int running = 0;
+
+    /**
+     * 在准入控制下执行生成：获得执行名额后才订阅 generation
+     *
+     * @param userId     用户 ID，为 null 时不受单用户上限约束（调用方自行控制并发，如批量生成）
+     * @param priority   优先级，越大越先执行
+     * @param generation 生成任务
+     * @return 生成输出
+     */
+    public Flux<String> schedule(Long userId, int priority, Supplier<Flux<String>> generation) {
+        return Flux.deferContextual(context -> {
+            QueueListener listener = context.getOrDefault(QueueListener.class, null);
+            Ticket ticket = new Ticket(userId, priority, ticketSequence.incrementAndGet(), listener);
+            enqueue(ticket);
+            return ticket.admission.asMono()
+                    .thenMany(Flux.defer(generation))
+                    .doFinally(signalType -> release(ticket));
+        });
+    }
+
+    /**
+     * 排队是否已满（在产生副作用前快速拒绝）
+     */
+    public synchronized boolean isQueueFull() {
+        return waiting.size() >= generationSchedulerConfig.getMaxQueueSize();
+    }
+
+    /**
+     * 当前排队数
+     */
+    public synchronized int getQueueSize() {
+        return waiting.size();
+    }
+
+    /**
+     * 当前执行数
+     */
+    public synchronized int getRunningCount() {
+        return running;
+    }
+
+    private void enqueue(Ticket ticket) {
+        List<Runnable> actions;
+        synchronized (this) {
+            if (isQueueFull()) {
+                throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "当前生成请求过多，请稍后再试");
+            }
+            waiting.add(ticket);
+            ticket.queued = true;
+            actions = dispatch();
+        }
+        actions.forEach(Runnable::run);
+    }
+
+    private void release(Ticket ticket) {
+        List<Runnable> actions;
+        synchronized (this) {
+            if (ticket.queued) {
+                // 排队中被取消
+                waiting.remove(ticket);
+                ticket.queued = false;
+            } else if (ticket.admitted) {
+                ticket.admitted = false;
+                running--;
+                if (ticket.userId != null) {
+                    runningPerUser.computeIfPresent(ticket.userId, (key, count) -> count > 1 ? count - 1 : null);
+                }
+            }
+            actions = dispatch();
+        }
+        actions.forEach(Runnable::run);
+    }
+
+    /**
+     * 按优先级放行排队的请求，并计算排队位置变化
+     * 回调在锁外执行，避免与会话的锁互相等待
+     */
+    private List<Runnable> dispatch() {
+        List<Runnable> actions = new ArrayList<>();
+        Iterator<Ticket> iterator = waiting.iterator();
+        int position = 0;
+        while (iterator.hasNext()) {
+            Ticket ticket = iterator.next();
+            int userRunning = ticket.userId == null ? 0 : runningPerUser.getOrDefault(ticket.userId, 0);
+            if (running < generationSchedulerConfig.getMaxConcurrent()
+                    && userRunning < generationSchedulerConfig.getMaxConcurrentPerUser()) {
+                iterator.remove();
+                ticket.queued = false;
+                ticket.admitted = true;
+                running++;
+                if (ticket.userId != null) {
+                    runningPerUser.put(ticket.userId, userRunning + 1);
+                }
+                actions.add(() -> ticket.admission.tryEmitEmpty());
+                continue;
+            }
+            position++;
+            if (ticket.listener != null && ticket.lastPosition != position) {
+                ticket.lastPosition = position;
+                int current = position;
+                actions.add(() -> ticket.listener.onQueued(current));
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * 一次生成请求的排队凭证
+     */
+    private static final class Ticket {
+
+        private final Long userId;
+
+        private final int priority;
+
+        private final long seq;
+
+        private final QueueListener listener;
+
+        private final Sinks.Empty<Void> admission = Sinks.empty();
+
+        private boolean queued;
+
+        private boolean admitted;
+
+        private int lastPosition;
+
+        Ticket(Long userId, int priority, long seq, QueueListener listener) {
+            this.userId = userId;
+            this.priority = priority;
+            this.seq = seq;
+            this.listener = listener;
+        }
+    }
+}
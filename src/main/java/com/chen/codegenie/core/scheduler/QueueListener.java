@@ -0,0 +1,18 @@
+package com.chen.codegenie.core.scheduler;
+
+/**
+ * 排队状态监听器
+ * 放入订阅上下文（Reactor Context）中，由 {@link GenerationScheduler} 在排队位置变化时回调
+ *
+ * @author chen
+ */
+@FunctionalInterface
+public interface QueueListener {
+
+    /**
+     * 排队位置变化
+     *
+     * @param position 当前排队位置，从 1 开始
+     */
+    void onQueued(int position);
+}
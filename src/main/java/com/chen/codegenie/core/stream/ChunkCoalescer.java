@@ -0,0 +1,133 @@
+package com.chen.codegenie.core.stream;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输出片段合并器
+ * 把逐 token 到达的片段按时间窗口或字符数阈值合并成一批再下发，减少 SSE 事件数和写出次数。
+ * 下游暂无需求时片段继续合并到同一批中，客户端各自的积压上限由 {@link GenerationSession} 控制。
+ *
+ * @author chen
+ */
+public class ChunkCoalescer {
+
+    /**
+     * 合并输出片段
+     *
+     * @param source        原始片段流
+     * @param window        合并时间窗口
+     * @param maxBatchChars 单批字符数阈值，达到即立即下发
+     * @return 合并后的片段流
+     */
+    public static Flux<String> coalesce(Flux<String> source, Duration window, int maxBatchChars) {
+        return Flux.create(sink -> {
+            Batcher batcher = new Batcher(sink, window.toMillis(), maxBatchChars);
+            // 透传下游的订阅上下文（如排队监听器）
+            Disposable upstream = source.subscribe(batcher::onNext, batcher::onError, batcher::onComplete,
+                    Context.of(sink.contextView()));
+            sink.onRequest(n -> batcher.drain());
+            sink.onDispose(() -> {
+                upstream.dispose();
+                batcher.cancelTimer();
+            });
+        });
+    }
+
+    private static class Batcher {
+
+        private final FluxSink<String> sink;
+
+        private final long windowMillis;
+
+        private final int maxBatchChars;
+
+        private final StringBuilder pending = new StringBuilder();
+
+        private Disposable timer;
+
+        /**
+         * 首个片段立即下发，保证首字延迟不受窗口影响
+         */
+        private boolean first = true;
+
+        private boolean flushDue = false;
+
+        private boolean done = false;
+
+        private boolean terminated = false;
+
+        private Throwable error;
+
+        Batcher(FluxSink<String> sink, long windowMillis, int maxBatchChars) {
+            this.sink = sink;
+            this.windowMillis = windowMillis;
+            this.maxBatchChars = maxBatchChars;
+        }
+
+        synchronized void onNext(String chunk) {
+            if (terminated) {
+                return;
+            }
+            pending.append(chunk);
+            if (first || pending.length() >= maxBatchChars || windowMillis <= 0) {
+                first = false;
+                flushDue = true;
+                drain();
+            } else if (timer == null) {
+                timer = Schedulers.parallel().schedule(this::onTimer, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized void onError(Throwable e) {
+            done = true;
+            error = e;
+            drain();
+        }
+
+        synchronized void onComplete() {
+            done = true;
+            drain();
+        }
+
+        synchronized void onTimer() {
+            timer = null;
+            flushDue = true;
+            drain();
+        }
+
+        synchronized void drain() {
+            if (terminated) {
+                return;
+            }
+            if (!pending.isEmpty() && (flushDue || done) && sink.requestedFromDownstream() > 0) {
+                String batch = pending.toString();
+                pending.setLength(0);
+                flushDue = false;
+                cancelTimer();
+                sink.next(batch);
+            }
+            if (done && pending.isEmpty()) {
+                terminated = true;
+                if (error != null) {
+                    sink.error(error);
+                } else {
+                    sink.complete();
+                }
+            }
+        }
+
+        synchronized void cancelTimer() {
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+        }
+    }
+}
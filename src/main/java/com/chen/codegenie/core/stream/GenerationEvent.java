@@ -0,0 +1,29 @@
+package com.chen.codegenie.core.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 生成过程中下发给客户端的事件
+ *
+ * @author chen
+ */
+@Data
+@AllArgsConstructor
+public class GenerationEvent {
+
+    /**
+     * 事件序号，同一次生成内从 1 开始递增
+     */
+    private long seq;
+
+    /**
+     * 事件名称，null 表示普通输出片段
+     */
+    private String event;
+
+    /**
+     * 已编码的事件数据
+     */
+    private String data;
+}
@@ -0,0 +1,232 @@
+package com.chen.codegenie.core.stream;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.chen.codegenie.config.SseStreamConfig;
+import com.chen.codegenie.exception.ErrorCode;
+import com.chen.codegenie.exception.ThrowUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 代码生成登记表
+ * 保存进行中（以及刚结束一段时间内）的生成，用于多端共享同一次生成、断线重连续传和主动停止生成
+ *
+ * @author chen
+ */
+@Component
+public class GenerationRegistry {
+
+    /**
+     * 事件 ID 中生成 ID 与事件序号的分隔符
+     */
+    private static final char EVENT_ID_SEPARATOR = ':';
+
+    private final SseStreamConfig sseStreamConfig;
+
+    /**
+     * 生成 ID -> 生成会话（含刚结束的）
+     */
+    private final Map<String, GenerationSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 应用 ID -> 进行中的生成，每个应用同时只有一个
+     */
+    private final Map<Long, GenerationSession> activeSessions = new ConcurrentHashMap<>();
+
+    public GenerationRegistry(SseStreamConfig sseStreamConfig) {
+        this.sseStreamConfig = sseStreamConfig;
+    }
+
+    /**
+     * 开始一次生成；应用已有进行中的生成时拒绝，不调用模型，查看进行中的生成需通过 {@link #getActive} 显式跟随
+     *
+     * @param appId          应用 ID
+     * @param userId         发起生成的用户 ID
+     * @param sourceSupplier 模型输出流，仅在可以开始生成时调用
+     * @return 生成会话
+     */
+    public GenerationSession start(Long appId, Long userId, Supplier<Flux<String>> sourceSupplier) {
+        GenerationSession session = newSession(appId, userId);
+        ThrowUtils.throwIf(register(session) != null, ErrorCode.OPERATION_ERROR, "已有进行中的生成，请等待完成或停止后再发送");
+        return run(session, sourceSupplier);
+    }
+
+    /**
+     * 开始一次生成；应用已有进行中的生成时不调用模型，返回进行中的生成，由调用方以跟随者身份接入。
+     * 判断与登记是原子的，不会出现两次生成同时开始或两次都被拒绝。
+     *
+     * @param appId          应用 ID
+     * @param userId         发起生成的用户 ID
+     * @param sourceSupplier 模型输出流，仅在可以开始生成时调用
+     * @param onFollow       应用已有进行中的生成时回调，参数为进行中的生成
+     * @return 新开始或进行中的生成会话
+     */
+    public GenerationSession startOrFollow(Long appId, Long userId, Supplier<Flux<String>> sourceSupplier,
+                                           Consumer<GenerationSession> onFollow) {
+        GenerationSession session = newSession(appId, userId);
+        GenerationSession active = register(session);
+        if (active != null) {
+            onFollow.accept(active);
+            return active;
+        }
+        return run(session, sourceSupplier);
+    }
+
+    /**
+     * 开始一次后台生成（如异步任务）：同样占用应用的生成名额，可被跟随和停止，但没有客户端接入时不会取消
+     *
+     * @param appId          应用 ID
+     * @param userId         发起生成的用户 ID
+     * @param sourceSupplier 模型输出流，仅在可以开始生成时调用
+     * @return 生成会话，应用已有进行中的生成时返回 null
+     */
+    public GenerationSession startBackground(Long appId, Long userId, Supplier<Flux<String>> sourceSupplier) {
+        GenerationSession session = new GenerationSession(IdUtil.getSnowflakeNextIdStr(), appId, userId,
+                sseStreamConfig.getReplayCapacity(), sseStreamConfig.getMaxPendingChars(), null);
+        return register(session) == null ? run(session, sourceSupplier) : null;
+    }
+
+    private GenerationSession newSession(Long appId, Long userId) {
+        return new GenerationSession(IdUtil.getSnowflakeNextIdStr(), appId, userId,
+                sseStreamConfig.getReplayCapacity(), sseStreamConfig.getMaxPendingChars(),
+                sseStreamConfig.getDetachGracePeriod());
+    }
+
+    /**
+     * 把会话登记为应用进行中的生成
+     *
+     * @return 应用已有进行中的生成时返回该生成，登记成功时返回 null
+     */
+    private GenerationSession register(GenerationSession session) {
+        Long appId = session.getAppId();
+        while (true) {
+            GenerationSession active = activeSessions.putIfAbsent(appId, session);
+            if (active == null) {
+                return null;
+            }
+            if (!active.isTerminated()) {
+                return active;
+            }
+            activeSessions.remove(appId, active);
+        }
+    }
+
+    private GenerationSession run(GenerationSession session, Supplier<Flux<String>> sourceSupplier) {
+        sessions.put(session.getId(), session);
+        Flux<String> source;
+        try {
+            source = sourceSupplier.get();
+        } catch (RuntimeException e) {
+            // 启动失败，已跟随的客户端一并收到错误
+            release(session, Duration.ZERO);
+            session.fail(e);
+            throw e;
+        }
+        Flux<String> chunks = ChunkCoalescer.coalesce(source, sseStreamConfig.getFlushInterval(),
+                        sseStreamConfig.getMaxBatchChars())
+                // 结束后保留一段时间，供断线的客户端补发结尾的事件
+                .doFinally(signalType -> release(session, sseStreamConfig.getFinishedRetention()));
+        session.start(chunks);
+        return session;
+    }
+
+    /**
+     * 获取应用进行中的生成
+     *
+     * @param appId 应用 ID
+     * @return 生成会话，不存在时返回 null
+     */
+    public GenerationSession getActive(Long appId) {
+        GenerationSession session = activeSessions.get(appId);
+        return session == null || session.isTerminated() ? null : session;
+    }
+
+    /**
+     * 进行中的生成数
+     *
+     * @return 生成数
+     */
+    public int getActiveCount() {
+        return activeSessions.size();
+    }
+
+    /**
+     * 生成结束：应用可以开始新的生成，会话本身保留一段时间后移除
+     */
+    private void release(GenerationSession session, Duration retention) {
+        activeSessions.remove(session.getAppId(), session);
+        Schedulers.parallel().schedule(() -> sessions.remove(session.getId()),
+                retention.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 根据事件 ID 找到对应的生成
+     *
+     * @param lastEventId 客户端收到的最后一个事件 ID
+     * @return 生成会话
+     */
+    public GenerationSession getByEventId(String lastEventId) {
+        String generationId = StrUtil.subBefore(lastEventId, EVENT_ID_SEPARATOR, true);
+        GenerationSession session = sessions.get(generationId);
+        ThrowUtils.throwIf(session == null, ErrorCode.NOT_FOUND_ERROR, "生成不存在或已过期");
+        return session;
+    }
+
+    /**
+     * 解析事件 ID 中的事件序号
+     *
+     * @param lastEventId 事件 ID
+     * @return 事件序号
+     */
+    public static long parseSeq(String lastEventId) {
+        String seq = StrUtil.subAfter(lastEventId, EVENT_ID_SEPARATOR, true);
+        ThrowUtils.throwIf(!StrUtil.isNumeric(seq), ErrorCode.PARAMS_ERROR, "事件 ID 无效");
+        return Long.parseLong(seq);
+    }
+
+    /**
+     * 生成事件 ID
+     *
+     * @param session 生成会话
+     * @param event   事件
+     * @return 事件 ID
+     */
+    public static String toEventId(GenerationSession session, GenerationEvent event) {
+        return session.getId() + EVENT_ID_SEPARATOR + event.getSeq();
+    }
+
+    /**
+     * 停止应用正在进行的所有生成
+     *
+     * @param appId 应用 ID
+     * @return 是否存在进行中的生成
+     */
+    public boolean stop(Long appId) {
+        GenerationSession session = getActive(appId);
+        if (session == null) {
+            return false;
+        }
+        session.cancel();
+        return true;
+    }
+
+    /**
+     * 是否存在进行中的生成
+     *
+     * @param appId 应用 ID
+     * @return 是否存在
+     */
+    public boolean isGenerating(Long appId) {
+        return getActive(appId) != null;
+    }
+
+}
@@ -0,0 +1,251 @@
+package com.chen.codegenie.core.stream;
+
+import com.chen.codegenie.core.scheduler.QueueListener;
+import com.chen.codegenie.exception.BusinessException;
+import com.chen.codegenie.exception.ErrorCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次进行中的代码生成
+ * 生成与客户端连接解耦：事件编号后写入有界的回放缓冲，客户端断线重连时只补发缺失的事件。
+ * 所有客户端都断开且超过宽限期后才取消上游生成；没有宽限期的后台生成（如异步任务）只能被主动停止。
+ *
+ * @author chen
+ */
+@Slf4j
+public class GenerationSession {
+
+    /**
+     * 排队事件名称
+     */
+    public static final String QUEUED_EVENT = "queued";
+
+    @Getter
+    private final String id;
+
+    @Getter
+    private final Long appId;
+
+    @Getter
+    private final Long userId;
+
+    private final int replayCapacity;
+
+    private final int maxPendingChars;
+
+    private final Duration detachGracePeriod;
+
+    private final Sinks.Many<GenerationEvent> sink;
+
+    private long sequence = 0;
+
+    private int subscribers = 0;
+
+    private Disposable upstream;
+
+    private Disposable pendingCancel;
+
+    @Getter
+    private volatile boolean terminated = false;
+
+    public GenerationSession(String id, Long appId, Long userId, int replayCapacity, int maxPendingChars,
+                             Duration detachGracePeriod) {
+        this.id = id;
+        this.appId = appId;
+        this.userId = userId;
+        this.replayCapacity = replayCapacity;
+        this.maxPendingChars = maxPendingChars;
+        this.detachGracePeriod = detachGracePeriod;
+        this.sink = Sinks.many().replay().limit(replayCapacity);
+    }
+
+    /**
+     * 开始消费上游输出
+     *
+     * @param chunks 已合并的输出片段
+     */
+    public void start(Flux<String> chunks) {
+        // 启动前已被停止
+        if (terminated) {
+            return;
+        }
+        // 排队期间通过 queued 事件告知客户端当前位置
+        QueueListener queueListener = position -> publish(QUEUED_EVENT, "{\"position\":" + position + "}");
+        // 订阅时不持有会话锁：上游可能在其他线程持有自身的锁并回调 publish，持锁订阅会互相等待
+        Disposable subscription = chunks.contextWrite(Context.of(QueueListener.class, queueListener)).subscribe(
+                chunk -> publish(null, SseDataEncoder.wrapChunk(chunk)),
+                this::fail,
+                this::finish);
+        synchronized (this) {
+            // 订阅期间已被停止，在锁外取消订阅
+            if (!terminated) {
+                upstream = subscription;
+                // 创建后若一直无人接入，同样在宽限期后取消
+                if (subscribers == 0) {
+                    scheduleCancel();
+                }
+                return;
+            }
+        }
+        subscription.dispose();
+    }
+
+    /**
+     * 发布一个事件
+     *
+     * @param event 事件名称，null 表示普通输出片段
+     * @param data  已编码的数据
+     */
+    public synchronized void publish(String event, String data) {
+        if (terminated) {
+            return;
+        }
+        sink.tryEmitNext(new GenerationEvent(++sequence, event, data));
+    }
+
+    /**
+     * 接入生成事件流
+     *
+     * @param lastSeq 客户端已收到的最后一个事件序号，新接入传 0
+     * @return 序号大于 lastSeq 的事件
+     */
+    public Flux<GenerationEvent> attach(long lastSeq) {
+        synchronized (this) {
+            long oldest = Math.max(1, sequence - replayCapacity + 1);
+            if (lastSeq + 1 < oldest) {
+                throw replayOutOfRange();
+            }
+        }
+        // 检查与订阅之间可能又有事件把断点挤出回放缓冲，订阅后收到的第一个事件不连续时同样报错
+        return track(Flux.defer(() -> {
+            long[] next = {lastSeq + 1};
+            return sink.asFlux().handle((event, output) -> {
+                if (event.getSeq() < next[0]) {
+                    return;
+                }
+                if (event.getSeq() > next[0]) {
+                    output.error(replayOutOfRange());
+                    return;
+                }
+                next[0]++;
+                output.next(event);
+            });
+        }));
+    }
+
+    /**
+     * 以跟随者身份接入：从回放缓冲中最早的事件开始
+     *
+     * @return 生成事件流
+     */
+    public Flux<GenerationEvent> follow() {
+        return track(sink.asFlux());
+    }
+
+    /**
+     * 取消生成，已接入的客户端正常收到结束
+     */
+    public void cancel() {
+        Disposable subscription;
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            subscription = upstream;
+            finish();
+        }
+        // 取消上游时不持有会话锁：上游可能正持有自身的锁等待 publish，持锁取消会互相等待
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * 以错误结束生成
+     *
+     * @param e 错误
+     */
+    public synchronized void fail(Throwable e) {
+        if (terminated) {
+            return;
+        }
+        terminated = true;
+        clearPendingCancel();
+        sink.tryEmitError(e);
+    }
+
+    private synchronized void finish() {
+        if (terminated) {
+            return;
+        }
+        terminated = true;
+        clearPendingCancel();
+        sink.tryEmitComplete();
+    }
+
+    /**
+     * 统计客户端接入，并限制单个客户端的积压：回放缓冲会为落后的订阅者保留全部未读事件，
+     * 这里改为按客户端缓冲，未读字符数超过上限时只断开该客户端
+     */
+    private Flux<GenerationEvent> track(Flux<GenerationEvent> events) {
+        return Flux.defer(() -> {
+                    AtomicLong pendingChars = new AtomicLong();
+                    return events
+                            .doOnNext(event -> {
+                                if (pendingChars.addAndGet(event.getData().length()) > maxPendingChars) {
+                                    throw new BusinessException(ErrorCode.OPERATION_ERROR, "客户端接收过慢，输出积压已超过上限");
+                                }
+                            })
+                            // 在调用线程上无界缓冲未读事件；超限错误不等缓冲读完，立即下发并丢弃积压
+                            .publishOn(Schedulers.immediate(), false, Integer.MAX_VALUE)
+                            .doOnNext(event -> pendingChars.addAndGet(-event.getData().length()));
+                })
+                .doOnSubscribe(subscription -> onAttach())
+                .doFinally(signalType -> onDetach());
+    }
+
+    private static BusinessException replayOutOfRange() {
+        return new BusinessException(ErrorCode.NOT_FOUND_ERROR, "断点已超出回放范围，请刷新后查看对话历史");
+    }
+
+    private synchronized void onAttach() {
+        subscribers++;
+        clearPendingCancel();
+    }
+
+    private synchronized void onDetach() {
+        subscribers--;
+        if (subscribers == 0 && !terminated) {
+            scheduleCancel();
+        }
+    }
+
+    private void scheduleCancel() {
+        clearPendingCancel();
+        // 后台生成不依赖客户端，无人接入时也不取消
+        if (detachGracePeriod == null) {
+            return;
+        }
+        pendingCancel = Schedulers.parallel().schedule(() -> {
+            log.info("生成 {} 已无客户端接入，取消上游生成，appId: {}", id, appId);
+            cancel();
+        }, detachGracePeriod.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void clearPendingCancel() {
+        if (pendingCancel != null) {
+            pendingCancel.dispose();
+            pendingCancel = null;
+        }
+    }
+}
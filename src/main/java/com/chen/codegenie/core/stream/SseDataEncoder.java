@@ -0,0 +1,68 @@
+package com.chen.codegenie.core.stream;
+
+/**
+ * SSE 数据编码器
+ * 把输出片段包装成 {"d":"..."}，只做 JSON 字符串转义，避免每个片段都走一次通用 JSON 序列化
+ *
+ * @author chen
+ */
+public class SseDataEncoder {
+
+    private static final String PREFIX = "{\"d\":\"";
+
+    private static final String SUFFIX = "\"}";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * 包装单个输出片段
+     *
+     * @param chunk 输出片段
+     * @return JSON 字符串
+     */
+    public static String wrapChunk(String chunk) {
+        StringBuilder sb = new StringBuilder(chunk.length() + 16);
+        sb.append(PREFIX);
+        escape(chunk, sb);
+        sb.append(SUFFIX);
+        return sb.toString();
+    }
+
+    /**
+     * 按 JSON 规范转义字符串内容
+     *
+     * @param text 原始文本
+     * @param sb   输出缓冲
+     */
+    public static void escape(String text, StringBuilder sb) {
+        int length = text.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            String replacement = switch (c) {
+                case '"' -> "\\\"";
+                case '\\' -> "\\\\";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                default -> null;
+            };
+            if (replacement == null && c >= 0x20 && c != '\u2028' && c != '\u2029') {
+                continue;
+            }
+            sb.append(text, start, i);
+            if (replacement != null) {
+                sb.append(replacement);
+            } else {
+                // 其他控制字符及 JS 行分隔符使用 \\uXXXX
+                sb.append("\\u")
+                        .append(HEX_DIGITS[(c >> 12) & 0xF])
+                        .append(HEX_DIGITS[(c >> 8) & 0xF])
+                        .append(HEX_DIGITS[(c >> 4) & 0xF])
+                        .append(HEX_DIGITS[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        sb.append(text, start, length);
+    }
+}
@@ -0,0 +1,78 @@
+package com.chen.codegenie.mapper;
+
+import com.mybatisflex.core.BaseMapper;
+import com.chen.codegenie.model.entity.GenerationJob;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 生成任务 映射层。
+ *
+ * @author chen
+ */
+public interface GenerationJobMapper extends BaseMapper<GenerationJob> {
+
+    /**
+     * 锁定可领取的任务（等待执行，或租约已过期的执行中任务），已被其他节点锁定的行直接跳过
+     * 必须在事务中调用
+     *
+     * @param maxAttempts 最大执行次数
+     * @param limit       最多锁定的数量
+     * @return 任务 ID
+     */
+    List<Long> selectClaimableIdsForUpdate(@Param("maxAttempts") int maxAttempts, @Param("limit") int limit);
+
+    /**
+     * 领取任务：标记为执行中并设置租约
+     *
+     * @param ids             任务 ID
+     * @param leaseOwner      节点标识
+     * @param leaseExpireTime 租约过期时间
+     * @return 更新行数
+     */
+    int claim(@Param("ids") List<Long> ids, @Param("leaseOwner") String leaseOwner,
+              @Param("leaseExpireTime") LocalDateTime leaseExpireTime);
+
+    /**
+     * 续约本节点仍在执行的任务
+     *
+     * @param ids             任务 ID
+     * @param leaseOwner      节点标识
+     * @param leaseExpireTime 新的租约过期时间
+     * @return 更新行数
+     */
+    int renewLease(@Param("ids") List<Long> ids, @Param("leaseOwner") String leaseOwner,
+                   @Param("leaseExpireTime") LocalDateTime leaseExpireTime);
+
+    /**
+     * 结束任务（仅当租约仍属于本节点时生效，避免覆盖已被其他节点接管的任务）
+     *
+     * @param id           任务 ID
+     * @param leaseOwner   节点标识
+     * @param status       结束状态
+     * @param resultDir    生成结果目录名
+     * @param errorMessage 失败原因
+     * @return 更新行数
+     */
+    int finish(@Param("id") Long id, @Param("leaseOwner") String leaseOwner, @Param("status") String status,
+               @Param("resultDir") String resultDir, @Param("errorMessage") String errorMessage);
+
+    /**
+     * 归还任务：重新标记为等待执行，本次领取不计入执行次数（仅当租约仍属于本节点时生效）
+     *
+     * @param id         任务 ID
+     * @param leaseOwner 节点标识
+     * @return 更新行数
+     */
+    int release(@Param("id") Long id, @Param("leaseOwner") String leaseOwner);
+
+    /**
+     * 将租约过期且已达最大执行次数的任务标记为失败
+     *
+     * @param maxAttempts 最大执行次数
+     * @return 更新行数
+     */
+    int failExhausted(@Param("maxAttempts") int maxAttempts);
+}
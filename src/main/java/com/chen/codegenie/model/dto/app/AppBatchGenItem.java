@@ -0,0 +1,28 @@
+package com.chen.codegenie.model.dto.app;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 批量生成中的单个应用
+ *
+ * @author chen
+ */
+@Data
+public class AppBatchGenItem implements Serializable {
+
+    /**
+     * 应用初始化的 prompt
+     */
+    private String initPrompt;
+
+    /**
+     * 代码生成类型（枚举）
+     */
+    private String codeGenType;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
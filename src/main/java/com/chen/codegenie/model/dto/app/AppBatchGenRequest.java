@@ -0,0 +1,24 @@
+package com.chen.codegenie.model.dto.app;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量生成应用请求
+ *
+ * @author chen
+ */
+@Data
+public class AppBatchGenRequest implements Serializable {
+
+    /**
+     * 待生成的应用
+     */
+    private List<AppBatchGenItem> items;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
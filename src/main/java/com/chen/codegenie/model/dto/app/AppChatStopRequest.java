@@ -0,0 +1,23 @@
+package com.chen.codegenie.model.dto.app;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 停止生成请求
+ *
+ * @author chen
+ */
+@Data
+public class AppChatStopRequest implements Serializable {
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
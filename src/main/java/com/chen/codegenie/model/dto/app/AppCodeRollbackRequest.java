@@ -0,0 +1,26 @@
+package com.chen.codegenie.model.dto.app;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * @author chen
+ */
+@Data
+public class AppCodeRollbackRequest implements Serializable {
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    /**
+     * 要切换到的代码版本号
+     */
+    private String version;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,28 @@
+package com.chen.codegenie.model.dto.job;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 提交生成任务请求
+ *
+ * @author chen
+ */
+@Data
+public class GenerationJobSubmitRequest implements Serializable {
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    /**
+     * 用户消息
+     */
+    private String message;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
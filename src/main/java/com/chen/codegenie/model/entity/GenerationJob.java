@@ -0,0 +1,110 @@
+package com.chen.codegenie.model.entity;
+
+import com.mybatisflex.annotation.Column;
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import java.io.Serial;
+
+import com.mybatisflex.core.keygen.KeyGenerators;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 生成任务 实体类。
+ *
+ * @author chen
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("generation_job")
+public class GenerationJob implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * id
+     */
+    @Id(keyType = KeyType.Generator, value = KeyGenerators.snowFlakeId)
+    private Long id;
+
+    /**
+     * 应用id
+     */
+    private Long appId;
+
+    /**
+     * 创建用户id
+     */
+    private Long userId;
+
+    /**
+     * 用户消息
+     */
+    private String message;
+
+    /**
+     * 代码生成类型（枚举）
+     */
+    private String codeGenType;
+
+    /**
+     * 任务状态：pending/running/succeeded/failed
+     */
+    private String status;
+
+    /**
+     * 生成结果目录名
+     */
+    private String resultDir;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 已执行次数
+     */
+    private Integer attempts;
+
+    /**
+     * 持有租约的节点
+     */
+    private String leaseOwner;
+
+    /**
+     * 租约过期时间
+     */
+    private LocalDateTime leaseExpireTime;
+
+    /**
+     * 完成时间
+     */
+    private LocalDateTime finishTime;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+    /**
+     * 是否删除
+     */
+    @Column(isLogicDelete = true)
+    private Integer isDelete;
+
+}
@@ -0,0 +1,42 @@
+package com.chen.codegenie.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 缓存失效类型枚举
+ * @author chen
+ */
+@Getter
+public enum CacheInvalidationTypeEnum {
+
+    MEMORY("对话记忆已更新", "memory"),
+    APP("应用已变更", "app");
+
+    private final String text;
+
+    private final String value;
+
+    CacheInvalidationTypeEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static CacheInvalidationTypeEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (CacheInvalidationTypeEnum anEnum : CacheInvalidationTypeEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,78 @@
+package com.chen.codegenie.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+import java.io.File;
+
+/**
+ * 静态文件压缩编码枚举，按优先级排列
+ * @author chen
+ */
+@Getter
+public enum ContentEncodingEnum {
+
+    BROTLI("Brotli", "br", ".br"),
+    GZIP("gzip", "gzip", ".gz");
+
+    private final String text;
+
+    /**
+     * Content-Encoding 取值
+     */
+    private final String value;
+
+    /**
+     * 压缩文件后缀
+     */
+    private final String suffix;
+
+    ContentEncodingEnum(String text, String value, String suffix) {
+        this.text = text;
+        this.value = value;
+        this.suffix = suffix;
+    }
+
+    /**
+     * 获取原文件对应的压缩文件
+     *
+     * @param file 原文件
+     * @return 压缩文件
+     */
+    public File variantOf(File file) {
+        return new File(file.getPath() + suffix);
+    }
+
+    /**
+     * 根据压缩文件名获取枚举
+     *
+     * @param fileName 文件名
+     * @return 枚举值，不是压缩文件时返回 null
+     */
+    public static ContentEncodingEnum getEnumByFileName(String fileName) {
+        for (ContentEncodingEnum anEnum : ContentEncodingEnum.values()) {
+            if (fileName.endsWith(anEnum.suffix)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static ContentEncodingEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (ContentEncodingEnum anEnum : ContentEncodingEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
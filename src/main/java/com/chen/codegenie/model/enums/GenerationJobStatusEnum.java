@@ -0,0 +1,44 @@
+package com.chen.codegenie.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 生成任务状态枚举
+ * @author chen
+ */
+@Getter
+public enum GenerationJobStatusEnum {
+
+    PENDING("等待执行", "pending"),
+    RUNNING("执行中", "running"),
+    SUCCEEDED("已完成", "succeeded"),
+    FAILED("已失败", "failed");
+
+    private final String text;
+
+    private final String value;
+
+    GenerationJobStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的value
+     * @return 枚举值
+     */
+    public static GenerationJobStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (GenerationJobStatusEnum anEnum : GenerationJobStatusEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
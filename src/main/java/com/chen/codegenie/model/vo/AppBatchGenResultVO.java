@@ -0,0 +1,42 @@
+package com.chen.codegenie.model.vo;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 批量生成中单个应用的结果
+ * @author chen
+ */
+@Data
+public class AppBatchGenResultVO implements Serializable {
+
+    /**
+     * 在请求中的序号
+     */
+    private Integer index;
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    /**
+     * 是否成功
+     */
+    private Boolean success;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 生成耗时（毫秒）
+     */
+    private Long costTime;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,33 @@
+package com.chen.codegenie.model.vo;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 应用代码版本
+ * @author chen
+ */
+@Data
+public class AppCodeVersionVO implements Serializable {
+
+    /**
+     * 版本号
+     */
+    private String version;
+
+    /**
+     * 保存时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 是否为当前版本
+     */
+    private Boolean current;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,58 @@
+package com.chen.codegenie.model.vo;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 生成任务视图对象
+ * @author chen
+ */
+@Data
+public class GenerationJobVO implements Serializable {
+
+    /**
+     * id
+     */
+    private Long id;
+
+    /**
+     * 应用id
+     */
+    private Long appId;
+
+    /**
+     * 代码生成类型（枚举）
+     */
+    private String codeGenType;
+
+    /**
+     * 任务状态：pending/running/succeeded/failed
+     */
+    private String status;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 已执行次数
+     */
+    private Integer attempts;
+
+    /**
+     * 完成时间
+     */
+    private LocalDateTime finishTime;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -1,8 +1,11 @@
 package com.chen.codegenie.service;
 
+import com.chen.codegenie.model.dto.app.AppBatchGenItem;
 import com.chen.codegenie.model.dto.app.AppQueryRequest;
 import com.chen.codegenie.model.entity.App;
 import com.chen.codegenie.model.entity.User;
+import com.chen.codegenie.model.vo.AppBatchGenResultVO;
+import com.chen.codegenie.model.vo.AppCodeVersionVO;
 import com.chen.codegenie.model.vo.AppVO;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.service.IService;
@@ -60,6 +63,22 @@ public interface AppService extends IService<App> {
      */
     Flux<String> chatToGen(Long appId, String userPrompt,User loginUser);
 
+    /**
+     * 批量创建应用并并行生成代码
+     * @param items 待生成的应用
+     * @param loginUser 登录用户（管理员）
+     * @return 每个应用生成结束时的结果，按完成顺序返回
+     */
+    Flux<AppBatchGenResultVO> batchGenerate(List<AppBatchGenItem> items, User loginUser);
+
+    /**
+     * 停止应用正在进行的生成
+     * @param appId 应用ID
+     * @param loginUser 登录用户
+     * @return 是否存在进行中的生成
+     */
+    boolean stopChatToGen(Long appId, User loginUser);
+
     /**
      * 部署应用
      * @param appId 应用ID
@@ -68,4 +87,21 @@ public interface AppService extends IService<App> {
      */
     String deploy(Long appId,User loginUser);
 
+    /**
+     * 获取应用的代码版本列表，最新的在前
+     * @param appId 应用ID
+     * @param loginUser 登录用户
+     * @return 版本列表
+     */
+    List<AppCodeVersionVO> listCodeVersions(Long appId, User loginUser);
+
+    /**
+     * 把应用的预览代码切换到指定版本
+     * @param appId 应用ID
+     * @param version 版本号
+     * @param loginUser 登录用户
+     * @return 是否切换成功
+     */
+    boolean rollbackCode(Long appId, String version, User loginUser);
+
 }
@@ -85,7 +85,9 @@ public interface ChatHistoryService extends IService<ChatHistory> {
      * @param appId 应用ID
      * @param chatMemory AI记忆
      * @param maxCount 从数据库加载的最大消息数
+     * @param skipNewest 是否排除最新一条消息：处理用户消息时为 true（该消息已保存，由 AI 服务写入记忆），
+     *                   预热时为 false（最新一条是上一轮的 AI 回复）
      * @return 加载的消息数
      */
-    int loadChatHistoryToMemory(Long appId, ChatMemory chatMemory, int maxCount);
+    int loadChatHistoryToMemory(Long appId, ChatMemory chatMemory, int maxCount, boolean skipNewest);
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.chen.codegenie.service;
+
+import com.chen.codegenie.model.entity.GenerationJob;
+import com.chen.codegenie.model.entity.User;
+import com.chen.codegenie.model.vo.GenerationJobVO;
+import com.mybatisflex.core.service.IService;
+
+import java.util.List;
+
+/**
+ * 生成任务 服务层。
+ *
+ * @author chen
+ */
+public interface GenerationJobService extends IService<GenerationJob> {
+
+    /**
+     * 提交生成任务（非流式生成，由后台工作线程执行）
+     *
+     * @param appId     应用 ID
+     * @param message   用户消息
+     * @param loginUser 登录用户
+     * @return 任务 ID
+     */
+    Long submitJob(Long appId, String message, User loginUser);
+
+    /**
+     * 获取任务（仅创建者或管理员）
+     *
+     * @param id        任务 ID
+     * @param loginUser 登录用户
+     * @return 任务
+     */
+    GenerationJob getJob(Long id, User loginUser);
+
+    /**
+     * 获取任务视图
+     *
+     * @param generationJob 任务
+     * @return 任务视图
+     */
+    GenerationJobVO getGenerationJobVO(GenerationJob generationJob);
+
+    /**
+     * 领取可执行的任务（包括租约过期、需要恢复的任务）
+     *
+     * @param leaseOwner 节点标识
+     * @param limit      最多领取的数量
+     * @return 领取到的任务
+     */
+    List<GenerationJob> claimJobs(String leaseOwner, int limit);
+
+    /**
+     * 续约本节点正在执行的任务
+     *
+     * @param ids        任务 ID
+     * @param leaseOwner 节点标识
+     */
+    void renewLeases(List<Long> ids, String leaseOwner);
+
+    /**
+     * 结束任务
+     *
+     * @param generationJob 任务
+     * @param leaseOwner    节点标识
+     * @param resultDir     生成结果目录名，失败时为 null
+     * @param errorMessage  失败原因，成功时为 null
+     * @return 是否更新成功（租约已被其他节点接管时返回 false）
+     */
+    boolean finishJob(GenerationJob generationJob, String leaseOwner, String resultDir, String errorMessage);
+
+    /**
+     * 归还暂时无法执行的任务（如应用正在生成），稍后重新领取，不计入执行次数
+     *
+     * @param generationJob 任务
+     * @param leaseOwner    节点标识
+     * @return 是否归还成功（租约已被其他节点接管时返回 false）
+     */
+    boolean releaseJob(GenerationJob generationJob, String leaseOwner);
+}
@@ -2,18 +2,32 @@ package com.chen.codegenie.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.date.LocalDateTimeUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
+import com.chen.codegenie.ai.AiCodeGeneratorServiceFactory;
+import com.chen.codegenie.config.GenerationSchedulerConfig;
 import com.chen.codegenie.constant.AppConstant;
+import com.chen.codegenie.constant.ChatHistoryConstant;
+import com.chen.codegenie.constant.UserConstant;
 import com.chen.codegenie.core.AiCodeGeneratorFacade;
+import com.chen.codegenie.core.deploy.DeployAssetPipeline;
+import com.chen.codegenie.core.saver.CodeFileSaverTemplate;
+import com.chen.codegenie.core.saver.CodeOutputSnapshots;
+import com.chen.codegenie.core.scheduler.GenerationScheduler;
+import com.chen.codegenie.core.stream.GenerationRegistry;
 import com.chen.codegenie.exception.BusinessException;
 import com.chen.codegenie.exception.ErrorCode;
 import com.chen.codegenie.exception.ThrowUtils;
+import com.chen.codegenie.model.dto.app.AppBatchGenItem;
 import com.chen.codegenie.model.dto.app.AppQueryRequest;
 import com.chen.codegenie.model.entity.App;
 import com.chen.codegenie.model.entity.User;
 import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import com.chen.codegenie.model.vo.AppBatchGenResultVO;
+import com.chen.codegenie.model.vo.AppCodeVersionVO;
 import com.chen.codegenie.model.vo.AppVO;
 import com.chen.codegenie.service.AppService;
 import com.chen.codegenie.service.ChatHistoryService;
@@ -21,16 +35,20 @@ import com.chen.codegenie.service.UserService;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
 import com.chen.codegenie.mapper.AppMapper;
-import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import java.io.File;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 
@@ -41,18 +59,40 @@ import java.util.stream.Collectors;
  * @author chen
  */
 @Service
+@Slf4j
 public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppService {
 
-    @Resource
-    private UserService userService;
+    private final UserService userService;
 
-    @Resource
-    private AiCodeGeneratorFacade aiCodeGeneratorFacade;
+    private final AiCodeGeneratorFacade aiCodeGeneratorFacade;
+
+    private final GenerationRegistry generationRegistry;
+
+    private final GenerationScheduler generationScheduler;
+
+    private final GenerationSchedulerConfig generationSchedulerConfig;
+
+    private final DeployAssetPipeline deployAssetPipeline;
+
+    private final AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
 
     //todo 优化架构，存在循环依赖问题
-    @Resource
-    @Lazy
-    private ChatHistoryService    chatHistoryService;
+    private final ChatHistoryService chatHistoryService;
+
+    public AppServiceImpl(UserService userService, AiCodeGeneratorFacade aiCodeGeneratorFacade,
+                          GenerationRegistry generationRegistry, GenerationScheduler generationScheduler,
+                          GenerationSchedulerConfig generationSchedulerConfig, DeployAssetPipeline deployAssetPipeline,
+                          AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory,
+                          @Lazy ChatHistoryService chatHistoryService) {
+        this.userService = userService;
+        this.aiCodeGeneratorFacade = aiCodeGeneratorFacade;
+        this.generationRegistry = generationRegistry;
+        this.generationScheduler = generationScheduler;
+        this.generationSchedulerConfig = generationSchedulerConfig;
+        this.deployAssetPipeline = deployAssetPipeline;
+        this.aiCodeGeneratorServiceFactory = aiCodeGeneratorServiceFactory;
+        this.chatHistoryService = chatHistoryService;
+    }
 
     @Override
     public void validApp(App app, boolean add) {
@@ -167,20 +207,135 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         App app = this.getById(appId);
         ThrowUtils.throwIf(app==null,ErrorCode.NOT_FOUND_ERROR);
         ThrowUtils.throwIf(!app.getUserId().equals(loginUser.getId()),ErrorCode.NO_AUTH_ERROR);
+        return doChatToGen(app, userPrompt, loginUser, false);
+    }
+
+    @Override
+    public Flux<AppBatchGenResultVO> batchGenerate(List<AppBatchGenItem> items, User loginUser) {
+        ThrowUtils.throwIf(CollUtil.isEmpty(items), ErrorCode.PARAMS_ERROR, "待生成的应用不能为空");
+        int batchMaxSize = generationSchedulerConfig.getBatchMaxSize();
+        ThrowUtils.throwIf(items.size() > batchMaxSize, ErrorCode.PARAMS_ERROR, "单次最多生成 " + batchMaxSize + " 个应用");
+        List<App> appList = new ArrayList<>(items.size());
+        for (AppBatchGenItem item : items) {
+            ThrowUtils.throwIf(item == null, ErrorCode.PARAMS_ERROR);
+            CodeGenTypeEnum codeGenTypeEnum = CodeGenTypeEnum.getEnumByValue(item.getCodeGenType());
+            ThrowUtils.throwIf(codeGenTypeEnum == null, ErrorCode.PARAMS_ERROR, "不支持的代码生成类型：" + item.getCodeGenType());
+            App app = App.builder()
+                    .appName(StrUtil.sub(StrUtil.trim(item.getInitPrompt()), 0, 12))
+                    .initPrompt(item.getInitPrompt())
+                    .codeGenType(codeGenTypeEnum.getValue())
+                    .priority(AppConstant.DEFAULT_APP_PRIORITY)
+                    .userId(loginUser.getId())
+                    .build();
+            validApp(app, true);
+            appList.add(app);
+        }
+        // 一次批量插入所有应用
+        boolean result = this.saveBatch(appList);
+        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "创建应用失败");
+        // 并行生成，总耗时取决于并发数而不是所有生成耗时之和；批量生成排在交互式生成之后
+        return Flux.range(0, appList.size())
+                .flatMap(index -> {
+                    App app = appList.get(index);
+                    long startTime = System.currentTimeMillis();
+                    return Flux.defer(() -> doChatToGen(app, app.getInitPrompt(), loginUser, true))
+                            .then(Mono.fromCallable(() -> buildBatchGenResult(index, app, startTime, null)))
+                            .onErrorResume(e -> Mono.just(buildBatchGenResult(index, app, startTime, e.getMessage())));
+                }, generationSchedulerConfig.getBatchConcurrency());
+    }
+
+    private AppBatchGenResultVO buildBatchGenResult(int index, App app, long startTime, String errorMessage) {
+        AppBatchGenResultVO appBatchGenResultVO = new AppBatchGenResultVO();
+        appBatchGenResultVO.setIndex(index);
+        appBatchGenResultVO.setAppId(app.getId());
+        appBatchGenResultVO.setSuccess(errorMessage == null);
+        appBatchGenResultVO.setErrorMessage(errorMessage);
+        appBatchGenResultVO.setCostTime(System.currentTimeMillis() - startTime);
+        return appBatchGenResultVO;
+    }
+
+    /**
+     * 生成代码并保存对话历史
+     *
+     * @param app        应用
+     * @param userPrompt 用户提示词
+     * @param loginUser  登录用户
+     * @param batch      是否为批量生成（排在交互式生成之后，并发由批量生成自行控制，不占用户名额）
+     * @return 生成输出
+     */
+    private Flux<String> doChatToGen(App app, String userPrompt, User loginUser, boolean batch) {
+        Long appId = app.getId();
         String codeGenType = app.getCodeGenType();
         CodeGenTypeEnum codeGenTypeEnum=CodeGenTypeEnum.getEnumByValue(codeGenType);
+        // 排队已满时直接拒绝，不保存本次消息
+        ThrowUtils.throwIf(generationScheduler.isQueueFull(), ErrorCode.TOO_MANY_REQUEST, "当前生成请求过多，请稍后再试");
+        // 首轮对话没有历史记忆，生成结果只取决于提示词，可以使用生成结果缓存
+        boolean firstTurn = chatHistoryService.count(QueryWrapper.create().eq("app_id", appId)) == 0;
         chatHistoryService.saveUserMessage(appId,loginUser.getId(),userPrompt);
-        Flux<String> ans= aiCodeGeneratorFacade.generateAndSaveCodeStream(userPrompt,codeGenTypeEnum,app.getId());
+        Supplier<Flux<String>> generation = () -> aiCodeGeneratorFacade.generateAndSaveCodeStream(userPrompt,codeGenTypeEnum,app.getId(),firstTurn);
+        // 需要调用模型时先经过准入控制排队，命中缓存则直接回放（只查询一次，回放使用同一份结果）
+        String cachedResult = firstTurn ? aiCodeGeneratorFacade.getCachedResult(userPrompt, codeGenTypeEnum) : null;
+        Flux<String> ans = cachedResult != null
+                ? aiCodeGeneratorFacade.replayCachedResult(cachedResult, codeGenTypeEnum, appId)
+                : batch
+                ? generationScheduler.schedule(null, AppConstant.BATCH_GENERATION_PRIORITY, generation)
+                : generationScheduler.schedule(loginUser.getId(), getGenerationPriority(app, loginUser), generation);
         StringBuilder aiMessage=new StringBuilder();
+        AtomicBoolean persisted = new AtomicBoolean(false);
         return ans.map(chunk->{
-            aiMessage.append(chunk);
-            return chunk;
-        }).doOnComplete(()->{
-            chatHistoryService.saveAiMessage(appId,loginUser.getId(),aiMessage.toString());
-        }).doOnError(e->{
-            String errorMessage="A回复失败"+e.getMessage();
-            chatHistoryService.saveAiMessage(appId,loginUser.getId(),errorMessage);
-        });
+                    aiMessage.append(chunk);
+                    return chunk;
+                }).doOnComplete(()->{
+                    if (persisted.compareAndSet(false, true)) {
+                        chatHistoryService.saveAiMessage(appId,loginUser.getId(),aiMessage.toString());
+                    }
+                }).doOnError(e->{
+                    if (!persisted.compareAndSet(false, true)) {
+                        return;
+                    }
+                    String errorMessage="A回复失败"+e.getMessage();
+                    chatHistoryService.saveAiMessage(appId,loginUser.getId(),errorMessage);
+                }).doOnCancel(()->{
+                    // 主动停止或客户端断开超时：上游生成随取消一并中止，已输出的部分标记为未完成
+                    if (persisted.compareAndSet(false, true)) {
+                        saveIncompleteAiMessage(appId, loginUser.getId(), aiMessage);
+                    }
+                });
+    }
+
+    @Override
+    public boolean stopChatToGen(Long appId, User loginUser) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
+        App app = this.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR);
+        boolean isAdmin = UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole());
+        ThrowUtils.throwIf(!app.getUserId().equals(loginUser.getId()) && !isAdmin, ErrorCode.NO_AUTH_ERROR);
+        return generationRegistry.stop(appId);
+    }
+
+    /**
+     * 生成排队优先级：应用优先级（精选应用更高），管理员额外加权
+     */
+    private int getGenerationPriority(App app, User loginUser) {
+        int priority = ObjUtil.defaultIfNull(app.getPriority(), AppConstant.DEFAULT_APP_PRIORITY);
+        if (UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole())) {
+            priority += AppConstant.ADMIN_GENERATION_PRIORITY_BONUS;
+        }
+        return priority;
+    }
+
+    /**
+     * 保存未完成的 AI 消息（没有任何输出时不保存）
+     */
+    private void saveIncompleteAiMessage(Long appId, Long userId, StringBuilder aiMessage) {
+        if (aiMessage.isEmpty()) {
+            return;
+        }
+        try {
+            chatHistoryService.saveAiMessage(appId, userId, aiMessage + ChatHistoryConstant.INCOMPLETE_AI_MESSAGE_MARK);
+        } catch (Exception e) {
+            log.error("保存未完成的 AI 消息失败，appId: {}, error: {}", appId, e.getMessage());
+        }
     }
 
     @Override
@@ -197,16 +352,16 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         }
         String codeGenType = app.getCodeGenType();
         String outputFilePath= AppConstant.CODE_OUTPUT_ROOT_DIR+ File.separator+codeGenType+"_"+appId;
-        //判断应用代码是否存在
-        File sourceFile=new File(outputFilePath);
+        //判断应用代码是否存在（部署当前版本）
+        File sourceFile=CodeOutputSnapshots.resolveCurrentDir(outputFilePath);
         if(!sourceFile.exists() || !sourceFile.isDirectory()){
             throw new BusinessException(ErrorCode.SYSTEM_ERROR,"应用代码不存在");
         }
         //判断deployKey是否已经存在
         String deployPath=AppConstant.CODE_DEPLOY_ROOT_DIR+File.separator+deployKey;
-        // 复制文件到部署目录
+        // 压缩、加指纹后发布到部署目录
         try {
-            FileUtil.copyContent(sourceFile, new File(deployPath), true);
+            deployAssetPipeline.publish(sourceFile, new File(deployPath));
         } catch (Exception e) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
         }
@@ -221,4 +376,52 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         return String.format("%s/%s/", AppConstant.CODE_DEPLOY_HOST, deployKey);
     }
 
+    @Override
+    public List<AppCodeVersionVO> listCodeVersions(Long appId, User loginUser) {
+        String appDirPath = getOwnedAppOutputDir(appId, loginUser);
+        String currentVersion = CodeOutputSnapshots.getCurrentVersion(appDirPath);
+        List<AppCodeVersionVO> versionList = new ArrayList<>();
+        for (String version : CodeOutputSnapshots.listVersions(appDirPath)) {
+            AppCodeVersionVO versionVO = new AppCodeVersionVO();
+            versionVO.setVersion(version);
+            // 版本号为雪花 ID，包含生成时间
+            versionVO.setCreateTime(LocalDateTimeUtil.of(IdUtil.getSnowflake().getGenerateDateTime(Long.parseLong(version))));
+            versionVO.setCurrent(version.equals(currentVersion));
+            versionList.add(versionVO);
+        }
+        return versionList;
+    }
+
+    @Override
+    public boolean rollbackCode(Long appId, String version, User loginUser) {
+        ThrowUtils.throwIf(StrUtil.isBlank(version), ErrorCode.PARAMS_ERROR, "版本号不能为空");
+        String appDirPath = getOwnedAppOutputDir(appId, loginUser);
+        // 生成完成后会发布新版本并覆盖回滚结果
+        ThrowUtils.throwIf(generationRegistry.isGenerating(appId), ErrorCode.OPERATION_ERROR, "应用正在生成代码，请稍后再回滚");
+        if (version.equals(CodeOutputSnapshots.getCurrentVersion(appDirPath))) {
+            return true;
+        }
+        boolean switched = CodeOutputSnapshots.rollback(appDirPath, version);
+        ThrowUtils.throwIf(!switched, ErrorCode.NOT_FOUND_ERROR, "代码版本不存在");
+        // 对话记忆中最新的代码已不是当前代码：记录回滚说明，并让各节点从数据库重新加载记忆
+        LocalDateTime createTime = LocalDateTimeUtil.of(IdUtil.getSnowflake().getGenerateDateTime(Long.parseLong(version)));
+        chatHistoryService.saveAiMessage(appId, loginUser.getId(), String.format(ChatHistoryConstant.CODE_ROLLBACK_MESSAGE,
+                version, LocalDateTimeUtil.formatNormal(createTime)));
+        aiCodeGeneratorServiceFactory.invalidateAiCodeGeneratorService(appId);
+        return true;
+    }
+
+    /**
+     * 校验应用归属并获取应用的代码输出目录
+     */
+    private String getOwnedAppOutputDir(Long appId, User loginUser) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR);
+        App app = this.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR);
+        ThrowUtils.throwIf(!app.getUserId().equals(loginUser.getId()), ErrorCode.NO_AUTH_ERROR);
+        CodeGenTypeEnum codeGenType = CodeGenTypeEnum.getEnumByValue(app.getCodeGenType());
+        ThrowUtils.throwIf(codeGenType == null, ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型");
+        return CodeFileSaverTemplate.getOutputDirPath(codeGenType, appId);
+    }
+
 }
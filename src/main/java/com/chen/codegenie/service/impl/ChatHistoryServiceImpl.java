@@ -3,6 +3,7 @@ package com.chen.codegenie.service.impl;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import com.chen.codegenie.constant.UserConstant;
+import com.chen.codegenie.core.metrics.GenerationMetrics;
 import com.chen.codegenie.exception.BusinessException;
 import com.chen.codegenie.exception.ErrorCode;
 import com.chen.codegenie.exception.ThrowUtils;
@@ -19,12 +20,14 @@ import com.chen.codegenie.model.entity.ChatHistory;
 import com.chen.codegenie.mapper.ChatHistoryMapper;
 import com.chen.codegenie.service.ChatHistoryService;
 import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.ChatMemory;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -41,6 +44,9 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     @Resource
     private AppService appService;
 
+    @Resource
+    private GenerationMetrics generationMetrics;
+
     public void validChatHistory(ChatHistory chatHistory, boolean add) {
         if (chatHistory == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
@@ -142,33 +148,25 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
 
     //SELECT * FROM chat_history
     //WHERE app_id = ?
-    //ORDER BY create_time
-    //LIMIT 1, maxCount;
+    //ORDER BY create_time DESC
+    //LIMIT 0, maxCount + 1;
     @Override
-    public int loadChatHistoryToMemory(Long appId, ChatMemory chatMemory, int maxCount) {
+    public int loadChatHistoryToMemory(Long appId, ChatMemory chatMemory, int maxCount, boolean skipNewest) {
         try{
-            // 直接构造查询条件，起始点为 1 而不是 0，用于排除最新的用户消息
+            // 多查一条，由 toChatMessages 决定是否排除最新的一条
             QueryWrapper queryWrapper = QueryWrapper.create()
                     .eq(ChatHistory::getAppId, appId)
                     .orderBy(ChatHistory::getCreateTime, false)
-                    .limit(1, maxCount);
-            List<ChatHistory> historyList = this.list(queryWrapper);
-            if (CollUtil.isEmpty(historyList)) {
-                return 0;
-            }
-            // 反转列表，确保按时间正序（老的在前，新的在后）
-            historyList = historyList.reversed();
-            // 先清理历史缓存，防止重复加载
+                    .limit(0, maxCount + 1);
+            List<ChatMessage> messages = toChatMessages(this.list(queryWrapper), maxCount, skipNewest);
+            // 先清理历史缓存，防止重复加载（历史已被删除时也要清理），再一次性写入全部历史
             chatMemory.clear();
-            for (ChatHistory history : historyList) {
-                if (MessageTypeEnum.USER.getValue().equals(history.getMessageType())) {
-                    chatMemory.add(UserMessage.from(history.getMessage()));
-                } else if (MessageTypeEnum.AI.getValue().equals(history.getMessageType())) {
-                    chatMemory.add(AiMessage.from(history.getMessage()));
-                }
+            if (messages.isEmpty()) {
+                return 0;
             }
-            log.info("成功为 appId: {} 加载了 {} 条历史对话", appId, historyList.size());
-            return historyList.size();
+            chatMemory.add(messages);
+            log.info("成功为 appId: {} 加载了 {} 条历史对话", appId, messages.size());
+            return messages.size();
         }catch (Exception e) {
             log.error("加载历史对话失败，appId: {}, error: {}", appId, e.getMessage(), e);
             // 加载失败不影响系统运行，只是没有历史上下文
@@ -176,6 +174,35 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         }
     }
 
+    /**
+     * 把按时间倒序查出的对话历史转换为按时间正序的记忆消息
+     * skipNewest 为 true 时排除最新一条（刚保存的本轮用户消息，由 AI 服务自行写入记忆）；
+     * 为 false 时（预热）保留最新的 AI 回复，只有最新一条是用户消息时才排除，该消息正在生成中，同样由 AI 服务写入。
+     *
+     * @param historyList 按创建时间倒序的对话历史
+     * @param maxCount    最多保留的消息数
+     * @param skipNewest  是否排除最新一条
+     * @return 记忆消息，老的在前
+     */
+    static List<ChatMessage> toChatMessages(List<ChatHistory> historyList, int maxCount, boolean skipNewest) {
+        if (CollUtil.isEmpty(historyList)) {
+            return new ArrayList<>();
+        }
+        int from = skipNewest || MessageTypeEnum.USER.getValue().equals(historyList.getFirst().getMessageType()) ? 1 : 0;
+        List<ChatHistory> selected = historyList.subList(Math.min(from, historyList.size()),
+                Math.min(from + maxCount, historyList.size()));
+        List<ChatMessage> messages = new ArrayList<>(selected.size());
+        // 反转列表，确保按时间正序（老的在前，新的在后）
+        for (ChatHistory history : selected.reversed()) {
+            if (MessageTypeEnum.USER.getValue().equals(history.getMessageType())) {
+                messages.add(UserMessage.from(history.getMessage()));
+            } else if (MessageTypeEnum.AI.getValue().equals(history.getMessageType())) {
+                messages.add(AiMessage.from(history.getMessage()));
+            }
+        }
+        return messages;
+    }
+
     /**
      * 保存对话历史的通用方法
      */
@@ -190,7 +217,7 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
                 .build();
 
         validChatHistory(chatHistory, true);
-        boolean result = this.save(chatHistory);
+        boolean result = generationMetrics.recordChatHistorySave(messageType, () -> this.save(chatHistory));
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "保存对话历史失败");
 
         return chatHistory.getId();
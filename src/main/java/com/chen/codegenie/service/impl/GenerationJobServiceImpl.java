@@ -0,0 +1,130 @@
+package com.chen.codegenie.service.impl;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.chen.codegenie.config.GenerationJobConfig;
+import com.chen.codegenie.constant.UserConstant;
+import com.chen.codegenie.exception.ErrorCode;
+import com.chen.codegenie.exception.ThrowUtils;
+import com.chen.codegenie.mapper.GenerationJobMapper;
+import com.chen.codegenie.model.entity.App;
+import com.chen.codegenie.model.entity.GenerationJob;
+import com.chen.codegenie.model.entity.User;
+import com.chen.codegenie.model.enums.GenerationJobStatusEnum;
+import com.chen.codegenie.model.vo.GenerationJobVO;
+import com.chen.codegenie.service.AppService;
+import com.chen.codegenie.service.ChatHistoryService;
+import com.chen.codegenie.service.GenerationJobService;
+import com.mybatisflex.spring.service.impl.ServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 生成任务 服务层实现。
+ *
+ * @author chen
+ */
+@Service
+@Slf4j
+public class GenerationJobServiceImpl extends ServiceImpl<GenerationJobMapper, GenerationJob> implements GenerationJobService {
+
+    private final AppService appService;
+
+    private final ChatHistoryService chatHistoryService;
+
+    private final GenerationJobConfig generationJobConfig;
+
+    public GenerationJobServiceImpl(AppService appService, @Lazy ChatHistoryService chatHistoryService,
+                                    GenerationJobConfig generationJobConfig) {
+        this.appService = appService;
+        this.chatHistoryService = chatHistoryService;
+        this.generationJobConfig = generationJobConfig;
+    }
+
+    @Override
+    public Long submitJob(Long appId, String message, User loginUser) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
+        App app = appService.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR);
+        ThrowUtils.throwIf(!app.getUserId().equals(loginUser.getId()), ErrorCode.NO_AUTH_ERROR);
+        GenerationJob generationJob = GenerationJob.builder()
+                .appId(appId)
+                .userId(loginUser.getId())
+                .message(message)
+                .codeGenType(app.getCodeGenType())
+                .status(GenerationJobStatusEnum.PENDING.getValue())
+                .attempts(0)
+                .build();
+        boolean result = this.save(generationJob);
+        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "提交任务失败");
+        chatHistoryService.saveUserMessage(appId, loginUser.getId(), message);
+        return generationJob.getId();
+    }
+
+    @Override
+    public GenerationJob getJob(Long id, User loginUser) {
+        ThrowUtils.throwIf(id == null || id <= 0, ErrorCode.PARAMS_ERROR);
+        GenerationJob generationJob = this.getById(id);
+        ThrowUtils.throwIf(generationJob == null, ErrorCode.NOT_FOUND_ERROR);
+        boolean isAdmin = UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole());
+        ThrowUtils.throwIf(!generationJob.getUserId().equals(loginUser.getId()) && !isAdmin, ErrorCode.NO_AUTH_ERROR);
+        return generationJob;
+    }
+
+    @Override
+    public GenerationJobVO getGenerationJobVO(GenerationJob generationJob) {
+        GenerationJobVO generationJobVO = new GenerationJobVO();
+        BeanUtil.copyProperties(generationJob, generationJobVO);
+        return generationJobVO;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<GenerationJob> claimJobs(String leaseOwner, int limit) {
+        // 先终止多次执行仍未完成的任务，避免反复领取导致节点接连宕机的任务
+        int exhausted = mapper.failExhausted(generationJobConfig.getMaxAttempts());
+        if (exhausted > 0) {
+            log.warn("{} 个生成任务已达最大执行次数，标记为失败", exhausted);
+        }
+        List<Long> ids = mapper.selectClaimableIdsForUpdate(generationJobConfig.getMaxAttempts(), limit);
+        if (CollUtil.isEmpty(ids)) {
+            return List.of();
+        }
+        mapper.claim(ids, leaseOwner, LocalDateTime.now().plus(generationJobConfig.getLeaseDuration()));
+        return this.listByIds(ids);
+    }
+
+    @Override
+    public void renewLeases(List<Long> ids, String leaseOwner) {
+        if (CollUtil.isEmpty(ids)) {
+            return;
+        }
+        mapper.renewLease(ids, leaseOwner, LocalDateTime.now().plus(generationJobConfig.getLeaseDuration()));
+    }
+
+    @Override
+    public boolean finishJob(GenerationJob generationJob, String leaseOwner, String resultDir, String errorMessage) {
+        GenerationJobStatusEnum status = errorMessage == null ? GenerationJobStatusEnum.SUCCEEDED : GenerationJobStatusEnum.FAILED;
+        boolean updated = mapper.finish(generationJob.getId(), leaseOwner, status.getValue(), resultDir,
+                StrUtil.maxLength(errorMessage, 1000)) > 0;
+        if (!updated) {
+            log.warn("生成任务 {} 的租约已失效，忽略本次结果", generationJob.getId());
+            return false;
+        }
+        String aiMessage = errorMessage == null ? "代码已生成，可在预览中查看" : "AI回复失败：" + errorMessage;
+        chatHistoryService.saveAiMessage(generationJob.getAppId(), generationJob.getUserId(), aiMessage);
+        return true;
+    }
+
+    @Override
+    public boolean releaseJob(GenerationJob generationJob, String leaseOwner) {
+        return mapper.release(generationJob.getId(), leaseOwner) > 0;
+    }
+}
@@ -0,0 +1,151 @@
+package com.chen.codegenie.ai;
+
+import com.chen.codegenie.ai.memory.ChatMemorySummarizer;
+import com.chen.codegenie.ai.mock.FakeChatModel;
+import com.chen.codegenie.ai.mock.FakeStreamingChatModel;
+import com.chen.codegenie.config.ChatMemoryConfig;
+import com.chen.codegenie.config.FakeModelConfig;
+import com.chen.codegenie.core.cache.CacheInvalidationBus;
+import com.chen.codegenie.core.metrics.GenerationMetrics;
+import com.chen.codegenie.service.AppService;
+import com.chen.codegenie.service.ChatHistoryService;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class AiCodeGeneratorServiceFactoryTest {
+
+    private final ChatHistoryService chatHistoryService = mock(ChatHistoryService.class);
+
+    private final ChatMemorySummarizer summarizer = mock(ChatMemorySummarizer.class);
+
+    @Test
+    void sharedServiceKeepsSeparateMemoryPerApp() throws Exception {
+        AiCodeGeneratorServiceFactory factory = newFactory();
+
+        AiCodeGeneratorService first = factory.getAiCodeGeneratorService(1L);
+        AiCodeGeneratorService second = factory.getAiCodeGeneratorService(2L);
+        assertSame(first, second);
+
+        generate(first, 1L);
+        generate(first, 1L);
+        generate(first, 2L);
+        // 系统提示词加上每轮对话的用户消息和 AI 回复
+        assertEquals(5, first.getChatMemory(1L).messages().size());
+        assertEquals(3, first.getChatMemory(2L).messages().size());
+        // 记忆只在首次使用时从数据库加载
+        verify(chatHistoryService, times(1)).loadChatHistoryToMemory(eq(1L), any(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    void invalidateReloadsMemoryOnNextUse() {
+        AiCodeGeneratorServiceFactory factory = newFactory();
+
+        AiCodeGeneratorService service = factory.getAiCodeGeneratorService(1L);
+        service.generateHtmlCode(1L, "做一个任务记录网站");
+        ChatMemory before = service.getChatMemory(1L);
+        assertNotNull(before);
+
+        factory.invalidateAiCodeGeneratorService(1L);
+        assertNull(service.getChatMemory(1L));
+
+        factory.getAiCodeGeneratorService(1L);
+        service.generateHtmlCode(1L, "改成深色主题");
+        assertNotSame(before, service.getChatMemory(1L));
+        verify(chatHistoryService, times(2)).loadChatHistoryToMemory(eq(1L), any(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    void removingMemoryEvictsSummaries() {
+        AiCodeGeneratorServiceFactory factory = newFactory();
+
+        factory.getAiCodeGeneratorService(1L);
+        factory.removeChatMemory(1L);
+        verify(summarizer).evict(1L);
+
+        factory.getAiCodeGeneratorService(2L);
+        factory.invalidateAiCodeGeneratorService(2L);
+        verify(summarizer).evict(2L);
+    }
+
+    @Test
+    void warmUpLoadsMemoryBeforeFirstMessage() throws Exception {
+        AiCodeGeneratorServiceFactory factory = newFactory();
+
+        factory.warmUpAsync(1L);
+        // 预热时还没有本轮用户消息，不排除最新一条
+        verify(chatHistoryService, timeout(5000)).loadChatHistoryToMemory(eq(1L), any(), anyInt(), eq(false));
+        factory.warmUpAsync(1L);
+
+        generate(factory.getAiCodeGeneratorService(1L), 1L);
+        verify(chatHistoryService, times(1)).loadChatHistoryToMemory(eq(1L), any(), anyInt(), anyBoolean());
+        factory.destroy();
+    }
+
+    @Test
+    void idleMemoryExpiresAfterConfiguredTime() throws Exception {
+        ChatMemoryConfig chatMemoryConfig = new ChatMemoryConfig();
+        chatMemoryConfig.setMemoryCacheExpireAfterAccess(Duration.ofMillis(100));
+        AiCodeGeneratorServiceFactory factory = newFactory(chatMemoryConfig);
+
+        factory.getAiCodeGeneratorService(1L);
+        factory.getAiCodeGeneratorService(1L);
+        verify(chatHistoryService, times(1)).loadChatHistoryToMemory(eq(1L), any(), anyInt(), anyBoolean());
+
+        Thread.sleep(300);
+        factory.getAiCodeGeneratorService(1L);
+        verify(chatHistoryService, times(2)).loadChatHistoryToMemory(eq(1L), any(), anyInt(), anyBoolean());
+    }
+
+    private AiCodeGeneratorServiceFactory newFactory() {
+        return newFactory(new ChatMemoryConfig());
+    }
+
+    /**
+     * 使用模拟模型和内存记忆存储的 AI 服务工厂
+     */
+    private AiCodeGeneratorServiceFactory newFactory(ChatMemoryConfig chatMemoryConfig) {
+        FakeModelConfig fakeModelConfig = new FakeModelConfig();
+        fakeModelConfig.setTimeToFirstToken(Duration.ZERO);
+        fakeModelConfig.setTokensPerSecond(1_000_000);
+        CacheInvalidationBus cacheInvalidationBus = new CacheInvalidationBus(mock(StringRedisTemplate.class),
+                mock(RedisMessageListenerContainer.class));
+        AiCodeGeneratorServiceFactory factory = new AiCodeGeneratorServiceFactory(new InMemoryChatMemoryStore(),
+                new FakeChatModel(), new FakeStreamingChatModel(fakeModelConfig), chatHistoryService,
+                mock(AppService.class), mock(GenerationMetrics.class), chatMemoryConfig, cacheInvalidationBus,
+                summarizer);
+        factory.init();
+        return factory;
+    }
+
+    private static void generate(AiCodeGeneratorService service, long appId) throws Exception {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        service.generateHtmlCodeStream(appId, "做一个任务记录网站")
+                .onPartialResponse(token -> {
+                })
+                .onCompleteResponse(response -> done.complete(null))
+                .onError(done::completeExceptionally)
+                .start();
+        done.get(5, TimeUnit.SECONDS);
+    }
+}
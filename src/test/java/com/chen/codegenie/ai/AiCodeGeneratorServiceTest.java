@@ -1,19 +1,49 @@
 package com.chen.codegenie.ai;
 
+import com.chen.codegenie.ai.memory.ChatMemorySummarizer;
+import com.chen.codegenie.ai.mock.FakeChatModel;
+import com.chen.codegenie.ai.mock.FakeStreamingChatModel;
 import com.chen.codegenie.ai.model.HtmlCodeResult;
 import com.chen.codegenie.ai.model.MultiFileCodeResult;
-import jakarta.annotation.Resource;
+import com.chen.codegenie.config.ChatMemoryConfig;
+import com.chen.codegenie.config.FakeModelConfig;
+import com.chen.codegenie.core.cache.CacheInvalidationBus;
+import com.chen.codegenie.core.metrics.GenerationMetrics;
+import com.chen.codegenie.service.AppService;
+import com.chen.codegenie.service.ChatHistoryService;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
-import static org.junit.jupiter.api.Assertions.*;
+import java.time.Duration;
 
-@SpringBootTest
+import static org.mockito.Mockito.mock;
+
+/**
+ * 使用模拟模型和内存记忆存储运行，不需要模型接口密钥、数据库和 Redis
+ */
 class AiCodeGeneratorServiceTest {
 
-    @Resource
     private AiCodeGeneratorService aiCodeGeneratorService;
+
+    @BeforeEach
+    void setUp() {
+        FakeModelConfig fakeModelConfig = new FakeModelConfig();
+        fakeModelConfig.setTimeToFirstToken(Duration.ZERO);
+        fakeModelConfig.setTokensPerSecond(1_000_000);
+        CacheInvalidationBus cacheInvalidationBus = new CacheInvalidationBus(mock(StringRedisTemplate.class),
+                mock(RedisMessageListenerContainer.class));
+        AiCodeGeneratorServiceFactory factory = new AiCodeGeneratorServiceFactory(new InMemoryChatMemoryStore(),
+                new FakeChatModel(), new FakeStreamingChatModel(fakeModelConfig), mock(ChatHistoryService.class),
+                mock(AppService.class), mock(GenerationMetrics.class), new ChatMemoryConfig(), cacheInvalidationBus,
+                mock(ChatMemorySummarizer.class));
+        factory.init();
+        aiCodeGeneratorService = factory.aiCodeGeneratorService();
+    }
+
     @Test
     void generateHtmlCode() {
         //String res=aiCodeGeneratorService.generateHtmlCode("做个留言板网站，不超过50行代码");
@@ -30,7 +60,7 @@ class AiCodeGeneratorServiceTest {
     @Test
     void generateMultiFileCode() {
         //String res=aiCodeGeneratorService.generateMultiFileCode("做个留言板网站，不超过50行代码");
-        MultiFileCodeResult res=aiCodeGeneratorService.generateMultiFileCode("做个留言板网站，不超过50行代码");
+        MultiFileCodeResult res=aiCodeGeneratorService.generateMultiFileCode(1, "做个留言板网站，不超过50行代码");
         Assertions.assertNotNull(res);
     }
-}
\ No newline at end of file
+}
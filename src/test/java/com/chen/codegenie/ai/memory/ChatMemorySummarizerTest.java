@@ -0,0 +1,139 @@
+package com.chen.codegenie.ai.memory;
+
+import com.chen.codegenie.config.ChatMemoryConfig;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatMemorySummarizerTest {
+
+    private static final List<ChatMessage> TURN_1 = List.of(
+            UserMessage.from("做一个任务记录网站"), AiMessage.from("<p>v1</p>"));
+
+    private static final List<ChatMessage> TURN_2 = List.of(
+            UserMessage.from("改成深色主题"), AiMessage.from("<p>v2</p>"));
+
+    private static final List<ChatMessage> TURN_3 = List.of(
+            UserMessage.from("加一个搜索框"), AiMessage.from("<p>v3</p>"));
+
+    private final ChatModel chatModel = mock(ChatModel.class);
+
+    private final AtomicInteger modelCalls = new AtomicInteger();
+
+    /**
+     * 放行模型调用，未放行前后台摘要一直阻塞
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ChatMemorySummarizer summarizer;
+
+    @BeforeEach
+    void setUp() {
+        when(chatModel.chat(anyList())).thenAnswer(invocation -> {
+            int call = modelCalls.incrementAndGet();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return ChatResponse.builder().aiMessage(AiMessage.from("摘要" + call)).build();
+        });
+        ChatMemoryConfig config = new ChatMemoryConfig();
+        config.setSummaryThreads(1);
+        config.setSummaryQueueSize(1);
+        summarizer = new ChatMemorySummarizer(chatModel, config);
+        summarizer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        summarizer.destroy();
+    }
+
+    @Test
+    void summarizesInBackgroundAndReusesResult() throws Exception {
+        // 首次只提交后台任务，不等待模型
+        assertNull(summarizer.getSummary(1L, TURN_1));
+        release.countDown();
+        awaitLatestSummary(1L, "摘要1");
+
+        // 相同内容命中缓存，不再调用模型
+        assertEquals("摘要1", summarizer.getSummary(1L, TURN_1));
+        assertEquals(1, modelCalls.get());
+        // 压缩内容变化时先返回上一次的摘要
+        assertEquals("摘要1", summarizer.getSummary(1L, TURN_2));
+        awaitLatestSummary(1L, "摘要2");
+        assertEquals(2, modelCalls.get());
+    }
+
+    @Test
+    void skipsSummaryWhenQueueIsFull() throws Exception {
+        summarizer.getSummary(1L, TURN_1);
+        awaitModelCalls(1);
+        // 一个线程执行中、队列容量为 1，第三个任务被拒绝
+        summarizer.getSummary(1L, TURN_2);
+        assertNull(summarizer.getSummary(1L, TURN_3));
+        release.countDown();
+        awaitLatestSummary(1L, "摘要2");
+        assertEquals(2, modelCalls.get());
+
+        // 被拒绝的内容之后可以重新提交
+        summarizer.getSummary(1L, TURN_3);
+        awaitLatestSummary(1L, "摘要3");
+    }
+
+    @Test
+    void evictDropsCachedAndInflightSummaries() throws Exception {
+        release.countDown();
+        summarizer.getSummary(1L, TURN_1);
+        awaitLatestSummary(1L, "摘要1");
+
+        summarizer.evict(1L);
+        assertNull(summarizer.getSummary(1L, List.of()));
+        // 被压缩的内容相同也要重新生成
+        assertNull(summarizer.getSummary(1L, TURN_1));
+        awaitLatestSummary(1L, "摘要2");
+    }
+
+    @Test
+    void summaryFinishedAfterEvictIsDiscarded() throws Exception {
+        summarizer.getSummary(1L, TURN_1);
+        awaitModelCalls(1);
+        summarizer.evict(1L);
+        release.countDown();
+
+        // 等待后台任务结束：再次提交同样内容不再被视为进行中
+        summarizer.getSummary(2L, TURN_2);
+        awaitLatestSummary(2L, "摘要2");
+        assertNull(summarizer.getSummary(1L, List.of()));
+    }
+
+    private void awaitLatestSummary(Object memoryId, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!expected.equals(summarizer.getSummary(memoryId, List.of())) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, summarizer.getSummary(memoryId, List.of()));
+    }
+
+    private void awaitModelCalls(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (modelCalls.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, modelCalls.get());
+    }
+}
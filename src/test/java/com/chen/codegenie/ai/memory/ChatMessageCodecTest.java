@@ -0,0 +1,68 @@
+package com.chen.codegenie.ai.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatMessageCodecTest {
+
+    private static final String HTML = "```html\n<!DOCTYPE html>\n<html>\n<body>\n"
+            + "<div class=\"task\">任务</div>\n".repeat(200)
+            + "</body>\n</html>\n```";
+
+    @Test
+    void roundTripsTextMessages() {
+        List<ChatMessage> messages = List.of(
+                SystemMessage.from("你是一位资深的 Web 前端开发专家"),
+                UserMessage.from("做一个任务记录网站"),
+                AiMessage.from(HTML),
+                UserMessage.from("小明", "把背景改成蓝色"));
+
+        assertEquals(messages, ChatMessageCodec.decode(ChatMessageCodec.encode(messages)));
+    }
+
+    @Test
+    void roundTripsToolExecutionRequests() {
+        AiMessage toolCall = AiMessage.from(ToolExecutionRequest.builder()
+                .id("1").name("writeFile").arguments("{\"path\":\"index.html\"}").build());
+
+        assertEquals(List.of(toolCall), ChatMessageCodec.decode(ChatMessageCodec.encode(List.of(toolCall))));
+    }
+
+    @Test
+    void compressesLargeBodiesBelowJsonSize() {
+        List<ChatMessage> messages = List.of(UserMessage.from("做一个任务记录网站"), AiMessage.from(HTML));
+
+        byte[] binary = ChatMessageCodec.encode(messages);
+        byte[] json = ChatMessageSerializer.messagesToJson(messages).getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(binary.length * 10 < json.length, "binary: " + binary.length + ", json: " + json.length);
+    }
+
+    @Test
+    void readsLegacyJsonEntries() {
+        List<ChatMessage> messages = List.of(UserMessage.from("做一个任务记录网站"), AiMessage.from(HTML));
+        byte[] json = ChatMessageSerializer.messagesToJson(messages).getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(messages, ChatMessageCodec.decode(json));
+    }
+
+    @Test
+    void rejectsNewerVersions() {
+        byte[] data = ChatMessageCodec.encode(List.of(UserMessage.from("做一个任务记录网站")));
+        data[1] = (byte) (ChatMessageCodec.VERSION + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> ChatMessageCodec.decode(data));
+    }
+}
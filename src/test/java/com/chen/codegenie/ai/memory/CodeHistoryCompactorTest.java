@@ -0,0 +1,96 @@
+package com.chen.codegenie.ai.memory;
+
+import com.chen.codegenie.constant.ChatHistoryConstant;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodeHistoryCompactorTest {
+
+    @Test
+    void olderVersionsBecomePlaceholders() {
+        List<ChatMessage> messages = List.of(
+                UserMessage.from("做一个任务记录网站"),
+                AiMessage.from("好的。\n```html\n<p>v1</p>\n```\n完成。"),
+                UserMessage.from("改成深色主题"),
+                AiMessage.from("```html\n<p>v2</p>\n```\n"),
+                UserMessage.from("加一个筛选"),
+                AiMessage.from("```html\n<p>v3</p>\n```\n"));
+
+        List<ChatMessage> compacted = CodeHistoryCompactor.compact(messages, CodeGenTypeEnum.HTML);
+
+        assertEquals("好的。\n[index.html v1, 0.0 KB, superseded]\n完成。", ((AiMessage) compacted.get(1)).text());
+        assertEquals("[index.html v2, 0.0 KB, superseded]\n", ((AiMessage) compacted.get(3)).text());
+        assertSame(messages.get(5), compacted.get(5));
+        assertSame(messages.get(0), compacted.get(0));
+    }
+
+    @Test
+    void onlySupersededFilesAreReplaced() {
+        List<ChatMessage> messages = List.of(
+                AiMessage.from("```html\n<link href=\"style.css\">\n```\n```css\nbody{}\n```\n"),
+                AiMessage.from("```css\nbody{color:#fff}\n```\n"));
+
+        List<ChatMessage> compacted = CodeHistoryCompactor.compact(messages, CodeGenTypeEnum.MULTI_FILE);
+
+        String first = ((AiMessage) compacted.getFirst()).text();
+        assertTrue(first.contains("```html\n<link href=\"style.css\">\n```"));
+        assertTrue(first.contains("[style.css v1, 0.0 KB, superseded]"));
+        assertSame(messages.get(1), compacted.get(1));
+    }
+
+    @Test
+    void singleVersionIsUnchanged() {
+        List<ChatMessage> messages = List.of(UserMessage.from("做一个网站"), AiMessage.from("```html\n<p></p>\n```"));
+        assertSame(messages, CodeHistoryCompactor.compact(messages, CodeGenTypeEnum.HTML));
+    }
+
+    @Test
+    void interruptedMessageNeverSupersedes() {
+        String partial = "```html\n<p>v2 ...\n" + ChatHistoryConstant.INCOMPLETE_AI_MESSAGE_MARK;
+        List<ChatMessage> messages = List.of(
+                AiMessage.from("```html\n<p>v1</p>\n```\n"),
+                UserMessage.from("改成深色主题"),
+                AiMessage.from(partial));
+        // 中断的生成没有保存，v1 仍是输出目录中的完整代码
+        assertSame(messages, CodeHistoryCompactor.compact(messages, CodeGenTypeEnum.HTML));
+
+        List<ChatMessage> continued = new ArrayList<>(messages);
+        continued.add(UserMessage.from("继续"));
+        continued.add(AiMessage.from("```html\n<p>v2</p>\n```\n"));
+        List<ChatMessage> compacted = CodeHistoryCompactor.compact(continued, CodeGenTypeEnum.HTML);
+        assertEquals("[index.html v1, 0.0 KB, superseded]\n", ((AiMessage) compacted.get(0)).text());
+        assertTrue(((AiMessage) compacted.get(2)).text().startsWith("[index.html incomplete, "));
+        assertSame(continued.get(4), compacted.get(4));
+    }
+
+    @Test
+    void unterminatedBlockNeverSupersedes() {
+        List<ChatMessage> messages = List.of(
+                AiMessage.from("```html\n<p>v1</p>\n```\n"),
+                AiMessage.from("```html\n<p>v2"));
+        assertSame(messages, CodeHistoryCompactor.compact(messages, CodeGenTypeEnum.HTML));
+    }
+
+    @Test
+    void onlyFirstBlockPerFileInMessageIsVersion() {
+        List<ChatMessage> messages = List.of(
+                AiMessage.from("```html\n<p>v1</p>\n```\n"),
+                AiMessage.from("```html\n<p>v2</p>\n```\n```html\n<p>draft</p>\n```\n"));
+
+        List<ChatMessage> compacted = CodeHistoryCompactor.compact(messages, CodeGenTypeEnum.HTML);
+
+        assertEquals("[index.html v1, 0.0 KB, superseded]\n", ((AiMessage) compacted.get(0)).text());
+        // 保存器只保存第一个代码块，v2 仍是最新版本
+        assertSame(messages.get(1), compacted.get(1));
+    }
+}
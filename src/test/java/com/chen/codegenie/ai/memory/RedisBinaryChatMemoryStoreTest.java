@@ -0,0 +1,175 @@
+package com.chen.codegenie.ai.memory;
+
+import com.chen.codegenie.config.RedisChatMemoryStoreConfig;
+import com.chen.codegenie.core.metrics.GenerationMetrics;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisListCommands;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisBinaryChatMemoryStoreTest {
+
+    private static final long TTL = 3600;
+
+    private static final byte[] MESSAGES_KEY = bytes("code-genie:chat-memory:1:messages");
+
+    private static final byte[] SYSTEM_KEY = bytes("code-genie:chat-memory:1:system");
+
+    private static final byte[] VERSION_KEY = bytes("code-genie:chat-memory:1:ver");
+
+    private static final SystemMessage SYSTEM = SystemMessage.from("你是网页生成助手");
+
+    private static final UserMessage USER_1 = UserMessage.from("做一个任务记录网站");
+
+    private static final UserMessage USER_2 = UserMessage.from("改成深色主题");
+
+    private final RedisConnection connection = mock(RedisConnection.class);
+
+    private final RedisScriptingCommands scriptingCommands = mock(RedisScriptingCommands.class);
+
+    private final RedisKeyCommands keyCommands = mock(RedisKeyCommands.class);
+
+    private final RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+
+    private final RedisListCommands listCommands = mock(RedisListCommands.class);
+
+    private final AtomicReference<byte[][]> scriptArgs = new AtomicReference<>();
+
+    private RedisBinaryChatMemoryStore store;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        when(stringRedisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+        when(connection.scriptingCommands()).thenReturn(scriptingCommands);
+        when(connection.keyCommands()).thenReturn(keyCommands);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        when(connection.listCommands()).thenReturn(listCommands);
+        RedisChatMemoryStoreConfig config = new RedisChatMemoryStoreConfig();
+        config.setTtl(TTL);
+        store = new RedisBinaryChatMemoryStore(stringRedisTemplate, config, mock(GenerationMetrics.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void readReturnsMessagesWithVersionFromOneTransaction() {
+        when(connection.exec()).thenReturn(List.of(ChatMessageCodec.encodeMessage(SYSTEM),
+                List.of(ChatMessageCodec.encodeMessage(USER_1)), bytes("7")));
+
+        VersionedChatMessages stored = store.getVersionedMessages(1L);
+
+        assertEquals(List.of(SYSTEM, USER_1), stored.getMessages());
+        assertEquals(7, stored.getVersion());
+        InOrder inOrder = inOrder(connection, stringCommands, listCommands);
+        inOrder.verify(connection).multi();
+        inOrder.verify(stringCommands).get(SYSTEM_KEY);
+        inOrder.verify(listCommands).lRange(MESSAGES_KEY, 0, -1);
+        inOrder.verify(stringCommands).get(VERSION_KEY);
+        inOrder.verify(connection).exec();
+    }
+
+    @Test
+    void appendRunsVersionGuardedScript() {
+        AiMessage compacted = AiMessage.from("[代码已更新]");
+        mockScriptResult(6L);
+
+        // 读到版本 5，追加 1 条并改写倒数第 2 条
+        assertEquals(6, store.appendMessages(1L, List.of(SYSTEM, USER_1, compacted, USER_2), 5, 1, List.of(2)));
+
+        assertArrayEquals(new byte[][]{MESSAGES_KEY, SYSTEM_KEY, VERSION_KEY,
+                bytes("5"), bytes("1"), bytes("3"), bytes(String.valueOf(TTL)), bytes("1"), bytes("1"), new byte[0],
+                ChatMessageCodec.encodeMessage(USER_2),
+                bytes("-2"), ChatMessageCodec.encodeMessage(compacted)}, scriptArgs.get());
+        verify(connection, never()).multi();
+    }
+
+    @Test
+    void changedSystemMessageIsSetByScript() {
+        SystemMessage newSystem = SystemMessage.from("你是多文件项目生成助手");
+        mockScriptResult(2L);
+
+        store.appendMessages(1L, List.of(newSystem, USER_1), 1, 0, List.of(0));
+
+        assertArrayEquals(new byte[][]{MESSAGES_KEY, SYSTEM_KEY, VERSION_KEY,
+                bytes("1"), bytes("0"), bytes("1"), bytes(String.valueOf(TTL)), bytes("0"), bytes("0"),
+                ChatMessageCodec.encodeMessage(newSystem)}, scriptArgs.get());
+    }
+
+    @Test
+    void versionMismatchFallsBackToFullRewrite() {
+        mockScriptResult(0L);
+        when(connection.exec()).thenReturn(List.of(2L, 9L, true, 2L, true, true, true));
+
+        // 列表已裁剪到条数上限，其他节点写入后长度不变，只能通过版本发现
+        assertEquals(9, store.appendMessages(1L, List.of(SYSTEM, USER_1, USER_2), 5, 1, List.of()));
+
+        InOrder inOrder = inOrder(connection, keyCommands, stringCommands, listCommands);
+        inOrder.verify(connection).multi();
+        inOrder.verify(keyCommands).del(SYSTEM_KEY, MESSAGES_KEY);
+        inOrder.verify(stringCommands).incr(VERSION_KEY);
+        inOrder.verify(stringCommands).set(SYSTEM_KEY, ChatMessageCodec.encodeMessage(SYSTEM));
+        inOrder.verify(listCommands).rPush(MESSAGES_KEY,
+                ChatMessageCodec.encodeMessage(USER_1), ChatMessageCodec.encodeMessage(USER_2));
+        inOrder.verify(keyCommands).expire(SYSTEM_KEY, TTL);
+        inOrder.verify(keyCommands).expire(MESSAGES_KEY, TTL);
+        inOrder.verify(keyCommands).expire(VERSION_KEY, TTL);
+        inOrder.verify(connection).exec();
+    }
+
+    @Test
+    void unknownScriptIsSentInFull() {
+        when(scriptingCommands.evalSha(anyString(), any(ReturnType.class), anyInt(), any(byte[][].class)))
+                .thenThrow(new RedisSystemException("NOSCRIPT No matching script", null));
+        when(scriptingCommands.eval(any(byte[].class), eq(ReturnType.INTEGER), eq(3), any(byte[][].class)))
+                .thenReturn(1L);
+
+        store.appendMessages(1L, List.of(USER_1, USER_2), 1, 1, List.of());
+
+        verify(scriptingCommands).eval(eq(bytes(RedisBinaryChatMemoryStore.APPEND_SCRIPT.getScriptAsString())),
+                eq(ReturnType.INTEGER), eq(3), any(byte[][].class));
+        verify(connection, never()).multi();
+    }
+
+    private void mockScriptResult(long result) {
+        when(scriptingCommands.evalSha(eq(RedisBinaryChatMemoryStore.APPEND_SCRIPT.getSha1()), eq(ReturnType.INTEGER),
+                eq(3), any(byte[][].class))).thenAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            scriptArgs.set(Arrays.copyOfRange(arguments, 3, arguments.length, byte[][].class));
+            return result;
+        });
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,115 @@
+package com.chen.codegenie.ai.memory;
+
+import com.chen.codegenie.config.ChatMemoryConfig;
+import com.chen.codegenie.core.cache.CacheInvalidationBus;
+import com.chen.codegenie.core.metrics.GenerationMetrics;
+import com.chen.codegenie.model.enums.CacheInvalidationTypeEnum;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TieredChatMemoryStoreTest {
+
+    private final RedisBinaryChatMemoryStore redisBinaryChatMemoryStore = mock(RedisBinaryChatMemoryStore.class);
+
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+
+    private final CacheInvalidationBus cacheInvalidationBus =
+            new CacheInvalidationBus(stringRedisTemplate, mock(RedisMessageListenerContainer.class));
+
+    @Test
+    void readsAreServedLocallyAfterFirstLoad() {
+        TieredChatMemoryStore store = newStore();
+        when(redisBinaryChatMemoryStore.getVersionedMessages(1L))
+                .thenReturn(new VersionedChatMessages(List.of(UserMessage.from("做一个任务记录网站")), 1));
+
+        store.getMessages(1L);
+        store.getMessages(1L);
+        verify(redisBinaryChatMemoryStore, times(1)).getVersionedMessages(1L);
+
+        // 写入后本地副本即为最新内容，不再读取 Redis
+        List<ChatMessage> messages = List.of(UserMessage.from("做一个任务记录网站"), AiMessage.from("<html></html>"));
+        store.updateMessages(1L, messages);
+        assertEquals(messages, store.getMessages(1L));
+        verify(redisBinaryChatMemoryStore, times(1)).getVersionedMessages(1L);
+        verify(redisBinaryChatMemoryStore).replaceMessages(1L, messages);
+        verify(stringRedisTemplate).convertAndSend(eq(CacheInvalidationBus.CHANNEL), anyString());
+    }
+
+    @Test
+    void appendKeepsVersionWrittenToRedis() {
+        TieredChatMemoryStore store = newStore();
+        UserMessage user = UserMessage.from("做一个任务记录网站");
+        when(redisBinaryChatMemoryStore.getVersionedMessages(1L)).thenReturn(new VersionedChatMessages(List.of(user), 4));
+        List<ChatMessage> messages = List.of(user, AiMessage.from("<html></html>"));
+        when(redisBinaryChatMemoryStore.appendMessages(1L, messages, 4, 1, List.of())).thenReturn(5L);
+
+        long expectedVersion = store.getVersionedMessages(1L).getVersion();
+        assertEquals(5, store.appendMessages(1L, messages, expectedVersion, 1, List.of()));
+
+        // 下一轮基于本地副本中的新版本增量写入
+        assertEquals(new VersionedChatMessages(messages, 5), store.getVersionedMessages(1L));
+        verify(redisBinaryChatMemoryStore, times(1)).getVersionedMessages(1L);
+    }
+
+    @Test
+    void invalidationFromOtherNodeReloadsFromRedis() {
+        TieredChatMemoryStore store = newStore();
+        when(redisBinaryChatMemoryStore.getVersionedMessages(1L))
+                .thenReturn(new VersionedChatMessages(List.of(UserMessage.from("做一个任务记录网站")), 1));
+        store.getMessages(1L);
+
+        // 本节点发出的广播回到本节点时忽略
+        cacheInvalidationBus.broadcast(CacheInvalidationTypeEnum.MEMORY, 1L);
+        ArgumentCaptor<String> ownBroadcast = ArgumentCaptor.forClass(String.class);
+        verify(stringRedisTemplate).convertAndSend(eq(CacheInvalidationBus.CHANNEL), ownBroadcast.capture());
+        cacheInvalidationBus.onMessage(message(ownBroadcast.getValue()), null);
+        store.getMessages(1L);
+        verify(redisBinaryChatMemoryStore, times(1)).getVersionedMessages(1L);
+
+        cacheInvalidationBus.onMessage(message("other-node|memory|1"), null);
+        store.getMessages(1L);
+        verify(redisBinaryChatMemoryStore, times(2)).getVersionedMessages(1L);
+    }
+
+    @Test
+    void appInvalidationDropsLocalCopy() {
+        TieredChatMemoryStore store = newStore();
+        when(redisBinaryChatMemoryStore.getVersionedMessages(1L))
+                .thenReturn(new VersionedChatMessages(List.of(UserMessage.from("做一个任务记录网站")), 1));
+        store.getMessages(1L);
+
+        cacheInvalidationBus.publish(CacheInvalidationTypeEnum.APP, 1L);
+        store.getMessages(1L);
+        verify(redisBinaryChatMemoryStore, times(2)).getVersionedMessages(1L);
+    }
+
+    private TieredChatMemoryStore newStore() {
+        cacheInvalidationBus.init();
+        TieredChatMemoryStore store = new TieredChatMemoryStore(redisBinaryChatMemoryStore, cacheInvalidationBus,
+                new ChatMemoryConfig(), mock(GenerationMetrics.class));
+        store.init();
+        return store;
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(CacheInvalidationBus.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,238 @@
+package com.chen.codegenie.ai.memory;
+
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenBudgetChatMemoryTest {
+
+    private static final String PAGE = "<div class=\"card\">content</div>\n".repeat(400);
+
+    @Test
+    void withinBudgetReturnsAllMessages() {
+        ChatMemorySummarizer summarizer = mock(ChatMemorySummarizer.class);
+        TokenBudgetChatMemory memory = newMemory(summarizer, 100_000);
+        addTurns(memory, 3);
+        assertEquals(7, memory.messages().size());
+    }
+
+    @Test
+    void olderTurnsAreCondensedIntoSystemMessage() {
+        ChatMemorySummarizer summarizer = mock(ChatMemorySummarizer.class);
+        when(summarizer.getSummary(eq(1L), anyList())).thenReturn("用户要一个任务记录网站，已生成单页面");
+        // 每轮约 3300 token，预算只够保留最近一轮
+        TokenBudgetChatMemory memory = newMemory(summarizer, 5000);
+        addTurns(memory, 3);
+        memory.add(UserMessage.from("改成深色主题"));
+
+        List<ChatMessage> messages = memory.messages();
+        assertInstanceOf(SystemMessage.class, messages.getFirst());
+        assertTrue(((SystemMessage) messages.getFirst()).text().endsWith("用户要一个任务记录网站，已生成单页面"));
+        assertInstanceOf(UserMessage.class, messages.get(1));
+        assertEquals(UserMessage.from("改成深色主题"), messages.getLast());
+        // 被压缩的是较早的完整对话
+        verify(summarizer).getSummary(eq(1L), argThat(condensed -> condensed.size() % 2 == 0 && !condensed.isEmpty()));
+    }
+
+    @Test
+    void storeKeepsAtMostMaxMessages() {
+        InMemoryChatMemoryStore store = new InMemoryChatMemoryStore();
+        TokenBudgetChatMemory memory = TokenBudgetChatMemory.builder()
+                .id(1L)
+                .chatMemoryStore(store)
+                .maxMessages(4)
+                .maxTokens(100_000)
+                .tokenCountEstimator(new LocalTokenCountEstimator())
+                .summarizer(mock(ChatMemorySummarizer.class))
+                .build();
+        addTurns(memory, 3);
+        List<ChatMessage> stored = store.getMessages(1L);
+        assertEquals(5, stored.size());
+        assertInstanceOf(SystemMessage.class, stored.getFirst());
+    }
+
+    @Test
+    void bulkAddWritesHistoryOnce() {
+        ListChatMemoryStore store = new ListChatMemoryStore();
+        TokenBudgetChatMemory memory = newMemory(store, CodeGenTypeEnum.HTML);
+        List<ChatMessage> history = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            history.add(UserMessage.from("第 " + i + " 轮修改"));
+            history.add(AiMessage.from("好的，已修改"));
+        }
+
+        memory.add(history);
+
+        assertEquals(1, store.writes);
+        assertEquals(0, store.fullWrites);
+        assertEquals(20, store.lastAppendedCount);
+        assertEquals(history, store.getMessages(1L));
+    }
+
+    @Test
+    void newTurnWritesOnlyNewAndSupersededMessages() {
+        ListChatMemoryStore store = new ListChatMemoryStore();
+        TokenBudgetChatMemory memory = newMemory(store, CodeGenTypeEnum.HTML);
+        addTurns(memory, 3);
+        int writes = store.writes;
+
+        memory.add(UserMessage.from("改成深色主题"));
+        assertEquals(1, store.lastAppendedCount);
+        assertTrue(store.lastReplacedIndexes.isEmpty());
+
+        memory.add(AiMessage.from("```html\n<html>dark</html>\n```"));
+        // 只有上一轮的代码被压缩改写，更早的版本已经是占位说明
+        assertEquals(1, store.lastAppendedCount);
+        assertEquals(List.of(6), store.lastReplacedIndexes);
+        assertEquals(writes + 2, store.writes);
+        assertEquals(0, store.fullWrites);
+        assertEquals(store.snapshot(), memory.messages());
+    }
+
+    @Test
+    void incrementalWritesMatchFullRewriteAfterTrimming() {
+        ListChatMemoryStore store = new ListChatMemoryStore();
+        InMemoryChatMemoryStore reference = new InMemoryChatMemoryStore();
+        TokenBudgetChatMemory memory = newMemory(store, CodeGenTypeEnum.HTML);
+        TokenBudgetChatMemory referenceMemory = newMemory(reference, CodeGenTypeEnum.HTML);
+        addTurns(memory, 15);
+        addTurns(referenceMemory, 15);
+
+        assertEquals(21, store.snapshot().size());
+        assertEquals(reference.getMessages(1L), store.snapshot());
+    }
+
+    private static TokenBudgetChatMemory newMemory(ChatMemorySummarizer summarizer, int maxTokens) {
+        return TokenBudgetChatMemory.builder()
+                .id(1L)
+                .chatMemoryStore(new InMemoryChatMemoryStore())
+                .maxMessages(20)
+                .maxTokens(maxTokens)
+                .summaryReserveTokens(200)
+                .tokenCountEstimator(new LocalTokenCountEstimator())
+                .summarizer(summarizer)
+                .build();
+    }
+
+    private static void addTurns(TokenBudgetChatMemory memory, int turns) {
+        memory.add(SystemMessage.from("系统提示词"));
+        for (int i = 0; i < turns; i++) {
+            memory.add(UserMessage.from("第 " + i + " 轮修改"));
+            memory.add(AiMessage.from("```html\n" + PAGE + "```"));
+        }
+    }
+
+    private static TokenBudgetChatMemory newMemory(ChatMemoryStore store, CodeGenTypeEnum codeGenType) {
+        return TokenBudgetChatMemory.builder()
+                .id(1L)
+                .chatMemoryStore(store)
+                .maxMessages(20)
+                .maxTokens(100_000)
+                .tokenCountEstimator(new LocalTokenCountEstimator())
+                .summarizer(mock(ChatMemorySummarizer.class))
+                .codeGenType(codeGenType)
+                .build();
+    }
+
+    /**
+     * 按 Redis 列表语义（RPUSH、负下标 LSET、LTRIM）应用增量写入的存储
+     */
+    private static class ListChatMemoryStore implements AppendOnlyChatMemoryStore {
+
+        private SystemMessage system;
+
+        private final List<ChatMessage> list = new ArrayList<>();
+
+        private long version;
+
+        private int writes;
+
+        private int fullWrites;
+
+        private int lastAppendedCount;
+
+        private List<Integer> lastReplacedIndexes;
+
+        @Override
+        public List<ChatMessage> getMessages(Object memoryId) {
+            return snapshot();
+        }
+
+        @Override
+        public VersionedChatMessages getVersionedMessages(Object memoryId) {
+            return new VersionedChatMessages(snapshot(), version);
+        }
+
+        @Override
+        public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+            version++;
+            writes++;
+            fullWrites++;
+            list.clear();
+            system = null;
+            for (ChatMessage message : messages) {
+                if (message instanceof SystemMessage systemMessage) {
+                    system = systemMessage;
+                } else {
+                    list.add(message);
+                }
+            }
+        }
+
+        @Override
+        public long appendMessages(Object memoryId, List<ChatMessage> messages, long expectedVersion, int appendedCount,
+                                   Collection<Integer> replacedIndexes) {
+            assertEquals(version, expectedVersion);
+            version++;
+            writes++;
+            lastAppendedCount = appendedCount;
+            lastReplacedIndexes = new ArrayList<>(replacedIndexes);
+            int base = messages.getFirst() instanceof SystemMessage ? 1 : 0;
+            list.addAll(messages.subList(messages.size() - appendedCount, messages.size()));
+            for (int index : replacedIndexes) {
+                if (index < base) {
+                    system = (SystemMessage) messages.getFirst();
+                } else {
+                    list.set(list.size() + index - messages.size(), messages.get(index));
+                }
+            }
+            int turnCount = messages.size() - base;
+            list.subList(0, Math.max(0, list.size() - turnCount)).clear();
+            return version;
+        }
+
+        @Override
+        public void deleteMessages(Object memoryId) {
+            system = null;
+            list.clear();
+        }
+
+        private List<ChatMessage> snapshot() {
+            List<ChatMessage> messages = new ArrayList<>();
+            if (system != null) {
+                messages.add(system);
+            }
+            messages.addAll(list);
+            return messages;
+        }
+    }
+}
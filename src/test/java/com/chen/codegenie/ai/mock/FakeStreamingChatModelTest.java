@@ -0,0 +1,97 @@
+package com.chen.codegenie.ai.mock;
+
+import com.chen.codegenie.config.FakeModelConfig;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FakeStreamingChatModelTest {
+
+    @Test
+    void replaysCannedOutputForPromptMode() throws Exception {
+        FakeModelConfig config = fastConfig();
+        FakeStreamingChatModel model = new FakeStreamingChatModel(config);
+
+        Outcome html = run(model, "生成单个 HTML 文件");
+        assertEquals(CannedOutputs.HTML_OUTPUT, html.complete.get(5, TimeUnit.SECONDS).aiMessage().text());
+        assertEquals(CannedOutputs.HTML_OUTPUT, html.text.toString());
+
+        Outcome multiFile = run(model, "分别生成 index.html、style.css、script.js");
+        multiFile.complete.get(5, TimeUnit.SECONDS);
+        assertEquals(CannedOutputs.MULTI_FILE_OUTPUT, multiFile.text.toString());
+        model.destroy();
+    }
+
+    @Test
+    void injectedErrorStopsMidStreamAtSeededPosition() throws Exception {
+        FakeModelConfig config = fastConfig();
+        config.setErrorRate(1);
+        String first = failedPrefix(config);
+        String second = failedPrefix(config);
+        assertEquals(first, second);
+        assertTrue(CannedOutputs.HTML_OUTPUT.startsWith(first));
+        assertNotEquals(CannedOutputs.HTML_OUTPUT, first);
+    }
+
+    private String failedPrefix(FakeModelConfig config) throws Exception {
+        FakeStreamingChatModel model = new FakeStreamingChatModel(config);
+        Outcome outcome = run(model, "生成单个 HTML 文件");
+        outcome.error.get(5, TimeUnit.SECONDS);
+        model.destroy();
+        return outcome.text.toString();
+    }
+
+    private static Outcome run(FakeStreamingChatModel model, String systemPrompt) {
+        Outcome outcome = new Outcome();
+        ChatRequest request = ChatRequest.builder()
+                .messages(SystemMessage.from(systemPrompt), UserMessage.from("做一个任务记录网站"))
+                .build();
+        model.chat(request, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                outcome.text.append(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                outcome.complete.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                outcome.error.complete(error);
+            }
+        });
+        return outcome;
+    }
+
+    /**
+     * 没有首字延迟、几乎不限速的配置
+     */
+    private static FakeModelConfig fastConfig() {
+        FakeModelConfig config = new FakeModelConfig();
+        config.setTimeToFirstToken(Duration.ZERO);
+        config.setTokensPerSecond(1_000_000);
+        return config;
+    }
+
+    private static class Outcome {
+
+        final StringBuffer text = new StringBuffer();
+
+        final CompletableFuture<ChatResponse> complete = new CompletableFuture<>();
+
+        final CompletableFuture<Throwable> error = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,102 @@
+package com.chen.codegenie.ai.stream;
+
+import com.chen.codegenie.ai.mock.FakeStreamingChatModel;
+import com.chen.codegenie.config.FakeModelConfig;
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.TokenStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * 模拟模型与真实模型一样从 {@link AbortableInputStream} 读取响应，取消订阅后读取失败即说明连接会被释放
+ */
+class TokenStreamFluxAdapterTest {
+
+    interface Assistant {
+
+        TokenStream chat(String userMessage);
+    }
+
+    private final FakeModelConfig fakeModelConfig = new FakeModelConfig();
+
+    private final CompletableFuture<Throwable> modelError = new CompletableFuture<>();
+
+    private final CompletableFuture<Void> modelCompleted = new CompletableFuture<>();
+
+    private FakeStreamingChatModel model;
+
+    private Assistant assistant;
+
+    @BeforeEach
+    void setUp() {
+        fakeModelConfig.setTimeToFirstToken(Duration.ZERO);
+        fakeModelConfig.setTokensPerSecond(200);
+        ChatModelListener listener = new ChatModelListener() {
+            @Override
+            public void onResponse(ChatModelResponseContext responseContext) {
+                modelCompleted.complete(null);
+            }
+
+            @Override
+            public void onError(ChatModelErrorContext errorContext) {
+                modelError.complete(errorContext.error());
+            }
+        };
+        model = new FakeStreamingChatModel(fakeModelConfig) {
+            @Override
+            public List<ChatModelListener> listeners() {
+                return List.of(listener);
+            }
+        };
+        assistant = AiServices.builder(Assistant.class).streamingChatModel(model).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        model.destroy();
+    }
+
+    @Test
+    void cancelAbortsModelRead() throws Exception {
+        List<String> tokens = TokenStreamFluxAdapter.toFlux(() -> assistant.chat("做一个任务记录网站"))
+                .take(3)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(tokens);
+        assertEquals(3, tokens.size());
+        // 下一次读取因流已中止而失败，模型停止输出，不会读完整个响应
+        Throwable error = modelError.get(5, TimeUnit.SECONDS);
+        assertInstanceOf(IOException.class, error);
+        assertFalse(modelCompleted.isDone());
+    }
+
+    @Test
+    void cancelBeforeFirstTokenAbortsOnFirstRead() throws Exception {
+        fakeModelConfig.setTimeToFirstToken(Duration.ofMillis(200));
+        AtomicInteger received = new AtomicInteger();
+        TokenStreamFluxAdapter.toFlux(() -> assistant.chat("做一个任务记录网站"))
+                .subscribe(token -> received.incrementAndGet())
+                .dispose();
+
+        assertInstanceOf(IOException.class, modelError.get(5, TimeUnit.SECONDS));
+        assertEquals(0, received.get());
+        assertFalse(modelCompleted.isDone());
+    }
+}
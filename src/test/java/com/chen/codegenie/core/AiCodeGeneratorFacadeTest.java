@@ -1,23 +1,74 @@
 package com.chen.codegenie.core;
 
+import cn.hutool.core.io.FileUtil;
+import com.chen.codegenie.ai.AiCodeGeneratorServiceFactory;
+import com.chen.codegenie.ai.memory.ChatMemorySummarizer;
+import com.chen.codegenie.ai.mock.FakeChatModel;
+import com.chen.codegenie.ai.mock.FakeStreamingChatModel;
+import com.chen.codegenie.ai.model.CodeFile;
+import com.chen.codegenie.config.BlobStoreConfig;
+import com.chen.codegenie.config.ChatMemoryConfig;
+import com.chen.codegenie.config.FakeModelConfig;
+import com.chen.codegenie.config.ResultCacheConfig;
+import com.chen.codegenie.config.StaticCompressionConfig;
+import com.chen.codegenie.core.blob.CodeBlobStore;
+import com.chen.codegenie.core.cache.CacheInvalidationBus;
+import com.chen.codegenie.core.cache.GenerationResultCache;
+import com.chen.codegenie.core.compress.StaticFileCompressor;
+import com.chen.codegenie.core.metrics.GenerationMetrics;
+import com.chen.codegenie.core.parser.MultiFileCodeParser;
+import com.chen.codegenie.core.saver.CodeFileSaverTemplate;
+import com.chen.codegenie.core.saver.CodeOutputSnapshots;
+import com.chen.codegenie.core.scheduler.GenerationScheduler;
+import com.chen.codegenie.core.stream.GenerationRegistry;
 import com.chen.codegenie.model.enums.CodeGenTypeEnum;
-import jakarta.annotation.Resource;
+import com.chen.codegenie.service.AppService;
+import com.chen.codegenie.service.ChatHistoryService;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import reactor.core.publisher.Flux;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
 
-@SpringBootTest
+/**
+ * 使用模拟模型和内存记忆存储运行，不需要模型接口密钥、数据库和 Redis
+ */
 class AiCodeGeneratorFacadeTest {
 
-    @Resource
     private AiCodeGeneratorFacade aiCodeGeneratorFacade;
 
+    @BeforeEach
+    void setUp() {
+        FakeModelConfig fakeModelConfig = new FakeModelConfig();
+        fakeModelConfig.setTimeToFirstToken(Duration.ZERO);
+        fakeModelConfig.setTokensPerSecond(1_000_000);
+        GenerationMetrics generationMetrics = new GenerationMetrics(new SimpleMeterRegistry(),
+                mock(GenerationRegistry.class), mock(GenerationScheduler.class));
+        CacheInvalidationBus cacheInvalidationBus = new CacheInvalidationBus(mock(StringRedisTemplate.class),
+                mock(RedisMessageListenerContainer.class));
+        AiCodeGeneratorServiceFactory serviceFactory = new AiCodeGeneratorServiceFactory(new InMemoryChatMemoryStore(),
+                new FakeChatModel(), new FakeStreamingChatModel(fakeModelConfig), mock(ChatHistoryService.class),
+                mock(AppService.class), generationMetrics, new ChatMemoryConfig(), cacheInvalidationBus,
+                mock(ChatMemorySummarizer.class));
+        serviceFactory.init();
+        ResultCacheConfig resultCacheConfig = new ResultCacheConfig();
+        GenerationResultCache generationResultCache = new GenerationResultCache(resultCacheConfig);
+        generationResultCache.init();
+        StaticFileCompressor staticFileCompressor = new StaticFileCompressor(new StaticCompressionConfig());
+        staticFileCompressor.init();
+        aiCodeGeneratorFacade = new AiCodeGeneratorFacade(serviceFactory, generationResultCache, resultCacheConfig,
+                generationMetrics, staticFileCompressor, new CodeBlobStore(new BlobStoreConfig()));
+    }
+
     @Test
     void generateAndSaveCode() {
         File file = aiCodeGeneratorFacade.generateAndSaveCode("做个任务记录网站", CodeGenTypeEnum.HTML,111L);
@@ -35,4 +86,21 @@ class AiCodeGeneratorFacadeTest {
         Assertions.assertNotNull(completeContent);
     }
 
-}
\ No newline at end of file
+    @Test
+    void cachesSavedFilesAsCodeBlocks() {
+        String userMessage = "任务记录网站";
+        aiCodeGeneratorFacade.generateAndSaveCodeStream(userMessage, CodeGenTypeEnum.MULTI_FILE, 3333L, true).blockLast();
+
+        String cachedResult = aiCodeGeneratorFacade.getCachedResult(userMessage, CodeGenTypeEnum.MULTI_FILE);
+        Assertions.assertNotNull(cachedResult);
+        // 缓存内容由保存的文件生成，回放解析后得到相同的文件
+        File currentDir = CodeOutputSnapshots.resolveCurrentDir(
+                CodeFileSaverTemplate.getOutputDirPath(CodeGenTypeEnum.MULTI_FILE, 3333L));
+        List<CodeFile> files = new MultiFileCodeParser().parseCode(cachedResult).getFiles();
+        Assertions.assertFalse(files.isEmpty());
+        for (CodeFile file : files) {
+            Assertions.assertEquals(FileUtil.readUtf8String(new File(currentDir, file.getPath())), file.getContent());
+        }
+    }
+
+}
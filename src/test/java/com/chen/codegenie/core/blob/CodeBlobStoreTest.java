@@ -0,0 +1,77 @@
+package com.chen.codegenie.core.blob;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import com.chen.codegenie.config.BlobStoreConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodeBlobStoreTest {
+
+    private static final String CSS = "*{margin:0;padding:0;box-sizing:border-box}";
+
+    @TempDir
+    File dir;
+
+    private CodeBlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        BlobStoreConfig config = new BlobStoreConfig();
+        config.setRootDir(new File(dir, "code_blob").getPath());
+        config.setGcGracePeriod(Duration.ZERO);
+        store = new CodeBlobStore(config);
+    }
+
+    @Test
+    void identicalFilesShareOneBlob() throws Exception {
+        File appA = writeApp("html_1", "<p>a</p>");
+        File appB = writeApp("html_2", "<p>b</p>");
+        File manifestFile = new File(dir, "html_1.manifest.json");
+
+        Map<String, String> manifest = store.internDir(appA, manifestFile);
+        store.internDir(appB, null);
+
+        assertTrue(Files.isSameFile(new File(appA, "css/reset.css").toPath(), new File(appB, "css/reset.css").toPath()));
+        assertFalse(Files.isSameFile(new File(appA, "index.html").toPath(), new File(appB, "index.html").toPath()));
+        assertEquals(CSS, FileUtil.readUtf8String(new File(appB, "css/reset.css")));
+        assertEquals(DigestUtil.sha256Hex(CSS), manifest.get("css/reset.css"));
+        assertEquals(manifest, JSONUtil.parseObj(FileUtil.readUtf8String(manifestFile)).toBean(Map.class));
+    }
+
+    @Test
+    void collectsBlobsWithoutReferences() throws Exception {
+        File appA = writeApp("html_1", "<p>a</p>");
+        File appB = writeApp("html_2", "<p>b</p>");
+        store.internDir(appA, null);
+        store.internDir(appB, null);
+
+        FileUtil.del(appA);
+        Thread.sleep(20);
+        // a 的页面已无引用，共用的样式表仍被 b 引用
+        assertEquals(1, store.collectGarbage());
+
+        FileUtil.del(appB);
+        Thread.sleep(20);
+        assertEquals(2, store.collectGarbage());
+        assertTrue(FileUtil.loopFiles(new File(dir, "code_blob")).isEmpty());
+    }
+
+    private File writeApp(String name, String html) {
+        File app = new File(dir, name);
+        FileUtil.writeUtf8String(html, new File(app, "index.html"));
+        FileUtil.writeUtf8String(CSS, new File(app, "css/reset.css"));
+        return app;
+    }
+}
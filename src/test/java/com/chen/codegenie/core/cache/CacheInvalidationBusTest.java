@@ -0,0 +1,91 @@
+package com.chen.codegenie.core.cache;
+
+import com.chen.codegenie.model.enums.CacheInvalidationTypeEnum;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class CacheInvalidationBusTest {
+
+    /**
+     * 本地的 Redis 替身：发布的消息投递给所有节点（包括发送方）
+     */
+    private final List<CacheInvalidationBus> nodes = new ArrayList<>();
+
+    @Test
+    void publishInvalidatesLocallyAndOnOtherNodes() {
+        CacheInvalidationBus nodeA = newNode();
+        CacheInvalidationBus nodeB = newNode();
+        List<Long> evictedOnA = new ArrayList<>();
+        List<Long> evictedOnB = new ArrayList<>();
+        nodeA.subscribe(CacheInvalidationTypeEnum.APP, evictedOnA::add);
+        nodeB.subscribe(CacheInvalidationTypeEnum.APP, evictedOnB::add);
+
+        nodeA.publish(CacheInvalidationTypeEnum.APP, 1L);
+
+        assertEquals(List.of(1L), evictedOnA);
+        assertEquals(List.of(1L), evictedOnB);
+    }
+
+    @Test
+    void broadcastSkipsSenderAndOtherTypes() {
+        CacheInvalidationBus nodeA = newNode();
+        CacheInvalidationBus nodeB = newNode();
+        List<Long> memoryOnA = new ArrayList<>();
+        List<Long> memoryOnB = new ArrayList<>();
+        List<Long> appOnB = new ArrayList<>();
+        nodeA.subscribe(CacheInvalidationTypeEnum.MEMORY, memoryOnA::add);
+        nodeB.subscribe(CacheInvalidationTypeEnum.MEMORY, memoryOnB::add);
+        nodeB.subscribe(CacheInvalidationTypeEnum.APP, appOnB::add);
+
+        nodeA.broadcast(CacheInvalidationTypeEnum.MEMORY, 2L);
+
+        assertEquals(List.of(), memoryOnA);
+        assertEquals(List.of(2L), memoryOnB);
+        assertEquals(List.of(), appOnB);
+    }
+
+    @Test
+    void malformedMessagesAreIgnored() {
+        CacheInvalidationBus node = newNode();
+        List<Long> evicted = new ArrayList<>();
+        node.subscribe(CacheInvalidationTypeEnum.APP, evicted::add);
+
+        node.onMessage(message("other-node|unknown|1"), null);
+        node.onMessage(message("other-node|app|abc"), null);
+        node.onMessage(message("other-node|1"), null);
+
+        assertEquals(List.of(), evicted);
+    }
+
+    private CacheInvalidationBus newNode() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        doAnswer(invocation -> {
+            String body = invocation.getArgument(1);
+            for (CacheInvalidationBus node : nodes) {
+                node.onMessage(message(body), null);
+            }
+            return 1L;
+        }).when(stringRedisTemplate).convertAndSend(eq(CacheInvalidationBus.CHANNEL), anyString());
+        CacheInvalidationBus bus = new CacheInvalidationBus(stringRedisTemplate, mock(RedisMessageListenerContainer.class));
+        bus.init();
+        nodes.add(bus);
+        return bus;
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(CacheInvalidationBus.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
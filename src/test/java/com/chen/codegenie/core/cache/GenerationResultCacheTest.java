@@ -0,0 +1,51 @@
+package com.chen.codegenie.core.cache;
+
+import com.chen.codegenie.config.ResultCacheConfig;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GenerationResultCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    void keyIgnoresWhitespaceAndCaseButNotMode() {
+        GenerationResultCache cache = newCache(1 << 20);
+        String key = cache.buildKey("做个 Todo  网站\n", CodeGenTypeEnum.HTML);
+        assertEquals(key, cache.buildKey("  做个 todo 网站", CodeGenTypeEnum.HTML));
+        assertNotEquals(key, cache.buildKey("做个 todo 网站", CodeGenTypeEnum.MULTI_FILE));
+    }
+
+    @Test
+    void diskTierSurvivesRestartAndEvictsBySize() {
+        GenerationResultCache cache = newCache(1000);
+        String first = cache.buildKey("first", CodeGenTypeEnum.HTML);
+        cache.put(first, "a".repeat(600));
+        // 新实例只能从磁盘读取
+        assertEquals("a".repeat(600), newCache(1000).get(first));
+        cacheDir.resolve(first + ".txt").toFile().setLastModified(System.currentTimeMillis() - 60_000);
+
+        String second = cache.buildKey("second", CodeGenTypeEnum.HTML);
+        cache.put(second, "b".repeat(600));
+        GenerationResultCache restarted = newCache(1000);
+        assertNull(restarted.get(first));
+        assertEquals("b".repeat(600), restarted.get(second));
+    }
+
+    private GenerationResultCache newCache(long diskMaxBytes) {
+        ResultCacheConfig config = new ResultCacheConfig();
+        config.setDiskDir(cacheDir.toString());
+        config.setDiskMaxBytes(diskMaxBytes);
+        GenerationResultCache cache = new GenerationResultCache(config);
+        cache.init();
+        return cache;
+    }
+}
@@ -0,0 +1,89 @@
+package com.chen.codegenie.core.compress;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.ZipUtil;
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.decoder.Decoder;
+import com.chen.codegenie.config.StaticCompressionConfig;
+import com.chen.codegenie.model.enums.ContentEncodingEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StaticFileCompressorTest {
+
+    private static final String HTML = "<!DOCTYPE html><html><body>"
+            + "<div class=\"task\">任务</div>".repeat(200) + "</body></html>";
+
+    @TempDir
+    File dir;
+
+    private StaticFileCompressor compressor;
+
+    @BeforeEach
+    void setUp() {
+        compressor = new StaticFileCompressor(new StaticCompressionConfig());
+        compressor.init();
+    }
+
+    @Test
+    void writesCompressedSiblingsForTextFiles() throws Exception {
+        File html = FileUtil.writeUtf8String(HTML, new File(dir, "index.html"));
+        FileUtil.writeUtf8String("body{margin:0}", new File(dir, "style.css"));
+        FileUtil.writeBytes(HTML.getBytes(StandardCharsets.UTF_8), new File(dir, "logo.png"));
+
+        compressor.compressDir(dir);
+
+        byte[] raw = HTML.getBytes(StandardCharsets.UTF_8);
+        File gzip = ContentEncodingEnum.GZIP.variantOf(html);
+        assertTrue(gzip.length() < raw.length);
+        assertArrayEquals(raw, ZipUtil.unGzip(FileUtil.readBytes(gzip)));
+        if (Brotli4jLoader.isAvailable()) {
+            File brotli = ContentEncodingEnum.BROTLI.variantOf(html);
+            assertArrayEquals(raw, Decoder.decompress(FileUtil.readBytes(brotli)).getDecompressedData());
+        }
+        // 太小或不是文本的文件不压缩
+        assertFalse(new File(dir, "style.css.gz").exists());
+        assertFalse(new File(dir, "logo.png.gz").exists());
+    }
+
+    @Test
+    void removesSiblingsOfDeletedFiles() {
+        File html = FileUtil.writeUtf8String(HTML, new File(dir, "about.html"));
+        compressor.compressDir(dir);
+        assertTrue(ContentEncodingEnum.GZIP.variantOf(html).exists());
+
+        FileUtil.del(html);
+        compressor.compressDir(dir);
+
+        assertFalse(ContentEncodingEnum.GZIP.variantOf(html).exists());
+        assertFalse(ContentEncodingEnum.BROTLI.variantOf(html).exists());
+    }
+
+    @Test
+    void negotiatesOnAcceptEncoding() {
+        File html = FileUtil.writeUtf8String(HTML, new File(dir, "index.html"));
+        compressor.compressDir(dir);
+        // 只保留 gzip，避免结果依赖 Brotli 本地库
+        FileUtil.del(ContentEncodingEnum.BROTLI.variantOf(html));
+
+        assertEquals(ContentEncodingEnum.GZIP, StaticFileCompressor.negotiate(html, "gzip, deflate, br"));
+        assertEquals(ContentEncodingEnum.GZIP, StaticFileCompressor.negotiate(html, "*"));
+        assertNull(StaticFileCompressor.negotiate(html, "br"));
+        assertNull(StaticFileCompressor.negotiate(html, "gzip;q=0, *"));
+        assertNull(StaticFileCompressor.negotiate(html, null));
+
+        // 原文件比压缩文件新时返回原文件
+        assertTrue(html.setLastModified(System.currentTimeMillis() + 10_000));
+        assertNull(StaticFileCompressor.negotiate(html, "gzip"));
+    }
+}
@@ -0,0 +1,172 @@
+package com.chen.codegenie.core.deploy;
+
+import cn.hutool.core.io.FileUtil;
+import com.chen.codegenie.config.DeployConfig;
+import com.chen.codegenie.core.blob.CodeBlobStore;
+import com.chen.codegenie.core.compress.StaticFileCompressor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class DeployAssetPipelineTest {
+
+    @TempDir
+    File dir;
+
+    private static final String HTML = """
+            <!DOCTYPE html>
+            <html>
+            <head>
+                <!-- 页面样式 -->
+                <link rel="stylesheet" href="style.css">
+                <link rel="stylesheet" href="./css/theme.css?v=1">
+            </head>
+            <body>
+                <div class="task">
+                    <span>任务</span> <b>完成</b>
+                </div>
+                <pre>  保留
+              空白</pre>
+                <script src="script.js"></script>
+            </body>
+            </html>
+            """;
+
+    private static final String JS = """
+            // 添加任务
+            function add(a, b) {
+                const pattern = /\\/\\/[a-z]+/g; // 不是注释
+                const text = "// 也不是注释";
+                return a + +b
+            }
+            const html = `<li>${ add(1, 2) /* 注释 */ }</li>`;
+            """;
+
+    @Test
+    void minifiesScriptsWithoutChangingLiterals() {
+        String minified = AssetMinifier.minifyJs(JS);
+
+        assertEquals("""
+                function add(a,b){const pattern=/\\/\\/[a-z]+/g;const text="// 也不是注释";return a+ +b}
+                const html=`<li>${add(1,2)}</li>`;""", minified);
+    }
+
+    @Test
+    void minifiesStyleSheets() {
+        String css = """
+                /* 重置 */
+                a :hover , .task > span {
+                    color : red ;
+                    margin: calc(1px + 2px);
+                }
+                """;
+
+        assertEquals("a :hover,.task > span{color :red;margin:calc(1px + 2px)}", AssetMinifier.minifyCss(css));
+    }
+
+    @Test
+    void collapsesWhitespaceBetweenElements() {
+        String html = """
+                <!DOCTYPE html>
+                <html>
+                <head>
+                    <title>看板</title>
+                </head>
+                <body>
+                    <div class="card">待办</div>
+                    <div class="card">完成</div>
+                </body>
+                </html>
+                """;
+
+        // inline-block 卡片之间的空白会渲染为间距，只折叠不去掉
+        assertEquals("<!DOCTYPE html><html><head><title>看板</title></head><body>"
+                + "<div class=\"card\">待办</div> <div class=\"card\">完成</div></body></html>", AssetMinifier.minifyHtml(html));
+    }
+
+    @Test
+    void publishSwitchesDeployLinkAtomically() throws Exception {
+        File deployDir = new File(dir, "abc123");
+        FileUtil.writeUtf8String("旧版本", new File(deployDir, "index.html"));
+        DeployAssetPipeline pipeline = newPipeline(0);
+
+        for (String page : List.of("<p>v1</p>", "<p>v2</p>", "<p>v3</p>")) {
+            File sourceDir = new File(dir, "source");
+            FileUtil.writeUtf8String(page, new File(sourceDir, "index.html"));
+            pipeline.publish(sourceDir, deployDir);
+
+            // 旧的普通目录迁移为指向发布版本的符号链接
+            assertTrue(Files.isSymbolicLink(deployDir.toPath()));
+            assertEquals(page, FileUtil.readUtf8String(new File(deployDir, "index.html")));
+        }
+        // 保留当前版本和上一个版本
+        assertEquals(2, new File(dir, "abc123.releases").list().length);
+        assertEquals(Set.of("abc123", "abc123.releases", "source"), Set.of(dir.list()));
+    }
+
+    @Test
+    void fingerprintsAndInlinesAssets() {
+        Map<String, byte[]> result = newPipeline(16).process(files());
+        String html = text(result, "index.html");
+
+        assertTrue(html.startsWith("<!DOCTYPE html><html><head><style>body{margin:0}</style>"), html);
+        assertTrue(html.contains("<span>任务</span> <b>完成</b>"), html);
+        assertTrue(html.contains("<pre>  保留\n  空白</pre>"), html);
+        assertFalse(html.contains("页面样式"), html);
+        String theme = result.keySet().stream().filter(path -> path.startsWith("css/theme.")).findFirst().orElseThrow();
+        assertTrue(theme.matches("css/theme\\.[0-9a-f]{8}\\.css"), theme);
+        assertTrue(html.contains("href=\"./css/" + theme.substring(4) + "?v=1\""), html);
+        String script = result.keySet().stream().filter(path -> path.startsWith("script.")).findFirst().orElseThrow();
+        assertTrue(html.contains("src=\"" + script + "\""), html);
+        assertEquals("body{margin:0}", text(result, "style.css"));
+        assertEquals("logo", text(result, "images/logo.png"));
+    }
+
+    @Test
+    void keepsNamesReferencedByOtherAssets() {
+        Map<String, byte[]> files = files();
+        files.put("css/main.css", bytes("@import \"theme.css\";"));
+
+        Map<String, byte[]> result = newPipeline(0).process(files);
+
+        assertTrue(result.containsKey("css/theme.css"));
+        assertTrue(text(result, "index.html").contains("href=\"./css/theme.css?v=1\""));
+        assertTrue(text(result, "index.html").contains("href=\"style."));
+    }
+
+    private static DeployAssetPipeline newPipeline(int inlineCssMaxBytes) {
+        DeployConfig deployConfig = new DeployConfig();
+        deployConfig.setInlineCssMaxBytes(inlineCssMaxBytes);
+        return new DeployAssetPipeline(deployConfig, mock(StaticFileCompressor.class), mock(CodeBlobStore.class));
+    }
+
+    private static Map<String, byte[]> files() {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("index.html", bytes(HTML));
+        files.put("style.css", bytes("body {\n    margin: 0;\n}\n"));
+        files.put("css/theme.css", bytes(".task {\n    color: #333;\n    background: url(\"../images/logo.png\");\n}\n"));
+        files.put("script.js", bytes(JS));
+        files.put("images/logo.png", bytes("logo"));
+        return files;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(Map<String, byte[]> files, String path) {
+        return new String(files.get(path), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,128 @@
+package com.chen.codegenie.core.job;
+
+import com.chen.codegenie.ai.AiCodeGeneratorServiceFactory;
+import com.chen.codegenie.config.GenerationJobConfig;
+import com.chen.codegenie.config.SseStreamConfig;
+import com.chen.codegenie.core.AiCodeGeneratorFacade;
+import com.chen.codegenie.core.scheduler.GenerationScheduler;
+import com.chen.codegenie.core.stream.GenerationRegistry;
+import com.chen.codegenie.model.entity.GenerationJob;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import com.chen.codegenie.service.AppService;
+import com.chen.codegenie.service.GenerationJobService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GenerationJobWorkerTest {
+
+    private static final Long APP_ID = 1L;
+
+    private GenerationJobWorker worker;
+
+    private GenerationRegistry registry;
+
+    private final GenerationJobService generationJobService = mock(GenerationJobService.class);
+
+    private final AiCodeGeneratorFacade facade = mock(AiCodeGeneratorFacade.class);
+
+    private final AiCodeGeneratorServiceFactory serviceFactory = mock(AiCodeGeneratorServiceFactory.class);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        SseStreamConfig sseStreamConfig = new SseStreamConfig();
+        sseStreamConfig.setFlushInterval(Duration.ZERO);
+        registry = new GenerationRegistry(sseStreamConfig);
+        // 准入控制直接放行
+        GenerationScheduler scheduler = mock(GenerationScheduler.class);
+        when(scheduler.schedule(anyLong(), anyInt(), any()))
+                .thenAnswer(invocation -> ((Supplier<Flux<String>>) invocation.getArgument(2)).get());
+
+        worker = new GenerationJobWorker(generationJobService, mock(AppService.class), facade, scheduler, registry,
+                serviceFactory, new GenerationJobConfig());
+        worker.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.destroy();
+    }
+
+    @Test
+    void finishesJobWithResultDir() {
+        when(facade.generateAndSaveCode("做一个博客", CodeGenTypeEnum.HTML, APP_ID)).thenReturn(new File("html_1"));
+        GenerationJob job = newJob(1);
+
+        worker.execute(job);
+
+        verify(generationJobService).finishJob(eq(job), anyString(), eq("html_1"), isNull());
+        verify(serviceFactory, never()).invalidateAiCodeGeneratorService(anyLong());
+        assertFalse(registry.isGenerating(APP_ID));
+    }
+
+    @Test
+    void releasesJobWhileAppIsGenerating() {
+        Sinks.Many<String> interactive = Sinks.many().unicast().onBackpressureBuffer();
+        registry.start(APP_ID, 1L, interactive::asFlux);
+        GenerationJob job = newJob(1);
+
+        worker.execute(job);
+
+        // 不调用模型，归还任务等交互式生成结束后再领取
+        verify(facade, never()).generateAndSaveCode(any(), any(), any());
+        verify(generationJobService).releaseJob(eq(job), anyString());
+        verify(generationJobService, never()).finishJob(any(), any(), any(), any());
+        interactive.tryEmitComplete();
+    }
+
+    @Test
+    void retryReloadsChatMemory() {
+        when(facade.generateAndSaveCode(any(), any(), any())).thenReturn(new File("html_1"));
+
+        worker.execute(newJob(2));
+
+        verify(serviceFactory).invalidateAiCodeGeneratorService(APP_ID);
+    }
+
+    @Test
+    void failedGenerationFinishesWithError() {
+        when(facade.generateAndSaveCode(any(), any(), any())).thenThrow(new IllegalStateException("模型超时"));
+        GenerationJob job = newJob(1);
+
+        worker.execute(job);
+
+        verify(generationJobService).finishJob(eq(job), anyString(), isNull(), eq("模型超时"));
+        assertNull(registry.getActive(APP_ID));
+    }
+
+    private static GenerationJob newJob(int attempts) {
+        return GenerationJob.builder()
+                .id(100L)
+                .appId(APP_ID)
+                .userId(1L)
+                .message("做一个博客")
+                .codeGenType(CodeGenTypeEnum.HTML.getValue())
+                .attempts(attempts)
+                .build();
+    }
+}
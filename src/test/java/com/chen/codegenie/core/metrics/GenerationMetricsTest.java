@@ -0,0 +1,45 @@
+package com.chen.codegenie.core.metrics;
+
+import com.chen.codegenie.core.scheduler.GenerationScheduler;
+import com.chen.codegenie.core.stream.GenerationRegistry;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class GenerationMetricsTest {
+
+    @Test
+    void completedStreamRecordsFirstTokenDurationAndRate() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GenerationMetrics metrics = new GenerationMetrics(meterRegistry,
+                mock(GenerationRegistry.class), mock(GenerationScheduler.class));
+
+        Flux<String> stream = metrics.instrumentModelStream(Flux.just("a", "b", "c"), CodeGenTypeEnum.HTML);
+        assertEquals(3, stream.collectList().block().size());
+
+        assertEquals(1, meterRegistry.get("codegenie.generation.ttft").tag("type", "html").timer().count());
+        assertEquals(1, meterRegistry.get("codegenie.generation.duration")
+                .tags("type", "html", "outcome", "complete").timer().count());
+        assertEquals(1, meterRegistry.get("codegenie.generation.token.rate").summary().count());
+    }
+
+    @Test
+    void failedStreamRecordsOutcomeWithoutRate() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GenerationMetrics metrics = new GenerationMetrics(meterRegistry,
+                mock(GenerationRegistry.class), mock(GenerationScheduler.class));
+
+        Flux<String> stream = metrics.instrumentModelStream(
+                Flux.just("a").concatWith(Flux.error(new RuntimeException("boom"))), CodeGenTypeEnum.MULTI_FILE);
+        stream.onErrorResume(e -> Flux.empty()).blockLast();
+
+        assertEquals(1, meterRegistry.get("codegenie.generation.duration")
+                .tags("type", "multi_file", "outcome", "error").timer().count());
+        assertNull(meterRegistry.find("codegenie.generation.token.rate").summary());
+    }
+}
@@ -0,0 +1,79 @@
+package com.chen.codegenie.core.parser;
+
+import com.chen.codegenie.ai.model.CodeFile;
+import com.chen.codegenie.ai.model.MultiFileCodeResult;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MultiFileCodeParserTest {
+
+    @Test
+    void parsesEveryBlockWithItsPath() {
+        String output = """
+                页面结构：
+                ```html
+                <link rel="stylesheet" href="css/theme.css">
+                <script src="js/app.js"></script>
+                ```
+                ```css
+                body { margin: 0; }
+                ```
+                ```css:css/theme.css
+                .card { color: red; }
+                ```
+                ```javascript:js/app.js
+                console.log('app');
+                ```
+                ```js:js/util.js
+                export const noop = () => {};
+                ```
+                """;
+
+        MultiFileCodeResult result = new MultiFileCodeParser().parseCode(output);
+
+        assertEquals(List.of("index.html", "style.css", "css/theme.css", "js/app.js", "js/util.js"),
+                result.getFiles().stream().map(CodeFile::getPath).toList());
+        assertEquals(".card { color: red; }", result.getFiles().get(2).getContent());
+        assertEquals("body { margin: 0; }", result.getCssCode());
+        assertNull(result.getJsCode());
+    }
+
+    @Test
+    void keepsFirstBlockOfSameFileAndSkipsUnknownBlocks() {
+        String output = """
+                ```html
+                <p>first</p>
+                ```
+                ```bash
+                npm install
+                ```
+                ```html
+                <p>second</p>
+                ```
+                """;
+
+        MultiFileCodeResult result = new MultiFileCodeParser().parseCode(output);
+
+        assertEquals(1, result.getFiles().size());
+        assertEquals("<p>first</p>", result.getHtmlCode());
+    }
+
+    @Test
+    void rejectsPathsOutsideOutputDirectory() {
+        CodeGenTypeEnum type = CodeGenTypeEnum.MULTI_FILE;
+        assertEquals("css/theme.css", CodeBlockFiles.resolveFileName(type, "css:css/theme.css"));
+        assertEquals("script.js", CodeBlockFiles.resolveFileName(type, "javascript"));
+        assertNull(CodeBlockFiles.resolveFileName(type, "css:../theme.css"));
+        assertNull(CodeBlockFiles.resolveFileName(type, "css:/etc/theme.css"));
+        assertNull(CodeBlockFiles.resolveFileName(type, "css:css//theme.css"));
+        assertNull(CodeBlockFiles.resolveFileName(type, "css:css\\\\theme.css"));
+        assertNull(CodeBlockFiles.resolveFileName(type, "css:theme.js"));
+        assertNull(CodeBlockFiles.resolveFileName(type, "css:a/b/c/d/theme.css"));
+        assertNull(CodeBlockFiles.resolveFileName(CodeGenTypeEnum.HTML, "css"));
+    }
+}
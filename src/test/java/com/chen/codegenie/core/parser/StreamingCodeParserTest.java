@@ -0,0 +1,109 @@
+package com.chen.codegenie.core.parser;
+
+import com.chen.codegenie.ai.model.MultiFileCodeResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingCodeParserTest {
+
+    private static final String CODE_CONTENT = """
+            创建一个完整的网页：
+            ```html
+            <!DOCTYPE html>
+            <html>
+            <body>
+                <h1>欢迎使用</h1>
+                <script src="script.js"></script>
+            </body>
+            </html>
+            ```
+            ```css
+            h1 {
+                color: blue;
+            }
+            ```
+              ```javascript
+            console.log('页面加载完成');
+            ```
+            文件创建完成！
+            """;
+
+    @Test
+    void parseIndependentOfChunkBoundaries() {
+        MultiFileCodeResult expected = new MultiFileCodeParser().parseCode(CODE_CONTENT);
+        for (int chunkSize : new int[]{1, 2, 3, 7, 64, CODE_CONTENT.length()}) {
+            Map<String, String> blocks = parseInChunks(CODE_CONTENT, chunkSize);
+            assertEquals(expected.getHtmlCode(), blocks.get("html").trim(), "chunkSize=" + chunkSize);
+            assertEquals(expected.getCssCode(), blocks.get("css").trim(), "chunkSize=" + chunkSize);
+            assertEquals(expected.getJsCode(), blocks.get("javascript").trim(), "chunkSize=" + chunkSize);
+        }
+    }
+
+    @Test
+    void unterminatedBlockIsClosedOnFinish() {
+        Map<String, String> blocks = parseInChunks("说明\n```html\n<p>未完成", 4);
+        assertEquals("<p>未完成", blocks.get("html"));
+    }
+
+    @Test
+    void textOutsideBlocksIsReported() {
+        List<String> texts = new ArrayList<>();
+        StreamingCodeParser parser = new StreamingCodeParser(new StreamingCodeParser.Listener() {
+            @Override
+            public void onBlockStart(String info) {
+            }
+
+            @Override
+            public void onBlockContent(String content) {
+            }
+
+            @Override
+            public void onBlockEnd() {
+            }
+
+            @Override
+            public void onText(String text) {
+                texts.add(text);
+            }
+        });
+        parser.feed("只有说明``");
+        parser.feed("，没有代码块");
+        parser.finish();
+        assertTrue(String.join("", texts).contains("只有说明``，没有代码块"));
+    }
+
+    private Map<String, String> parseInChunks(String content, int chunkSize) {
+        Map<String, String> blocks = new LinkedHashMap<>();
+        StringBuilder current = new StringBuilder();
+        String[] language = new String[1];
+        StreamingCodeParser parser = new StreamingCodeParser(new StreamingCodeParser.Listener() {
+            @Override
+            public void onBlockStart(String info) {
+                language[0] = info;
+                current.setLength(0);
+            }
+
+            @Override
+            public void onBlockContent(String text) {
+                current.append(text);
+            }
+
+            @Override
+            public void onBlockEnd() {
+                blocks.putIfAbsent(language[0], current.toString());
+            }
+        });
+        for (int i = 0; i < content.length(); i += chunkSize) {
+            parser.feed(content.substring(i, Math.min(content.length(), i + chunkSize)));
+        }
+        parser.finish();
+        return blocks;
+    }
+}
@@ -0,0 +1,110 @@
+package com.chen.codegenie.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import com.chen.codegenie.constant.AppConstant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodeOutputSnapshotsTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void publishesNewVersionWithoutTouchingPrevious() {
+        String appDir = dir.getPath();
+        File first = save(appDir, "index.html", "<p>v1</p>", "style.css", "p{color:red}");
+        File second = save(appDir, "index.html", "<p>v2</p>");
+
+        File current = CodeOutputSnapshots.resolveCurrentDir(appDir);
+        assertEquals(second, current);
+        assertEquals("<p>v2</p>", FileUtil.readUtf8String(new File(current, "index.html")));
+        // 完整重新生成不带入上一版本的文件
+        assertFalse(new File(current, "style.css").exists());
+        assertEquals("<p>v1</p>", FileUtil.readUtf8String(new File(first, "index.html")));
+        assertEquals("p{color:red}", FileUtil.readUtf8String(new File(first, "style.css")));
+    }
+
+    @Test
+    void partialEditCarriesUnchangedFilesForward() {
+        String appDir = dir.getPath();
+        File first = save(appDir, "index.html", "<p>v1</p>", "style.css", "p{color:red}");
+        File second = saveFromCurrent(appDir, "index.html", "<p>v2</p>");
+
+        assertEquals("<p>v2</p>", FileUtil.readUtf8String(new File(second, "index.html")));
+        // 未修改的文件沿用上一版本，改写的文件不影响上一版本
+        assertEquals("p{color:red}", FileUtil.readUtf8String(new File(second, "style.css")));
+        assertEquals("<p>v1</p>", FileUtil.readUtf8String(new File(first, "index.html")));
+    }
+
+    @Test
+    void rollbackSwitchesCurrentVersion() {
+        String appDir = dir.getPath();
+        File first = save(appDir, "index.html", "<p>v1</p>");
+        save(appDir, "index.html", "<p>v2</p>");
+        List<String> versions = CodeOutputSnapshots.listVersions(appDir);
+
+        assertEquals(2, versions.size());
+        assertTrue(CodeOutputSnapshots.rollback(appDir, first.getName()));
+        assertEquals(first, CodeOutputSnapshots.resolveCurrentDir(appDir));
+        assertFalse(CodeOutputSnapshots.rollback(appDir, "../" + first.getName()));
+        assertFalse(CodeOutputSnapshots.rollback(appDir, "1"));
+    }
+
+    @Test
+    void discardedVersionIsNeverVisible() {
+        String appDir = dir.getPath();
+        File first = save(appDir, "index.html", "<p>v1</p>");
+        File staging = CodeOutputSnapshots.createVersionFromCurrent(appDir);
+        FileUtil.del(new File(staging, "index.html"));
+        FileUtil.writeUtf8String("<p>half</p>", new File(staging, "index.html"));
+
+        assertEquals(List.of(first.getName()), CodeOutputSnapshots.listVersions(appDir));
+        CodeOutputSnapshots.discard(staging);
+
+        assertFalse(staging.exists());
+        assertEquals("<p>v1</p>", FileUtil.readUtf8String(new File(CodeOutputSnapshots.resolveCurrentDir(appDir), "index.html")));
+    }
+
+    @Test
+    void migratesLegacyLayoutAndPrunesOldVersions() {
+        String appDir = dir.getPath();
+        FileUtil.writeUtf8String("<p>legacy</p>", new File(dir, "index.html"));
+        assertEquals(dir, CodeOutputSnapshots.resolveCurrentDir(appDir));
+
+        File first = saveFromCurrent(appDir, "script.js", "run()");
+        assertEquals("<p>legacy</p>", FileUtil.readUtf8String(new File(first, "index.html")));
+        assertFalse(new File(dir, "index.html").exists());
+
+        for (int i = 0; i < AppConstant.CODE_OUTPUT_MAX_VERSIONS; i++) {
+            save(appDir, "index.html", "<p>" + i + "</p>");
+        }
+        assertEquals(AppConstant.CODE_OUTPUT_MAX_VERSIONS, CodeOutputSnapshots.listVersions(appDir).size());
+        assertFalse(first.exists());
+    }
+
+    private static File save(String appDir, String... pathsAndContents) {
+        return write(appDir, CodeOutputSnapshots.createVersion(appDir), pathsAndContents);
+    }
+
+    private static File saveFromCurrent(String appDir, String... pathsAndContents) {
+        return write(appDir, CodeOutputSnapshots.createVersionFromCurrent(appDir), pathsAndContents);
+    }
+
+    private static File write(String appDir, File staging, String... pathsAndContents) {
+        for (int i = 0; i < pathsAndContents.length; i += 2) {
+            File file = new File(staging, pathsAndContents[i]);
+            // 与保存器一致：先删除再写入，不改写共享的硬链接
+            FileUtil.del(file);
+            FileUtil.writeUtf8String(pathsAndContents[i + 1], file);
+        }
+        return CodeOutputSnapshots.publish(appDir, staging);
+    }
+}
@@ -0,0 +1,152 @@
+package com.chen.codegenie.core.saver;
+
+import cn.hutool.core.io.FileUtil;
+import com.chen.codegenie.ai.model.MultiFileCodeResult;
+import com.chen.codegenie.core.parser.MultiFileCodeParser;
+import com.chen.codegenie.exception.BusinessException;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingCodeFileSaverTest {
+
+    private static final long APP_ID = 900_000_000_000_000_002L;
+
+    private static final String CODE_CONTENT = """
+            创建一个完整的网页：
+            ```html
+            <!DOCTYPE html>
+            <html>
+            <body>
+                <h1>欢迎使用</h1>
+                <script src="script.js"></script>
+            </body>
+            </html>
+            ```
+            ```css
+            h1 {
+                color: blue;
+            }
+            ```
+            ```javascript
+            console.log('页面加载完成');
+            ```
+            文件创建完成！
+            """;
+
+    private final String appDir = CodeFileSaverTemplate.getOutputDirPath(CodeGenTypeEnum.MULTI_FILE, APP_ID);
+
+    @AfterEach
+    void tearDown() {
+        FileUtil.del(appDir);
+    }
+
+    @Test
+    void savesSameFilesForAnyChunking() {
+        MultiFileCodeResult expected = new MultiFileCodeParser().parseCode(CODE_CONTENT);
+        // 片段边界落在 ``` 标记和语言标记中间
+        for (int chunkSize : new int[]{1, 2, 3, 7, 64, CODE_CONTENT.length()}) {
+            StreamingCodeFileSaver saver = new StreamingCodeFileSaver(CodeGenTypeEnum.MULTI_FILE, APP_ID);
+            for (int i = 0; i < CODE_CONTENT.length(); i += chunkSize) {
+                saver.append(CODE_CONTENT.substring(i, Math.min(CODE_CONTENT.length(), i + chunkSize)));
+            }
+            File version = saver.complete();
+
+            assertEquals(expected.getHtmlCode(), FileUtil.readUtf8String(new File(version, "index.html")), "chunkSize=" + chunkSize);
+            assertEquals(expected.getCssCode(), FileUtil.readUtf8String(new File(version, "style.css")), "chunkSize=" + chunkSize);
+            assertEquals(expected.getJsCode(), FileUtil.readUtf8String(new File(version, "script.js")), "chunkSize=" + chunkSize);
+            assertEquals(version, CodeOutputSnapshots.resolveCurrentDir(appDir));
+        }
+    }
+
+    @Test
+    void writesTempFilesUntilComplete() {
+        StreamingCodeFileSaver saver = new StreamingCodeFileSaver(CodeGenTypeEnum.MULTI_FILE, APP_ID);
+        saver.append("```html\n<p>v1</p>\n```\n```css\np{color:red}\n``");
+
+        // 已结束的代码块只写入临时文件，版本尚未发布
+        List<File> tmpFiles = tmpFiles();
+        assertEquals(2, tmpFiles.size());
+        assertTrue(tmpFiles.stream().anyMatch(file -> "<p>v1</p>".equals(FileUtil.readUtf8String(file))));
+        assertTrue(CodeOutputSnapshots.listVersions(appDir).isEmpty());
+
+        saver.append("`\n");
+        File version = saver.complete();
+
+        assertEquals("<p>v1</p>", FileUtil.readUtf8String(new File(version, "index.html")));
+        assertEquals("p{color:red}", FileUtil.readUtf8String(new File(version, "style.css")));
+        assertTrue(tmpFiles().isEmpty());
+        assertEquals(List.of(version.getName()), CodeOutputSnapshots.listVersions(appDir));
+    }
+
+    @Test
+    void abortedStreamKeepsPreviousVersion() {
+        StreamingCodeFileSaver first = new StreamingCodeFileSaver(CodeGenTypeEnum.MULTI_FILE, APP_ID);
+        first.append("```html\n<p>v1</p>\n```\n");
+        File published = first.complete();
+
+        StreamingCodeFileSaver second = new StreamingCodeFileSaver(CodeGenTypeEnum.MULTI_FILE, APP_ID);
+        second.append("```html\n<p>v2</p>\n```\n```css\np{col");
+        second.abort();
+
+        assertTrue(tmpFiles().isEmpty());
+        assertEquals(List.of(published.getName()), CodeOutputSnapshots.listVersions(appDir));
+        assertEquals("<p>v1</p>", FileUtil.readUtf8String(new File(CodeOutputSnapshots.resolveCurrentDir(appDir), "index.html")));
+        // 取消后的输出不再写入，也不能再发布
+        second.append("or:red}\n```\n");
+        assertTrue(tmpFiles().isEmpty());
+        assertThrows(BusinessException.class, second::complete);
+    }
+
+    @Test
+    void firstBlockWinsEvenWhenEmpty() {
+        String content = "```html\n<p>v1</p>\n```\n```css\n\n```\n```css\np{color:red}\n```\n```html\n<p>v2</p>\n```\n";
+        MultiFileCodeResult expected = new MultiFileCodeParser().parseCode(content);
+        StreamingCodeFileSaver saver = new StreamingCodeFileSaver(CodeGenTypeEnum.MULTI_FILE, APP_ID);
+        saver.append(content);
+        File version = saver.complete();
+
+        assertEquals(expected.getHtmlCode(), FileUtil.readUtf8String(new File(version, "index.html")));
+        // 第一个 css 代码块为空，后面的 css 代码块不再写入
+        assertNull(expected.getCssCode());
+        assertFalse(new File(version, "style.css").exists());
+    }
+
+    @Test
+    void regenerationDoesNotCarryOldFilesForward() {
+        StreamingCodeFileSaver first = new StreamingCodeFileSaver(CodeGenTypeEnum.MULTI_FILE, APP_ID);
+        first.append("```html\n<p>v1</p>\n```\n```css\np{color:red}\n```\n");
+        File previous = first.complete();
+
+        StreamingCodeFileSaver second = new StreamingCodeFileSaver(CodeGenTypeEnum.MULTI_FILE, APP_ID);
+        second.append("```html\n<p>v2</p>\n```\n");
+        File version = second.complete();
+
+        assertEquals("<p>v2</p>", FileUtil.readUtf8String(new File(version, "index.html")));
+        assertFalse(new File(version, "style.css").exists());
+        assertEquals("p{color:red}", FileUtil.readUtf8String(new File(previous, "style.css")));
+    }
+
+    @Test
+    void emptyOutputIsNotPublished() {
+        StreamingCodeFileSaver saver = new StreamingCodeFileSaver(CodeGenTypeEnum.MULTI_FILE, APP_ID);
+        saver.append("```css\np{color:red}\n```\n");
+
+        assertThrows(BusinessException.class, saver::complete);
+        assertTrue(tmpFiles().isEmpty());
+        assertFalse(new File(CodeOutputSnapshots.resolveCurrentDir(appDir), "style.css").exists());
+    }
+
+    private List<File> tmpFiles() {
+        return FileUtil.loopFiles(appDir, file -> file.getName().endsWith(".tmp"));
+    }
+}
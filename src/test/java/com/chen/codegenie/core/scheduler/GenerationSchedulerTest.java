@@ -0,0 +1,95 @@
+package com.chen.codegenie.core.scheduler;
+
+import com.chen.codegenie.config.GenerationSchedulerConfig;
+import com.chen.codegenie.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class GenerationSchedulerTest {
+
+    @Test
+    void queuedRequestsRunByPriorityThenArrival() {
+        GenerationScheduler scheduler = newScheduler(1, 1, 10);
+        List<String> started = new CopyOnWriteArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        Sinks.Empty<Void> first = Sinks.empty();
+
+        scheduler.schedule(1L, 0, () -> {
+            started.add("first");
+            return first.asMono().thenMany(Flux.<String>empty());
+        }).subscribe();
+        Disposable low = scheduler.schedule(2L, 0, () -> track(started, "low"))
+                .contextWrite(Context.of(QueueListener.class, (QueueListener) positions::add))
+                .subscribe();
+        scheduler.schedule(3L, 99, () -> track(started, "high")).subscribe();
+
+        assertEquals(List.of("first"), started);
+        assertEquals(2, scheduler.getQueueSize());
+        // 高优先级插队后，低优先级的位置变为 2
+        assertEquals(List.of(1, 2), positions);
+
+        first.tryEmitEmpty();
+        assertEquals(List.of("first", "high", "low"), started);
+        assertEquals(0, scheduler.getRunningCount());
+        low.dispose();
+    }
+
+    @Test
+    void perUserCapLetsOtherUsersThrough() {
+        GenerationScheduler scheduler = newScheduler(2, 1, 10);
+        List<String> started = new CopyOnWriteArrayList<>();
+        scheduler.schedule(1L, 0, () -> track(started, "a1").concatWith(Flux.never())).subscribe();
+        scheduler.schedule(1L, 0, () -> track(started, "a2")).subscribe();
+        scheduler.schedule(2L, 0, () -> track(started, "b1").concatWith(Flux.never())).subscribe();
+        assertEquals(List.of("a1", "b1"), started);
+        assertEquals(1, scheduler.getQueueSize());
+    }
+
+    @Test
+    void requestsWithoutUserSkipPerUserCap() {
+        GenerationScheduler scheduler = newScheduler(3, 1, 10);
+        for (int i = 0; i < 3; i++) {
+            scheduler.schedule(null, -1, () -> Flux.<String>never()).subscribe();
+        }
+        assertEquals(3, scheduler.getRunningCount());
+        assertEquals(0, scheduler.getQueueSize());
+    }
+
+    @Test
+    void fullQueueIsRejected() {
+        GenerationScheduler scheduler = newScheduler(1, 1, 1);
+        scheduler.schedule(1L, 0, Flux::never).subscribe();
+        Disposable queued = scheduler.schedule(2L, 0, Flux::never).subscribe();
+        List<Throwable> errors = new ArrayList<>();
+        scheduler.schedule(3L, 0, Flux::never).subscribe(chunk -> {
+        }, errors::add);
+        assertInstanceOf(BusinessException.class, errors.get(0));
+        // 排队中取消后释放位置
+        queued.dispose();
+        assertEquals(0, scheduler.getQueueSize());
+    }
+
+    private Flux<String> track(List<String> started, String name) {
+        started.add(name);
+        return Flux.just(name);
+    }
+
+    private GenerationScheduler newScheduler(int maxConcurrent, int maxPerUser, int maxQueueSize) {
+        GenerationSchedulerConfig config = new GenerationSchedulerConfig();
+        config.setMaxConcurrent(maxConcurrent);
+        config.setMaxConcurrentPerUser(maxPerUser);
+        config.setMaxQueueSize(maxQueueSize);
+        GenerationScheduler scheduler = new GenerationScheduler(config);
+        return scheduler;
+    }
+}
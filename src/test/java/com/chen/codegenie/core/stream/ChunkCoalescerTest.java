@@ -0,0 +1,41 @@
+package com.chen.codegenie.core.stream;
+
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkCoalescerTest {
+
+    @Test
+    void coalesceKeepsContentAndReducesEvents() {
+        Flux<String> tokens = Flux.range(0, 200).map(i -> "t" + i + " ").delayElements(Duration.ofMillis(1));
+        List<String> batches = ChunkCoalescer.coalesce(tokens, Duration.ofMillis(30), 4096)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        String expected = String.join("", tokens.collectList().block());
+        assertEquals(expected, String.join("", batches));
+        assertTrue(batches.size() < 200, "events: " + batches.size());
+    }
+
+    @Test
+    void batchThresholdFlushesImmediately() {
+        Flux<String> tokens = Flux.just("a", "bb", "ccc", "dddd");
+        List<String> batches = ChunkCoalescer.coalesce(tokens, Duration.ofSeconds(10), 3)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        assertEquals(List.of("a", "bbccc", "dddd"), batches);
+    }
+
+    @Test
+    void encoderProducesValidJson() {
+        String chunk = "<p class=\"a\">\\ 中文\n\t\r\u0001 </p>";
+        String json = SseDataEncoder.wrapChunk(chunk);
+        assertEquals(chunk, JSONUtil.parseObj(json).getStr("d"));
+    }
+}
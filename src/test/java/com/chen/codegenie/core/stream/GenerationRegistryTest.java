@@ -0,0 +1,150 @@
+package com.chen.codegenie.core.stream;
+
+import com.chen.codegenie.config.SseStreamConfig;
+import com.chen.codegenie.core.scheduler.QueueListener;
+import com.chen.codegenie.exception.BusinessException;
+import com.chen.codegenie.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GenerationRegistryTest {
+
+    @Test
+    void newMessageIsRejectedWhileGenerating() {
+        GenerationRegistry registry = newRegistry();
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        GenerationSession first = registry.start(1L, 1L, () -> {
+            upstreamCalls.incrementAndGet();
+            return upstream.asFlux();
+        });
+        upstream.tryEmitNext("a");
+        // 新消息不能被替换成上一条消息的生成流
+        BusinessException e = assertThrows(BusinessException.class, () -> registry.start(1L, 1L, () -> {
+            upstreamCalls.incrementAndGet();
+            return Flux.just("b");
+        }));
+        assertEquals(ErrorCode.OPERATION_ERROR.getCode(), e.getCode());
+        assertEquals(1, upstreamCalls.get());
+
+        // 显式跟随进行中的生成
+        GenerationSession follower = registry.getActive(1L);
+        assertSame(first, follower);
+        upstream.tryEmitNext("b");
+        upstream.tryEmitComplete();
+        List<String> seen = follower.follow().map(GenerationEvent::getData).collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of(SseDataEncoder.wrapChunk("a"), SseDataEncoder.wrapChunk("b")), seen);
+
+        // 结束后可以开始新的生成
+        assertFalse(registry.isGenerating(1L));
+        assertNotSame(first, registry.start(1L, 1L, () -> Flux.just("c")));
+    }
+
+    @Test
+    void secondSenderFollowsRunningGeneration() {
+        GenerationRegistry registry = newRegistry();
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicReference<GenerationSession> followed = new AtomicReference<>();
+
+        GenerationSession first = registry.startOrFollow(4L, 1L, () -> {
+            upstreamCalls.incrementAndGet();
+            return upstream.asFlux();
+        }, followed::set);
+        assertNull(followed.get());
+        upstream.tryEmitNext("a");
+
+        // 另一个页面发送的消息不调用模型，接入进行中的生成
+        GenerationSession second = registry.startOrFollow(4L, 1L, () -> {
+            upstreamCalls.incrementAndGet();
+            return Flux.just("b");
+        }, followed::set);
+        assertSame(first, second);
+        assertSame(first, followed.get());
+        assertEquals(1, upstreamCalls.get());
+        upstream.tryEmitComplete();
+        List<String> seen = second.follow().map(GenerationEvent::getData).collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of(SseDataEncoder.wrapChunk("a")), seen);
+    }
+
+    @Test
+    void queuePositionReachesViewersThroughContext() {
+        GenerationRegistry registry = newRegistry();
+        GenerationSession session = registry.start(2L, 1L, () -> Flux.deferContextual(context -> {
+            context.get(QueueListener.class).onQueued(3);
+            return Flux.just("a");
+        }));
+        List<GenerationEvent> events = session.follow().collectList().block(Duration.ofSeconds(5));
+        assertEquals(GenerationSession.QUEUED_EVENT, events.get(0).getEvent());
+        assertEquals("{\"position\":3}", events.get(0).getData());
+        assertEquals(SseDataEncoder.wrapChunk("a"), events.get(1).getData());
+    }
+
+    @Test
+    void slowViewerIsDisconnectedWithoutStallingOthers() {
+        SseStreamConfig config = newConfig();
+        config.setMaxPendingChars(64);
+        GenerationRegistry registry = new GenerationRegistry(config);
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = registry.start(3L, 1L, upstream::asFlux);
+
+        // 慢客户端只请求一个事件后不再读取
+        AtomicReference<Throwable> slowError = new AtomicReference<>();
+        session.follow().subscribe(new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(GenerationEvent value) {
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                slowError.set(throwable);
+            }
+        });
+        Mono<List<GenerationEvent>> fast = session.follow().collectList().cache();
+        fast.subscribe();
+        for (int i = 0; i < 20; i++) {
+            upstream.tryEmitNext("0123456789");
+        }
+        upstream.tryEmitComplete();
+
+        assertEquals(20, fast.block(Duration.ofSeconds(5)).size());
+        BusinessException e = assertInstanceOf(BusinessException.class, slowError.get());
+        assertEquals(ErrorCode.OPERATION_ERROR.getCode(), e.getCode());
+    }
+
+    /**
+     * 输出片段不做时间窗口合并的登记表
+     */
+    private static GenerationRegistry newRegistry() {
+        return new GenerationRegistry(newConfig());
+    }
+
+    private static SseStreamConfig newConfig() {
+        SseStreamConfig config = new SseStreamConfig();
+        config.setFlushInterval(Duration.ZERO);
+        return config;
+    }
+}
@@ -0,0 +1,81 @@
+package com.chen.codegenie.core.stream;
+
+import com.chen.codegenie.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GenerationSessionTest {
+
+    @Test
+    void resumeReplaysOnlyMissedEvents() {
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = new GenerationSession("g1", 1L, 1L, 16, 1 << 20, Duration.ofSeconds(10));
+        session.start(upstream.asFlux());
+        upstream.tryEmitNext("a");
+        upstream.tryEmitNext("b");
+        upstream.tryEmitNext("c");
+        upstream.tryEmitComplete();
+
+        List<GenerationEvent> events = session.attach(1).collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of(2L, 3L), events.stream().map(GenerationEvent::getSeq).toList());
+        assertEquals(SseDataEncoder.wrapChunk("b"), events.get(0).getData());
+    }
+
+    @Test
+    void resumeBeyondReplayCapacityIsRejected() {
+        GenerationSession session = new GenerationSession("g2", 1L, 1L, 2, 1 << 20, Duration.ofSeconds(10));
+        session.start(Flux.just("a", "b", "c", "d"));
+        assertThrows(BusinessException.class, () -> session.attach(1));
+        assertEquals(2, session.attach(2).count().block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void resumeFailsWhenBreakpointIsEvictedBeforeSubscribing() {
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        GenerationSession session = new GenerationSession("g4", 1L, 1L, 2, 1 << 20, Duration.ofSeconds(10));
+        session.start(upstream.asFlux());
+        upstream.tryEmitNext("a");
+        upstream.tryEmitNext("b");
+        Flux<GenerationEvent> resumed = session.attach(0);
+        // 检查通过后、订阅前又有事件把断点挤出回放缓冲
+        upstream.tryEmitNext("c");
+        upstream.tryEmitNext("d");
+
+        assertThrows(BusinessException.class, () -> resumed.blockLast(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void cancelDisposesUpstreamOutsideSessionLock() {
+        AtomicBoolean lockHeld = new AtomicBoolean(true);
+        GenerationSession session = new GenerationSession("g5", 1L, 1L, 16, 1 << 20, Duration.ofSeconds(10));
+        session.start(Flux.<String>never().doOnCancel(() -> lockHeld.set(Thread.holdsLock(session))));
+        session.cancel();
+
+        assertFalse(lockHeld.get());
+        assertTrue(session.isTerminated());
+    }
+
+    @Test
+    void upstreamIsCancelledAfterGracePeriodWithoutSubscribers() throws InterruptedException {
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        GenerationSession session = new GenerationSession("g3", 1L, 1L, 16, 1 << 20, Duration.ofMillis(100));
+        session.start(Flux.<String>never().doOnCancel(() -> cancelled.set(true)));
+        // 断开后在宽限期内重连，不会取消
+        session.attach(0).take(Duration.ofMillis(50)).blockLast();
+        session.attach(0).take(Duration.ofMillis(50)).blockLast();
+        assertFalse(cancelled.get());
+        Thread.sleep(300);
+        assertTrue(cancelled.get());
+        assertTrue(session.isTerminated());
+    }
+}
@@ -0,0 +1,191 @@
+package com.chen.codegenie.loadtest;
+
+import com.chen.codegenie.ai.mock.FakeStreamingChatModel;
+import com.chen.codegenie.config.FakeModelConfig;
+import com.chen.codegenie.config.SseStreamConfig;
+import com.chen.codegenie.core.stream.GenerationEvent;
+import com.chen.codegenie.core.stream.GenerationRegistry;
+import com.chen.codegenie.core.stream.GenerationSession;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 生成事件流进程内压测工具
+ * 不启动 Web 容器和数据库：N 路生成同时经过模拟模型、{@link GenerationRegistry} 的片段合并与事件编码，
+ * 每个事件按 SSE 格式写入一条本机 socket 连接并立即 flush，与 Servlet 容器逐事件写出一致。
+ * 依次以不合并（flushInterval=0）和默认合并窗口运行，输出事件速率和每路生成的 CPU 占用：
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.chen.codegenie.loadtest.GenerationStreamLoadDriver \
+ *     -Dloadtest.streams=100 -Dloadtest.tokensPerSecond=60
+ * </pre>
+ * 模拟模型按 20ms 节拍批量推送 token，这里把每批拆回单个 token 再推送，与真实模型逐 token 返回一致。
+ * 每路生成结束后立即在同一连接上开始下一次，测量期间并发数保持不变。
+ *
+ * @author chen
+ */
+public class GenerationStreamLoadDriver {
+
+    private static final int STREAMS = Integer.getInteger("loadtest.streams", 100);
+
+    private static final int TOKENS_PER_SECOND = Integer.getInteger("loadtest.tokensPerSecond", 60);
+
+    private static final Duration WARM_UP = Duration.parse(System.getProperty("loadtest.warmUp", "PT10S"));
+
+    private static final Duration DURATION = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+
+    private static final String PROMPT = "做一个任务记录网站";
+
+    private final Duration flushInterval;
+
+    private final FakeModelConfig fakeModelConfig = new FakeModelConfig();
+
+    private final AtomicLong events = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    private GenerationStreamLoadDriver(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+        fakeModelConfig.setTimeToFirstToken(Duration.ofMillis(200));
+        fakeModelConfig.setTokensPerSecond(TOKENS_PER_SECOND);
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("并发生成 %d 路，每路 %d token/s，预热 %ds，测量 %ds%n",
+                STREAMS, TOKENS_PER_SECOND, WARM_UP.toSeconds(), DURATION.toSeconds());
+        for (Duration flushInterval : List.of(Duration.ZERO, new SseStreamConfig().getFlushInterval())) {
+            new GenerationStreamLoadDriver(flushInterval).run();
+        }
+    }
+
+    private void run() throws Exception {
+        SseStreamConfig sseStreamConfig = new SseStreamConfig();
+        sseStreamConfig.setFlushInterval(flushInterval);
+        GenerationRegistry registry = new GenerationRegistry(sseStreamConfig);
+        FakeStreamingChatModel model = new FakeStreamingChatModel(fakeModelConfig);
+        List<Socket> sockets = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, STREAMS, InetAddress.getLoopbackAddress())) {
+            for (int i = 0; i < STREAMS; i++) {
+                Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+                Socket accepted = server.accept();
+                sockets.add(client);
+                sockets.add(accepted);
+                Thread.ofVirtual().start(() -> drain(client));
+                OutputStream out = new BufferedOutputStream(accepted.getOutputStream());
+                generate(registry, model, (long) i + 1, out);
+            }
+            Thread.sleep(WARM_UP.toMillis());
+            long startEvents = events.get();
+            long startBytes = bytes.get();
+            long startCpu = processCpuNanos();
+            long startNanos = System.nanoTime();
+            Thread.sleep(DURATION.toMillis());
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            double cpuMillis = (processCpuNanos() - startCpu) / 1e6;
+            double eventRate = (events.get() - startEvents) / seconds;
+            System.out.printf("flushInterval=%dms: %.0f 事件/s（每路 %.1f），%.1f KB/s，CPU %.2f ms/路/s，错误 %d%n",
+                    flushInterval.toMillis(), eventRate, eventRate / STREAMS, (bytes.get() - startBytes) / seconds / 1024,
+                    cpuMillis / seconds / STREAMS, errors.get());
+        } finally {
+            running = false;
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            model.destroy();
+        }
+    }
+
+    /**
+     * 在同一连接上循环生成，每个事件写出后立即 flush
+     */
+    private void generate(GenerationRegistry registry, FakeStreamingChatModel model, long appId, OutputStream out) {
+        if (!running) {
+            return;
+        }
+        GenerationSession session = registry.start(appId, 1L, () -> tokens(model));
+        session.follow().subscribe(
+                event -> write(session, event, out),
+                e -> {
+                    errors.incrementAndGet();
+                    generate(registry, model, appId, out);
+                },
+                () -> generate(registry, model, appId, out));
+    }
+
+    private void write(GenerationSession session, GenerationEvent event, OutputStream out) {
+        String frame = "id:" + GenerationRegistry.toEventId(session, event) + "\ndata:" + event.getData() + "\n\n";
+        byte[] data = frame.getBytes(StandardCharsets.UTF_8);
+        try {
+            out.write(data);
+            out.flush();
+        } catch (IOException e) {
+            // 测量结束后连接已关闭
+            return;
+        }
+        events.incrementAndGet();
+        bytes.addAndGet(data.length);
+    }
+
+    /**
+     * 模拟模型的输出，每个 token 单独推送
+     */
+    private Flux<String> tokens(FakeStreamingChatModel model) {
+        int charsPerToken = fakeModelConfig.getCharsPerToken();
+        return Flux.create(sink -> model.chat(ChatRequest.builder().messages(UserMessage.from(PROMPT)).build(),
+                new StreamingChatResponseHandler() {
+                    @Override
+                    public void onPartialResponse(String partialResponse) {
+                        for (int i = 0; i < partialResponse.length(); i += charsPerToken) {
+                            sink.next(partialResponse.substring(i, Math.min(partialResponse.length(), i + charsPerToken)));
+                        }
+                    }
+
+                    @Override
+                    public void onCompleteResponse(ChatResponse completeResponse) {
+                        sink.complete();
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        sink.error(error);
+                    }
+                }));
+    }
+
+    private static void drain(Socket socket) {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = socket.getInputStream()) {
+            while (in.read(buffer) >= 0) {
+                // 只读取丢弃，模拟及时接收的客户端
+            }
+        } catch (IOException ignored) {
+            // 测量结束后连接已关闭
+        }
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+    }
+}
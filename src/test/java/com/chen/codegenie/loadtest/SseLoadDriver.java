@@ -0,0 +1,224 @@
+package com.chen.codegenie.loadtest;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * SSE 生成接口压测工具
+ * 同时打开 N 个 /app/chat/gen/code 连接，统计首字延迟、输出吞吐和完成耗时分位数。
+ * 配合 mock 环境使用（--spring.profiles.active=local,mock），全程不访问外部模型接口：
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.chen.codegenie.loadtest.SseLoadDriver \
+ *     -Dloadtest.connections=100 -Dloadtest.userName=admin -Dloadtest.userPassword=12345678
+ * </pre>
+ * 每个连接使用单独创建的应用，且提示词带随机后缀，避免同应用合并生成和首轮结果缓存命中影响结果。
+ *
+ * @author chen
+ */
+public class SseLoadDriver {
+
+    private static final String BASE_URL = System.getProperty("loadtest.baseUrl", "http://localhost:8080");
+
+    private static final String USER_NAME = System.getProperty("loadtest.userName", "admin");
+
+    private static final String USER_PASSWORD = System.getProperty("loadtest.userPassword", "12345678");
+
+    private static final int CONNECTIONS = Integer.getInteger("loadtest.connections", 50);
+
+    private static final String PROMPT = System.getProperty("loadtest.prompt", "做一个任务记录网站");
+
+    private static final Duration TIMEOUT = Duration.parse(System.getProperty("loadtest.timeout", "PT5M"));
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .cookieHandler(new CookieManager())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        new SseLoadDriver().run();
+    }
+
+    private void run() throws Exception {
+        login();
+        String nonce = Long.toHexString(System.nanoTime());
+        List<Long> appIds = new ArrayList<>();
+        for (int i = 0; i < CONNECTIONS; i++) {
+            appIds.add(createApp(PROMPT + " #" + nonce + "-" + i));
+        }
+        System.out.printf("已创建 %d 个应用，开始压测 %s%n", CONNECTIONS, BASE_URL);
+
+        List<Result> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(CONNECTIONS);
+        long wallStart;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONNECTIONS; i++) {
+                long appId = appIds.get(i);
+                String message = PROMPT + " #" + nonce + "-" + i;
+                executor.submit(() -> {
+                    try {
+                        startSignal.await();
+                        results.add(generate(appId, message));
+                    } catch (Exception e) {
+                        results.add(Result.failed(e.toString()));
+                    } finally {
+                        finished.countDown();
+                    }
+                    return null;
+                });
+            }
+            wallStart = System.nanoTime();
+            startSignal.countDown();
+            finished.await();
+        }
+        long wallNanos = System.nanoTime() - wallStart;
+        report(results, wallNanos);
+    }
+
+    private void login() throws IOException, InterruptedException {
+        JSONObject body = JSONUtil.createObj().set("userName", USER_NAME).set("userPassword", USER_PASSWORD);
+        JSONObject response = postJson("/user/login", body);
+        if (response.getInt("code") != 0) {
+            throw new IllegalStateException("登录失败：" + response.getStr("message"));
+        }
+    }
+
+    private long createApp(String initPrompt) throws IOException, InterruptedException {
+        JSONObject response = postJson("/app/add", JSONUtil.createObj().set("initPrompt", initPrompt));
+        if (response.getInt("code") != 0) {
+            throw new IllegalStateException("创建应用失败：" + response.getStr("message"));
+        }
+        return response.getLong("data");
+    }
+
+    private JSONObject postJson(String path, JSONObject body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(BASE_URL + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        return JSONUtil.parseObj(response.body());
+    }
+
+    /**
+     * 发起一次生成并读取到结束事件
+     */
+    private Result generate(long appId, String message) throws IOException, InterruptedException {
+        URI uri = URI.create(BASE_URL + "/app/chat/gen/code?appId=" + appId
+                + "&message=" + URLEncoder.encode(message, StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Accept", "text/event-stream")
+                .timeout(TIMEOUT)
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+        if (response.statusCode() != 200) {
+            return Result.failed("HTTP " + response.statusCode());
+        }
+        Result result = new Result();
+        String event = null;
+        StringBuilder data = new StringBuilder();
+        try (Stream<String> lines = response.body()) {
+            for (String line : (Iterable<String>) lines::iterator) {
+                if (line.startsWith("event:")) {
+                    event = line.substring(6).trim();
+                } else if (line.startsWith("data:")) {
+                    data.append(line.substring(5));
+                } else if (line.isEmpty()) {
+                    if ("done".equals(event)) {
+                        result.completeNanos = System.nanoTime() - start;
+                        return result;
+                    }
+                    if (event == null && !data.isEmpty()) {
+                        if (result.firstTokenNanos < 0) {
+                            result.firstTokenNanos = System.nanoTime() - start;
+                        }
+                        result.chars += JSONUtil.parseObj(data.toString()).getStr("d", "").length();
+                        result.events++;
+                    }
+                    event = null;
+                    data.setLength(0);
+                }
+            }
+        }
+        // 没有收到结束事件，说明生成出错或连接被中断
+        result.error = "未收到结束事件";
+        return result;
+    }
+
+    private void report(List<Result> results, long wallNanos) {
+        List<Result> succeeded = results.stream().filter(result -> result.error == null).toList();
+        long failed = results.size() - succeeded.size();
+        long totalChars = succeeded.stream().mapToLong(result -> result.chars).sum();
+        long totalEvents = succeeded.stream().mapToLong(result -> result.events).sum();
+        double wallSeconds = wallNanos / 1e9;
+        System.out.printf("连接数: %d，成功: %d，失败: %d，总耗时: %.2fs%n",
+                results.size(), succeeded.size(), failed, wallSeconds);
+        System.out.printf("输出: %d 字符 / %d 事件，吞吐: %.0f 字符/s，平均每事件 %.1f 字符%n",
+                totalChars, totalEvents, totalChars / wallSeconds, totalEvents == 0 ? 0 : (double) totalChars / totalEvents);
+        printPercentiles("首字延迟", succeeded, result -> result.firstTokenNanos);
+        printPercentiles("完成耗时", succeeded, result -> result.completeNanos);
+        results.stream()
+                .filter(result -> result.error != null)
+                .map(result -> result.error)
+                .distinct()
+                .limit(10)
+                .forEach(error -> System.out.println("失败原因: " + error));
+    }
+
+    private void printPercentiles(String name, List<Result> results, ToLongFunction<Result> metric) {
+        long[] values = results.stream().mapToLong(metric).filter(value -> value >= 0).sorted().toArray();
+        if (values.length == 0) {
+            System.out.printf("%s: 无数据%n", name);
+            return;
+        }
+        System.out.printf("%s(ms): p50=%.1f p90=%.1f p99=%.1f max=%.1f%n", name,
+                percentile(values, 0.50), percentile(values, 0.90), percentile(values, 0.99),
+                values[values.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static class Result {
+
+        long firstTokenNanos = -1;
+
+        long completeNanos = -1;
+
+        long chars;
+
+        long events;
+
+        String error;
+
+        static Result failed(String error) {
+            Result result = new Result();
+            result.error = error;
+            return result;
+        }
+    }
+}
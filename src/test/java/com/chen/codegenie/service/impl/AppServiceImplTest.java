@@ -0,0 +1,142 @@
+package com.chen.codegenie.service.impl;
+
+import cn.hutool.core.io.FileUtil;
+import com.chen.codegenie.ai.AiCodeGeneratorServiceFactory;
+import com.chen.codegenie.ai.memory.ChatMemorySummarizer;
+import com.chen.codegenie.ai.mock.FakeChatModel;
+import com.chen.codegenie.ai.mock.FakeStreamingChatModel;
+import com.chen.codegenie.config.BlobStoreConfig;
+import com.chen.codegenie.config.ChatMemoryConfig;
+import com.chen.codegenie.config.FakeModelConfig;
+import com.chen.codegenie.config.GenerationSchedulerConfig;
+import com.chen.codegenie.config.ResultCacheConfig;
+import com.chen.codegenie.config.StaticCompressionConfig;
+import com.chen.codegenie.constant.ChatHistoryConstant;
+import com.chen.codegenie.core.AiCodeGeneratorFacade;
+import com.chen.codegenie.core.blob.CodeBlobStore;
+import com.chen.codegenie.core.cache.CacheInvalidationBus;
+import com.chen.codegenie.core.cache.GenerationResultCache;
+import com.chen.codegenie.core.compress.StaticFileCompressor;
+import com.chen.codegenie.core.deploy.DeployAssetPipeline;
+import com.chen.codegenie.core.metrics.GenerationMetrics;
+import com.chen.codegenie.core.saver.CodeFileSaverTemplate;
+import com.chen.codegenie.core.scheduler.GenerationScheduler;
+import com.chen.codegenie.core.stream.GenerationRegistry;
+import com.chen.codegenie.mapper.AppMapper;
+import com.chen.codegenie.model.entity.App;
+import com.chen.codegenie.model.entity.User;
+import com.chen.codegenie.model.enums.CodeGenTypeEnum;
+import com.chen.codegenie.service.AppService;
+import com.chen.codegenie.service.ChatHistoryService;
+import com.chen.codegenie.service.UserService;
+import com.mybatisflex.core.query.QueryWrapper;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 使用模拟模型运行生成流程，不需要模型接口密钥、数据库和 Redis
+ */
+class AppServiceImplTest {
+
+    private static final long APP_ID = 900_000_000_000_000_003L;
+
+    private static final long USER_ID = 1L;
+
+    private final AppMapper mapper = mock(AppMapper.class);
+
+    private final ChatHistoryService chatHistoryService = mock(ChatHistoryService.class);
+
+    private FakeStreamingChatModel streamingChatModel;
+
+    private AppServiceImpl appService;
+
+    @BeforeEach
+    void setUp() {
+        FakeModelConfig fakeModelConfig = new FakeModelConfig();
+        fakeModelConfig.setTimeToFirstToken(Duration.ZERO);
+        fakeModelConfig.setTokensPerSecond(200);
+        streamingChatModel = new FakeStreamingChatModel(fakeModelConfig);
+        GenerationMetrics generationMetrics = new GenerationMetrics(new SimpleMeterRegistry(),
+                mock(GenerationRegistry.class), mock(GenerationScheduler.class));
+        CacheInvalidationBus cacheInvalidationBus = new CacheInvalidationBus(mock(StringRedisTemplate.class),
+                mock(RedisMessageListenerContainer.class));
+        AiCodeGeneratorServiceFactory serviceFactory = new AiCodeGeneratorServiceFactory(new InMemoryChatMemoryStore(),
+                new FakeChatModel(), streamingChatModel, chatHistoryService, mock(AppService.class), generationMetrics,
+                new ChatMemoryConfig(), cacheInvalidationBus, mock(ChatMemorySummarizer.class));
+        serviceFactory.init();
+        ResultCacheConfig resultCacheConfig = new ResultCacheConfig();
+        GenerationResultCache generationResultCache = new GenerationResultCache(resultCacheConfig);
+        generationResultCache.init();
+        AiCodeGeneratorFacade aiCodeGeneratorFacade = new AiCodeGeneratorFacade(serviceFactory, generationResultCache,
+                resultCacheConfig, generationMetrics, new StaticFileCompressor(new StaticCompressionConfig()),
+                new CodeBlobStore(new BlobStoreConfig()));
+        GenerationSchedulerConfig generationSchedulerConfig = new GenerationSchedulerConfig();
+        AppMapper appMapper = mapper;
+        appService = new AppServiceImpl(mock(UserService.class), aiCodeGeneratorFacade, mock(GenerationRegistry.class),
+                new GenerationScheduler(generationSchedulerConfig), generationSchedulerConfig,
+                mock(DeployAssetPipeline.class), serviceFactory, chatHistoryService) {
+            {
+                // Mapper 由 mybatis-flex 的 ServiceImpl 注入
+                mapper = appMapper;
+            }
+        };
+        App app = App.builder()
+                .id(APP_ID)
+                .userId(USER_ID)
+                .codeGenType(CodeGenTypeEnum.HTML.getValue())
+                .build();
+        when(mapper.selectOneById(APP_ID)).thenReturn(app);
+        // 非首轮对话，不使用生成结果缓存
+        when(chatHistoryService.count(any(QueryWrapper.class))).thenReturn(1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamingChatModel.destroy();
+        FileUtil.del(CodeFileSaverTemplate.getOutputDirPath(CodeGenTypeEnum.HTML, APP_ID));
+    }
+
+    @Test
+    void cancelSavesPartialAiMessageWithIncompleteMark() {
+        User loginUser = new User();
+        loginUser.setId(USER_ID);
+
+        List<String> chunks = appService.chatToGen(APP_ID, "做一个任务记录网站", loginUser)
+                .take(3)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertNotNull(chunks);
+        assertEquals(3, chunks.size());
+        verify(chatHistoryService).saveAiMessage(APP_ID, USER_ID,
+                String.join("", chunks) + ChatHistoryConstant.INCOMPLETE_AI_MESSAGE_MARK);
+    }
+
+    @Test
+    void cancelBeforeAnyOutputSavesNothing() {
+        User loginUser = new User();
+        loginUser.setId(USER_ID);
+
+        appService.chatToGen(APP_ID, "做一个任务记录网站", loginUser).subscribe().dispose();
+
+        verify(chatHistoryService, never()).saveAiMessage(eq(APP_ID), eq(USER_ID), anyString());
+    }
+}
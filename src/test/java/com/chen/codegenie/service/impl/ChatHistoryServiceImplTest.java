@@ -0,0 +1,77 @@
+package com.chen.codegenie.service.impl;
+
+import com.chen.codegenie.model.entity.ChatHistory;
+import com.chen.codegenie.model.enums.MessageTypeEnum;
+import com.mybatisflex.core.query.QueryWrapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChatHistoryServiceImplTest {
+
+    /**
+     * 按创建时间倒序：最新的是上一轮的 AI 回复
+     */
+    private static final List<ChatHistory> HISTORY = List.of(
+            history(MessageTypeEnum.AI, "<p>v2</p>"),
+            history(MessageTypeEnum.USER, "改成深色主题"),
+            history(MessageTypeEnum.AI, "<p>v1</p>"),
+            history(MessageTypeEnum.USER, "做一个任务记录网站"));
+
+    @Test
+    void warmUpKeepsLatestAiMessage() {
+        ChatMemory memory = MessageWindowChatMemory.withMaxMessages(20);
+
+        assertEquals(4, newService(HISTORY).loadChatHistoryToMemory(1L, memory, 20, false));
+        assertEquals(UserMessage.from("做一个任务记录网站"), memory.messages().getFirst());
+        assertEquals(AiMessage.from("<p>v2</p>"), memory.messages().getLast());
+    }
+
+    @Test
+    void userMessageSkipsItself() {
+        List<ChatHistory> history = new ArrayList<>(HISTORY);
+        history.addFirst(history(MessageTypeEnum.USER, "加一个搜索框"));
+        ChatMemory memory = MessageWindowChatMemory.withMaxMessages(20);
+
+        // 本轮用户消息已保存，由 AI 服务写入记忆
+        assertEquals(4, newService(history).loadChatHistoryToMemory(1L, memory, 20, true));
+        assertEquals(AiMessage.from("<p>v2</p>"), memory.messages().getLast());
+    }
+
+    @Test
+    void warmUpSkipsMessageBeingGenerated() {
+        List<ChatHistory> history = new ArrayList<>(HISTORY);
+        history.addFirst(history(MessageTypeEnum.USER, "加一个搜索框"));
+
+        // 预热与首条消息并发时，最新一条是正在生成的用户消息，不能重复写入记忆
+        assertEquals(AiMessage.from("<p>v2</p>"), ChatHistoryServiceImpl.toChatMessages(history, 20, false).getLast());
+    }
+
+    @Test
+    void keepsAtMostMaxCountNewestMessages() {
+        assertEquals(List.of(UserMessage.from("改成深色主题"), AiMessage.from("<p>v2</p>")),
+                ChatHistoryServiceImpl.toChatMessages(HISTORY, 2, false));
+        assertEquals(List.of(AiMessage.from("<p>v1</p>"), UserMessage.from("改成深色主题")),
+                ChatHistoryServiceImpl.toChatMessages(HISTORY, 2, true));
+    }
+
+    private static ChatHistoryServiceImpl newService(List<ChatHistory> history) {
+        return new ChatHistoryServiceImpl() {
+            @Override
+            public List<ChatHistory> list(QueryWrapper query) {
+                return history;
+            }
+        };
+    }
+
+    private static ChatHistory history(MessageTypeEnum type, String message) {
+        return ChatHistory.builder().appId(1L).messageType(type.getValue()).message(message).build();
+    }
+}
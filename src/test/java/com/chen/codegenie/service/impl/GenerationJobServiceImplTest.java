@@ -0,0 +1,118 @@
+package com.chen.codegenie.service.impl;
+
+import com.chen.codegenie.config.GenerationJobConfig;
+import com.chen.codegenie.mapper.GenerationJobMapper;
+import com.chen.codegenie.model.entity.GenerationJob;
+import com.chen.codegenie.model.enums.GenerationJobStatusEnum;
+import com.chen.codegenie.service.AppService;
+import com.chen.codegenie.service.ChatHistoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class GenerationJobServiceImplTest {
+
+    private static final String OWNER = "node-1";
+
+    private final GenerationJobMapper mapper = mock(GenerationJobMapper.class);
+
+    private final ChatHistoryService chatHistoryService = mock(ChatHistoryService.class);
+
+    private final GenerationJobConfig config = new GenerationJobConfig();
+
+    private GenerationJobServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        GenerationJobMapper jobMapper = mapper;
+        service = new GenerationJobServiceImpl(mock(AppService.class), chatHistoryService, config) {
+            {
+                // Mapper 由 mybatis-flex 的 ServiceImpl 注入
+                mapper = jobMapper;
+            }
+        };
+    }
+
+    @Test
+    void claimFailsExhaustedJobsThenLeasesClaimable() {
+        GenerationJob job = newJob();
+        when(mapper.selectClaimableIdsForUpdate(config.getMaxAttempts(), 2)).thenReturn(List.of(job.getId()));
+        when(mapper.selectListByIds(List.of(job.getId()))).thenReturn(List.of(job));
+        LocalDateTime before = LocalDateTime.now();
+
+        assertEquals(List.of(job), service.claimJobs(OWNER, 2));
+
+        verify(mapper).failExhausted(config.getMaxAttempts());
+        verify(mapper).claim(eq(List.of(job.getId())), eq(OWNER),
+                argThat(expire -> !expire.isBefore(before.plus(config.getLeaseDuration()))));
+    }
+
+    @Test
+    void claimWithoutClaimableJobsLeasesNothing() {
+        when(mapper.selectClaimableIdsForUpdate(anyInt(), anyInt())).thenReturn(List.of());
+
+        assertTrue(service.claimJobs(OWNER, 2).isEmpty());
+        verify(mapper, never()).claim(anyList(), anyString(), any());
+    }
+
+    @Test
+    void renewSkipsEmptyIds() {
+        service.renewLeases(List.of(), OWNER);
+        verify(mapper, never()).renewLease(anyList(), anyString(), any());
+
+        service.renewLeases(List.of(1L), OWNER);
+        verify(mapper).renewLease(eq(List.of(1L)), eq(OWNER), any());
+    }
+
+    @Test
+    void finishRecordsAiMessage() {
+        GenerationJob job = newJob();
+        when(mapper.finish(job.getId(), OWNER, GenerationJobStatusEnum.SUCCEEDED.getValue(), "html_1", null)).thenReturn(1);
+
+        assertTrue(service.finishJob(job, OWNER, "html_1", null));
+        verify(chatHistoryService).saveAiMessage(eq(job.getAppId()), eq(job.getUserId()), anyString());
+    }
+
+    @Test
+    void finishAfterLeaseLostIsIgnored() {
+        GenerationJob job = newJob();
+        when(mapper.finish(any(), any(), any(), any(), any())).thenReturn(0);
+
+        // 任务已被其他节点接管，不能覆盖结果，也不能写入对话历史
+        assertFalse(service.finishJob(job, OWNER, null, "模型超时"));
+        verify(mapper).finish(eq(job.getId()), eq(OWNER), eq(GenerationJobStatusEnum.FAILED.getValue()), isNull(), eq("模型超时"));
+        verifyNoInteractions(chatHistoryService);
+    }
+
+    @Test
+    void releaseOnlyWhileHoldingLease() {
+        GenerationJob job = newJob();
+        when(mapper.release(job.getId(), OWNER)).thenReturn(1);
+
+        assertTrue(service.releaseJob(job, OWNER));
+        assertFalse(service.releaseJob(job, "node-2"));
+        verifyNoInteractions(chatHistoryService);
+    }
+
+    private static GenerationJob newJob() {
+        return GenerationJob.builder().id(100L).appId(1L).userId(2L).attempts(1).build();
+    }
+}
@@ -0,0 +1,83 @@
+const STORAGE_KEY = 'task-records';
+let tasks = JSON.parse(localStorage.getItem(STORAGE_KEY) || '[]');
+let currentFilter = 'all';
+
+const taskForm = document.getElementById('taskForm');
+const taskInput = document.getElementById('taskInput');
+const taskList = document.getElementById('taskList');
+const summaryText = document.getElementById('summaryText');
+
+function save() {
+    localStorage.setItem(STORAGE_KEY, JSON.stringify(tasks));
+}
+
+function formatTime(timestamp) {
+    const date = new Date(timestamp);
+    const pad = (n) => String(n).padStart(2, '0');
+    return `${date.getMonth() + 1}-${pad(date.getDate())} ${pad(date.getHours())}:${pad(date.getMinutes())}`;
+}
+
+function render() {
+    const visible = tasks.filter((task) => {
+        if (currentFilter === 'active') return !task.done;
+        if (currentFilter === 'done') return task.done;
+        return true;
+    });
+    taskList.innerHTML = '';
+    if (visible.length === 0) {
+        taskList.innerHTML = '<li class="empty">暂无任务</li>';
+    }
+    visible.forEach((task) => {
+        const li = document.createElement('li');
+        li.className = 'task-item' + (task.done ? ' done' : '');
+        li.innerHTML = `
+            <input type="checkbox" ${task.done ? 'checked' : ''}>
+            <span class="task-title"></span>
+            <span class="task-time">${formatTime(task.createdAt)}</span>
+            <button class="delete-btn" title="删除">&times;</button>
+        `;
+        li.querySelector('.task-title').textContent = task.title;
+        li.querySelector('input').addEventListener('change', () => {
+            task.done = !task.done;
+            save();
+            render();
+        });
+        li.querySelector('.delete-btn').addEventListener('click', () => {
+            tasks = tasks.filter((item) => item.id !== task.id);
+            save();
+            render();
+        });
+        taskList.appendChild(li);
+    });
+    const remaining = tasks.filter((task) => !task.done).length;
+    summaryText.textContent = `共 ${tasks.length} 项，未完成 ${remaining} 项`;
+}
+
+taskForm.addEventListener('submit', (event) => {
+    event.preventDefault();
+    const title = taskInput.value.trim();
+    if (!title) return;
+    tasks.unshift({ id: Date.now(), title, done: false, createdAt: Date.now() });
+    taskInput.value = '';
+    save();
+    render();
+});
+
+document.getElementById('filters').addEventListener('click', (event) => {
+    const filter = event.target.dataset.filter;
+    if (!filter) return;
+    currentFilter = filter;
+    document.querySelectorAll('#filters button').forEach((button) => {
+        button.classList.toggle('active', button.dataset.filter === filter);
+    });
+    render();
+});
+
+document.getElementById('clearDone').addEventListener('click', (event) => {
+    event.preventDefault();
+    tasks = tasks.filter((task) => !task.done);
+    save();
+    render();
+});
+
+render();
\ No newline at end of file